@@ -0,0 +1,44 @@
+import JSHOP2.*;
+import java.util.*;
+
+//-- Writes the problem to a snapshot, reads it back into a new domain object
+//-- and state of the world, and checks that the same plans are found for it.
+public class snapshot{
+	public static void main(String[] args) throws Exception {
+		Domain d = new logistics();
+		State s = new State(d.getConstantNo(), d.getAxioms(), d.getRigid());
+		TaskList tl = new ProblemLoader(d).loadProblem("problem", 0, s);
+
+		//-- The snapshot is written before the search, which changes the task
+		//-- list.
+		Snapshot.save("problem.snap", d, s, tl);
+
+		JSHOP2.initialize(d, s);
+		String expected = toString(d, JSHOP2.findPlans(tl, 1));
+
+		Domain loaded = new logistics();
+		s = new State(loaded.getConstantNo(), loaded.getAxioms(), loaded.getRigid());
+		tl = Snapshot.load("problem.snap", loaded, s);
+
+		JSHOP2.initialize(loaded, s);
+		String found = toString(loaded, JSHOP2.findPlans(tl, 1));
+
+		if (expected.isEmpty() || !found.equals(expected)) {
+			System.out.println("FAILED: the plans found for the snapshot are");
+			System.out.print(found);
+			System.exit(1);
+		}
+
+		System.out.println("OK: the same plans are found for the snapshot");
+		System.out.print(found);
+	}
+
+	private static String toString(Domain d, LinkedList<Plan> plans) {
+		StringBuilder s = new StringBuilder();
+
+		for (Plan p : plans)
+			s.append(p.toString(d));
+
+		return s.toString();
+	}
+}
@@ -0,0 +1,119 @@
+import JSHOP2.*;
+import java.util.*;
+
+//-- Checks that JSHOP2.replan() repairs the plan found for the problem the
+//-- right way. With no change to the state of the world, the same plan must be
+//-- found again, no matter how much of it was executed. When package2 is
+//-- moved to the shop by someone else after package1 is delivered, the
+//-- choices that led to the executed steps must be kept as they were, the
+//-- change must come right after them, and the search must go on from the
+//-- delivery of package2, which is the first choice the move affects.
+public class check{
+	private static Domain d;
+	private static ProblemLoader loader;
+	private static int failures = 0;
+
+	public static void main(String[] args) throws Exception {
+		Plan plan = JSHOP2.findRepairablePlans(load(), 1).getFirst();
+
+		expect("the plan found", ops(plan), new String[] {
+			"(!drive depot shop)",
+			"(!load package1 shop)",
+			"(!drive shop office)",
+			"(!unload package1 office)",
+			"(!load package2 office)",
+			"(!drive office depot)",
+			"(!unload package2 depot)"});
+
+		if (JSHOP2.findPlans(load(), 1).getFirst().getDecomposition() != null)
+			fail("findPlans() remembered the choices made to find the plan");
+
+		for (int executed = 0; executed <= plan.size(); executed++)
+			expect("the plan repaired with no change after " + executed + " steps",
+			       ops(replan(plan, executed, "()", "()")), ops(plan));
+
+		Plan repaired = replan(plan, 4, "((at package2 office))", "((at package2 shop))");
+
+		expect("the plan repaired after package2 is moved", ops(repaired), new String[] {
+			"(!drive depot shop)",
+			"(!load package1 shop)",
+			"(!drive shop office)",
+			"(!unload package1 office)",
+			"(!drive office shop)",
+			"(!load package2 shop)",
+			"(!drive shop depot)",
+			"(!unload package2 depot)"});
+
+		expect("the choices made to repair it", choices(repaired), new String[] {
+			"(deliver package1 office) by elsewhere",
+			"(go shop) by elsewhere",
+			"(!drive depot shop)",
+			"(!load package1 shop)",
+			"(go office) by elsewhere",
+			"(!drive shop office)",
+			"(!unload package1 office)",
+			"changed: -1 +1 atoms",
+			"(deliver package2 depot) by elsewhere",
+			"(go shop) by elsewhere",
+			"(!drive office shop)",
+			"(!load package2 shop)",
+			"(go depot) by elsewhere",
+			"(!drive shop depot)",
+			"(!unload package2 depot)"});
+
+		if (failures != 0) {
+			System.out.println(failures + " check(s) FAILED");
+			System.exit(1);
+		}
+
+		System.out.println("OK: the plans were repaired the right way");
+	}
+
+	//-- The state of the world must be the initial one every time a plan is
+	//-- found or repaired, so the problem is loaded again each time.
+	private static TaskList load() throws Exception {
+		d = new delivery();
+		State s = new State(d.getConstantNo(), d.getAxioms(), d.getRigid());
+		loader = new ProblemLoader(d);
+		TaskList tl = loader.loadProblem("problem", 0, s);
+		JSHOP2.initialize(d, s);
+		return tl;
+	}
+
+	private static Plan replan(Plan plan, int executed, String deletions, String additions) throws Exception {
+		TaskList tl = load();
+		LinkedList<Plan> plans = JSHOP2.replan(tl, plan, executed, loader.parseAtoms(deletions),
+		                                       loader.parseAtoms(additions), 1);
+
+		if (plans.isEmpty()) {
+			fail("no plan was found after " + executed + " steps");
+			return plan;
+		}
+
+		return plans.getFirst();
+	}
+
+	private static String[] ops(Plan plan) {
+		String[] retVal = new String[plan.size()];
+		int i = 0;
+
+		for (Predicate op : plan.getOps())
+			retVal[i++] = op.toString(d.getPrimitiveTasks(), d);
+
+		return retVal;
+	}
+
+	private static String[] choices(Plan plan) {
+		return plan.getDecomposition().toString(d).split("\\r?\\n");
+	}
+
+	private static void expect(String what, String[] found, String[] expected) {
+		if (!Arrays.equals(found, expected))
+			fail(what + " is " + Arrays.asList(found) + ", not " + Arrays.asList(expected));
+	}
+
+	private static void fail(String message) {
+		System.out.println("FAILED: " + message);
+		failures++;
+	}
+}
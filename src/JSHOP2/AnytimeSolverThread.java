@@ -0,0 +1,170 @@
+package JSHOP2;
+
+/** The thread that invokes JSHOP2 to look for a cheapest plan for a planning
+ *  problem in the background, until either the whole search space is explored
+ *  or a time limit is reached. The cheapest plan found so far can be taken at
+ *  any time, and the first plan can be waited for, so that a plan is
+ *  available quickly while the search goes on looking for cheaper ones.
+ *
+ *  @author Okhtay Ilghami
+ *  @author <a href="http://www.cs.umd.edu/~okhtay">http://www.cs.umd.edu/~okhtay</a>
+ *  @version 1.0.3
+*/
+public class AnytimeSolverThread extends Thread implements PlanListener
+{
+  /** The cheapest plan found so far, or <code>null</code> if none has been
+   *  found yet.
+  */
+  private Plan best;
+
+  /** Whether or not the search is over.
+  */
+  private boolean done;
+
+  /** The estimate of the cost of achieving the remaining tasks, or
+   *  <code>null</code> if there is none.
+  */
+  private CostHeuristic heuristic;
+
+  /** The object to be told about each cheaper plan, or <code>null</code> if
+   *  there is none.
+  */
+  private PlanListener listener;
+
+  /** The search this thread runs, which uses the domain and the state of the
+   *  world of the thread that created it.
+  */
+  private JSHOP2 search;
+
+  /** The number of milliseconds after which the search must stop, or 0 if
+   *  there is no time limit.
+  */
+  private long timeLimit;
+
+  /** The task list to be achieved.
+  */
+  private TaskList tl;
+
+  /** To initialize this thread. The search it runs uses the domain and the
+   *  state of the world given to <code>JSHOP2.initialize()</code> by the
+   *  calling thread, which must not search with them until this thread is
+   *  done.
+   *
+   *  @param tlIn
+   *          the task list to be achieved by this thread.
+   *  @param heuristicIn
+   *          the estimate of the cost of achieving the remaining tasks, or
+   *          <code>null</code> if there is none.
+   *  @param timeLimitIn
+   *          the number of milliseconds after which the search must stop, or
+   *          0 if there is no time limit.
+   *  @param listenerIn
+   *          the object to be told about each cheaper plan, or
+   *          <code>null</code> if there is none. It is called by this thread.
+  */
+  public AnytimeSolverThread(TaskList tlIn, CostHeuristic heuristicIn,
+                             long timeLimitIn, PlanListener listenerIn)
+  {
+    tl = tlIn;
+    heuristic = heuristicIn;
+    timeLimit = timeLimitIn;
+    listener = listenerIn;
+    search = new JSHOP2(JSHOP2.getDomain(), JSHOP2.getState());
+  }
+
+  /** To return the cheapest plan found so far. This function can be called at
+   *  any time.
+   *
+   *  @return
+   *          the cheapest plan found so far, or <code>null</code> if none has
+   *          been found yet.
+  */
+  public synchronized Plan getBestPlan()
+  {
+    return best;
+  }
+
+  /** Whether or not the search is over, either because the whole search space
+   *  was explored or because it was stopped.
+   *
+   *  @return
+   *          <code>true</code> if the search is over, <code>false</code>
+   *          otherwise.
+  */
+  public synchronized boolean isDone()
+  {
+    return done;
+  }
+
+  /** To be told about a cheaper plan found by the search.
+  */
+  public void planImproved(Plan plan)
+  {
+    synchronized (this)
+    {
+      best = plan;
+      notifyAll();
+    }
+
+    if (listener != null)
+      listener.planImproved(plan);
+  }
+
+  /** The function that is called when this thread is invoked.
+  */
+  public void run()
+  {
+    JSHOP2.setInstance(search);
+
+    try
+    {
+      JSHOP2.findOptimalPlan(tl, heuristic, timeLimit, this);
+    }
+    finally
+    {
+      JSHOP2.setInstance(null);
+
+      synchronized (this)
+      {
+        done = true;
+        notifyAll();
+      }
+    }
+  }
+
+  /** To ask this thread to stop searching as soon as possible. The cheapest
+   *  plan found so far is still available afterwards.
+  */
+  public void halt()
+  {
+    search.halt();
+  }
+
+  /** To wait until either a plan is found, the search is over, or a given
+   *  amount of time has passed, whichever happens first.
+   *
+   *  @param millis
+   *          the maximum number of milliseconds to wait.
+   *  @return
+   *          the cheapest plan found so far, or <code>null</code> if none has
+   *          been found yet.
+   *  @throws InterruptedException
+   *          if the waiting thread is interrupted.
+  */
+  public synchronized Plan waitForPlan(long millis) throws InterruptedException
+  {
+    long end = System.currentTimeMillis() + millis;
+
+    while (best == null && !done)
+    {
+      long left = end - System.currentTimeMillis();
+
+      if (left <= 0)
+        break;
+
+      wait(left);
+    }
+
+    return best;
+  }
+}
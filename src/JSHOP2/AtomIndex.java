@@ -0,0 +1,159 @@
+package JSHOP2;
+
+import java.util.HashMap;
+import java.util.Vector;
+
+/** This class represents a hash index over the atoms with a given head in the
+ *  current state of the world, keyed on the values of some of their
+ *  arguments. It is used to find the atoms that can satisfy a logical atom
+ *  some arguments of which are bound without trying all the atoms with that
+ *  head. An index is only valid for the version of the atoms it was built
+ *  from, and is rebuilt by <code>State</code> when those atoms change.
+ *
+ *  @author Okhtay Ilghami
+ *  @author <a href="http://www.cs.umd.edu/~okhtay">http://www.cs.umd.edu/~okhtay</a>
+ *  @version 1.0.3
+*/
+public class AtomIndex
+{
+  /** The positions of the arguments the index is keyed on.
+  */
+  private int[] positions;
+
+  /** The version of the atoms this index was built from.
+  */
+  private int version;
+
+  /** The atoms, grouped by the values of the arguments the index is keyed
+   *  on. Within each group, the atoms are in the same order as in the state
+   *  of the world.
+  */
+  private HashMap<Term, Vector<Term>> table;
+
+  /** To build an index over a given set of atoms.
+   *
+   *  @param atoms
+   *          the argument lists of the atoms.
+   *  @param positionsIn
+   *          the positions of the arguments the index is keyed on.
+   *  @param versionIn
+   *          the version of the atoms.
+  */
+  public AtomIndex(Vector<Term> atoms, int[] positionsIn, int versionIn)
+  {
+    positions = positionsIn;
+    version = versionIn;
+    table = new HashMap<Term, Vector<Term>>();
+
+    for (Term t : atoms)
+    {
+      Term key = getKey(getArgs(t));
+
+      //-- Atoms that do not have enough arguments can never be found.
+      if (key == null)
+        continue;
+
+      Vector<Term> v = table.get(key);
+
+      if (v == null)
+      {
+        v = new Vector<Term>();
+        table.put(key, v);
+      }
+
+      v.add(t);
+    }
+  }
+
+  /** To get the atoms the arguments of which at the positions this index is
+   *  keyed on are equal to those of a given argument list.
+   *
+   *  @param args
+   *          the arguments.
+   *  @return
+   *          the atoms, in the same order as in the state of the world.
+  */
+  public Vector<Term> get(Term[] args)
+  {
+    Term key = getKey(args);
+    Vector<Term> v = (key == null) ? null : table.get(key);
+
+    return (v == null) ? new Vector<Term>() : v;
+  }
+
+  /** To get the arguments in an argument list as an array.
+   *
+   *  @param t
+   *          the argument list.
+   *  @return
+   *          the arguments, or <code>null</code> if the argument list is not
+   *          a proper list.
+  */
+  public static Term[] getArgs(Term t)
+  {
+    if (!(t instanceof TermList))
+      return null;
+
+    Term[] elems = ((TermList)t).getElements();
+
+    if (elems != null)
+      return elems;
+
+    Vector<Term> v = new Vector<Term>();
+
+    while (!t.isNil())
+    {
+      if (!(t instanceof TermList))
+        return null;
+
+      List l = ((TermList)t).getList();
+      v.add(l.getHead());
+      t = l.getTail();
+    }
+
+    return v.toArray(new Term[v.size()]);
+  }
+
+  /** To make up the key for a given argument list.
+   *
+   *  @param args
+   *          the arguments.
+   *  @return
+   *          the key, or <code>null</code> if there are not enough arguments.
+  */
+  private Term getKey(Term[] args)
+  {
+    if (args == null || args.length <= positions[positions.length - 1])
+      return null;
+
+    if (positions.length == 1)
+      return args[positions[0]];
+
+    Term[] key = new Term[positions.length];
+
+    for (int i = 0; i < positions.length; i++)
+      key[i] = args[positions[i]];
+
+    return new TermList(key);
+  }
+
+  /** To get the positions of the arguments this index is keyed on.
+   *
+   *  @return
+   *          the positions, in increasing order.
+  */
+  public int[] getPositions()
+  {
+    return positions;
+  }
+
+  /** To get the version of the atoms this index was built from.
+   *
+   *  @return
+   *          the version.
+  */
+  public int getVersion()
+  {
+    return version;
+  }
+}
@@ -15,6 +15,11 @@ public abstract class Axiom extends DomainElement
   */
   private int branchSize;
 
+  /** The heads of the logical atoms in the branches of this axiom, or
+   *  <code>null</code> if they are not known.
+  */
+  private int[] dependencies;
+
   /** To initialize the axiom.
    *
    *  @param head
@@ -28,6 +33,22 @@ public abstract class Axiom extends DomainElement
     branchSize = branchSizeIn;
   }
 
+  /** To initialize the axiom.
+   *
+   *  @param head
+   *          head of the axiom.
+   *  @param branchSizeIn
+   *          number of branches in the axiom.
+   *  @param dependenciesIn
+   *          the heads of the logical atoms in the branches of the axiom, or
+   *          <code>null</code> if they are not known.
+  */
+  public Axiom(Predicate head, int branchSizeIn, int[] dependenciesIn)
+  {
+    this(head, branchSizeIn);
+    dependencies = dependenciesIn;
+  }
+
   /** To get the number of branches in this axiom.
    *
    *  @return
@@ -38,6 +59,18 @@ public abstract class Axiom extends DomainElement
     return branchSize;
   }
 
+  /** To get the heads of the logical atoms in the branches of this axiom,
+   *  i.e., the predicates whose atoms in the current state of the world can
+   *  affect what this axiom proves directly.
+   *
+   *  @return
+   *          the heads, or <code>null</code> if they are not known.
+  */
+  public int[] getDependencies()
+  {
+    return dependencies;
+  }
+
   /** To get the label of a given branch of this axiom.
    *
    *  @param which
@@ -0,0 +1,419 @@
+package JSHOP2;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.FileSystems;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+/** This class solves a batch of planning problems in the same domain in
+ *  parallel, on a fixed number of threads. The domain is compiled only once,
+ *  and the problems are not compiled at all: each of them is loaded at run
+ *  time, from a problem file, a JSON IR file or a snapshot, into a domain
+ *  object, a state of the world and a search of its own. As soon as a
+ *  problem is solved, its plans and the time it took are written to the
+ *  results, so the results of the problems appear in the order they are
+ *  solved in.
+ *
+ *  @author Okhtay Ilghami
+ *  @author <a href="http://www.cs.umd.edu/~okhtay">http://www.cs.umd.edu/~okhtay</a>
+ *  @version 1.0.3
+*/
+public class BatchSolver
+{
+  /** The size of the stack of each thread that solves problems, since the
+   *  search is recursive.
+  */
+  private static final long STACK_SIZE = 256L << 20;
+
+  /** The compiled domain, an instance of which is created for each problem,
+   *  since the constant symbols seen for the first time in a problem are
+   *  added to its domain object.
+  */
+  private Class<? extends Domain> domainClass;
+
+  /** The maximum number of plans to be found for each problem.
+  */
+  private int planNo;
+
+  /** Where the results are written.
+  */
+  private Writer out;
+
+  /** The number of problems for which at least one plan was found.
+  */
+  private int solved;
+
+  /** The number of problems for which no plan was found.
+  */
+  private int unsolved;
+
+  /** The number of problems that could not be loaded or solved.
+  */
+  private int failed;
+
+  /** To initialize this batch.
+   *
+   *  @param domainClassIn
+   *          the compiled domain.
+   *  @param planNoIn
+   *          the maximum number of plans to be found for each problem.
+   *  @param outIn
+   *          where the results are written.
+  */
+  public BatchSolver(Class<? extends Domain> domainClassIn, int planNoIn,
+                     Writer outIn)
+  {
+    domainClass = domainClassIn;
+    planNo = planNoIn;
+    out = outIn;
+  }
+
+  /** To compile a domain description in the current directory, just like
+   *  <code>InternalDomain</code> does, and then compile and load the Java
+   *  code produced for it.
+   *
+   *  @param fileName
+   *          the name of the domain file.
+   *  @return
+   *          the compiled domain.
+   *  @throws Exception
+   *          if the domain description or the code produced for it can not
+   *          be compiled.
+  */
+  public static Class<? extends Domain> compileDomain(String fileName)
+    throws Exception
+  {
+    InternalDomain domain =
+      new InternalDomain(new FileInputStream(new File(fileName)), -1);
+    domain.parser.domain();
+    domain.close(domain.parser.getVarsMaxSize());
+
+    JavaCompiler javac = ToolProvider.getSystemJavaCompiler();
+
+    if (javac == null)
+      throw new IOException("no Java compiler available, run with a JDK");
+
+    String classPath = System.getProperty("java.class.path") +
+                       File.pathSeparator + ".";
+
+    if (javac.run(null, null, null, "-nowarn", "-cp", classPath, "-d", ".",
+                  domain.getName() + ".java") != 0)
+      throw new IOException("could not compile " + domain.getName() + ".java");
+
+    URLClassLoader loader = new URLClassLoader(
+      new URL[] { new File(".").toURI().toURL() },
+      BatchSolver.class.getClassLoader());
+
+    return loader.loadClass(domain.getName()).asSubclass(Domain.class);
+  }
+
+  /** To solve all the problems in a list of files, each of which is either a
+   *  problem file, all of whose problems are solved, a JSON IR file or a
+   *  snapshot written by <code>Snapshot</code>.
+   *
+   *  @param files
+   *          the names of the files.
+   *  @param threads
+   *          the number of problems solved at the same time.
+   *  @throws InterruptedException
+   *          if the calling thread is interrupted while waiting for the
+   *          problems to be solved, in which case the problems that have not
+   *          been started yet are not solved.
+   *  @throws IOException
+   *          if the results can not be written.
+  */
+  public void solve(List<String> files, int threads)
+    throws InterruptedException, IOException
+  {
+    long start = System.nanoTime();
+
+    ExecutorService pool = Executors.newFixedThreadPool(threads,
+      new ThreadFactory()
+      {
+        private int count = 0;
+
+        public synchronized Thread newThread(Runnable r)
+        {
+          return new Thread(null, r, "solver-" + (++count), STACK_SIZE);
+        }
+      });
+
+    try
+    {
+      for (final String file : files)
+      {
+        int n;
+
+        try
+        {
+          n = (file.endsWith(".json") || Snapshot.isSnapshot(file)) ? 1 :
+              ProblemLoader.countProblems(file);
+        }
+        catch (IOException e)
+        {
+          report(file, -1, ";; error: " + e.getMessage() + Plan.endl, -1);
+          continue;
+        }
+
+        for (int i = 0; i < n; i++)
+        {
+          final int which = i;
+
+          pool.execute(new Runnable()
+          {
+            public void run()
+            {
+              solve(file, which);
+            }
+          });
+        }
+      }
+
+      pool.shutdown();
+
+      while (!pool.awaitTermination(1, TimeUnit.HOURS))
+        ;
+    }
+    finally
+    {
+      pool.shutdownNow();
+    }
+
+    synchronized (this)
+    {
+      out.write(";; " + (solved + unsolved + failed) + " problems: " + solved +
+                " solved, " + unsolved + " without a plan, " + failed +
+                " failed, in " + (System.nanoTime() - start) / 1000000 +
+                " ms" + Plan.endl);
+      out.flush();
+    }
+  }
+
+  /** To solve one of the problems in a file, and report the results.
+  */
+  private void solve(String file, int which)
+  {
+    StringBuilder s = new StringBuilder();
+    int plansFound = -1;
+
+    try
+    {
+      long start = System.nanoTime();
+
+      Domain d = domainClass.getDeclaredConstructor().newInstance();
+      State state = new State(d.constants.length, d.getAxioms(), d.getRigid());
+
+      JSHOP2.setInstance(new JSHOP2(d, state));
+
+      try
+      {
+        TaskList tl;
+
+        if (file.endsWith(".json"))
+          tl = new JsonProblemLoader(d).load(file, state);
+        else if (Snapshot.isSnapshot(file))
+          tl = Snapshot.load(file, d, state);
+        else
+          tl = new ProblemLoader(d).loadProblem(file, which, state);
+
+        long loaded = System.nanoTime();
+
+        LinkedList<Plan> plans = JSHOP2.findPlans(tl, planNo);
+
+        s.append(";; " + plans.size() + " plans, load ms: " +
+                 (loaded - start) / 1000000 + ", search ms: " +
+                 (System.nanoTime() - loaded) / 1000000 + Plan.endl);
+
+        for (Plan p : plans)
+          s.append(p.toString(d));
+
+        plansFound = plans.size();
+      }
+      finally
+      {
+        JSHOP2.setInstance(null);
+      }
+    }
+    catch (Exception e)
+    {
+      s.append(";; error: " + e + Plan.endl);
+    }
+    catch (StackOverflowError e)
+    {
+      s.append(";; error: " + e + Plan.endl);
+    }
+
+    try
+    {
+      report(file, which, s.toString(), plansFound);
+    }
+    catch (IOException e)
+    {
+      System.err.println("Could not write the results: " + e.getMessage());
+    }
+  }
+
+  /** To write the results of a problem.
+   *
+   *  @param file
+   *          the file the problem is in.
+   *  @param which
+   *          the index of the problem in the file, or -1 if the file could
+   *          not be read.
+   *  @param results
+   *          the results of the problem.
+   *  @param plansFound
+   *          the number of plans found, or -1 if the problem could not be
+   *          loaded or solved.
+  */
+  private synchronized void report(String file, int which, String results,
+                                   int plansFound) throws IOException
+  {
+    if (plansFound > 0)
+      solved++;
+    else if (plansFound == 0)
+      unsolved++;
+    else
+      failed++;
+
+    out.write(";; " + file + ((which < 0) ? "" : " #" + which) + Plan.endl);
+    out.write(results);
+    out.flush();
+  }
+
+  /** To list the files named by a command-line argument, which is either the
+   *  name of a file, the name of a directory, all the files in which are
+   *  listed except for the code and the symbol tables produced by the
+   *  compiler, or a pattern such as <code>problems/p*.lisp</code> that the
+   *  names of the files in a directory are matched against.
+  */
+  private static void listFiles(String arg, List<String> files)
+    throws IOException
+  {
+    File f = new File(arg);
+
+    if (f.isFile())
+    {
+      files.add(arg);
+      return;
+    }
+
+    PathMatcher matcher = null;
+
+    if (!f.isDirectory())
+    {
+      if (f.getParentFile() != null)
+        f = f.getParentFile();
+      else
+        f = new File(".");
+
+      matcher = FileSystems.getDefault().getPathMatcher(
+        "glob:" + new File(arg).getName());
+    }
+
+    File[] entries = f.listFiles();
+
+    if (entries == null)
+      throw new IOException("no such file or directory: " + arg);
+
+    Arrays.sort(entries);
+
+    int before = files.size();
+
+    for (File e : entries)
+    {
+      String name = e.getName();
+
+      if (!e.isFile() || name.startsWith("."))
+        continue;
+
+      if (matcher != null ? matcher.matches(Paths.get(name)) :
+          !(name.endsWith(".java") || name.endsWith(".class") ||
+            name.endsWith(".txt")))
+        files.add(e.getPath());
+    }
+
+    if (matcher != null && files.size() == before)
+      throw new IOException("no such file: " + arg);
+  }
+
+  /** The main function that is called to solve a batch of problems.
+   *
+   *  @param args
+   *          the options, then the domain file, then the problem files,
+   *          directories or patterns.
+  */
+  public static void main(String[] args) throws Exception
+  {
+    int threads = Runtime.getRuntime().availableProcessors();
+    int planNo = 1;
+    String outFile = null;
+    int i = 0;
+
+    try
+    {
+      for (; i < args.length && args[i].startsWith("-"); i++)
+        if (args[i].startsWith("-j"))
+          threads = Integer.parseInt(args[i].substring(2));
+        else if (args[i].equals("-r"))
+          planNo = 1;
+        else if (args[i].equals("-ra"))
+          planNo = Integer.MAX_VALUE;
+        else if (args[i].startsWith("-r"))
+          planNo = Integer.parseInt(args[i].substring(2));
+        else if (args[i].startsWith("-o"))
+          outFile = args[i].substring(2);
+        else
+          throw new IllegalArgumentException(args[i]);
+    }
+    catch (IllegalArgumentException e)
+    {
+      threads = 0;
+    }
+
+    //-- Check the arguments.
+    if (args.length - i < 2 || threads <= 0 || planNo <= 0)
+    {
+      System.err.println("usage: java JSHOP2.BatchSolver [-jThreads] " +
+                         "[-r|-ra|-rSomePositiveInteger] [-oResultsFile] " +
+                         "domain problems...");
+      System.exit(1);
+    }
+
+    List<String> files = new ArrayList<String>();
+
+    for (int j = i + 1; j < args.length; j++)
+      listFiles(args[j], files);
+
+    Writer out = new BufferedWriter((outFile == null) ?
+      new OutputStreamWriter(System.out) : new FileWriter(outFile));
+
+    try
+    {
+      new BatchSolver(compileDomain(args[i]), planNo, out).solve(files,
+                                                                  threads);
+    }
+    finally
+    {
+      out.close();
+    }
+  }
+}
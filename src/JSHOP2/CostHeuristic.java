@@ -0,0 +1,27 @@
+package JSHOP2;
+
+/** This is the interface for estimates of the cost of achieving the tasks
+ *  that remain in the task network, used to prune the search for a cheapest
+ *  plan. For the plan found to be the cheapest one, the estimate must never
+ *  be more than the actual cost of the cheapest way to achieve those tasks
+ *  (i.e., it must be admissible).
+ *
+ *  @author Okhtay Ilghami
+ *  @author <a href="http://www.cs.umd.edu/~okhtay">http://www.cs.umd.edu/~okhtay</a>
+ *  @version 1.0.3
+*/
+public abstract interface CostHeuristic
+{
+  /** This abstract function estimates the cost of achieving the tasks that
+   *  remain in a task network.
+   *
+   *  @param tasks
+   *          the task network. The tasks that have already been achieved
+   *          appear in it as empty task lists.
+   *  @param s
+   *          the current state of the world.
+   *  @return
+   *          the estimate, which must not be more than the actual cost.
+  */
+  public abstract double estimate(TaskList tasks, State s);
+}
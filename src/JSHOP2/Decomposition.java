@@ -0,0 +1,342 @@
+package JSHOP2;
+
+import java.util.Collection;
+import java.util.Vector;
+
+/** Each choice made by the search to find a plan, i.e., a branch of a method
+ *  chosen to decompose a compound task or an operator chosen to achieve a
+ *  primitive task, along with the binding it was chosen with, is an instance
+ *  of this class. So is each change made to the state of the world, while the
+ *  plan was being executed, by something other than the plan itself. The
+ *  choices form a persistent linked list that goes from the last choice back
+ *  to the first one, just like the operator instances in a plan, so that the
+ *  plans found share the choices they have in common.
+ *  <p>
+ *  The choices made to find a plan are what <code>JSHOP2.replan()</code>
+ *  follows to repair the plan when the state of the world changes.
+ *
+ *  @author Okhtay Ilghami
+ *  @author <a href="http://www.cs.umd.edu/~okhtay">http://www.cs.umd.edu/~okhtay</a>
+ *  @version 1.0.3
+*/
+public class Decomposition
+{
+  /** The task atom achieved by this choice, or <code>null</code> if this is a
+   *  change to the state of the world.
+  */
+  private final TaskAtom task;
+
+  /** The method or operator chosen, or <code>null</code> if this is a change
+   *  to the state of the world.
+  */
+  private final DomainElement element;
+
+  /** The branch of the method chosen, or -1 if an operator was chosen.
+  */
+  private final int branch;
+
+  /** The binding the method or operator was chosen with.
+  */
+  private final Term[] binding;
+
+  /** If this is a change to the state of the world, the atoms deleted from
+   *  it, <code>null</code> otherwise.
+  */
+  private final Predicate[] deletions;
+
+  /** If this is a change to the state of the world, the atoms added to it,
+   *  <code>null</code> otherwise.
+  */
+  private final Predicate[] additions;
+
+  /** The choice made right before this one, or <code>null</code> if this is
+   *  the first one.
+  */
+  final Decomposition previous;
+
+  /** The number of choices up to and including this one.
+  */
+  final int size;
+
+  /** To initialize a choice of a method or an operator.
+   *
+   *  @param taskIn
+   *          the task atom achieved by this choice.
+   *  @param elementIn
+   *          the method or operator chosen.
+   *  @param branchIn
+   *          the branch of the method chosen, or -1 if an operator was
+   *          chosen.
+   *  @param bindingIn
+   *          the binding the method or operator was chosen with.
+   *  @param previousIn
+   *          the choice made right before this one, or <code>null</code> if
+   *          this is the first one.
+  */
+  Decomposition(TaskAtom taskIn, DomainElement elementIn, int branchIn,
+                Term[] bindingIn, Decomposition previousIn)
+  {
+    task = taskIn;
+    element = elementIn;
+    branch = branchIn;
+    binding = bindingIn.clone();
+    deletions = null;
+    additions = null;
+    previous = previousIn;
+    size = (previous == null) ? 1 : previous.size + 1;
+  }
+
+  /** To initialize a change to the state of the world.
+   *
+   *  @param deletionsIn
+   *          the atoms deleted from the state of the world.
+   *  @param additionsIn
+   *          the atoms added to the state of the world.
+   *  @param previousIn
+   *          the choice made right before this change, or <code>null</code>
+   *          if this change was made before any choice.
+  */
+  Decomposition(Predicate[] deletionsIn, Predicate[] additionsIn,
+                Decomposition previousIn)
+  {
+    task = null;
+    element = null;
+    branch = -1;
+    binding = null;
+    deletions = deletionsIn;
+    additions = additionsIn;
+    previous = previousIn;
+    size = (previous == null) ? 1 : previous.size + 1;
+  }
+
+  /** To make a copy of a change to the state of the world that comes after a
+   *  given choice.
+  */
+  Decomposition(Decomposition change, Decomposition previousIn)
+  {
+    this(change.deletions, change.additions, previousIn);
+  }
+
+  /** Whether or not this is a change to the state of the world rather than a
+   *  choice made by the search.
+   *
+   *  @return
+   *          <code>true</code> if this is a change to the state of the world,
+   *          <code>false</code> otherwise.
+  */
+  public boolean isChange()
+  {
+    return (element == null);
+  }
+
+  /** Whether or not this is the choice of an operator.
+   *
+   *  @return
+   *          <code>true</code> if an operator was chosen, <code>false</code>
+   *          if a method was, or if this is a change to the state of the
+   *          world.
+  */
+  public boolean isOperator()
+  {
+    return (element instanceof Operator);
+  }
+
+  /** Whether or not this choice achieves a given task atom.
+  */
+  boolean isAbout(TaskAtom t)
+  {
+    return (task != null && t.isPrimitive() == task.isPrimitive() &&
+            t.getHead().getHead() == task.getHead().getHead() &&
+            same(t.getHead().getParam(), task.getHead().getParam()));
+  }
+
+  /** Whether or not this is the choice of a given method or operator. The
+   *  method or operator is compared by its class, so that a plan found with
+   *  one instance of a domain can be repaired with another.
+  */
+  boolean isChoiceOf(DomainElement e)
+  {
+    return (element != null && element.getClass() == e.getClass());
+  }
+
+  /** Whether or not this is the choice of a given branch of a given method,
+   *  or of a given operator.
+  */
+  boolean isChoiceOf(DomainElement e, int branchIn)
+  {
+    return isChoiceOf(e) &&
+           (branch == branchIn || element instanceof Operator);
+  }
+
+  /** Whether or not the method or operator was chosen with a given binding.
+  */
+  boolean isBinding(Term[] b)
+  {
+    if (binding == null || b.length != binding.length)
+      return false;
+
+    for (int i = 0; i < b.length; i++)
+      if (!same(b[i], binding[i]))
+        return false;
+
+    return true;
+  }
+
+  /** Whether or not two terms, either of which may be <code>null</code>, are
+   *  the same. Unlike <code>Term.equals()</code>, a variable symbol is the
+   *  same as itself here, since the task atoms and the bindings may have
+   *  variable symbols in them that the search left unbound.
+  */
+  private static boolean same(Term a, Term b)
+  {
+    if (a == b)
+      return true;
+
+    if (a == null || b == null)
+      return false;
+
+    if (a instanceof TermVariable)
+      return (b instanceof TermVariable) &&
+             ((TermVariable)a).getIndex() == ((TermVariable)b).getIndex();
+
+    //-- Lists with variable symbols in them are compared element by element.
+    if (a instanceof TermList && b instanceof TermList && !a.isGround())
+    {
+      TermList la = (TermList)a;
+      TermList lb = (TermList)b;
+
+      if (la.isNil() || lb.isNil())
+        return la.isNil() && lb.isNil();
+
+      return same(la.getFirst(), lb.getFirst()) &&
+             same(la.getRest(), lb.getRest());
+    }
+
+    return a.equals(b);
+  }
+
+  /** To make this change to a given state of the world.
+   *
+   *  @param s
+   *          the state of the world.
+   *  @return
+   *          the atoms that were deleted from and added to the state of the
+   *          world, in the form <code>State.undo()</code> takes them, so that
+   *          the change can be undone in case of a backtrack.
+  */
+  Vector<Object>[] apply(State s)
+  {
+    Vector<Object>[] delAdd = newDelAdd();
+
+    for (Predicate p : deletions)
+    {
+      int index = s.del(p);
+
+      if (index != -1)
+        delAdd[0].add(new NumberedPredicate(p, index));
+    }
+
+    for (Predicate p : additions)
+      if (s.add(p))
+        delAdd[1].add(p);
+
+    return delAdd;
+  }
+
+  /** To make the empty lists of atoms deleted from and added to the state of
+   *  the world, and of protections deleted and added, in the form
+   *  <code>State.undo()</code> takes them.
+  */
+  static Vector<Object>[] newDelAdd()
+  {
+    Vector<Object>[] delAdd = GenericArrays.newArray(Vector.class, 4);
+
+    for (int i = 0; i < delAdd.length; i++)
+      delAdd[i] = new Vector<Object>();
+
+    return delAdd;
+  }
+
+  /** To get the atoms added to the state of the world by this change.
+  */
+  Predicate[] getAdditions()
+  {
+    return additions;
+  }
+
+  /** To get the number of choices up to and including this one.
+   *
+   *  @return
+   *          the number of choices.
+  */
+  public int size()
+  {
+    return size;
+  }
+
+  /** To get the choices up to and including this one, in the order they were
+   *  made.
+   *
+   *  @return
+   *          the choices, the first one first.
+  */
+  public Decomposition[] toArray()
+  {
+    Decomposition[] retVal = new Decomposition[size];
+
+    for (Decomposition d = this; d != null; d = d.previous)
+      retVal[d.size - 1] = d;
+
+    return retVal;
+  }
+
+  /** To make a change to the state of the world out of the atoms deleted from
+   *  and added to it.
+  */
+  static Decomposition change(Collection<Predicate> deletionsIn,
+                              Collection<Predicate> additionsIn,
+                              Decomposition previousIn)
+  {
+    return new Decomposition(deletionsIn.toArray(new Predicate[0]),
+                             additionsIn.toArray(new Predicate[0]),
+                             previousIn);
+  }
+
+  /** This function returns a printable <code>String</code> representation of
+   *  the choices up to and including this one, one on each line.
+   *
+   *  @param domain
+   *          the domain the choices were made in.
+   *  @return
+   *          the <code>String</code> representation of the choices.
+  */
+  public String toString(Domain domain)
+  {
+    StringBuilder s = new StringBuilder();
+
+    for (Decomposition d : toArray())
+    {
+      if (d.isChange())
+        s.append("changed: -" + d.deletions.length + " +" +
+                 d.additions.length + " atoms");
+      else if (d.isOperator())
+        s.append(d.element.getHead().applySubstitution(d.binding)
+                 .toString(domain.getPrimitiveTasks(), domain));
+      else
+        s.append(d.task.toString(domain) + " by " +
+                 ((Method)d.element).getLabel(d.branch));
+
+      s.append(Plan.endl);
+    }
+
+    return s.toString();
+  }
+
+  /** This function returns a printable <code>String</code> representation of
+   *  the choices up to and including this one, one on each line.
+  */
+  public String toString()
+  {
+    return toString(JSHOP2.getDomain());
+  }
+}
@@ -76,9 +76,10 @@ public class DelAddForAll extends DelAddElement
   }
 
   /** To add the atoms of this <code>ForAll</code> delete/add element to the
-   *  current state of the world.
+   *  current state of the world. Since the precondition is shared by all the
+   *  searches that use the operator, only one of them can use it at a time.
   */
-  public void add(State s, Term[] binding, Vector[] delAddList)
+  public synchronized void add(State s, Term[] binding, Vector[] delAddList)
   {
     //-- To store the next binding that satisfies the precondition of this
     //-- ForAll delete/add element.
@@ -114,7 +115,8 @@ public class DelAddForAll extends DelAddElement
   /** To delete the atoms of this <code>ForAll</code> delete/add element from
    *  the current state of the world.
   */
-  public boolean del(State s, Term[] binding, Vector[] delAddList)
+  public synchronized boolean del(State s, Term[] binding,
+                                  Vector[] delAddList)
   {
     //-- To store the next binding that satisfies the precondition of this
     //-- ForAll delete/add element.
@@ -55,6 +55,28 @@ public abstract class Domain
   */
   protected String[] problemConstants;
 
+  /** Whether or not the atoms with each head are rigid, that is, no operator
+   *  in this domain can ever delete or add them. The array is indexed by the
+   *  constant symbols that appear in the domain description. It is
+   *  <code>null</code> if no atom is known to be rigid.
+  */
+  protected boolean[] rigid;
+
+  /** The methods in this domain, before any of them were dropped because
+   *  they could not be used in the problem being solved.
+  */
+  private Method[][] allMethods;
+
+  /** The operators in this domain, before any of them were dropped because
+   *  they could not be used in the problem being solved.
+  */
+  private Operator[][] allOps;
+
+  /** The axioms in this domain, before any of them were dropped because they
+   *  could not be used in the problem being solved.
+  */
+  private Axiom[][] allAxioms;
+
   /** This function returns the axioms in this domain.
    *
    *  @return
@@ -86,6 +108,19 @@ public abstract class Domain
     return problemConstants[idx - constants.length];
   }
 
+  /** This function returns the number of constant symbols that appear in the
+   *  domain description, which is the number of possible heads of the atoms
+   *  in a state of the world, and so the size a <code>State</code> for this
+   *  domain must be created with.
+   *
+   *  @return
+   *          the number of constant symbols in the domain description.
+  */
+  public int getConstantNo()
+  {
+    return constants.length;
+  }
+
   /** This function returns an array of the <code>String</code> representations
    *  of all the primitive tasks in the domain description. This list is used
    *  to print the plans after they are found.
@@ -99,6 +134,77 @@ public abstract class Domain
     return primitiveTasks;
   }
 
+  /** This function returns whether or not the atoms with each head are rigid
+   *  in this domain.
+   *
+   *  @return
+   *          an array indexed by the constant symbols that appear in the
+   *          domain description, or <code>null</code> if no atom is known to
+   *          be rigid.
+  */
+  public boolean[] getRigid()
+  {
+    return rigid;
+  }
+
+  /** This function drops the methods, operators and axioms in this domain,
+   *  and the branches of them, that can not be used in the problem being
+   *  solved, or brings back the ones dropped before. Note that the arrays
+   *  are changed in place, since the state of the world shares the array of
+   *  axioms.
+   *
+   *  @param r
+   *          the result of the analysis of the problem being solved, or
+   *          <code>null</code> to bring back everything.
+  */
+  public void setRelevance(Relevance r)
+  {
+    if (allMethods == null)
+    {
+      allMethods = methods.clone();
+      allOps = ops.clone();
+      allAxioms = axioms.clone();
+    }
+
+    //-- Bring back everything dropped before.
+    for (int i = 0; i < methods.length; i++)
+    {
+      methods[i] = allMethods[i];
+
+      for (Method m : methods[i])
+        m.setRelevant(null);
+    }
+
+    for (int i = 0; i < ops.length; i++)
+    {
+      ops[i] = allOps[i];
+
+      for (Operator o : ops[i])
+        o.setRelevant(null);
+    }
+
+    for (int i = 0; i < axioms.length; i++)
+    {
+      axioms[i] = allAxioms[i];
+
+      for (Axiom a : axioms[i])
+        a.setRelevant(null);
+    }
+
+    if (r == null)
+      return;
+
+    //-- Then drop what can not be used according to the analysis.
+    for (int i = 0; i < methods.length; i++)
+      methods[i] = r.prune(methods[i], "method", compoundTasks);
+
+    for (int i = 0; i < ops.length; i++)
+      ops[i] = r.prune(ops[i], "operator", primitiveTasks);
+
+    for (int i = 0; i < axioms.length; i++)
+      axioms[i] = r.prune(axioms[i], "axiom", constants);
+  }
+
   /** This function sets the array of <code>String</code> representations of
    *  constant symbols that do not appear in the domain description but in the
    *  planning problem that is being solved.
@@ -14,6 +14,18 @@ public abstract class DomainElement
   */
   private Predicate head;
 
+  /** For each branch of this element, the heads of the atoms at least one
+   *  instance of which is needed for that branch to be satisfied, or
+   *  <code>null</code> if they are not known.
+  */
+  private int[][] requirements;
+
+  /** For each branch of this element, whether or not it can possibly be
+   *  satisfied in the problem being solved, or <code>null</code> if they all
+   *  can.
+  */
+  private boolean[] relevant;
+
   /** To initialize the domain element.
    *
    *  @param headIn
@@ -61,4 +73,52 @@ public abstract class DomainElement
   {
     return head.findUnifier(p.getParam());
   }
+
+  /** To get the heads of the atoms a given branch of this element requires.
+   *
+   *  @param which
+   *          the branch.
+   *  @return
+   *          the heads, or <code>null</code> if they are not known.
+  */
+  public int[] getRequirements(int which)
+  {
+    return (requirements == null) ? null : requirements[which];
+  }
+
+  /** To set the heads of the atoms each branch of this element requires.
+   *
+   *  @param requirementsIn
+   *          the heads, indexed by the branches.
+  */
+  public void setRequirements(int[][] requirementsIn)
+  {
+    requirements = requirementsIn;
+  }
+
+  /** Whether or not a given branch of this element can possibly be satisfied
+   *  in the problem being solved.
+   *
+   *  @param which
+   *          the branch.
+   *  @return
+   *          <code>false</code> if the branch can never be satisfied,
+   *          <code>true</code> otherwise.
+  */
+  public boolean isRelevant(int which)
+  {
+    return relevant == null || relevant[which];
+  }
+
+  /** To set which branches of this element can possibly be satisfied in the
+   *  problem being solved.
+   *
+   *  @param relevantIn
+   *          the flags, indexed by the branches, or <code>null</code> if they
+   *          all can.
+  */
+  public void setRelevant(boolean[] relevantIn)
+  {
+    relevant = relevantIn;
+  }
 }
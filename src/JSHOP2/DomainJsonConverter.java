@@ -1,6 +1,8 @@
 package JSHOP2;
 
+import java.io.IOException;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 import java.util.Vector;
 
@@ -11,32 +13,30 @@ import static JSHOP2.ParameterJsonConverter.parametersToJsonArray;
  */
 public class DomainJsonConverter {
 
-    public static String operatorToJson(InternalOperator operator, InternalDomain domain) {
+    public static void operatorToJson(InternalOperator operator, InternalDomain domain, JsonWriter json) throws IOException {
         String predicateName = getPredicateName(operator.getHead().getHead(), domain.getPrimitiveTasks());
-        String parameters = parametersToJsonArray(operator.getHead().getParam(), domain);
-
-        return new JsonBuilder()
-                .startObject()
-                .addProperty("name", predicateName)
-                .addRawProperty("parameters", parameters)
-                .addRawProperty("preconditions", preconditionToJson(operator.getPre(), domain))
-                .addRawProperty("effect", effectsToJson(operator, domain))
-                .endObject()
-                .toString();
+
+        json.beginObject()
+                .property("name", predicateName)
+                .name("parameters");
+        parametersToJsonArray(operator.getHead().getParam(), domain, json);
+        json.name("preconditions");
+        preconditionToJson(operator.getPre(), domain, json);
+        json.name("effect");
+        effectsToJson(operator, domain, json);
+        json.endObject();
     }
 
-    static String methodToJson(InternalMethod method, InternalDomain domain) {
+    static void methodToJson(InternalMethod method, InternalDomain domain, JsonWriter json) throws IOException {
         String methodName = extractMethodName(method, domain);
-        String parameters = extractMethodParameters(method, domain);
-        String methodsArray = buildMethodsArray(method, domain);
-
-        return new JsonBuilder()
-                .startObject()
-                .addProperty("name", methodName)
-                .addRawProperty("parameters", parameters)
-                .addRawProperty("methods", methodsArray)
-                .endObject()
-                .toString();
+
+        json.beginObject()
+                .property("name", methodName)
+                .name("parameters");
+        writeMethodParameters(method, domain, json);
+        json.name("methods");
+        writeMethodsArray(method, domain, json);
+        json.endObject();
     }
 
     private static String extractMethodName(InternalMethod method, InternalDomain domain) {
@@ -44,7 +44,7 @@ public class DomainJsonConverter {
             if (method.getHead() != null) {
                 Predicate pred = method.getHead();
                 int headIndex = pred.getHead();
-                Vector<String> compoundTasks = domain.getCompoundTasks();
+                List<String> compoundTasks = domain.getCompoundTasks();
                 if (headIndex >= 0 && headIndex < compoundTasks.size()) {
                     return compoundTasks.get(headIndex);
                 } else {
@@ -57,298 +57,174 @@ public class DomainJsonConverter {
         return "unknown";
     }
 
-    private static String extractMethodParameters(InternalMethod method, InternalDomain domain) {
-        try {
-            if (method.getHead() != null && method.getHead().getParam() != null) {
-                return parametersToJsonArray(method.getHead().getParam(), domain);
-            }
-        } catch (Exception e) {
-            // Fall through to default
+    private static void writeMethodParameters(InternalMethod method, InternalDomain domain, JsonWriter json) throws IOException {
+        if (method.getHead() != null && method.getHead().getParam() != null) {
+            parametersToJsonArray(method.getHead().getParam(), domain, json);
+        } else {
+            json.beginArray().endArray();
         }
-        return "[]";
     }
 
-    private static String buildMethodsArray(InternalMethod method, InternalDomain domain) {
-        JsonBuilder builder = new JsonBuilder().startArray();
+    private static void writeMethodsArray(InternalMethod method, InternalDomain domain, JsonWriter json) throws IOException {
+        json.beginArray();
 
         Vector<String> labels = method.getLabels();
         Vector<LogicalPrecondition> pres = method.getPres();
         Vector<TaskList> subs = method.getSubs();
 
         for (int i = 0; i < pres.size(); i++) {
-            String branchJson = new JsonBuilder()
-                    .startObject()
-                    .addProperty("name", labels.get(i))
-                    .addRawProperty("preconditions", safePreconditionToJson(pres.get(i), domain))
-                    .addRawProperty("tasks", safeTaskListToJson(subs.get(i), domain))
-                    .endObject()
-                    .toString();
-
-            builder.addRawArrayElement(branchJson);
+            json.beginObject()
+                    .property("name", labels.get(i))
+                    .name("preconditions");
+            preconditionToJson(pres.get(i), domain, json);
+            json.name("tasks");
+            if (subs.get(i) != null) {
+                taskListToJson(subs.get(i), domain, json);
+            } else {
+                json.nullValue();
+            }
+            json.endObject();
         }
 
-        return builder.endArray().toString();
+        json.endArray();
     }
 
-    private static String safePreconditionToJson(LogicalPrecondition precondition, InternalDomain domain) {
-        try {
-            return precondition != null ? preconditionToJson(precondition, domain) : "null";
-        } catch (Exception e) {
-            return new JsonBuilder()
-                    .startObject()
-                    .addProperty("type", "error")
-                    .addProperty("message", e.getMessage())
-                    .endObject()
-                    .toString();
-        }
-    }
-
-    private static String safeTaskListToJson(TaskList taskList, InternalDomain domain) {
-        try {
-            return taskList != null ? taskListToJson(taskList, domain) : "null";
-        } catch (Exception e) {
-            return new JsonBuilder()
-                    .startObject()
-                    .addProperty("type", "error")
-                    .addProperty("message", e.getMessage())
-                    .endObject()
-                    .toString();
-        }
-    }
-
-    public static String vectorToJsonArray(Vector<String> vector, String elementType) {
-        JsonBuilder builder = new JsonBuilder().startArray();
+    public static void vectorToJsonArray(Vector<String> vector, String elementType, JsonWriter json) throws IOException {
+        json.beginArray();
 
         for (String item : vector) {
             if ("primitive_task".equals(elementType)) {
-                String taskJson = new JsonBuilder()
-                        .startObject()
-                        .addProperty("name", item)
-                        .addProperty("type", "primitive_task")
-                        .endObject()
-                        .toString();
-                builder.addRawArrayElement(taskJson);
+                json.beginObject()
+                        .property("name", item)
+                        .property("type", "primitive_task")
+                        .endObject();
             } else {
-                builder.addArrayElement(item);
+                json.value(item);
             }
         }
 
-        return builder.endArray().toString();
+        json.endArray();
     }
 
-    private static String preconditionToJson(LogicalPrecondition precondition, InternalDomain domain) {
+    private static void preconditionToJson(LogicalPrecondition precondition, InternalDomain domain, JsonWriter json) throws IOException {
         if (precondition == null) {
-            return "null";
+            json.nullValue();
+            return;
         }
 
-        return ExpressionJsonConverter.expressionToJson(precondition.getExpression(), domain);
+        ExpressionJsonConverter.expressionToJson(precondition.getExpression(), domain, json);
     }
 
-    private static String effectsToJson(InternalOperator operator, InternalDomain domain) {
-        JsonBuilder effectsBuilder = new JsonBuilder().startArray();
-
-
-        Vector<?> deleteList = InternalOperator.getDel();
-        if (deleteList != null && !deleteList.isEmpty()) {
-            String deleteEffects = delAddListToJsonEffects(deleteList, domain, "delete");
-            if (deleteEffects != null && !deleteEffects.equals("[]")) {
-                String effectsContent = deleteEffects.substring(1, deleteEffects.length() - 1); // Remove [ and ]
-                if (!effectsContent.trim().isEmpty()) {
-                    effectsBuilder.addRawArrayElement(effectsContent);
-                }
-            }
-        }
+    private static void effectsToJson(InternalOperator operator, InternalDomain domain, JsonWriter json) throws IOException {
+        // The delete and the add effects go into the same array.
+        json.beginArray();
+        delAddListToJsonEffects(operator.getDel(), domain, "delete", json);
+        delAddListToJsonEffects(operator.getAdd(), domain, "add", json);
+        json.endArray();
+    }
 
-        Vector<?> addList = InternalOperator.getAdd();
-        if (addList != null && !addList.isEmpty()) {
-            String addEffects = delAddListToJsonEffects(addList, domain, "add");
-            if (addEffects != null && !addEffects.equals("[]")) {
-                String effectsContent = addEffects.substring(1, addEffects.length() - 1); // Remove [ and ]
-                if (!effectsContent.trim().isEmpty()) {
-                    effectsBuilder.addRawArrayElement(effectsContent);
-                }
-            }
+    private static void delAddListToJsonEffects(Vector<?> delAddList, InternalDomain domain, String effectType, JsonWriter json) throws IOException {
+        if (delAddList == null || delAddList.isEmpty()) {
+            return;
         }
 
-        return effectsBuilder.endArray().toString();
-    }
+        Object firstElement = delAddList.get(0);
 
-    private static String delAddListToJsonEffects(Vector<?> delAddList, InternalDomain domain, String effectType) {
-        JsonBuilder builder = new JsonBuilder().startArray();
-        boolean hasEffects = false;
-
-        if (delAddList != null && !delAddList.isEmpty()) {
-            Object firstElement = delAddList.get(0);
-
-            if (firstElement instanceof Integer) {
-                Integer varIdx = (Integer) firstElement;
-                String variableJson = new JsonBuilder()
-                        .startObject()
-                        .addProperty("type", "variable")
-                        .addProperty("index", varIdx)
-                        .endObject()
-                        .toString();
-                builder.addRawArrayElement(variableJson);
-                hasEffects = true;
-            } else {
-                for (Object element : delAddList) {
-                    if (element instanceof DelAddElement) {
-                        String elementJson = effectToJson((DelAddElement) element, domain, effectType);
-                        builder.addRawArrayElement(elementJson);
-                        hasEffects = true;
-                    }
+        if (firstElement instanceof Integer) {
+            json.beginObject()
+                    .property("type", "variable")
+                    .property("index", (Integer) firstElement)
+                    .endObject();
+        } else {
+            for (Object element : delAddList) {
+                if (element instanceof DelAddElement) {
+                    effectToJson((DelAddElement) element, domain, effectType, json);
                 }
             }
         }
-        return hasEffects ? builder.endArray().toString() : null;
     }
 
-    private static String effectToJson(DelAddElement effect, InternalDomain domain, String effectType) {
+    private static void effectToJson(DelAddElement effect, InternalDomain domain, String effectType, JsonWriter json) throws IOException {
         String className = effect.getClass().getSimpleName();
         switch (className) {
             case "DelAddAtomic":
-                return atomicEffectToJson((DelAddAtomic) effect, domain, effectType);
+                atomicEffectToJson((DelAddAtomic) effect, domain, effectType, json);
+                break;
             case "DelAddForAll":
-                return forallEffectToJson((DelAddForAll) effect, effectType);
+                forallEffectToJson((DelAddForAll) effect, effectType, json);
+                break;
             case "DelAddProtection":
-                return protectionEffectToJson((DelAddProtection) effect, effectType);
+                protectionEffectToJson(effectType, json);
+                break;
             default:
-                return new JsonBuilder()
-                        .startObject()
-                        .addProperty("type", "unknown")
-                        .addProperty("class", effect.getClass().getSimpleName())
-                        .endObject()
-                        .toString();
+                json.beginObject()
+                        .property("type", "unknown")
+                        .property("class", className)
+                        .endObject();
         }
     }
 
-    private static String atomicEffectToJson(DelAddAtomic atomicEffect, InternalDomain domain, String effectType) {
+    private static void atomicEffectToJson(DelAddAtomic atomicEffect, InternalDomain domain, String effectType, JsonWriter json) throws IOException {
         Predicate atom = atomicEffect.getAtom();
         String predicateName = getPredicateName(atom.getHead(), domain.getPrimitiveTasks());
-        String parameters = ParameterJsonConverter.parametersToJsonArray(atom.getParam(), domain);
-
-        if ("delete".equals(effectType)) {
-            return new JsonBuilder()
-                    .startObject()
-                    .addProperty("type", "not")
-                    .addRawProperty("expression", new JsonBuilder()
-                            .startArray()
-                            .addRawArrayElement(new JsonBuilder()
-                                    .startObject()
-                                    .addProperty("type", "predicate")
-                                    .addProperty("name", predicateName)
-                                    .addRawProperty("parameters", parameters)
-                                    .endObject()
-                                    .toString())
-                            .endArray()
-                            .toString())
-                    .endObject()
-                    .toString();
-        } else {
-            return new JsonBuilder()
-                    .startObject()
-                    .addProperty("type", "predicate")
-                    .addProperty("name", predicateName)
-                    .addRawProperty("parameters", parameters)
-                    .endObject()
-                    .toString();
-        }
+
+        predicateEffectToJson(predicateName, atom.getParam(), domain, effectType, json);
     }
 
-    private static String forallEffectToJson(DelAddForAll forallEffect, String effectType) {
-        try {
-            LogicalExpression expression = forallEffect.getExpression();
-            Predicate[] atoms = forallEffect.getAtoms();
-            JsonBuilder variablesBuilder = new JsonBuilder().startArray();
+    private static void predicateEffectToJson(String predicateName, Term param, InternalDomain domain, String effectType, JsonWriter json) throws IOException {
+        boolean delete = "delete".equals(effectType);
 
-            String variablesJson = variablesBuilder.endArray().toString();
+        if (delete) {
+            json.beginObject()
+                    .property("type", "not")
+                    .name("expression")
+                    .beginArray();
+        }
 
-            String expressionJson = "null";
-            if (expression != null) {
-                expressionJson = ExpressionJsonConverter.expressionToJson(expression, null);
-            }
+        json.beginObject()
+                .property("type", "predicate")
+                .property("name", predicateName)
+                .name("parameters");
+        parametersToJsonArray(param, domain, json);
+        json.endObject();
 
-            JsonBuilder predicatesBuilder = new JsonBuilder().startArray();
-            if (atoms != null) {
-                for (Predicate atom : atoms) {
-                    String predicateName = "unknown";
-                    try {
-                        int headIndex = atom.getHead();
-                        predicateName = "pred_" + headIndex;
-                    } catch (Exception e) {
-                        predicateName = "unknown_predicate";
-                    }
-
-                    String parameters = "[]";
-                    try {
-                        parameters = ParameterJsonConverter.parametersToJsonArray(atom.getParam(), null);
-                    } catch (Exception e) {
-                        // Fall through to default
-                    }
-
-                    String atomJson;
-                    if ("delete".equals(effectType)) {
-                        atomJson = new JsonBuilder()
-                                .startObject()
-                                .addProperty("type", "not")
-                                .addRawProperty("expression", new JsonBuilder()
-                                        .startArray()
-                                        .addRawArrayElement(new JsonBuilder()
-                                                .startObject()
-                                                .addProperty("type", "predicate")
-                                                .addProperty("name", predicateName)
-                                                .addRawProperty("parameters", parameters)
-                                                .endObject()
-                                                .toString())
-                                        .endArray()
-                                        .toString())
-                                .endObject()
-                                .toString();
-                    } else {
-                        atomJson = new JsonBuilder()
-                                .startObject()
-                                .addProperty("type", "predicate")
-                                .addProperty("name", predicateName)
-                                .addRawProperty("parameters", parameters)
-                                .endObject()
-                                .toString();
-                    }
-
-                    predicatesBuilder.addRawArrayElement(atomJson);
-                }
+        if (delete) {
+            json.endArray()
+                    .endObject();
+        }
+    }
+
+    private static void forallEffectToJson(DelAddForAll forallEffect, String effectType, JsonWriter json) throws IOException {
+        LogicalExpression expression = forallEffect.getExpression();
+        Predicate[] atoms = forallEffect.getAtoms();
+
+        json.beginObject()
+                .property("type", "forall")
+                .name("variables").beginArray().endArray()
+                .name("expression");
+        ExpressionJsonConverter.expressionToJson(expression, null, json);
+
+        json.name("predicates").beginArray();
+        if (atoms != null) {
+            for (Predicate atom : atoms) {
+                predicateEffectToJson("pred_" + atom.getHead(), atom.getParam(), null, effectType, json);
             }
-            String predicatesJson = predicatesBuilder.endArray().toString();
-
-            return new JsonBuilder()
-                    .startObject()
-                    .addProperty("type", "forall")
-                    .addRawProperty("variables", variablesJson)
-                    .addRawProperty("expression", expressionJson)
-                    .addRawProperty("predicates", predicatesJson)
-                    .addProperty("add_list", effectType.equals("add") ? "true" : "false")
-                    .endObject()
-                    .toString();
-        } catch (Exception e) {
-            return new JsonBuilder()
-                    .startObject()
-                    .addProperty("type", "error")
-                    .addProperty("message", e.getMessage())
-                    .endObject()
-                    .toString();
         }
+        json.endArray();
+
+        json.property("add_list", effectType.equals("add") ? "true" : "false")
+                .endObject();
     }
 
-    private static String protectionEffectToJson(DelAddProtection protectionEffect, String effectType) {
-        return new JsonBuilder()
-                .startObject()
-                .addProperty("type", "protection")
-                .addProperty("effect_type", effectType)
-                .addProperty("message", "Protection effects implementation pending")
-                .endObject()
-                .toString();
+    private static void protectionEffectToJson(String effectType, JsonWriter json) throws IOException {
+        json.beginObject()
+                .property("type", "protection")
+                .property("effect_type", effectType)
+                .property("message", "Protection effects implementation pending")
+                .endObject();
     }
 
-    private static String getPredicateName(int headIndex, Vector<String> tasks) {
+    private static String getPredicateName(int headIndex, List<String> tasks) {
         if (tasks != null && headIndex >= 0 && headIndex < tasks.size()) {
             return tasks.get(headIndex);
         }
@@ -358,7 +234,7 @@ public class DomainJsonConverter {
     /**
      * Analyzes the domain and extracts requirements based on used features
      */
-    public static String extractRequirements(InternalDomain domain) {
+    public static Set<String> extractRequirements(InternalDomain domain) {
         Set<String> requirements = new HashSet<>();
 
         // Always include STRIPS as base requirement
@@ -368,11 +244,7 @@ public class DomainJsonConverter {
 
         analyzeMethods(domain, requirements);
 
-        JsonBuilder builder = new JsonBuilder().startArray();
-        for (String req : requirements) {
-            builder.addArrayElement(req);
-        }
-        return builder.endArray().toString();
+        return requirements;
     }
 
     private static void analyzeOperators(InternalDomain domain, Set<String> requirements) {
@@ -448,8 +320,8 @@ public class DomainJsonConverter {
     }
 
     private static void analyzeEffects(InternalOperator operator, Set<String> requirements) {
-        Vector<?> addList = InternalOperator.getAdd();
-        Vector<?> delList = InternalOperator.getDel();
+        Vector<?> addList = operator.getAdd();
+        Vector<?> delList = operator.getDel();
 
         if (addList != null) {
             for (Object effect : addList) {
@@ -470,104 +342,51 @@ public class DomainJsonConverter {
         }
     }
 
-    private static String taskListToJson(TaskList taskList, InternalDomain domain) {
-        JsonBuilder builder = new JsonBuilder().startArray();
-
-        try {
-            addAllTasksToBuilder(taskList, builder, domain);
-        } catch (Exception e) {
-            String errorJson = new JsonBuilder()
-                    .startObject()
-                    .addProperty("type", "error")
-                    .addProperty("message", e.getMessage())
-                    .endObject()
-                    .toString();
-            builder.addRawArrayElement(errorJson);
-        }
-
-        return builder.endArray().toString();
+    private static void taskListToJson(TaskList taskList, InternalDomain domain, JsonWriter json) throws IOException {
+        json.beginArray();
+        addAllTasks(taskList, domain, json);
+        json.endArray();
     }
 
     /**
-     * Recursively extracts all tasks from a TaskList and adds them to the builder
+     * Recursively extracts all tasks from a TaskList and writes them
      */
-    private static void addAllTasksToBuilder(TaskList taskList, JsonBuilder builder, InternalDomain domain) {
+    private static void addAllTasks(TaskList taskList, InternalDomain domain, JsonWriter json) throws IOException {
         if (taskList == null || taskList == TaskList.empty) {
             return;
         }
 
         TaskAtom taskAtom = taskList.getTask();
         if (taskAtom != null) {
-            builder.addRawArrayElement(taskElementToJson(taskAtom, domain));
+            taskElementToJson(taskAtom, domain, json);
             return;
         }
 
         if (taskList.subtasks != null && taskList.subtasks.length > 0) {
             for (TaskList subtask : taskList.subtasks) {
                 if (subtask != null) {
-                    addAllTasksToBuilder(subtask, builder, domain);
+                    addAllTasks(subtask, domain, json);
                 }
             }
         }
     }
 
-    private static String taskElementToJson(Object taskElement, InternalDomain domain) {
-        try {
-            if (taskElement instanceof Predicate) {
-                Predicate pred = (Predicate) taskElement;
-                String taskName = getTaskName(pred, domain);
-                String parameters = ParameterJsonConverter.parametersToJsonArrayForTasks(pred.getParam(), domain);
-
-                return new JsonBuilder()
-                        .startObject()
-                        .addProperty("name", taskName)
-                        .addProperty("type", "predicate")
-                        .addRawProperty("parameters", parameters)
-                        .endObject()
-                        .toString();
-
-            } else if (taskElement instanceof TaskAtom) {
-                TaskAtom atom = (TaskAtom) taskElement;
-                Predicate head = atom.getHead();
-
-                if (head != null) {
-                    String taskName = getTaskName(head, domain);
-                    String parameters = ParameterJsonConverter.parametersToJsonArrayForTasks(head.getParam(), domain);
-
-                    return new JsonBuilder()
-                            .startObject()
-                            .addProperty("name", taskName)
-                            .addProperty("type", "predicate")
-                            .addRawProperty("parameters", parameters)
-                            .endObject()
-                            .toString();
-                } else {
-                    return new JsonBuilder()
-                            .startObject()
-                            .addProperty("name", atom.toString())
-                            .addProperty("type", "predicate")
-                            .addRawProperty("parameters", "[]")
-                            .endObject()
-                            .toString();
-                }
+    private static void taskElementToJson(TaskAtom atom, InternalDomain domain, JsonWriter json) throws IOException {
+        Predicate head = atom.getHead();
 
-            } else {
-                return new JsonBuilder()
-                        .startObject()
-                        .addProperty("name", taskElement.getClass().getSimpleName())
-                        .addProperty("type", "unknown")
-                        .addProperty("value", taskElement.toString())
-                        .addRawProperty("parameters", "[]")
-                        .endObject()
-                        .toString();
-            }
-        } catch (Exception e) {
-            return new JsonBuilder()
-                    .startObject()
-                    .addProperty("type", "error")
-                    .addProperty("message", e.getMessage())
-                    .endObject()
-                    .toString();
+        if (head != null) {
+            json.beginObject()
+                    .property("name", getTaskName(head, domain))
+                    .property("type", "predicate")
+                    .name("parameters");
+            ParameterJsonConverter.parametersToJsonArrayForTasks(head.getParam(), domain, json);
+            json.endObject();
+        } else {
+            json.beginObject()
+                    .property("name", atom.toString())
+                    .property("type", "predicate")
+                    .name("parameters").beginArray().endArray()
+                    .endObject();
         }
     }
 
@@ -575,7 +394,7 @@ public class DomainJsonConverter {
         try {
             int headIndex = pred.getHead();
 
-            Vector<String> compoundTasks = domain.getCompoundTasks();
+            List<String> compoundTasks = domain.getCompoundTasks();
             if (headIndex >= 0 && headIndex < compoundTasks.size()) {
                 String taskName = compoundTasks.get(headIndex);
                 if (taskName.startsWith("!")) {
@@ -584,7 +403,7 @@ public class DomainJsonConverter {
                 return taskName;
             }
 
-            Vector<String> primitiveTasks = domain.getPrimitiveTasks();
+            List<String> primitiveTasks = domain.getPrimitiveTasks();
             if (headIndex >= 0 && headIndex < primitiveTasks.size()) {
                 String taskName = primitiveTasks.get(headIndex);
                 if (taskName.startsWith("!")) {
@@ -1,180 +1,141 @@
 package JSHOP2;
 
+import java.io.IOException;
+
 /**
  * Converts LogicalExpressions to JSON format
  */
 public class ExpressionJsonConverter {
 
-    public static String expressionToJson(LogicalExpression expression, InternalDomain domain) {
+    public static void expressionToJson(LogicalExpression expression, InternalDomain domain, JsonWriter json) throws IOException {
         if (expression == null) {
-            return "null";
+            json.nullValue();
         } else if (expression instanceof LogicalExpressionAtomic) {
-            return createAtomicExpression((LogicalExpressionAtomic) expression, domain);
+            writeAtomicExpression((LogicalExpressionAtomic) expression, domain, json);
         } else if (expression instanceof LogicalExpressionConjunction) {
-            return createConjunctionExpression((LogicalExpressionConjunction) expression, domain);
+            writeConjunctionExpression((LogicalExpressionConjunction) expression, domain, json);
         } else if (expression instanceof LogicalExpressionDisjunction) {
-            return createDisjunctionExpression((LogicalExpressionDisjunction) expression, domain);
+            writeDisjunctionExpression((LogicalExpressionDisjunction) expression, domain, json);
         } else if (expression instanceof LogicalExpressionNegation) {
-            return createNegationExpression((LogicalExpressionNegation) expression, domain);
+            writeNegationExpression((LogicalExpressionNegation) expression, domain, json);
         } else if (expression instanceof LogicalExpressionCall) {
-            return createCallExpression((LogicalExpressionCall) expression, domain);
+            writeCallExpression((LogicalExpressionCall) expression, json);
         } else if (expression instanceof LogicalExpressionAssignment) {
-            return createAssignmentExpression((LogicalExpressionAssignment) expression, domain);
+            writeAssignmentExpression((LogicalExpressionAssignment) expression, json);
         } else if (expression instanceof LogicalExpressionForAll) {
-            return createForallExpression((LogicalExpressionForAll) expression, domain);
+            writeForallExpression((LogicalExpressionForAll) expression, domain, json);
         } else if (expression instanceof LogicalExpressionNil) {
-            return createNilExpression();
+            writeTypeOnly("nil", json);
         } else {
-            return createUnknownExpression();
+            writeTypeOnly("unknown", json);
         }
     }
 
-    private static String createAtomicExpression(LogicalExpressionAtomic atomic, InternalDomain domain) {
+    private static void writeAtomicExpression(LogicalExpressionAtomic atomic, InternalDomain domain, JsonWriter json) throws IOException {
         Predicate predicate = atomic.logicalAtom;
         String predicateName = getPredicateName(predicate.getHead(), domain);
-        String parameters = ParameterJsonConverter.parametersToJsonArray(predicate.getParam(), domain);
-
-        return new JsonBuilder()
-            .startObject()
-            .addProperty("name", predicateName)
-            .addRawProperty("parameters", parameters)
-            .addProperty("type", "predicate")
-            .endObject()
-            .toString();
+
+        json.beginObject()
+            .property("name", predicateName)
+            .name("parameters");
+        ParameterJsonConverter.parametersToJsonArray(predicate.getParam(), domain, json);
+        json.property("type", "predicate")
+            .endObject();
     }
 
-    private static String createConjunctionExpression(LogicalExpressionConjunction conjunction, InternalDomain domain) {
+    private static void writeConjunctionExpression(LogicalExpressionConjunction conjunction, InternalDomain domain, JsonWriter json) throws IOException {
         LogicalExpression[] expressions = conjunction.getExpression();
-        JsonBuilder builder = new JsonBuilder()
-                .startObject()
-                .addProperty("type", "and");
+        json.beginObject()
+                .property("type", "and");
 
         if (expressions.length == 2) {
-            builder.addRawProperty("left", expressionToJson(expressions[0], domain));
-            builder.addRawProperty("right", expressionToJson(expressions[1], domain));
+            json.name("left");
+            expressionToJson(expressions[0], domain, json);
+            json.name("right");
+            expressionToJson(expressions[1], domain, json);
         } else {
-            builder.addRawProperty("conjuncts", createExpressionArray(expressions, domain));
+            json.name("conjuncts");
+            writeExpressionArray(expressions, domain, json);
         }
 
-        return builder.endObject().toString();
+        json.endObject();
     }
 
-    private static String createDisjunctionExpression(LogicalExpressionDisjunction disjunction, InternalDomain domain) {
-        JsonBuilder builder = new JsonBuilder()
-            .startObject()
-            .addProperty("type", "or");
-
-        builder.addRawProperty("disjuncts", createExpressionArray(disjunction.getExpression(), domain));
-
-        return builder.endObject().toString();
+    private static void writeDisjunctionExpression(LogicalExpressionDisjunction disjunction, InternalDomain domain, JsonWriter json) throws IOException {
+        json.beginObject()
+            .property("type", "or")
+            .name("disjuncts");
+        writeExpressionArray(disjunction.getExpression(), domain, json);
+        json.endObject();
     }
 
-    private static String createNegationExpression(LogicalExpressionNegation negation, InternalDomain domain) {
-        return new JsonBuilder()
-            .startObject()
-            .addProperty("type", "not")
-            .addRawProperty("expression", expressionToJson(negation.getExpression(), domain))
-            .endObject()
-            .toString();
+    private static void writeNegationExpression(LogicalExpressionNegation negation, InternalDomain domain, JsonWriter json) throws IOException {
+        json.beginObject()
+            .property("type", "not")
+            .name("expression");
+        expressionToJson(negation.getExpression(), domain, json);
+        json.endObject();
     }
 
-    private static String createExpressionArray(LogicalExpression[] expressions, InternalDomain domain) {
-        JsonBuilder builder = new JsonBuilder().startArray();
+    private static void writeExpressionArray(LogicalExpression[] expressions, InternalDomain domain, JsonWriter json) throws IOException {
+        json.beginArray();
 
         for (LogicalExpression expr : expressions) {
-            builder.addRawArrayElement(expressionToJson(expr, domain));
+            expressionToJson(expr, domain, json);
         }
 
-        return builder.endArray().toString();
+        json.endArray();
     }
 
-    private static String createCallExpression(LogicalExpressionCall call, InternalDomain domain) {
+    private static void writeCallExpression(LogicalExpressionCall call, JsonWriter json) throws IOException {
+        String function;
         try {
             java.lang.reflect.Field termField = LogicalExpressionCall.class.getDeclaredField("term");
             termField.setAccessible(true);
             TermCall termCall = (TermCall) termField.get(call);
-
-            return new JsonBuilder()
-                    .startObject()
-                    .addProperty("type", "call")
-                    .addProperty("function", termCall.toString())
-                    .endObject()
-                    .toString();
+            function = termCall.toString();
         } catch (Exception e) {
-            return new JsonBuilder()
-                    .startObject()
-                    .addProperty("type", "call")
-                    .addProperty("error", "Cannot access term field")
-                    .endObject()
-                    .toString();
+            function = null;
         }
-    }
 
-    private static String createAssignmentExpression(LogicalExpressionAssignment assignment, InternalDomain domain) {
-        return new JsonBuilder()
-                .startObject()
-                .addProperty("type", "assignment")
-                .addProperty("operation", assignment.toString())
-                .addProperty("function", assignment.getWhichVar())
-                .addProperty("value", assignment.getWhichVar())
-                .endObject()
-                .toString();
+        json.beginObject()
+                .property("type", "call");
+        if (function != null) {
+            json.property("function", function);
+        } else {
+            json.property("error", "Cannot access term field");
+        }
+        json.endObject();
     }
 
-    private static String createForallExpression(LogicalExpressionForAll forall, InternalDomain domain) {
-        try {
-            LogicalExpression premise = forall.getPremise();
-            LogicalExpression consequence = forall.getConsequence();
-
-            String expressionJson = "null";
-            if (premise != null) {
-                expressionJson = expressionToJson(premise, domain);
-            }
-
-            String predicatesJson = "null";
-            if (consequence != null) {
-                predicatesJson = expressionToJson(consequence, domain);
-            }
-
-            String variablesJson = "[]";
-
-            return new JsonBuilder()
-                    .startObject()
-                    .addProperty("type", "forall")
-                    .addRawProperty("variables", variablesJson)
-                    .addRawProperty("expression", expressionJson)
-                    .addRawProperty("predicates", predicatesJson)
-                    .addProperty("add_list", "true")
-                    .endObject()
-                    .toString();
-        } catch (Exception e) {
-            return new JsonBuilder()
-                    .startObject()
-                    .addProperty("type", "forall")
-                    .addProperty("error", "Failed to process forall expression: " + e.getMessage())
-                    .addRawProperty("variables", "[]")
-                    .addRawProperty("expression", "null")
-                    .addRawProperty("predicates", "null")
-                    .addProperty("add_list", "false")
-                    .endObject()
-                    .toString();
-        }
+    private static void writeAssignmentExpression(LogicalExpressionAssignment assignment, JsonWriter json) throws IOException {
+        json.beginObject()
+                .property("type", "assignment")
+                .property("operation", assignment.toString())
+                .property("function", assignment.getWhichVar())
+                .property("value", assignment.getWhichVar())
+                .endObject();
     }
 
-    private static String createNilExpression() {
-        return new JsonBuilder()
-            .startObject()
-            .addProperty("type", "nil")
-            .endObject()
-            .toString();
+    private static void writeForallExpression(LogicalExpressionForAll forall, InternalDomain domain, JsonWriter json) throws IOException {
+        LogicalExpression premise = forall.getPremise();
+        LogicalExpression consequence = forall.getConsequence();
+
+        json.beginObject()
+                .property("type", "forall")
+                .name("variables").beginArray().endArray()
+                .name("expression");
+        expressionToJson(premise, domain, json);
+        json.name("predicates");
+        expressionToJson(consequence, domain, json);
+        json.property("add_list", "true")
+                .endObject();
     }
 
-    private static String createUnknownExpression() {
-        return new JsonBuilder()
-            .startObject()
-            .addProperty("type", "unknown")
-            .endObject()
-            .toString();
+    private static void writeTypeOnly(String type, JsonWriter json) throws IOException {
+        json.beginObject()
+            .property("type", type)
+            .endObject();
     }
 
     private static String getPredicateName(int headIndex, InternalDomain domain) {
@@ -0,0 +1,39 @@
+package JSHOP2;
+
+import java.lang.reflect.Array;
+
+/** This class creates arrays whose elements are of a generic type, e.g., an
+ *  array of <code>Vector&lt;Term&gt;</code>, which Java does not allow to be
+ *  created directly. The one unchecked cast needed to do so is here, rather
+ *  than in every class that needs such an array.
+ *
+ *  @author Okhtay Ilghami
+ *  @author <a href="http://www.cs.umd.edu/~okhtay">http://www.cs.umd.edu/~okhtay</a>
+ *  @version 1.0.3
+*/
+final class GenericArrays
+{
+  /** This class only has a static function, so it is never instantiated.
+  */
+  private GenericArrays()
+  {
+  }
+
+  /** To create an array of a given length whose elements are all
+   *  <code>null</code>.
+   *
+   *  @param type
+   *          the class of the elements, without its type arguments, e.g.,
+   *          <code>Vector.class</code> for an array of
+   *          <code>Vector&lt;Term&gt;</code>.
+   *  @param length
+   *          the length of the array.
+   *  @return
+   *          the array.
+  */
+  @SuppressWarnings("unchecked")
+  static <T> T[] newArray(Class<?> type, int length)
+  {
+    return (T[])Array.newInstance(type, length);
+  }
+}
@@ -1,5 +1,6 @@
 package JSHOP2;
 
+import java.util.TreeSet;
 import java.util.Vector;
 
 /** Each axiom at compile time is represented as an instance of this class.
@@ -71,11 +72,30 @@ public class InternalAxiom extends InternalElement
     //-- The constructor of the class.
     s += "\tpublic Axiom" + getCnt() + "()" + endl + "\t{" + endl;
 
+    //-- Find the heads of the logical atoms in the branches of this axiom.
+    TreeSet<Integer> heads = new TreeSet<Integer>();
+    for (LogicalPrecondition pre : branches)
+      pre.addHeads(heads);
+
     //-- Call the constructor of the base class (class 'Axiom') with the code
-    //-- that produces the head of this axiom, and number of branches of this
-    //-- axiom as its parameters.
-    s += "\t\tsuper(" + getHead().toCode() + ", " + branches.size() + ");";
-    s += endl + "\t}" + endl + endl;
+    //-- that produces the head of this axiom, number of branches of this axiom
+    //-- and the heads of the logical atoms in its branches (unless some of
+    //-- them are not known) as its parameters.
+    s += "\t\tsuper(" + getHead().toCode() + ", " + branches.size();
+
+    if (!heads.contains(-1))
+    {
+      String deps = "";
+      for (int h : heads)
+        deps += (deps.length() == 0 ? "" : ", ") + h;
+
+      s += ", new int[] {" + deps + "}";
+    }
+
+    s += ");" + endl;
+
+    //-- Tell the axiom which atoms each of its branches requires.
+    s += getRequirementsCode(branches) + "\t}" + endl + endl;
 
     //-- The function that returns an iterator that can be used to find all the
     //-- bindings that satisfy a given precondition of this axiom and return
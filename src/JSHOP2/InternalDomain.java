@@ -1,14 +1,22 @@
 package JSHOP2;
 
+import java.io.BufferedInputStream;
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.HashSet;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Vector;
 
 /**
@@ -39,16 +47,16 @@ public class InternalDomain {
     private Vector<String> calcs;
 
     /**
-     * A <code>Vector</code> of <code>String</code> names of compound tasks seen
+     * A table of the <code>String</code> names of compound tasks seen
      * so far in the domain.
      */
-    protected Vector<String> compoundTasks;
+    protected SymbolTable compoundTasks;
 
     /**
-     * A <code>Vector</code> of <code>String</code> names of constant symbols
+     * A table of the <code>String</code> names of constant symbols
      * seen so far in the domain.
      */
-    protected Vector<String> constants;
+    protected SymbolTable constants;
 
     /**
      * The number of constant symbols already seen in the planning domain. Any
@@ -86,10 +94,10 @@ public class InternalDomain {
     protected JSHOP2Parser parser;
 
     /**
-     * A <code>Vector</code> of <code>String</code> names of primitive tasks
+     * A table of the <code>String</code> names of primitive tasks
      * seen so far in the domain.
      */
-    protected Vector<String> primitiveTasks;
+    protected SymbolTable primitiveTasks;
 
     /**
      * The <code>String</code> name of the planning problem.
@@ -112,6 +120,13 @@ public class InternalDomain {
      */
     private LinkedList<TaskList> problemTaskLists;
 
+    /**
+     * The name of the problem file the initial states of the world are loaded
+     * from at run time, or <code>null</code> if they are created by the
+     * produced code.
+     */
+    private String stateFile;
+
     /**
      * To initialize this domain.
      *
@@ -127,20 +142,67 @@ public class InternalDomain {
 
         calcs = new Vector<String>();
 
-        compoundTasks = new Vector<String>();
+        compoundTasks = new SymbolTable();
 
-        constants = new Vector<String>();
+        constants = new SymbolTable();
 
         methods = new Vector<InternalMethod>();
 
         operators = new Vector<InternalOperator>();
 
-        //-- Initialize the lexer and the parser associated with this object.
-        JSHOP2Lexer lexer = new JSHOP2Lexer(inputStream);
+        //-- Initialize the lexer and the parser associated with this object. The
+        //-- lexer reads one character at a time, so the stream is buffered.
+        JSHOP2Lexer lexer = new JSHOP2Lexer(new BufferedInputStream(inputStream));
         parser = new JSHOP2Parser(lexer);
         parser.initialize(lexer, this);
 
-        primitiveTasks = new Vector<String>();
+        primitiveTasks = new SymbolTable();
+    }
+
+    /**
+     * To initialize this domain to compile a problem file whose initial states
+     * of the world are not read by the parser, but loaded from the file by a
+     * <code>ProblemLoader</code> when the produced code is run. This is much
+     * faster for problems with very large initial states, since no
+     * compile-time object and no Java code is produced for their atoms. The
+     * task lists are still read by the parser.
+     *
+     * @param problemFile the name of the problem file, which must still be there
+     *                    when the produced code is run.
+     * @param planNoIn    the number of solution plans per planning problem that the user
+     *                    has requested from this object.
+     * @return the domain, ready to parse the problem file.
+     * @throws IOException
+     */
+    public static InternalDomain loadingStatesAtRunTime(String problemFile, int planNoIn)
+            throws IOException {
+        byte[] in = Files.readAllBytes(Paths.get(problemFile));
+        int[] bounds = ProblemLoader.findStates(ByteBuffer.wrap(in));
+
+        //-- Replace each initial state with an empty one, but keep the line
+        //-- breaks in it, so that the parser still reports the right lines.
+        ByteArrayOutputStream out = new ByteArrayOutputStream(in.length);
+        int done = 0;
+
+        for (int i = 0; i < bounds.length; i += 2) {
+            out.write(in, done, bounds[i] - done);
+            out.write('n');
+            out.write('i');
+            out.write('l');
+
+            for (int j = bounds[i]; j < bounds[i + 1]; j++)
+                if (in[j] == '\n')
+                    out.write('\n');
+
+            done = bounds[i + 1];
+        }
+
+        out.write(in, done, in.length - done);
+
+        InternalDomain retVal = new InternalDomain(new ByteArrayInputStream(out.toByteArray()), planNoIn);
+        retVal.stateFile = problemFile;
+
+        return retVal;
     }
 
     /**
@@ -161,14 +223,7 @@ public class InternalDomain {
      * @return the index assigned to this name.
      */
     public int addCompoundTask(String s) {
-        int index;
-
-        if ((index = compoundTasks.indexOf(s)) == -1) {
-            compoundTasks.add(s);
-            return compoundTasks.size() - 1;
-        }
-
-        return index;
+        return compoundTasks.intern(s);
     }
 
     /**
@@ -180,14 +235,7 @@ public class InternalDomain {
      * @return the index assigned to this name.
      */
     public int addConstant(String s) {
-        int index;
-
-        if ((index = constants.indexOf(s)) == -1) {
-            constants.add(s);
-            return constants.size() - 1;
-        }
-
-        return index;
+        return constants.intern(s);
     }
 
     /**
@@ -228,17 +276,9 @@ public class InternalDomain {
      * @return the index assigned to this name.
      */
     public int addPrimitiveTask(String s) {
-        int index;
-
-        //-- If this name has not been added before, add it to the end of the
-        //-- Vector and return its index.
-        if ((index = primitiveTasks.indexOf(s)) == -1) {
-            primitiveTasks.add(s);
-            return primitiveTasks.size() - 1;
-        }
-
-        //-- Otherwise, just return its index.
-        return index;
+        //-- If this name has not been added before, it is added to the end of
+        //-- the table. Either way, its index is returned.
+        return primitiveTasks.intern(s);
     }
 
     /**
@@ -250,17 +290,16 @@ public class InternalDomain {
      * @throws IOException
      */
     public void close(int varsMaxSize) throws IOException {
-        //-- To hold the String to be written.
-        String s = generateDomainCode(varsMaxSize);
-
         //-- Open the file with the appropriate name.
         BufferedWriter dest = new BufferedWriter(new FileWriter(name + ".java"));
 
-        //-- Write the String.
-        dest.write(s, 0, s.length());
-
-        //-- Close the file.
-        dest.close();
+        //-- Write the code to it as it is produced.
+        try {
+            generateDomainCode(varsMaxSize, dest);
+        } finally {
+            //-- Close the file.
+            dest.close();
+        }
 
         //-- Open another file with extension '.txt' to store the String names of
         //-- the constant symbols, the compound tasks and the primitive tasks in
@@ -269,13 +308,13 @@ public class InternalDomain {
         dest = new BufferedWriter(new FileWriter(name + ".txt"));
 
         //-- Store the constant symbols.
-        dumpStringArray(dest, constants);
+        dumpStringArray(dest, constants.asList());
 
         //-- Store the compound tasks.
-        dumpStringArray(dest, compoundTasks);
+        dumpStringArray(dest, compoundTasks.asList());
 
         //-- Store the primitive tasks.
-        dumpStringArray(dest, primitiveTasks);
+        dumpStringArray(dest, primitiveTasks.asList());
 
         //-- Store the variable names
         if (variableNames != null) {
@@ -340,15 +379,15 @@ public class InternalDomain {
 
         storeProblemData(states, taskLists);
 
-        String s = generateProblemCode(states, taskLists);
-
         BufferedWriter dest;
 
         dest = new BufferedWriter(new FileWriter(probName + ".java"));
 
-        dest.write(s, 0, s.length());
-
-        dest.close();
+        try {
+            generateProblemCode(states, taskLists, dest);
+        } finally {
+            dest.close();
+        }
     }
 
     /**
@@ -359,7 +398,7 @@ public class InternalDomain {
      * @param list the <code>Vector</code> to be saved.
      * @throws IOException
      */
-    public void dumpStringArray(BufferedWriter dest, Vector<?> list)
+    public void dumpStringArray(BufferedWriter dest, List<?> list)
             throws IOException {
         String buff;
 
@@ -381,58 +420,79 @@ public class InternalDomain {
      * @return the generated code.
      */
     public String generateDomainCode(int varsMaxSize) {
-        //-- To hold the String to be written.
-        String s;
+        StringBuilder s = new StringBuilder();
+
+        try {
+            generateDomainCode(varsMaxSize, s);
+        } catch (IOException e) {
+            //-- Appending to a StringBuilder never fails.
+            throw new RuntimeException(e);
+        }
+
+        return s.toString();
+    }
 
+    /**
+     * This function writes the Java code necessary to produce this domain at
+     * run time to a given destination, piece by piece, so that the time it
+     * takes grows linearly with the size of the code.
+     *
+     * @param varsMaxSize the maximum number of variables seen in any variable scope in
+     *                    this domain.
+     * @param s           where the code is to be written.
+     * @throws IOException
+     */
+    public void generateDomainCode(int varsMaxSize, Appendable s)
+            throws IOException {
         //-- JSHOP2 classes should be imported first.
-        s = "import JSHOP2.*;" + endl + endl;
+        s.append("import JSHOP2.*;" + endl + endl);
 
         //-- Produce the classes that represent the operators.
         for (int i = 0; i < operators.size(); i++)
-            s += operators.get(i).toCode();
+            s.append(operators.get(i).toCode());
 
         //-- Produce the classes that represent the methods.
         for (int i = 0; i < methods.size(); i++)
-            s += methods.get(i).toCode();
+            s.append(methods.get(i).toCode());
 
         //-- Produce the classes that represent the axioms.
         for (int i = 0; i < axioms.size(); i++)
-            s += axioms.get(i).toCode();
+            s.append(axioms.get(i).toCode());
 
         //-- Produce the class that represents the domain itself.
-        s += "public class " + name + " extends Domain" + endl + "{" + endl;
+        s.append("public class " + name + " extends Domain" + endl + "{" + endl);
 
         //-- Take care of the user-defined external code calls first by
         //-- instantiating an  object of that class to do the calculations.
         for (int i = 0; i < calcs.size(); i++) {
             String imp = (String) calcs.get(i);
 
-            s += "\tpublic static " + imp + " calculate" + imp +
-                    " = new " + imp + "();" + endl + endl;
+            s.append("\tpublic static " + imp + " calculate" + imp +
+                    " = new " + imp + "();" + endl + endl);
         }
 
         //-- Produce the constructor for the class that represents this domain.
-        s += "\tpublic " + name + "()" + endl + "\t{" + endl;
+        s.append("\tpublic " + name + "()" + endl + "\t{" + endl);
 
         //-- To initialize an array of the variable symbols the size of which is
         //-- equal to the maximum number of variables seen in any scope in the
         //-- domain. This way, all the variable symbols that have the same index
         //-- will point to the same thing rather than pointing to duplicate copies.
-        s += "\t\tTermVariable.initialize(" + varsMaxSize + ");" + endl + endl;
+        s.append("\t\tTermVariable.initialize(" + varsMaxSize + ");" + endl + endl);
 
         //-- Produce the array that maps constant symbols to integers.
-        s += vectorToCode(constants, "constants");
+        vectorToCode(constants.asList(), "constants", s);
         //-- Produce the array that maps compound tasks to integers.
-        s += vectorToCode(compoundTasks, "compoundTasks");
+        vectorToCode(compoundTasks.asList(), "compoundTasks", s);
         //-- Produce the array that maps primitive tasks to integers.
-        s += vectorToCode(primitiveTasks, "primitiveTasks");
+        vectorToCode(primitiveTasks.asList(), "primitiveTasks", s);
 
         //-- Allocate an array of type 'Method[]'. The size of the array is the
         //-- number of compound tasks in the domain, and each element of the array
         //-- represents all the methods that can be used to decompose the
         //-- corresponding compound task.
-        s += "\t\tmethods = new Method[" + compoundTasks.size() + "][];" + endl
-                + endl;
+        s.append("\t\tmethods = new Method[" + compoundTasks.size() + "][];" + endl
+                + endl);
 
         //-- For each compound task,
         for (int i = 0; i < compoundTasks.size(); i++) {
@@ -449,7 +509,7 @@ public class InternalDomain {
             }
 
             //-- Allocate an array of right size.
-            s += "\t\tmethods[" + i + "] = new Method[" + j + "];" + endl;
+            s.append("\t\tmethods[" + i + "] = new Method[" + j + "];" + endl);
 
             j = 0;
 
@@ -457,19 +517,19 @@ public class InternalDomain {
             //-- that can decompose this compound task to the array.
             for (InternalMethod m : methods) {
                 if (m.getHead().getHead() == i)
-                    s += "\t\tmethods[" + i + "][" + j++ + "] = new Method" + m.getCnt() +
-                            "();" + endl;
+                    s.append("\t\tmethods[" + i + "][" + j++ + "] = new Method" + m.getCnt() +
+                            "();" + endl);
             }
 
-            s += endl;
+            s.append(endl);
         }
 
         //-- Allocate an array of type 'Operator[]'. The size of the array is the
         //-- number of primitive tasks in the domain, and each element of the array
         //-- represents all the operators that can be used to achieve the
         //-- corresponding primitive task.
-        s += endl + "\t\tops = new Operator[" + primitiveTasks.size() + "][];" +
-                endl + endl;
+        s.append(endl + "\t\tops = new Operator[" + primitiveTasks.size() + "][];" +
+                endl + endl);
 
         //-- For each primitive task,
         for (int i = 0; i < primitiveTasks.size(); i++) {
@@ -486,25 +546,25 @@ public class InternalDomain {
             }
 
             //-- Allocate an array of the right size.
-            s += "\t\tops[" + i + "] = new Operator[" + j + "];" + endl;
+            s.append("\t\tops[" + i + "] = new Operator[" + j + "];" + endl);
 
             j = 0;
             //-- Next, iterate over the operators again, this time to add the
             //-- operators that can achieve this primitive task to the array.
             for (InternalOperator o : operators) {
                 if (o.getHead().getHead() == i)
-                    s += "\t\tops[" + i + "][" + j++ + "] = new Operator" + o.getCnt() +
-                            "();" + endl;
+                    s.append("\t\tops[" + i + "][" + j++ + "] = new Operator" + o.getCnt() +
+                            "();" + endl);
             }
 
-            s += endl;
+            s.append(endl);
         }
 
         //-- Allocate an array of type 'Axiom[]'. The size of the array is the
         //-- number of constant symbols in the domain, and each element of the
         //-- array represents all the axioms that can be used to prove predicates
         //-- which start with the corresponding constant symbol.
-        s += "\t\taxioms = new Axiom[" + constants.size() + "][];" + endl + endl;
+        s.append("\t\taxioms = new Axiom[" + constants.size() + "][];" + endl + endl);
 
         //-- For each constant symbol,
         for (int i = 0; i < constants.size(); i++) {
@@ -521,7 +581,7 @@ public class InternalDomain {
             }
 
             //-- Allocate an array of the right size.
-            s += "\t\taxioms[" + i + "] = new Axiom[" + j + "];" + endl;
+            s.append("\t\taxioms[" + i + "] = new Axiom[" + j + "];" + endl);
 
             j = 0;
 
@@ -530,17 +590,52 @@ public class InternalDomain {
             //-- constant symbol to the array.
             for (InternalAxiom a : axioms) {
                 if (a.getHead().getHead() == i)
-                    s += "\t\taxioms[" + i + "][" + j++ + "] = new Axiom" + a.getCnt() +
-                            "();" + endl;
+                    s.append("\t\taxioms[" + i + "][" + j++ + "] = new Axiom" + a.getCnt() +
+                            "();" + endl);
             }
 
-            s += endl;
+            s.append(endl);
         }
 
+        //-- Produce the array that marks the heads of the rigid atoms, i.e.,
+        //-- the atoms that no operator can delete or add.
+        rigidToCode(s);
+
         //-- Close the constructor and the class.
-        s += "\t}" + endl + "}";
+        s.append("\t}" + endl + "}");
+    }
 
-        return s;
+    /**
+     * This function produces the Java code that marks the constant symbols
+     * that are the heads of rigid atoms, i.e., atoms that are not in the
+     * delete or add list of any operator in this domain. Such atoms never
+     * change once the initial state of the world is built, so they can be
+     * kept in tables that are never invalidated.
+     *
+     * @param s where the code is to be written. Nothing is written if any
+     *          operator can delete or add any atom.
+     * @throws IOException
+     */
+    private void rigidToCode(Appendable s) throws IOException {
+        //-- The heads of the atoms that can be deleted or added.
+        HashSet<Integer> fluents = new HashSet<Integer>();
+
+        for (InternalOperator o : operators) {
+            //-- If an operator can delete or add any atom, no atom is rigid.
+            if (!o.addChangedHeads(fluents))
+                return;
+        }
+
+        s.append(endl + "\t\trigid = new boolean[] {");
+
+        for (int i = 0; i < constants.size(); i++) {
+            if (i != 0)
+                s.append(", ");
+
+            s.append(String.valueOf(!fluents.contains(i)));
+        }
+
+        s.append("};" + endl);
     }
 
     /**
@@ -554,29 +649,52 @@ public class InternalDomain {
      * @return the generated code.
      */
     public String generateProblemCode(LinkedList<Vector<Predicate>> states, LinkedList<TaskList> taskLists) {
-        //-- To hold the String to be written.
-        String s;
+        StringBuilder s = new StringBuilder();
+
+        try {
+            generateProblemCode(states, taskLists, s);
+        } catch (IOException e) {
+            //-- Appending to a StringBuilder never fails.
+            throw new RuntimeException(e);
+        }
+
+        return s.toString();
+    }
 
+    /**
+     * This function writes the Java code necessary to produce these planning
+     * problems at run time to a given destination, piece by piece, so that the
+     * time it takes grows linearly with the size of the code.
+     *
+     * @param states    the list of initial state of the world, one per each planning
+     *                  problem.
+     * @param taskLists the list of the task lists to be achieved, one per each planning
+     *                  problem.
+     * @param s         where the code is to be written.
+     * @throws IOException
+     */
+    public void generateProblemCode(LinkedList<Vector<Predicate>> states, LinkedList<TaskList> taskLists,
+                                    Appendable s) throws IOException {
         //-- Import the appropriate packages.
-        s = "import java.util.LinkedList;" + endl + "import JSHOP2.*;" + endl +
-                endl;
+        s.append("import java.util.LinkedList;" + endl + "import JSHOP2.*;" + endl +
+                endl);
 
         //-- Define the class that represents this planning problem.
-        s += "public class " + probName + endl + "{" + endl;
+        s.append("public class " + probName + endl + "{" + endl);
 
         //-- This function defines and allocate the array that will hold the String
         //-- names of the constant symbols that appeared in the problem description
         //-- but not in the domain description.
-        s += "\tprivate static String[] defineConstants()" + endl + "\t{" + endl;
-        s += "\t\tString[] problemConstants = new String[" +
-                (constants.size() - constantsSize) + "];" + endl + endl;
+        s.append("\tprivate static String[] defineConstants()" + endl + "\t{" + endl);
+        s.append("\t\tString[] problemConstants = new String[" +
+                (constants.size() - constantsSize) + "];" + endl + endl);
 
         //-- Set the values of elements of that array.
         for (int i = constantsSize; i < constants.size(); i++)
-            s += "\t\tproblemConstants[" + (i - constantsSize) + "] = \"" +
-                    (String) constants.get(i) + "\";" + endl;
+            s.append("\t\tproblemConstants[" + (i - constantsSize) + "] = \"" +
+                    (String) constants.get(i) + "\";" + endl);
 
-        s += endl + "\t\treturn problemConstants;" + endl + "\t}" + endl + endl;
+        s.append(endl + "\t\treturn problemConstants;" + endl + "\t}" + endl + endl);
 
         //-- For each planning problem, initialize the current state of the world
         //-- to the initial state of the world in the problem description.
@@ -589,8 +707,8 @@ public class InternalDomain {
         int helperIdx = 0;
 
         for (Vector<Predicate> state : states) {
-            s += "\tprivate static void createState" + problemIdx++ + "(State s)"
-                    + "\t{" + endl;
+            s.append("\tprivate static void createState" + problemIdx++ + "(State s)"
+                    + "\t{" + endl);
 
 
             //-- For each predicate, in the initial world state of the problem
@@ -598,10 +716,10 @@ public class InternalDomain {
                 //-- Java functions are limited to 512kb. To prevent reaching this size
                 //-- we limit the createState functions to 500 lines.
                 if (predicateCounter++ == 500) {
-                    s += "\t\thelper_" + helperIdx + "_createState" + (problemIdx - 1) + "(s);" + endl +
+                    s.append("\t\thelper_" + helperIdx + "_createState" + (problemIdx - 1) + "(s);" + endl +
                             "\t}" + endl + endl +
                             "\tprivate static void helper_" + helperIdx++ + "_createState" + (problemIdx - 1) + "(State s)" +
-                            "\t{" + endl;
+                            "\t{" + endl);
                     predicateCounter = 0;
                 }
 
@@ -609,42 +727,47 @@ public class InternalDomain {
                 //-- we don't need to add it to the world state because it doesn't make
                 //-- a difference.
                 if (p.getHead() < constantsSize)
-                    s += "\t\ts.add(" + p.toCode() + ");" + endl;
+                    s.append("\t\ts.add(" + p.toCode() + ");" + endl);
             }
 
-            s += "\t}" + endl + endl;
+            s.append("\t}" + endl + endl);
         }
 
         //-- Define the main function.
-        s += "\tpublic static LinkedList<Plan> getPlans()" + endl + "\t{" + endl;
+        s.append("\tpublic static LinkedList<Plan> getPlans()" + endl + "\t{" + endl);
         //-- List for all plans to be stored in
-        s += "\t\tLinkedList<Plan> returnedPlans = new LinkedList<Plan>();" + endl;
+        s.append("\t\tLinkedList<Plan> returnedPlans = new LinkedList<Plan>();" + endl);
 
         //-- To initialize an array of the constant symbols that we already know
         //-- exist so that there will be no duplicate copies of those constant
         //-- symbols.
-        s += "\t\tTermConstant.initialize(" + constants.size() + ");" + endl +
-                endl;
+        s.append("\t\tTermConstant.initialize(" + constants.size() + ");" + endl +
+                endl);
 
         //-- Instantiate an object of the class that represents the planning
         //-- domain.
-        s += "\t\tDomain d = new " + name + "();" + endl + endl;
+        s.append("\t\tDomain d = new " + name + "();" + endl + endl);
 
         //-- Call the function that passes this array to the the object that
         //-- represents the domain.
-        s += "\t\td.setProblemConstants(defineConstants());" + endl + endl;
+        s.append("\t\td.setProblemConstants(defineConstants());" + endl + endl);
 
         //-- Initialize the object that will represent the current state of the
         //-- world.
-        s += "\t\tState s = new State(" + constantsSize + ", d.getAxioms());" +
-                endl;
+        s.append("\t\tState s = new State(" + constantsSize + ", d.getAxioms(), " +
+                "d.getRigid());" + endl);
 
         //-- Pass the domain description and the initial state of the world to the
         //-- JSHOP2 algorithm.
-        s += endl + "\t\tJSHOP2.initialize(d, s);" + endl + endl;
+        s.append(endl + "\t\tJSHOP2.initialize(d, s);" + endl + endl);
 
-        //-- Define the task list variable and the thread that solves the problems.
-        s += "\t\tTaskList tl;" + endl + "\t\tSolverThread thread;" + endl + endl;
+        //-- If the initial states of the world are loaded at run time, define
+        //-- the object that loads them.
+        if (stateFile != null)
+            s.append("\t\tProblemLoader loader = new ProblemLoader(d);" + endl + endl);
+
+        //-- Define the task list variable.
+        s.append("\t\tTaskList tl;" + endl + endl);
 
         //-- The index of the problem being solved.
         problemIdx = 0;
@@ -654,35 +777,38 @@ public class InternalDomain {
             //-- If this is not the first problem, clear the variable that represents
             //-- the initial world state.
             if (problemIdx != 0)
-                s += endl + "\t\ts.clear();" + endl;
-
-            //-- Create the world state for this problem.
-            s += "\t\tcreateState" + problemIdx + "(s);" + endl;
+                s.append(endl + "\t\ts.clear();" + endl);
+
+            //-- Create the world state for this problem, or load it from the
+            //-- problem file.
+            if (stateFile == null)
+                s.append("\t\tcreateState" + problemIdx + "(s);" + endl);
+            else {
+                String file = stateFile.replace("\\", "\\\\").replace("\"", "\\\"");
+
+                s.append("\t\ttry {" + endl);
+                s.append("\t\t\tloader.load(\"" + file + "\", " + problemIdx + ", s);" + endl);
+                s.append("\t\t} catch (java.io.IOException e) {" + endl);
+                s.append("\t\t\tthrow new RuntimeException(e);" + endl + "\t\t}" + endl);
+            }
 
             //-- Create the initial task list.
-            s += endl + tl.getInitCode("tl") + endl;
-
-            //-- Define the thread that will solve this planning problem.
-            s += "\t\tthread = new SolverThread(tl, " + planNo + ");" + endl;
-
-            //-- Start the thread that will solve this planning problem.
-            s += "\t\tthread.start();" + endl + endl;
+            s.append(endl);
+            tl.getInitCode("tl", s);
+            s.append(endl);
 
-            //-- Wait till thread is done, since JSHOP2's data members are static and
-            //-- can handle only one problem at a time.
-            s += "\t\ttry {" + endl + "\t\t\twhile (thread.isAlive())" + endl;
-            s += "\t\t\t\tThread.sleep(500);" + endl;
-            s += "\t\t} catch (InterruptedException e) {" + endl + "\t\t}" + endl;
-            s += endl + "\t\treturnedPlans.addAll( thread.getPlans() );" + endl + endl;
+            //-- Solve this planning problem in a thread of its own, and wait till
+            //-- it is solved, since the problems share the state of the world. An
+            //-- exception thrown by the search is thrown here again.
+            s.append("\t\treturnedPlans.addAll(JSHOP2.solve(tl, " + planNo +
+                    ").join().getPlans());" + endl + endl);
 
             problemIdx++;
         }
-        s += "\t\treturn returnedPlans;" + endl;
-        s += "\t}" + endl + endl + "\tpublic static LinkedList<Predicate> getFirstPlanOps() {";
-        s += endl + "\t\treturn getPlans().getFirst().getOps();" + endl;
-        s += "\t}" + endl + "}";
-
-        return s;
+        s.append("\t\treturn returnedPlans;" + endl);
+        s.append("\t}" + endl + endl + "\tpublic static LinkedList<Predicate> getFirstPlanOps() {");
+        s.append(endl + "\t\treturn getPlans().getFirst().getOps();" + endl);
+        s.append("\t}" + endl + "}");
     }
 
     /**
@@ -695,27 +821,25 @@ public class InternalDomain {
     }
 
     /**
-     * This function returns the <code>Vector</code> where the
-     * <code>String</code> names of the compound tasks in this domain are
-     * stored.
+     * This function returns the <code>String</code> names of the compound tasks
+     * in this domain, in a list that cannot be changed.
      *
-     * @return the <code>Vector</code> where the <code>String</code> names of
-     * the compound tasks in this domain are stored.
+     * @return the <code>String</code> names of the compound tasks in this
+     * domain.
      */
-    public Vector<String> getCompoundTasks() {
-        return compoundTasks;
+    public List<String> getCompoundTasks() {
+        return compoundTasks.asList();
     }
 
     /**
-     * This function returns the <code>Vector</code> where the
-     * <code>String</code> names of the constant symbols in this domain are
-     * stored.
+     * This function returns the <code>String</code> names of the constant symbols
+     * in this domain, in a list that cannot be changed.
      *
-     * @return the <code>Vector</code> where the <code>String</code> names of
-     * the constant symbols in this domain are stored.
+     * @return the <code>String</code> names of the constant symbols in this
+     * domain.
      */
-    public Vector<String> getConstants() {
-        return constants;
+    public List<String> getConstants() {
+        return constants.asList();
     }
 
     /**
@@ -737,15 +861,14 @@ public class InternalDomain {
     }
 
     /**
-     * This function returns the <code>Vector</code> where the
-     * <code>String</code> names of the primitive tasks in this domain are
-     * stored.
+     * This function returns the <code>String</code> names of the primitive tasks
+     * in this domain, in a list that cannot be changed.
      *
-     * @return the <code>Vector</code> where the <code>String</code> names of
-     * the primitive tasks in this domain are stored.
+     * @return the <code>String</code> names of the primitive tasks in this
+     * domain.
      */
-    public Vector<String> getPrimitiveTasks() {
-        return primitiveTasks;
+    public List<String> getPrimitiveTasks() {
+        return primitiveTasks.asList();
     }
 
 
@@ -759,6 +882,21 @@ public class InternalDomain {
         //-- The number of solution plans to be returned.
         int planNo = -1;
 
+        //-- With '-s', the initial states of the world in the problem file are
+        //-- not compiled, but loaded from the file when the produced code is run.
+        if (args.length == 3 && args[0].equals("-s")) {
+            planNo = parsePlanNo(args[1]);
+
+            if (planNo <= 0) {
+                System.err.println("usage: java JSHOP2Parser " +
+                        "[-s] [-r|-ra|-rSomePositiveInteger] input");
+                System.exit(1);
+            }
+
+            loadingStatesAtRunTime(args[2], planNo).parser.command();
+            return;
+        }
+
         if (args.length == 1) {
             InternalDomain domain = new InternalDomain(new FileInputStream(new File(args[0])), -1);
             domain.parser.domain();
@@ -770,17 +908,7 @@ public class InternalDomain {
             System.out.println("JSON created: " + jsonFile);
 
         } else if (args.length == 2) {
-            if (args[0].equals("-r"))
-                planNo = 1;
-            else if (args[0].equals("-ra"))
-                planNo = Integer.MAX_VALUE;
-            else if (args[0].startsWith("-r")) {
-                try {
-                    planNo = Integer.parseInt(args[0].substring(2));
-                } catch (NumberFormatException e) {
-                    planNo = -1;
-                }
-            }
+            planNo = parsePlanNo(args[0]);
 
             if (planNo > 0) {
                 String problemFile = args[1];
@@ -798,19 +926,8 @@ public class InternalDomain {
                         // Verwende den korrekten JSON-Dateinamen basierend auf der vorhandenen JSON
                         String outputJsonFile = jsonFile.replace(".json", "_with_problem.json");
 
-                        // Kopiere die bestehende JSON-Datei zur neuen Ausgabedatei
-                        try {
-                            java.nio.file.Files.copy(
-                                    java.nio.file.Paths.get(jsonFile),
-                                    java.nio.file.Paths.get(outputJsonFile),
-                                    java.nio.file.StandardCopyOption.REPLACE_EXISTING
-                            );
-                        } catch (IOException e) {
-                            System.err.println("Error copying JSON file: " + e.getMessage());
-                        }
-
-                        // Füge das Problem zur kopierten JSON-Datei hinzu
-                        JSONParser.appendProblemToJson(problem, outputJsonFile);
+                        // Kopiere die bestehende JSON-Datei zur neuen Ausgabedatei und füge das Problem dabei hinzu
+                        JSONParser.mergeProblemIntoJson(problem, jsonFile, outputJsonFile);
                         System.out.println("Problem added to JSON: " + outputJsonFile);
 
                     } else {
@@ -871,8 +988,7 @@ public class InternalDomain {
                         String parentDir = inputFile.getParent();
                         String jsonFile = (parentDir != null ? parentDir + File.separator : "") + inputFile.getName() + "IR.json";
 
-                        JSONParser.exportProblemToJson(problem, domain, jsonFile);
-                        JSONParser.appendDomainToJson(domain, jsonFile);
+                        JSONParser.exportProblemAndDomainToJson(problem, domain, jsonFile);
                         System.out.println("Integrated JSON created: " + jsonFile);
 
                     } catch (Exception e) {
@@ -885,7 +1001,7 @@ public class InternalDomain {
             //-- Check the number of arguments.
             if (((args.length != 2) || planNo <= 0) && (args.length != 1)) {
                 System.err.println("usage: java JSHOP2Parser " +
-                        "[-r|-ra|-rSomePositiveInteger] input");
+                        "[-s] [-r|-ra|-rSomePositiveInteger] input");
                 System.exit(1);
             }
 
@@ -900,6 +1016,31 @@ public class InternalDomain {
         }
     }
 
+    /**
+     * This function returns the number of solution plans requested by a
+     * <code>-r</code>, <code>-ra</code> or <code>-rSomePositiveInteger</code>
+     * command line argument.
+     *
+     * @param arg the command line argument.
+     * @return the number of solution plans, or -1 if the argument is not one
+     * of these.
+     */
+    private static int parsePlanNo(String arg) {
+        if (arg.equals("-r"))
+            return 1;
+        else if (arg.equals("-ra"))
+            return Integer.MAX_VALUE;
+        else if (arg.startsWith("-r")) {
+            try {
+                return Integer.parseInt(arg.substring(2));
+            } catch (NumberFormatException e) {
+                return -1;
+            }
+        }
+
+        return -1;
+    }
+
     /**
      * This function reads a <code>Vector</code> of <code>String</code>s from
      * a given file.
@@ -926,6 +1067,25 @@ public class InternalDomain {
         return j;
     }
 
+    /**
+     * This function reads a <code>Vector</code> of <code>String</code>s from
+     * a given file into a table of symbols.
+     *
+     * @param src   the input file.
+     * @param table the table to be read.
+     * @return the number of the elements read.
+     * @throws IOException
+     */
+    public int readStringArray(BufferedReader src, SymbolTable table)
+            throws IOException {
+        Vector<String> list = new Vector<String>();
+        int j = readStringArray(src, list);
+
+        table.addAll(list);
+
+        return j;
+    }
+
     /**
      * To set the name of this planning domain.
      *
@@ -955,17 +1115,41 @@ public class InternalDomain {
      *             <code>Vector</code> are to be stored.
      * @return the produced Java code.
      */
-    public String vectorToCode(Vector<String> list, String name) {
-        String retVal;
+    public String vectorToCode(List<String> list, String name) {
+        StringBuilder retVal = new StringBuilder();
+
+        try {
+            vectorToCode(list, name, retVal);
+        } catch (IOException e) {
+            //-- Appending to a StringBuilder never fails.
+            throw new RuntimeException(e);
+        }
 
+        return retVal.toString();
+    }
+
+    /**
+     * This function writes the Java code needed to allocate and initialize an
+     * array the elements of which are drawn from a given <code>Vector</code> of
+     * <code>String</code>s to a given destination.
+     *
+     * @param list the <code>Vector</code> the elements of which are to be stored in
+     *             the resulting array.
+     * @param name the name of the array where the elements of the
+     *             <code>Vector</code> are to be stored.
+     * @param s    where the code is to be written.
+     * @throws IOException
+     */
+    public void vectorToCode(List<String> list, String name, Appendable s)
+            throws IOException {
         //-- First, allocate the array.
-        retVal = "\t\t" + name + " = new String[" + list.size() + "];" + endl;
+        s.append("\t\t" + name + " = new String[" + list.size() + "];" + endl);
 
         //-- Then, assign the elements of the array one by one.
         for (int i = 0; i < list.size(); i++)
-            retVal += "\t\t" + name + "[" + i + "] = \"" + list.get(i) + "\";" + endl;
+            s.append("\t\t" + name + "[" + i + "] = \"" + list.get(i) + "\";" + endl);
 
-        return retVal + endl;
+        s.append(endl);
     }
 
     public Vector<InternalOperator> getOperators() {
@@ -1057,7 +1241,7 @@ public class InternalDomain {
     /**
      * Sets the variable names from the parser
      */
-    public void setVariableNames(Vector<String> varNames) {
+    public void setVariableNames(List<String> varNames) {
         this.variableNames = new Vector<String>(varNames);
     }
 
@@ -1,5 +1,8 @@
 package JSHOP2;
 
+import java.util.TreeSet;
+import java.util.Vector;
+
 /** Each domain element (i.e., method, operator, or axiom) at compile time is
  *  represented as an instance of a class derived from this abstract class.
  *
@@ -54,4 +57,32 @@ public abstract class InternalElement extends CompileTimeObject
   {
     return head;
   }
+
+  /** This function produces the Java code that tells the run-time version of
+   *  this element which atoms each of its branches requires, so that the
+   *  branches that can never be satisfied in a given problem can be ignored.
+   *
+   *  @param pres
+   *          the logical preconditions of the branches of this element.
+   *  @return
+   *          the produced code.
+  */
+  protected static String getRequirementsCode(Vector<LogicalPrecondition> pres)
+  {
+    String s = "";
+
+    for (LogicalPrecondition pre : pres)
+    {
+      TreeSet<Integer> heads = new TreeSet<Integer>();
+      pre.addRequiredHeads(heads);
+
+      String branch = "";
+      for (int h : heads)
+        branch += (branch.length() == 0 ? "" : ", ") + h;
+
+      s += (s.length() == 0 ? "" : ", ") + "{" + branch + "}";
+    }
+
+    return "\t\tsetRequirements(new int[][] {" + s + "});" + endl;
+  }
 }
@@ -114,7 +114,10 @@ public class InternalMethod extends InternalElement
 
     //-- Call the function that sets the method's task list to the array that
     //-- was created and initialized.
-    s += endl + "\t\tsetSubs(subsIn);" + endl + "\t}" + endl + endl;
+    s += endl + "\t\tsetSubs(subsIn);" + endl;
+
+    //-- Tell the method which atoms each of its branches requires.
+    s += getRequirementsCode(pres) + "\t}" + endl + endl;
 
     //-- For each possible decomposition,
     for (int i = 0; i < subs.size(); i++)
@@ -1,5 +1,6 @@
 package JSHOP2;
 
+import java.util.Set;
 import java.util.Vector;
 
 /** Each operator at compile time is represented as an instance of this class.
@@ -15,7 +16,7 @@ public class InternalOperator extends InternalElement
    *  an array, is used, since at compile time we do not know how many
    *  delete/add elements there will be.
   */
-  private static Vector add;
+  private Vector add;
 
   /** The number of objects already instantiated from this class.
   */
@@ -30,7 +31,7 @@ public class InternalOperator extends InternalElement
    *  an array, is used, since at compile time we do not know how many
    *  delete/add elements there will be.
   */
-  private static Vector del;
+  private Vector del;
 
   /** The logical precondition of this operator.
   */
@@ -244,6 +245,11 @@ public class InternalOperator extends InternalElement
       s += endl + "\t\tsetAdd(addIn);" + endl;
     }
 
+    //-- Tell the operator which atoms its precondition requires.
+    Vector<LogicalPrecondition> pres = new Vector<LogicalPrecondition>();
+    pres.add(pre);
+    s += endl + getRequirementsCode(pres);
+
     //-- Close the constructor.
     s += "\t}" + endl + endl;
 
@@ -276,11 +282,79 @@ public class InternalOperator extends InternalElement
     return cost;
   }
 
-  public static Vector getDel() {
+  public Vector getDel() {
     return del;
   }
 
-  public static Vector getAdd() {
+  public Vector getAdd() {
     return add;
   }
+
+  /** To add the heads of the atoms this operator can delete from or add to
+   *  the current state of the world.
+   *
+   *  @param heads
+   *          the set to which the heads are added.
+   *  @return
+   *          <code>false</code> if the delete list or the add list of this
+   *          operator is a variable, in which case any atom can be deleted or
+   *          added, <code>true</code> otherwise.
+  */
+  public boolean addChangedHeads(Set<Integer> heads)
+  {
+    return addChangedHeads(del, heads) && addChangedHeads(add, heads);
+  }
+
+  /** To add the heads of the atoms in a delete or add list.
+   *
+   *  @param delAdd
+   *          the delete or add list.
+   *  @param heads
+   *          the set to which the heads are added.
+   *  @return
+   *          <code>false</code> if the list is a variable, <code>true</code>
+   *          otherwise.
+  */
+  private static boolean addChangedHeads(Vector<?> delAdd, Set<Integer> heads)
+  {
+    if ((Integer)delAdd.get(0) != null)
+      return false;
+
+    for (int i = 1; i < delAdd.size(); i++)
+    {
+      Object o = delAdd.get(i);
+
+      //-- Protections do not change the atoms in the state of the world.
+      if (o instanceof DelAddAtomic)
+      {
+        if (!addChangedHead(((DelAddAtomic)o).getAtom(), heads))
+          return false;
+      }
+      else if (o instanceof DelAddForAll)
+        for (Predicate p : ((DelAddForAll)o).getAtoms())
+          if (!addChangedHead(p, heads))
+            return false;
+    }
+
+    return true;
+  }
+
+  /** To add the head of an atom in a delete or add list.
+   *
+   *  @param p
+   *          the atom.
+   *  @param heads
+   *          the set to which the head is added.
+   *  @return
+   *          <code>false</code> if the head of the atom is a variable,
+   *          <code>true</code> otherwise.
+  */
+  private static boolean addChangedHead(Predicate p, Set<Integer> heads)
+  {
+    if (p.isVar())
+      return false;
+
+    heads.add(p.getHead());
+    return true;
+  }
 }
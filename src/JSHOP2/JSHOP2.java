@@ -2,9 +2,14 @@ package JSHOP2;
 
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.LinkedList;
+import java.util.Random;
 import java.util.Vector;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
 
 /** This class represents all the variables that JSHOP2 needs every time it
  *  calls itself recursively. The reason all these variables are bundled
@@ -33,10 +38,27 @@ class InternalVars
   */
   Vector[] delAdd;
 
-  /** The iterator iterating over the <code>LinkedList</code> of the tasks
-   *  that we have the option to achieve right now.
+  /** The index, in the stack of options shared by all the recursions, of the
+   *  first task atom we have the option to achieve right now.
   */
-  Iterator<TaskList> e;
+  int first;
+
+  /** If a plan is being repaired, and the choice made at this point to find
+   *  it is about the task atom being considered, that choice, otherwise
+   *  <code>null</code>.
+  */
+  Decomposition expected;
+
+  /** Whether or not the choices made at this point must be the ones made to
+   *  find the plan being repaired, because the operator instances they lead
+   *  to have already been executed.
+  */
+  boolean forced;
+
+  /** Whether or not the current binding is the one the current method or
+   *  operator was chosen with to find the plan being repaired.
+  */
+  boolean following;
 
   /** Whether or not at least one satisfier has been found for the current
    *  branch of the current method. As soon as it becomes <code>true</code>,
@@ -52,6 +74,11 @@ class InternalVars
   */
   int k;
 
+  /** The index, in the stack of options shared by all the recursions, right
+   *  after the last task atom we have the option to achieve right now.
+  */
+  int last;
+
   /** An array of methods that can achieve the compound task being
    *  considered.
   */
@@ -67,19 +94,30 @@ class InternalVars
   */
   Operator[] o;
 
+  /** The index, in the stack of options shared by all the recursions, of the
+   *  task atom being considered.
+  */
+  int option;
+
   /** An iterator over the bindings that can satisfy the precondition of the
    *  current method or operator.
   */
   Precondition p;
 
-  /** The task atom chosen to be achieved next.
+  /** The binding to be tried first for the current method or operator,
+   *  because it is the one it was chosen with to find the plan being
+   *  repaired, or <code>null</code> if there is none, or it has been tried.
   */
-  TaskAtom t;
+  Term[] preferred;
+
+  /** The bindings passed over while looking for the one to be tried first,
+   *  which are tried right after it, or <code>null</code> if there are none.
+  */
+  LinkedList<Term[]> passed;
 
-  /** A <code>LinkedList</code> of the task atoms we have the option to
-   *  achieve right now.
+  /** The task atom chosen to be achieved next.
   */
-  LinkedList<TaskList> t0;
+  TaskAtom t;
 
   /** The atomic task list that represents, in the task network, the task
    *  atom that has been chosen to be achieved next.
@@ -95,39 +133,266 @@ class InternalVars
 */
 public class JSHOP2
 {
+  /** The search used by all the threads that do not have one of their own.
+  */
+  private static final JSHOP2 common = new JSHOP2();
+
+  /** The search used by each thread that has one of its own, i.e., by each
+   *  thread run by a portfolio.
+  */
+  private static final ThreadLocal<JSHOP2> current =
+    new ThreadLocal<JSHOP2>();
+
   /** The plan currently being constructed.
   */
-  private static Plan currentPlan;
+  private Plan currentPlan;
+
+  /** The cost of the plan currently being constructed, when only statistics
+   *  about the plans are being gathered.
+  */
+  private double currentCost;
 
   /** The domain description for the planning problem.
   */
-  private static Domain domain;
+  private Domain domain;
 
   /** The maximum number of plans to be returned.
   */
-  private static int planNo;
+  private int planNo;
 
   /** The plans are stored in this variable as a list of type
    *  <code>Plan</code>.
   */
-  private static LinkedList<Plan> plans;
+  private LinkedList<Plan> plans;
 
   /** The current state of the world.
   */
-  private static State state;
+  private State state;
 
   /** The task list to be achieved.
   */
-  private static TaskList tasks;
+  private TaskList tasks;
 
   /** An <code>ArrayList</code> that represents the steps taken to find every
    *  plan.
   */
-  private static ArrayList<PlanStepInfo> planStepList;
+  private ArrayList<PlanStepInfo> planStepList;
+
+  /** The choices made so far to find the plan currently being constructed,
+   *  the last one first, or <code>null</code> if none has been made yet.
+  */
+  private Decomposition choices;
+
+  /** When repairing a plan, the choices made to find it, and the changes made
+   *  to the state of the world while it was being executed, in order,
+   *  <code>null</code> otherwise.
+  */
+  private Decomposition[] guide;
+
+  /** When repairing a plan, the number of choices made so far, if they are
+   *  all the same as the first ones in <code>guide</code>, or the number of
+   *  the first ones that are, otherwise.
+  */
+  private int followed;
+
+  /** When repairing a plan, the number of the first elements of
+   *  <code>guide</code> that must be followed, because they lead to the
+   *  operator instances that have already been executed.
+  */
+  private int forcedUntil;
 
   /** Incremented whenever a plan is found. Passed to JSHOP2GUI.
   */
-  private static int numPlans;
+  private int numPlans;
+
+  /** The task atoms each recursion has the option to achieve, one after the
+   *  other. Each recursion adds its options to the end, and removes them
+   *  before it returns, so that no list has to be allocated for them.
+  */
+  private Vector<TaskList> options;
+
+  /** The statistics about the plans found so far, when only they are being
+   *  gathered, rather than the plans themselves. Otherwise,
+   *  <code>null</code>.
+  */
+  private PlanStatistics statistics;
+
+  /** Whether or not the steps taken to find the plans are being recorded for
+   *  the GUI.
+  */
+  private boolean recording;
+
+  /** Whether or not the choices made to find the plans are being remembered,
+   *  so that the plans can be repaired.
+  */
+  private boolean remembering;
+
+  /** Whether or not the search is for a cheapest plan.
+  */
+  private boolean optimizing;
+
+  /** When looking for a cheapest plan, the estimate of the cost of achieving
+   *  the remaining tasks, or <code>null</code> if there is none.
+  */
+  private CostHeuristic heuristic;
+
+  /** When looking for a cheapest plan, the cheapest plan found so far, or
+   *  <code>null</code> if none has been found yet.
+  */
+  private Plan bestPlan;
+
+  /** When looking for a cheapest plan, the cost of the cheapest plan found
+   *  so far.
+  */
+  private double bestCost;
+
+  /** When looking for a cheapest plan, the number of times the search did not
+   *  go any further because the plan being built could not become cheaper
+   *  than the cheapest plan found so far.
+  */
+  private long prunedNodes;
+
+  /** When looking for a cheapest plan, the object to be told about each plan
+   *  that is cheaper than all the plans found before it, or <code>null</code>
+   *  if there is none.
+  */
+  private PlanListener listener;
+
+  /** When looking for a cheapest plan with a time limit, the value of
+   *  <code>System.nanoTime()</code> at which the search must stop.
+  */
+  private long deadline;
+
+  /** Whether or not the search for a cheapest plan has a time limit.
+  */
+  private boolean timed;
+
+  /** Whether or not the search is asked to stop. This is set by threads
+   *  other than the one doing the search.
+  */
+  private volatile boolean stopped;
+
+  /** Whether or not the thread this search is run by has asked it to stop
+   *  for good. Unlike <code>stopped</code>, this is not cleared when a search
+   *  starts, so that a request made right before the search starts is not
+   *  lost.
+  */
+  private volatile boolean halted;
+
+  /** The result of the search if it was started by <code>solve()</code>, the
+   *  cancellation of which stops the search, or <code>null</code> if it was
+   *  not.
+  */
+  private volatile Future<PlanResult> result;
+
+  /** Whether or not the last search for a cheapest plan was stopped before
+   *  the whole search space was explored.
+  */
+  private boolean cutShort;
+
+  /** The result of the analysis of which methods, operators and axioms can be
+   *  used in the problem being solved, or <code>null</code> if it was not
+   *  done.
+  */
+  private Relevance relevance;
+
+  /** The portfolio this search is run by, or <code>null</code> if it is not
+   *  run by one. The searches run by a portfolio share the domain and the
+   *  result of the analysis of which methods, operators and axioms can be
+   *  used, which is done once before they start, and record no steps for the
+   *  GUI.
+  */
+  private PortfolioSolver portfolio;
+
+  /** The source of the random order in which the methods and operators that
+   *  can achieve a task, and the tasks that can be achieved next, are tried,
+   *  or <code>null</code> if they are tried in the order they are given.
+  */
+  private Random random;
+
+  /** Whether or not the steps of the search are given to the GUI. Only the
+   *  search shared by all the threads that do not have one of their own is
+   *  shown in the GUI.
+  */
+  private boolean shown = true;
+
+  /** To initialize a search that is used by all the threads that do not have
+   *  one of their own.
+  */
+  private JSHOP2()
+  {
+  }
+
+  /** To initialize a search that is run by a thread of its own, e.g., one of
+   *  the threads that solve a batch of problems in parallel. Its steps are
+   *  not recorded for the GUI.
+   *
+   *  @param domainIn
+   *          the planning domain, which must not be shared with any other
+   *          search.
+   *  @param stateIn
+   *          the initial state of the world, which must not be shared with
+   *          any other search.
+  */
+  JSHOP2(Domain domainIn, State stateIn)
+  {
+    domain = domainIn;
+    state = stateIn;
+    shown = false;
+  }
+
+  /** To initialize a search that is run by a portfolio.
+   *
+   *  @param domainIn
+   *          the planning domain, the analysis of which has already been done.
+   *  @param stateIn
+   *          the initial state of the world, which must not be shared with
+   *          any other search.
+   *  @param relevanceIn
+   *          the result of that analysis.
+   *  @param portfolioIn
+   *          the portfolio that runs this search.
+   *  @param randomIn
+   *          the source of the random order in which the alternatives are
+   *          tried, or <code>null</code> to try them in the order they are
+   *          given.
+  */
+  JSHOP2(Domain domainIn, State stateIn, Relevance relevanceIn,
+         PortfolioSolver portfolioIn, Random randomIn)
+  {
+    domain = domainIn;
+    state = stateIn;
+    relevance = relevanceIn;
+    portfolio = portfolioIn;
+    random = randomIn;
+  }
+
+  /** To get the search used by the calling thread.
+   *
+   *  @return
+   *          the search of the calling thread if it has one of its own, the
+   *          search shared by all the other threads otherwise.
+  */
+  static JSHOP2 instance()
+  {
+    JSHOP2 retVal = current.get();
+
+    return (retVal == null) ? common : retVal;
+  }
+
+  /** To set the search used by the calling thread.
+   *
+   *  @param instanceIn
+   *          the search, or <code>null</code> to use the search shared by all
+   *          the threads that do not have one of their own.
+  */
+  static void setInstance(JSHOP2 instanceIn)
+  {
+    if (instanceIn == null)
+      current.remove();
+    else
+      current.set(instanceIn);
+  }
 
   /** This function finds plan(s) for a given initial task list.
    *
@@ -139,16 +404,311 @@ public class JSHOP2
    *          0 or more plans that achieve the given task list.
   */
   public static LinkedList<Plan> findPlans(TaskList tasksIn, int planNoIn)
+  {
+    return findPlans(tasksIn, planNoIn, null);
+  }
+
+  /** This function finds plan(s) for a given initial task list, or, if it is
+   *  given an object to store statistics about the plans in, only counts the
+   *  plans and gathers statistics about their costs. In the latter case, no
+   *  plan is recorded, and no steps are recorded for the GUI, so the plans
+   *  can be counted using much less time and memory.
+   *
+   *  @param tasksIn
+   *          the initial task list to be achieved.
+   *  @param planNoIn
+   *          the maximum number of plans to be found.
+   *  @param statisticsIn
+   *          where to add the statistics about the plans found, or
+   *          <code>null</code> if the plans themselves should be returned.
+   *  @return
+   *          0 or more plans that achieve the given task list, or an empty
+   *          list if only statistics are being gathered.
+  */
+  public static LinkedList<Plan> findPlans(TaskList tasksIn, int planNoIn,
+                                           PlanStatistics statisticsIn)
+  {
+    return instance().search(tasksIn, planNoIn, statisticsIn);
+  }
+
+  /** This function finds plan(s) for a given initial task list, just like
+   *  <code>findPlans()</code>, but also remembers the choices made to find
+   *  each of them, so that they can be repaired by <code>replan()</code> if
+   *  the state of the world changes while they are being executed. This
+   *  costs an object and a copy of the binding for every choice the search
+   *  makes, so the plans found by <code>findPlans()</code> do not remember
+   *  them.
+   *
+   *  @param tasksIn
+   *          the initial task list to be achieved.
+   *  @param planNoIn
+   *          the maximum number of plans to be returned.
+   *  @return
+   *          0 or more plans that achieve the given task list.
+  */
+  public static LinkedList<Plan> findRepairablePlans(TaskList tasksIn,
+                                                     int planNoIn)
+  {
+    return instance().search(tasksIn, planNoIn, null, true);
+  }
+
+  /** This function repairs a plan found earlier for a given initial task
+   *  list, after the state of the world was changed, while the plan was being
+   *  executed, by something other than the plan itself. Rather than looking
+   *  for a plan from scratch, the search follows the choices made to find the
+   *  plan being repaired: the ones that lead to the operator instances that
+   *  have already been executed are made again as they are, then the changes
+   *  are made to the state of the world, and the rest of the choices are
+   *  tried first, as long as they are still possible. The search looks for
+   *  other options only from the first choice that is not, backtracking as
+   *  usual, but never over the operator instances that have been executed, so
+   *  the time it takes depends on how much of the plan the changes affect,
+   *  rather than on the size of the whole problem.
+   *  <p>
+   *  The plan being repaired must have been found by
+   *  <code>findRepairablePlans()</code> or by <code>replan()</code>. The
+   *  domain and the state of the world of the search used by the calling
+   *  thread must be the same as when the plan being repaired was found, i.e.,
+   *  the state of the world must be the initial one, as for
+   *  <code>findPlans()</code>. The plans found can be repaired in turn, with
+   *  the state of the world still the initial one, since the changes are
+   *  remembered along with the choices.
+   *
+   *  @param tasksIn
+   *          the initial task list the plan being repaired was found for. It
+   *          must be as it was before that search, e.g., a new copy of it,
+   *          since the search changes it.
+   *  @param previous
+   *          the plan being repaired.
+   *  @param executed
+   *          the number of the operator instances at the beginning of the plan
+   *          being repaired that have already been executed. Each of the plans
+   *          found begins with these operator instances.
+   *  @param deletions
+   *          the atoms deleted from the state of the world after those
+   *          operator instances were executed.
+   *  @param additions
+   *          the atoms added to the state of the world after those operator
+   *          instances were executed.
+   *  @param planNoIn
+   *          the maximum number of plans to be returned.
+   *  @return
+   *          0 or more plans that achieve the given task list, given the
+   *          changes to the state of the world.
+  */
+  public static LinkedList<Plan> replan(TaskList tasksIn, Plan previous,
+                                        int executed,
+                                        Collection<Predicate> deletions,
+                                        Collection<Predicate> additions,
+                                        int planNoIn)
+  {
+    return instance().repair(tasksIn, previous, executed, deletions,
+                             additions, planNoIn);
+  }
+
+  /** This is the function that implements <code>replan()</code> for the
+   *  search used by the calling thread.
+  */
+  private LinkedList<Plan> repair(TaskList tasksIn, Plan previous,
+                                  int executed,
+                                  Collection<Predicate> deletions,
+                                  Collection<Predicate> additions,
+                                  int planNoIn)
+  {
+    if (previous.getDecomposition() == null)
+      throw new IllegalArgumentException("the choices made to find the plan " +
+                                         "are not known, find it with " +
+                                         "findRepairablePlans()");
+
+    if (executed < 0 || executed > previous.size())
+      throw new IllegalArgumentException("the plan has " + previous.size() +
+                                         " operator instances, not " +
+                                         executed);
+
+    Decomposition[] old = previous.getDecomposition().toArray();
+
+    //-- The changes are made right after the choice that leads to the last of
+    //-- the operator instances executed, and after the changes made there
+    //-- before, if any.
+    int at = 0;
+
+    for (int ops = 0; ops < executed; at++)
+      if (old[at].isOperator())
+        ops++;
+
+    while (at < old.length && old[at].isChange())
+      at++;
+
+    guide = new Decomposition[old.length + 1];
+    System.arraycopy(old, 0, guide, 0, at);
+    guide[at] = Decomposition.change(deletions, additions, null);
+    System.arraycopy(old, at, guide, at + 1, old.length - at);
+    forcedUntil = at;
+
+    try
+    {
+      //-- Find out which methods, operators and axioms can be used, given the
+      //-- atoms that are added to the state of the world during the search
+      //-- as well, so that none that may be needed after the changes is
+      //-- dropped.
+      Vector<Object>[] delAdd = Decomposition.newDelAdd();
+
+      for (Decomposition d : guide)
+        if (d.isChange())
+          for (Predicate p : d.getAdditions())
+            if (state.add(p))
+              delAdd[1].add(p);
+
+      if (portfolio == null)
+        analyze();
+
+      state.undo(delAdd);
+
+      return search(tasksIn, planNoIn, null, true);
+    }
+    finally
+    {
+      guide = null;
+    }
+  }
+
+  /** This function starts looking for plan(s) for a given initial task list
+   *  in a thread of its own, using the domain and the initial state of the
+   *  world given to <code>initialize()</code> by the calling thread. Running
+   *  the search in a thread other than the main thread makes the command line
+   *  parameters that change the stack size work on all platforms.
+   *
+   *  @param tasksIn
+   *          the initial task list to be achieved.
+   *  @param planNoIn
+   *          the maximum number of plans to be returned.
+   *  @return
+   *          the result of the search, which is completed when the search is
+   *          over, either with the plans found or with the exception that the
+   *          search threw. Cancelling it stops the search.
+  */
+  public static CompletableFuture<PlanResult> solve(TaskList tasksIn,
+                                                    int planNoIn)
+  {
+    return solve(tasksIn, planNoIn, new Executor()
+    {
+      public void execute(Runnable command)
+      {
+        new Thread(command).start();
+      }
+    });
+  }
+
+  /** This function starts looking for plan(s) for a given initial task list
+   *  using a given executor, e.g., a thread pool or one that starts a virtual
+   *  thread for each task, and the domain and the initial state of the world
+   *  given to <code>initialize()</code> by the calling thread. The calling
+   *  thread must not start another search before this one is over, since they
+   *  would share the same state of the world.
+   *
+   *  @param tasksIn
+   *          the initial task list to be achieved.
+   *  @param planNoIn
+   *          the maximum number of plans to be returned.
+   *  @param executorIn
+   *          the executor the search is run by.
+   *  @return
+   *          the result of the search, which is completed when the search is
+   *          over, either with the plans found or with the exception that the
+   *          search threw. Cancelling it stops the search.
+  */
+  public static CompletableFuture<PlanResult> solve(final TaskList tasksIn,
+                                                    final int planNoIn,
+                                                    Executor executorIn)
+  {
+    final JSHOP2 search = instance();
+    final CompletableFuture<PlanResult> retVal =
+      new CompletableFuture<PlanResult>();
+
+    executorIn.execute(new Runnable()
+    {
+      public void run()
+      {
+        if (retVal.isDone())
+          return;
+
+        long start = System.nanoTime();
+
+        //-- The executor may run the search in the calling thread, whose own
+        //-- search, if any, must be given back afterwards.
+        JSHOP2 previous = current.get();
+
+        setInstance(search);
+        search.result = retVal;
+
+        try
+        {
+          LinkedList<Plan> plans = search.search(tasksIn, planNoIn, null);
+
+          retVal.complete(new PlanResult(search.domain, plans,
+                                         (System.nanoTime() - start) / 1000000));
+        }
+        catch (Throwable t)
+        {
+          retVal.completeExceptionally(t);
+        }
+        finally
+        {
+          search.result = null;
+          setInstance(previous);
+        }
+      }
+    });
+
+    return retVal;
+  }
+
+  /** This is the function that implements <code>findPlans()</code> for the
+   *  search used by the calling thread.
+  */
+  private LinkedList<Plan> search(TaskList tasksIn, int planNoIn,
+                                  PlanStatistics statisticsIn)
+  {
+    return search(tasksIn, planNoIn, statisticsIn, false);
+  }
+
+  /** This is the function that implements <code>findPlans()</code>,
+   *  <code>findRepairablePlans()</code> and <code>replan()</code> for the
+   *  search used by the calling thread.
+   *
+   *  @param repairableIn
+   *          whether or not the choices made to find the plans should be
+   *          remembered, so that the plans can be repaired.
+  */
+  private LinkedList<Plan> search(TaskList tasksIn, int planNoIn,
+                                  PlanStatistics statisticsIn,
+                                  boolean repairableIn)
   {
     //-- Initialize the plan list to an empty one.
     plans = new LinkedList<Plan>();
 
     //-- Initialize the current plan to an empty one.
     currentPlan = new Plan();
+    currentCost = 0;
+    choices = null;
+    followed = 0;
+
+    statistics = statisticsIn;
+
+    remembering = (repairableIn && statistics == null);
+
+    //-- The steps are recorded only when the plans themselves are returned.
+    recording = (statistics == null && !optimizing && portfolio == null &&
+                 shown);
+
+    stopped = halted;
 
     //-- Initialize the current task list to be achieved.
     tasks = tasksIn;
 
+    //-- Initialize the stack of options to an empty one.
+    options = new Vector<TaskList>();
+
     //-- Initialize the list of steps taken to find all plans
     planStepList = new ArrayList<PlanStepInfo>();
 
@@ -157,25 +717,205 @@ public class JSHOP2
 
     planNo = planNoIn;
 
-    PlanStepInfo newStep = new PlanStepInfo();
-    newStep.action = "SETGOALTASKS";
-    newStep.children = tasks.subtasks;
-    newStep.ordered = tasks.isOrdered();
-    planStepList.add(newStep);
+    //-- Find out which methods, operators and axioms can be used in this
+    //-- problem, given its initial state of the world, and drop the rest.
+    //-- When a plan is being repaired, this has already been done.
+    if (portfolio == null && guide == null)
+      analyze();
+
+    if (recording)
+    {
+      PlanStepInfo newStep = new PlanStepInfo();
+      newStep.action = "SETGOALTASKS";
+      newStep.children = tasks.subtasks;
+      newStep.ordered = tasks.isOrdered();
+      planStepList.add(newStep);
+    }
 
     //-- Call the helper function.
     findPlanHelper(tasks);
 
-    //-- Initialize planStepList within JSHOP2GUI
-    JSHOP2GUI.setPlanStepList(planStepList);
+    if (portfolio == null && shown)
+    {
+      //-- Initialize planStepList within JSHOP2GUI
+      JSHOP2GUI.setPlanStepList(planStepList);
 
-    //-- Initialize numPlans within JSHOP2GUI
-    JSHOP2GUI.setNumPlans(numPlans);
+      //-- Initialize numPlans within JSHOP2GUI
+      JSHOP2GUI.setNumPlans(numPlans);
+    }
 
     //-- Return the found plan(s).
     return plans;
   }
 
+  /** To find out which methods, operators and axioms can be used in the
+   *  problem being solved, given its initial state of the world, and drop the
+   *  rest from the domain.
+  */
+  void analyze()
+  {
+    domain.setRelevance(null);
+    relevance = Relevance.isPruning() ? new Relevance(domain, state) : null;
+    domain.setRelevance(relevance);
+
+    if (relevance != null && Relevance.isReport())
+      System.err.print(relevance);
+  }
+
+  /** This function finds a cheapest plan for a given initial task list using
+   *  branch and bound: the cost of the cheapest plan found so far is
+   *  remembered, and the search does not go any further whenever the cost of
+   *  the plan being built, plus an optional estimate of the cost of achieving
+   *  the remaining tasks, is not less than that. The costs of the operators
+   *  must not be negative. No steps are recorded for the GUI.
+   *
+   *  @param tasksIn
+   *          the initial task list to be achieved.
+   *  @param heuristicIn
+   *          the estimate of the cost of achieving the remaining tasks, or
+   *          <code>null</code> to use only the cost of the plan being built.
+   *  @return
+   *          a cheapest plan that achieves the given task list, or
+   *          <code>null</code> if there is none.
+  */
+  public static Plan findOptimalPlan(TaskList tasksIn,
+                                     CostHeuristic heuristicIn)
+  {
+    return findOptimalPlan(tasksIn, heuristicIn, 0, null);
+  }
+
+  /** This function finds a cheapest plan for a given initial task list the
+   *  same way as the function above, but as an anytime search: each plan
+   *  that is cheaper than all the plans found before it is given to a
+   *  listener as soon as it is found, and the search can be stopped at any
+   *  time, either because a time limit is reached or because
+   *  <code>stop()</code> is called, in which case the cheapest plan found so
+   *  far is returned.
+   *
+   *  @param tasksIn
+   *          the initial task list to be achieved.
+   *  @param heuristicIn
+   *          the estimate of the cost of achieving the remaining tasks, or
+   *          <code>null</code> to use only the cost of the plan being built.
+   *  @param timeLimit
+   *          the number of milliseconds after which the search must stop, or
+   *          0 if there is no time limit.
+   *  @param listenerIn
+   *          the object to be told about each cheaper plan, or
+   *          <code>null</code> if there is none. It is called by the thread
+   *          doing the search, which waits for it to return.
+   *  @return
+   *          the cheapest plan found that achieves the given task list, or
+   *          <code>null</code> if none was found.
+  */
+  public static Plan findOptimalPlan(TaskList tasksIn,
+                                     CostHeuristic heuristicIn,
+                                     long timeLimit, PlanListener listenerIn)
+  {
+    return instance().optimize(tasksIn, heuristicIn, timeLimit, listenerIn);
+  }
+
+  /** This is the function that implements <code>findOptimalPlan()</code> for
+   *  the search used by the calling thread.
+  */
+  private Plan optimize(TaskList tasksIn, CostHeuristic heuristicIn,
+                        long timeLimit, PlanListener listenerIn)
+  {
+    optimizing = true;
+    heuristic = heuristicIn;
+    listener = listenerIn;
+    bestPlan = null;
+    bestCost = Double.POSITIVE_INFINITY;
+    prunedNodes = 0;
+    timed = (timeLimit > 0);
+    deadline = System.nanoTime() + timeLimit * 1000000;
+    cutShort = false;
+
+    try
+    {
+      search(tasksIn, Integer.MAX_VALUE, null);
+    }
+    finally
+    {
+      optimizing = false;
+      timed = false;
+      heuristic = null;
+      listener = null;
+    }
+
+    return bestPlan;
+  }
+
+  /** To ask the search that is running right now to stop as soon as
+   *  possible. This function can be called from any thread that does not have
+   *  a search of its own, to stop the search shared by all such threads.
+  */
+  public static void stop()
+  {
+    instance().stopped = true;
+  }
+
+  /** To ask this search to stop as soon as possible, whether it is running
+   *  right now or has not started yet. This function can be called from any
+   *  thread.
+  */
+  void halt()
+  {
+    halted = true;
+    stopped = true;
+  }
+
+  /** Whether or not the last search for a cheapest plan was stopped, either
+   *  by its time limit or by <code>stop()</code>, before the whole search
+   *  space was explored, in which case the plan it returned is not
+   *  necessarily a cheapest one.
+   *
+   *  @return
+   *          <code>true</code> if the search was stopped, <code>false</code>
+   *          otherwise.
+  */
+  public static boolean wasCutShort()
+  {
+    return instance().cutShort;
+  }
+
+  /** To get the number of times the last search for a cheapest plan did not
+   *  go any further because the plan being built could not become cheaper
+   *  than the cheapest plan found so far.
+   *
+   *  @return
+   *          the number of pruned nodes.
+  */
+  public static long getPrunedNodes()
+  {
+    return instance().prunedNodes;
+  }
+
+  /** When looking for a cheapest plan, whether or not the plan being built
+   *  can not become cheaper than the cheapest plan found so far, and
+   *  therefore the search should not go any further.
+   *
+   *  @return
+   *          <code>true</code> if the search should not go any further,
+   *          <code>false</code> otherwise.
+  */
+  private boolean prune()
+  {
+    if (!optimizing || bestPlan == null)
+      return false;
+
+    double bound = currentPlan.getCost();
+
+    if (heuristic != null)
+      bound += heuristic.estimate(tasks, state);
+
+    if (bound < bestCost)
+      return false;
+
+    prunedNodes++;
+    return true;
+  }
+
   /** This is the helper function that finds a plan.
    *
    *  @param chosenTask
@@ -189,8 +929,29 @@ public class JSHOP2
    *          <code>true</code> if a plan is found, <code>false</code>
    *          otherwise.
   */
-  private static boolean findPlanHelper(TaskList chosenTask)
+  private boolean findPlanHelper(TaskList chosenTask)
   {
+    //-- If the search must stop, because it is asked to, because its result
+    //-- is cancelled, because another search in the same portfolio has
+    //-- already found a plan, or because its time limit is reached, pretend
+    //-- that enough plans have been found, so that the search returns right
+    //-- away.
+    if (stopped || (result != null && result.isCancelled()) ||
+        (portfolio != null && portfolio.isSolved()) ||
+        (timed && System.nanoTime() - deadline >= 0))
+    {
+      cutShort = true;
+      planNo = 0;
+      return true;
+    }
+
+    //-- When repairing a plan, if the state of the world was changed at this
+    //-- point of its execution, change it the same way before going on.
+    Decomposition expected = expected();
+
+    if (expected != null && expected.isChange())
+      return change(chosenTask, expected);
+
     //-- The local variables we need every time this function is called.
     InternalVars v = new InternalVars();
     
@@ -200,10 +961,16 @@ public class JSHOP2
     //-- unordered. In the latter case, if there is an immediate task as the
     //-- first task of any of the subtasks, that immediate task and ONLY that
     //-- immediate task is returned.
-    v.t0 = chosenTask.getFirst();
+    v.first = options.size();
+    chosenTask.getFirst(options);
+    v.last = options.size();
+
+    //-- If the options are to be tried in a random order, shuffle them.
+    if (random != null && v.last - v.first > 1)
+      Collections.shuffle(options.subList(v.first, v.last), random);
 
     //-- If there are no tasks left,
-    if (v.t0.size() == 0)
+    if (v.first == v.last)
     {
       //-- If the chosen task is not the whole task network the algorithm is
       //-- initially set to achieve, it means we have just achieved that task,
@@ -217,15 +984,47 @@ public class JSHOP2
       //-- rather than the current plan itself since the current plan will be
       //-- changed during the look for other plans.
       else {
+        //-- Remember the choices made to find this plan, so that it can be
+        //-- repaired.
+        if (remembering)
+          currentPlan.setDecomposition(choices);
+
+        //-- If a cheapest plan is being looked for, remember this plan if it
+        //-- is the cheapest one so far.
+        if (optimizing) {
+          if (currentPlan.getCost() < bestCost) {
+            bestPlan = (Plan)currentPlan.clone();
+            bestCost = bestPlan.getCost();
+
+            if (listener != null)
+              listener.planImproved((Plan)bestPlan.clone());
+          }
+          numPlans++;
+
+          return true;
+        }
+
+        //-- If only statistics are being gathered, just add this plan to
+        //-- them.
+        if (statistics != null) {
+          statistics.addPlan(currentCost);
+          numPlans++;
+
+          return true;
+        }
+
         if (planNo != 1) {
           plans.addLast((Plan)currentPlan.clone());
         } else {
           plans.addLast(currentPlan);
         }
 
-        PlanStepInfo newStep = new PlanStepInfo();
-        newStep.planFound = true;
-        planStepList.add(newStep);
+        if (recording)
+        {
+          PlanStepInfo newStep = new PlanStepInfo();
+          newStep.planFound = true;
+          planStepList.add(newStep);
+        }
         numPlans++;
 
         return true;
@@ -239,22 +1038,48 @@ public class JSHOP2
     //-- to what it was before the backtracked operator was applied.
     v.delAdd = new Vector[4];
 
-    //-- To iterate over the tasks we have the option to achieve right now.
-    v.e = v.t0.iterator();
+    //-- When repairing a plan, try first the task atom the choice made at this
+    //-- point to find it is about. If the choice leads to an operator instance
+    //-- that has already been executed, it must be made again, so no other
+    //-- option is tried.
+    boolean forced = (expected != null && followed < forcedUntil);
+
+    if (expected != null)
+    {
+      for (int i = v.first; i < v.last; i++)
+        if (expected.isAbout(options.get(i).getTask()))
+        {
+          options.add(v.first, options.remove(i));
+          break;
+        }
+
+      if (!expected.isAbout(options.get(v.first).getTask()))
+        expected = null;
+    }
 
     //-- For each of the tasks that we have the option to achieve right now,
-    while (v.e.hasNext())
+    for (v.option = v.first; v.option < v.last; v.option++)
     {
       //-- Find the next option.
-      v.tl = (TaskList)v.e.next();
+      v.tl = options.get(v.option);
       v.t = v.tl.getTask();
 
+      v.expected = (v.option == v.first) ? expected : null;
+      v.forced = forced;
+
+      if (v.forced && v.expected == null)
+        break;
+
       //-- Create a TRYING step for the list of plan steps
-      PlanStepInfo newStep = new PlanStepInfo();
-      newStep.action = "TRYING";
-      newStep.state = state.getState();
-      newStep.taskAtom = v.t;
-      planStepList.add(newStep);
+      PlanStepInfo newStep;
+      if (recording)
+      {
+        newStep = new PlanStepInfo();
+        newStep.action = "TRYING";
+        newStep.state = state.getState();
+        newStep.taskAtom = v.t;
+        planStepList.add(newStep);
+      }
 
       //-- If that task is primitive,
       if (v.t.isPrimitive())
@@ -264,7 +1089,8 @@ public class JSHOP2
         v.tl.replace(TaskList.empty);
 
         //-- Find all the operators that achieve this primitive task.
-        v.o = domain.ops[v.t.getHead().getHead()];
+        v.o = prefer(shuffle(domain.ops[v.t.getHead().getHead()]),
+                     v.expected);
 
         //-- For each of these operators,
         for (v.j = 0; v.j < v.o.length; v.j++)
@@ -278,39 +1104,62 @@ public class JSHOP2
           {
             //-- Get the iterator that iterates over all the bindings that can
             //-- satisfy the precondition for this operator.
-            v.p = v.o[v.j].getIterator(v.binding, 0);
+            prepare(v, v.o[v.j], 0);
 
             //-- For each such binding,
-            while ((v.nextB = v.p.nextBinding()) != null)
+            while ((v.nextB = nextBinding(v)) != null)
             {
-              //-- Merge the two bindings.
-              Term.merge(v.nextB, v.binding);
-
               //-- If the operator is applicable, apply it, and,
               if (v.o[v.j].apply(v.nextB, state, v.delAdd))
               {
                 //-- Add the instance of the operator that achieved this task
                 //-- to the beginning of the plan, remembering how much it
                 //-- cost.
-                double cost = currentPlan.addOperator(v.o[v.j], v.nextB);
-
-                //-- Create a STATECHANGED step for the list of plan steps
-                newStep = new PlanStepInfo();
-                newStep.action = "STATECHANGED";
-                newStep.taskAtom = v.t;
-                newStep.delAdd = v.delAdd;
-                newStep.operatorInstance = v.o[v.j].getHead().applySubstitution(v.nextB).toString(JSHOP2.getDomain().getPrimitiveTasks());
-                planStepList.add(newStep);
+                //-- If only statistics are being gathered, just remember the
+                //-- cost.
+                double cost;
+                if (statistics != null)
+                {
+                  cost = v.o[v.j].getCost(v.nextB);
+                  currentCost += cost;
+                }
+                else
+                {
+                  cost = currentPlan.addOperator(v.o[v.j], v.nextB);
+
+                  //-- Create a STATECHANGED step for the list of plan steps
+                  if (recording)
+                  {
+                    newStep = new PlanStepInfo();
+                    newStep.action = "STATECHANGED";
+                    newStep.taskAtom = v.t;
+                    newStep.delAdd = v.delAdd;
+                    newStep.operatorInstance = v.o[v.j].getHead().applySubstitution(v.nextB).toString(JSHOP2.getDomain().getPrimitiveTasks());
+                    planStepList.add(newStep);
+                  }
+
+                  if (remembering)
+                    choose(new Decomposition(v.t, v.o[v.j], -1, v.nextB,
+                                             choices), v.following);
+                }
 
                 //-- Recursively call the same function to achieve the
                 //-- remaining tasks. If a plan is found for the remaining
                 //-- tasks and we have found the maximum number of plans we are
                 //-- allowed, return true.
-                if (findPlanHelper(tasks) && plans.size() >= planNo)
+                if (!prune() && findPlanHelper(tasks) && numPlans >= planNo)
                   return true;
 
                 //-- Remove the operator from the current plan.
-                currentPlan.removeOperator(cost);
+                if (statistics != null)
+                  currentCost -= cost;
+                else
+                {
+                  currentPlan.removeOperator(cost);
+
+                  if (remembering)
+                    unchoose();
+                }
               }
 
               //-- Undo the changes that were the result of applying this
@@ -328,7 +1177,8 @@ public class JSHOP2
       else
       {
         //-- Find all the methods that decompose this compound task.
-        v.m = domain.methods[v.t.getHead().getHead()];
+        v.m = prefer(shuffle(domain.methods[v.t.getHead().getHead()]),
+                     v.expected);
 
         //-- For each of these methods,
         for (v.j = 0; v.j < v.m.length; v.j++)
@@ -352,28 +1202,37 @@ public class JSHOP2
             //-- there is no binding for the first and second branches, etc.
             for (v.k = 0; (v.k < v.m[v.j].getSubs().length) && !v.found; v.k++)
             {
+              //-- A branch that can never be satisfied in this problem need
+              //-- not be tried.
+              if (!v.m[v.j].isRelevant(v.k))
+                continue;
+
               //-- Get the iterator that iterates over all the bindings that
               //-- can satisfy the precondition for this branch of this method.
-              v.p = v.m[v.j].getIterator(v.binding, v.k);
+              prepare(v, v.m[v.j], v.k);
 
               //-- For each such binding,
-              while ((v.nextB = v.p.nextBinding()) != null)
+              while ((v.nextB = nextBinding(v)) != null)
               {
-                //-- Merge the two bindings.
-                Term.merge(v.nextB, v.binding);
-
                 //-- Replace the decomposed task in task list with its
                 //-- decomposition according to this branch of this method.
                 v.tl.replace(v.m[v.j].getSubs()[v.k].bind(v.nextB));
 
+                if (remembering)
+                  choose(new Decomposition(v.t, v.m[v.j], v.k, v.nextB,
+                                           choices), v.following);
+
                 //-- Create a REDUCED step for the list of plan steps
-                newStep = new PlanStepInfo();
-                newStep.action = "REDUCED";
-                newStep.taskAtom = v.t;
-                newStep.children = v.tl.subtasks;
-                newStep.ordered = v.m[v.j].getSubs()[v.k].isOrdered();
-                newStep.method = v.m[v.j].getLabel(v.k);
-                planStepList.add(newStep);
+                if (recording)
+                {
+                  newStep = new PlanStepInfo();
+                  newStep.action = "REDUCED";
+                  newStep.taskAtom = v.t;
+                  newStep.children = v.tl.subtasks;
+                  newStep.ordered = v.m[v.j].getSubs()[v.k].isOrdered();
+                  newStep.method = v.m[v.j].getLabel(v.k);
+                  planStepList.add(newStep);
+                }
 
                 //-- Recursively call the same function to achieve the
                 //-- remaining tasks, but make the function choose its next
@@ -381,7 +1240,7 @@ public class JSHOP2
                 //-- decomposed, till an operator is seen and applied, or this
                 //-- whole task is achieved without seeing an operator (i.e.,
                 //-- this task was decomposed to an empty task list).
-                if (findPlanHelper(v.tl) && plans.size() >= planNo)
+                if (!prune() && findPlanHelper(v.tl) && numPlans >= planNo)
                   //-- A full plan is found, return true.
                   return true;
 
@@ -395,6 +1254,9 @@ public class JSHOP2
                 //-- Undo the changes in the task list, because this particular
                 //-- decomposition failed.
                 v.tl.undo();
+
+                if (remembering)
+                  unchoose();
               }
             }
           }
@@ -402,16 +1264,238 @@ public class JSHOP2
       }
 
       //-- Create a BACKTRACKING step for the list of plan steps
-      newStep = new PlanStepInfo();
-      newStep.action = "BACKTRACKING";
-      newStep.taskAtom = v.t;
-      planStepList.add(newStep);
+      if (recording)
+      {
+        newStep = new PlanStepInfo();
+        newStep.action = "BACKTRACKING";
+        newStep.taskAtom = v.t;
+        planStepList.add(newStep);
+      }
     }
 
-    //-- Return false, because all the options were tried and none worked.
+    //-- Forget the options, and return false, because all the options were
+    //-- tried and none worked.
+    options.setSize(v.first);
+    return false;
+  }
+
+  /** When repairing a plan, to get the next choice made to find it, if all the
+   *  choices made so far are the same as the first ones made to find it.
+   *
+   *  @return
+   *          the next choice, or <code>null</code> if there is none.
+  */
+  private Decomposition expected()
+  {
+    int size = (choices == null) ? 0 : choices.size;
+
+    if (guide == null || followed != size || size >= guide.length)
+      return null;
+
+    return guide[size];
+  }
+
+  /** To add a choice to the ones made so far.
+   *
+   *  @param choice
+   *          the choice.
+   *  @param same
+   *          whether or not it is the next choice made to find the plan being
+   *          repaired.
+  */
+  private void choose(Decomposition choice, boolean same)
+  {
+    if (same && followed == choice.size - 1)
+      followed++;
+
+    choices = choice;
+  }
+
+  /** To take back the last choice made, because we are backtracking over it.
+  */
+  private void unchoose()
+  {
+    choices = choices.previous;
+
+    int size = (choices == null) ? 0 : choices.size;
+
+    if (followed > size)
+      followed = size;
+  }
+
+  /** When repairing a plan, to change the state of the world the way it was
+   *  changed at this point of its execution, and go on looking for a plan.
+   *
+   *  @param chosenTask
+   *          the task list chosen to look for the next task atom to achieve.
+   *  @param change
+   *          the change.
+   *  @return
+   *          <code>true</code> if a plan is found, <code>false</code>
+   *          otherwise.
+  */
+  private boolean change(TaskList chosenTask, Decomposition change)
+  {
+    Vector<Object>[] delAdd = change.apply(state);
+
+    choose(new Decomposition(change, choices), true);
+
+    if (findPlanHelper(chosenTask) && numPlans >= planNo)
+      return true;
+
+    unchoose();
+    state.undo(delAdd);
+
     return false;
   }
 
+  /** When repairing a plan, to get the methods or operators that can achieve
+   *  a task with the one chosen to find the plan first.
+   *
+   *  @param elements
+   *          the methods or operators, in the order they are to be tried
+   *          otherwise.
+   *  @param expected
+   *          the choice made to find the plan, or <code>null</code> if there
+   *          is none.
+   *  @return
+   *          the same array if the order does not change, a copy of it with
+   *          the chosen method or operator moved to the beginning otherwise.
+  */
+  private <T extends DomainElement> T[] prefer(T[] elements,
+                                               Decomposition expected)
+  {
+    if (expected == null)
+      return elements;
+
+    for (int i = 1; i < elements.length; i++)
+      if (expected.isChoiceOf(elements[i]))
+      {
+        T[] retVal = elements.clone();
+        System.arraycopy(elements, 0, retVal, 1, i);
+        retVal[0] = elements[i];
+
+        return retVal;
+      }
+
+    return elements;
+  }
+
+  /** To start iterating over the bindings that satisfy the precondition of a
+   *  branch of a method or of an operator. When repairing a plan, if this is
+   *  the choice made to find it, the binding chosen then is looked for among
+   *  them, so that it is tried first. If the choice must be made again, no
+   *  other binding is tried.
+   *
+   *  @param v
+   *          the local variables of the recursion.
+   *  @param e
+   *          the method or operator.
+   *  @param branch
+   *          the branch of the method, or 0 for an operator.
+  */
+  private void prepare(InternalVars v, DomainElement e, int branch)
+  {
+    v.p = e.getIterator(v.binding, branch);
+    v.preferred = null;
+    v.passed = null;
+
+    if (v.expected == null || !v.expected.isChoiceOf(e, branch))
+    {
+      if (v.forced)
+        v.p = null;
+
+      return;
+    }
+
+    Term[] b;
+
+    while ((b = v.p.nextBinding()) != null)
+    {
+      Term.merge(b, v.binding);
+
+      if (v.expected.isBinding(b))
+      {
+        v.preferred = b;
+        break;
+      }
+
+      if (v.passed == null)
+        v.passed = new LinkedList<Term[]>();
+
+      v.passed.add(b);
+    }
+
+    if (v.forced)
+    {
+      v.p = null;
+      v.passed = null;
+    }
+  }
+
+  /** To get the next binding that satisfies the precondition of the current
+   *  branch of the current method or of the current operator, merged with
+   *  the binding that unifies its head with the task.
+   *
+   *  @param v
+   *          the local variables of the recursion.
+   *  @return
+   *          the next binding, or <code>null</code> if there is none.
+  */
+  private Term[] nextBinding(InternalVars v)
+  {
+    v.following = (v.preferred != null);
+
+    if (v.following)
+    {
+      Term[] b = v.preferred;
+      v.preferred = null;
+
+      return b;
+    }
+
+    if (v.passed != null && !v.passed.isEmpty())
+      return v.passed.removeFirst();
+
+    if (v.p == null)
+      return null;
+
+    Term[] b = v.p.nextBinding();
+
+    //-- Merge the two bindings.
+    if (b != null)
+      Term.merge(b, v.binding);
+
+    return b;
+  }
+
+  /** To get the methods or operators that can achieve a task in the order
+   *  they should be tried.
+   *
+   *  @param elements
+   *          the methods or operators, in the order they are given.
+   *  @return
+   *          the same array if they are to be tried in that order, a shuffled
+   *          copy of it otherwise.
+  */
+  private <T> T[] shuffle(T[] elements)
+  {
+    if (random == null || elements.length < 2)
+      return elements;
+
+    T[] retVal = elements.clone();
+
+    for (int i = retVal.length - 1; i > 0; i--)
+    {
+      int j = random.nextInt(i + 1);
+      T t = retVal[i];
+      retVal[i] = retVal[j];
+      retVal[j] = t;
+    }
+
+    return retVal;
+  }
+
   /** This function returns the planning domain.
    *
    *  @return
@@ -419,7 +1503,19 @@ public class JSHOP2
   */
   public static Domain getDomain()
   {
-    return domain;
+    return instance().domain;
+  }
+
+  /** This function returns the result of the analysis of which methods,
+   *  operators and axioms can be used in the problem being solved.
+   *
+   *  @return
+   *          the result of the analysis, or <code>null</code> if it was not
+   *          done.
+  */
+  public static Relevance getRelevance()
+  {
+    return instance().relevance;
   }
 
   /** This function returns the current state of the world.
@@ -429,7 +1525,7 @@ public class JSHOP2
   */
   public static State getState()
   {
-    return state;
+    return instance().state;
   }
 
   /** This function is used to initialize the planning algorithm.
@@ -441,7 +1537,9 @@ public class JSHOP2
   */
   public static void initialize(Domain domainIn, State stateIn)
   {
-    domain = domainIn;
-    state = stateIn;
+    JSHOP2 j = instance();
+
+    j.domain = domainIn;
+    j.state = stateIn;
   }
 }
@@ -29,8 +29,8 @@ public class JSHOP2Parser extends antlr.LLkParser       implements JSHOP2TokenTy
   //-- The lexer object that does the lexing for this parser.
   private JSHOP2Lexer lexer;
 
-  //-- A Vector of String names of variable symbols seen so far in the domain.
-  private Vector<String> vars;
+  //-- A table of String names of variable symbols seen so far in the domain.
+  private SymbolTable vars;
 
   //-- To store the maximum number of the variables seen in any variable scope.
   private int varsMaxSize;
@@ -42,14 +42,14 @@ public class JSHOP2Parser extends antlr.LLkParser       implements JSHOP2TokenTy
   //-- Method to transfer variable names to domain
   public void transferVariableNamesToDomain() {
     if (domain != null && vars != null && !vars.isEmpty()) {
-      domain.setVariableNames(vars);
+      domain.setVariableNames(vars.asList());
     }
   }
 
   //-- Method to set variable names from domain (for problem parsing)
   public void setVariableNames(Vector<String> variableNames) {
     if (vars == null) {
-      vars = new Vector<String>();
+      vars = new SymbolTable();
     }
     vars.clear();
     vars.addAll(variableNames);
@@ -62,7 +62,7 @@ public class JSHOP2Parser extends antlr.LLkParser       implements JSHOP2TokenTy
     lexer = lexerIn;
     domain = domainIn;
 
-    vars = new Vector<String>();
+    vars = new SymbolTable();
     varsMaxSize = 0;
   }
 
@@ -2,431 +2,439 @@ package JSHOP2;
 
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
+import java.io.File;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Vector;
 
 import static JSHOP2.DomainJsonConverter.vectorToJsonArray;
 
 /**
- * Converts JSHOP2 domain and problem data to JSON format
+ * Converts JSHOP2 domain and problem data to JSON format. The documents are
+ * written straight to the output files as they are produced, and adding a
+ * problem or a domain to an existing file copies that file through in a
+ * single pass, so neither ever has to be held in memory as a whole.
  */
 public class JSONParser {
 
-    public static void exportDomainToJson(InternalDomain domain, String filename) throws IOException {
-        String json = new JsonBuilder()
-                .startObject()
-                .addTitle(domain.getName())
-                .startObject()
-                .addRawProperty("domain", createDomainObject(domain))
-                .endObject()
-                .endObject()
-                .toString();
+    /**
+     * Writes a part of a JSON document.
+     */
+    private interface Part {
+        void write(JsonWriter json) throws IOException;
+    }
 
-        writeToFile(json, filename);
+    public static void exportDomainToJson(InternalDomain domain, String filename) throws IOException {
+        JsonWriter json = openJson(filename);
+        try {
+            json.beginObject()
+                    .name(domain.getName())
+                    .beginObject()
+                    .name("domain");
+            writeDomainObject(domain, json);
+            json.endObject()
+                    .endObject();
+        } finally {
+            json.close();
+        }
     }
 
     public static void exportProblemOnlyToJson(InternalDomain problem, String filename) throws IOException {
-        String json = "{\n" +
-                "  \"problem\": {\n" +
-                "    \"name\": \"" + (problem.getProbName() != null ? problem.getProbName() : "unknown") + "\",\n" +
-                "    \"additional_constants\": " + vectorToJsonArray(problem.getAdditionalConstants(), "constants") + "\n" +
-                "  }\n" +
-                "}";
-
-        BufferedWriter writer = new BufferedWriter(new FileWriter(filename));
-        writer.write(json);
-        writer.close();
+        JsonWriter json = openJson(filename);
+        try {
+            json.beginObject()
+                    .name("problem")
+                    .beginObject()
+                    .property("name", problem.getProbName() != null ? problem.getProbName() : "unknown")
+                    .name("additional_constants");
+            vectorToJsonArray(problem.getAdditionalConstants(), "constants", json);
+            json.endObject()
+                    .endObject();
+        } finally {
+            json.close();
+        }
     }
 
     public static void appendProblemToJson(InternalDomain problem, String filename) throws IOException {
-        String existingContent = readExistingFile(filename);
-        String updatedContent = addProblemToExistingJson(existingContent, problem);
-        writeToFile(updatedContent, filename);
+        File file = new File(filename);
+        File merged = File.createTempFile(file.getName(), ".tmp", file.getAbsoluteFile().getParentFile());
+        try {
+            mergeProblemIntoJson(problem, filename, merged.getPath());
+            Files.move(merged.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            merged.delete();
+        }
+    }
+
+    /**
+     * Copies an existing JSON file to a new one, adding a problem to it. The
+     * problem goes right before the domain if the file has one, and at the end
+     * of the outermost object otherwise. It takes the requirements of the
+     * first object in the existing file that has any.
+     */
+    public static void mergeProblemIntoJson(final InternalDomain problem, String source, String target) throws IOException {
+        final Collection<String> requirements = readRequirements(source);
+
+        mergeIntoJson(source, target, "domain", new Part() {
+            public void write(JsonWriter json) throws IOException {
+                json.name("problem");
+                writeProblemObjectWithRequirements(problem, requirements, json);
+            }
+        });
     }
 
     public static void exportProblemToJson(InternalDomain problem, InternalDomain domain, String filename) throws IOException {
-        String domainName = getDomainName(domain);
+        JsonWriter json = openJson(filename);
+        try {
+            writeIntegratedProblem(problem, domain, json);
+            json.endObject();
+        } finally {
+            json.close();
+        }
+    }
 
-        String json = new JsonBuilder()
-                .startObject()
-                .addTitle(domainName)
-                .startObject()
-                .addRawProperty("problem", createIntegratedProblemObject(problem, domain))
-                .endObject()
-                .endObject()
-                .toString();
+    /**
+     * Writes a problem and the domain it is defined in to a new JSON file, the
+     * same way <code>exportProblemToJson</code> followed by
+     * <code>appendDomainToJson</code> would, but in one pass.
+     */
+    public static void exportProblemAndDomainToJson(InternalDomain problem, InternalDomain domain, String filename) throws IOException {
+        JsonWriter json = openJson(filename);
+        try {
+            writeIntegratedProblem(problem, domain, json);
+            json.name("domain");
+            writeDomainObject(domain, json);
+            json.endObject();
+        } finally {
+            json.close();
+        }
+    }
 
-        writeToFile(json, filename);
+    public static void appendDomainToJson(final InternalDomain domain, String filename) throws IOException {
+        File file = new File(filename);
+        File merged = File.createTempFile(file.getName(), ".tmp", file.getAbsoluteFile().getParentFile());
+        try {
+            mergeIntoJson(filename, merged.getPath(), null, new Part() {
+                public void write(JsonWriter json) throws IOException {
+                    json.name("domain");
+                    writeDomainObject(domain, json);
+                }
+            });
+            Files.move(merged.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            merged.delete();
+        }
     }
 
-    public static void appendDomainToJson(InternalDomain domain, String filename) throws IOException {
-        String existingContent = readExistingFile(filename);
-        String updatedContent = addDomainToExistingJson(existingContent, domain);
-        writeToFile(updatedContent, filename);
+    private static JsonWriter openJson(String filename) throws IOException {
+        return new JsonWriter(new BufferedWriter(new FileWriter(filename)));
     }
 
-    private static String generateRequirements(InternalDomain domain) {
-        return DomainJsonConverter.extractRequirements(domain);
+    /**
+     * Writes the outermost object with the problem in it, but does not close it.
+     */
+    private static void writeIntegratedProblem(InternalDomain problem, InternalDomain domain, JsonWriter json) throws IOException {
+        json.beginObject()
+                .name(getDomainName(domain))
+                .beginObject()
+                .name("problem");
+        writeIntegratedProblemObject(problem, domain, json);
+        json.endObject();
     }
 
-    private static String createIntegratedProblemObject(InternalDomain problem, InternalDomain domain) {
-        return new JsonBuilder()
-                .startObject()
-                .addRawProperty("requirements", generateRequirements(domain))
-                .addRawProperty("goal", createGoalObject(problem, domain))
-                .addRawProperty("init", createInitArray(problem, domain))
-                .endObject()
-                .toString();
+    private static void writeRequirements(Collection<String> requirements, JsonWriter json) throws IOException {
+        json.beginArray();
+        for (String requirement : requirements) {
+            json.value(requirement);
+        }
+        json.endArray();
     }
 
-    private static String createGoalObject(InternalDomain problem, InternalDomain domain) {
-        return new JsonBuilder()
-                .startObject()
-                .addRawProperty("tasks", createGoalTasksArray(problem, domain))
-                .endObject()
-                .toString();
+    private static void writeIntegratedProblemObject(InternalDomain problem, InternalDomain domain, JsonWriter json) throws IOException {
+        json.beginObject()
+                .name("requirements");
+        writeRequirements(DomainJsonConverter.extractRequirements(domain), json);
+        json.name("goal");
+        writeGoalObject(problem, json);
+        json.name("init");
+        writeInitArray(problem, json);
+        json.endObject();
     }
 
-    private static String createGoalTasksArray(InternalDomain problem, InternalDomain domain) {
-        JsonBuilder builder = new JsonBuilder().startArray();
+    /**
+     * The symbols are looked up in the problem, which knows those of the
+     * domain too, so that the problem can be read back from the IR.
+     */
+    private static void writeGoalObject(InternalDomain problem, JsonWriter json) throws IOException {
+        json.beginObject()
+                .name("tasks")
+                .beginArray();
 
         TaskList goalTasks = getGoalTasksFromProblem(problem);
         if (goalTasks != null && goalTasks != TaskList.empty) {
-            addTasksToJsonArray(builder, goalTasks, domain);
+            addTasksToJsonArray(goalTasks, problem, json);
         }
 
-        return builder.endArray().toString();
+        json.endArray();
+        writeTaskListStructure(goalTasks, problem, json);
+        json.endObject();
     }
 
-    private static String createInitArray(InternalDomain problem, InternalDomain domain) {
-        JsonBuilder builder = new JsonBuilder().startArray();
+    private static void writeInitArray(InternalDomain problem, JsonWriter json) throws IOException {
+        json.beginArray();
 
         Vector<Predicate> initialState = getInitialStateFromProblem(problem);
         if (initialState != null && !initialState.isEmpty()) {
             for (Predicate predicate : initialState) {
                 if (predicate != null) {
-                    builder.addRawArrayElement(predicateToJsonForInit(predicate, domain));
+                    predicateToJsonForInit(predicate, problem, json);
                 }
             }
         }
 
-        return builder.endArray().toString();
+        json.endArray();
     }
 
-    private static String createDomainObject(InternalDomain domain) {
-        JsonBuilder builder = new JsonBuilder()
-                .startObject()
-                .addRawProperty("requirements", generateRequirements(domain))
-                .addProperty("name", getDomainName(domain))
-                .addRawProperty("primitive_tasks", createOperatorsArray(domain))
-                .addRawProperty("compound_tasks", createCompoundTasksArray(domain));
-
-        return builder.endObject().toString();
+    private static void writeDomainObject(InternalDomain domain, JsonWriter json) throws IOException {
+        json.beginObject()
+                .name("requirements");
+        writeRequirements(DomainJsonConverter.extractRequirements(domain), json);
+        json.property("name", getDomainName(domain))
+                .name("primitive_tasks");
+        writeOperatorsArray(domain, json);
+        json.name("compound_tasks");
+        writeCompoundTasksArray(domain, json);
+        json.endObject();
     }
 
-    private static String createOperatorsArray(InternalDomain domain) {
-        JsonBuilder builder = new JsonBuilder().startArray();
+    private static void writeOperatorsArray(InternalDomain domain, JsonWriter json) throws IOException {
+        json.beginArray();
 
         Vector<InternalOperator> operators = domain.getOperators();
         for (InternalOperator operator : operators) {
             if (operator != null) {
-                builder.addRawArrayElement(DomainJsonConverter.operatorToJson(operator, domain));
+                DomainJsonConverter.operatorToJson(operator, domain, json);
             }
         }
 
-        return builder.endArray().toString();
+        json.endArray();
     }
 
-    private static String createCompoundTasksArray(InternalDomain domain) {
-        JsonBuilder builder = new JsonBuilder().startArray();
+    private static void writeCompoundTasksArray(InternalDomain domain, JsonWriter json) throws IOException {
+        json.beginArray();
 
         Vector<InternalMethod> methods = domain.getMethods();
         for (InternalMethod method : methods) {
             if (method != null) {
-                builder.addRawArrayElement(DomainJsonConverter.methodToJson(method, domain));
-            }
-        }
-
-        return builder.endArray().toString();
-    }
-
-    private static String addProblemToExistingJson(String existingJson, InternalDomain problem) {
-        String requirements = extractRequirementsFromJson(existingJson);
-
-        int domainIndex = existingJson.indexOf("\"domain\"");
-
-        if (domainIndex != -1) {
-            String beforeDomain = existingJson.substring(0, domainIndex);
-            String fromDomain = existingJson.substring(domainIndex);
-
-            String problemJson = createProblemObjectWithRequirements(problem, requirements);
-            return beforeDomain + "\"problem\": " + problemJson + ",\n  " + fromDomain;
-        } else {
-            String baseContent = removeClosingBrace(existingJson.trim());
-            String problemJson = createProblemObjectWithRequirements(problem, requirements);
-            return baseContent + ",\n  \"problem\": " + problemJson + "\n}";
-        }
-    }
-
-    private static String addDomainToExistingJson(String existingJson, InternalDomain domain) {
-        String baseContent = removeClosingBrace(existingJson.trim());
-        String domainJson = createDomainObject(domain);
-        return baseContent + ",\n  \"domain\": " + domainJson + "\n}";
-    }
-
-    private static String createProblemObjectWithRequirements(InternalDomain problem, String requirements) {
-        return new JsonBuilder()
-                .startObject()
-                .addRawProperty("requirements", requirements)
-                .addRawProperty("goal", createGoalObjectWithActualData(problem))
-                .addRawProperty("init", createInitArrayWithActualData(problem))
-                .endObject()
-                .toString();
-    }
-
-    private static String extractRequirementsFromJson(String json) {
-        try {
-            int reqStart = json.indexOf("\"requirements\"");
-            if (reqStart == -1) {
-                return "[]";
-            }
-
-            int colonIndex = json.indexOf(":", reqStart);
-            if (colonIndex == -1) {
-                return "[]";
-            }
-
-            int bracketStart = json.indexOf("[", colonIndex);
-            if (bracketStart == -1) {
-                return "[]";
-            }
-
-            int bracketEnd = findMatchingBracket(json, bracketStart);
-            if (bracketEnd == -1) {
-                return "[]";
+                DomainJsonConverter.methodToJson(method, domain, json);
             }
-
-            return json.substring(bracketStart, bracketEnd + 1);
-        } catch (Exception e) {
-            return "[]";
         }
-    }
 
-    private static int findMatchingBracket(String json, int openBracketIndex) {
-        int depth = 0;
-        for (int i = openBracketIndex; i < json.length(); i++) {
-            char c = json.charAt(i);
-            if (c == '[') {
-                depth++;
-            } else if (c == ']') {
-                depth--;
-                if (depth == 0) {
-                    return i;
-                }
-            }
-        }
-        return -1;
+        json.endArray();
     }
 
-    private static String createGoalObjectWithActualData(InternalDomain problem) {
-        return new JsonBuilder()
-                .startObject()
-                .addRawProperty("tasks", createGoalTasksArrayWithActualData(problem))
-                .endObject()
-                .toString();
+    private static void writeProblemObjectWithRequirements(InternalDomain problem, Collection<String> requirements, JsonWriter json) throws IOException {
+        json.beginObject()
+                .name("requirements");
+        writeRequirements(requirements, json);
+        json.name("goal");
+        writeGoalObjectWithActualData(problem, json);
+        json.name("init");
+        writeInitArrayWithActualData(problem, json);
+        json.endObject();
     }
 
-    private static String createGoalTasksArrayWithActualData(InternalDomain problem) {
-        JsonBuilder builder = new JsonBuilder().startArray();
+    private static void writeGoalObjectWithActualData(InternalDomain problem, JsonWriter json) throws IOException {
+        json.beginObject()
+                .name("tasks")
+                .beginArray();
 
         TaskList goalTasks = getGoalTasksFromProblem(problem);
         if (goalTasks != null && goalTasks != TaskList.empty) {
-            addTasksToJsonArray(builder, goalTasks, problem);
-        } else {
-            Vector<String> compoundTasks = problem.getCompoundTasks();
-            if (compoundTasks != null && !compoundTasks.isEmpty()) {
-                String taskName = compoundTasks.get(0);
-                String taskJson = new JsonBuilder()
-                        .startObject()
-                        .addProperty("name", taskName)
-                        .addProperty("type", "predicate")
-                        .addRawProperty("parameters", "did not work")
-                        .endObject()
-                        .toString();
-                builder.addRawArrayElement(taskJson);
-            }
+            addTasksToJsonArray(goalTasks, problem, json);
         }
 
-        return builder.endArray().toString();
+        json.endArray();
+        writeTaskListStructure(goalTasks, problem, json);
+        json.endObject();
     }
 
-    private static String createInitArrayWithActualData(InternalDomain problem) {
-        JsonBuilder builder = new JsonBuilder().startArray();
+    private static void writeInitArrayWithActualData(InternalDomain problem, JsonWriter json) throws IOException {
+        json.beginArray();
 
         Vector<Predicate> initialState = getInitialStateFromProblem(problem);
         if (initialState != null && !initialState.isEmpty()) {
             for (Predicate predicate : initialState) {
                 if (predicate != null) {
-                    builder.addRawArrayElement(predicateToJson(predicate, problem));
+                    predicateToJson(predicate, problem, json);
                 }
             }
-        } else {
-            Vector<String> constants = problem.getConstants();
-            if (constants != null && !constants.isEmpty()) {
-                String constName = constants.get(0);
-                String predicateJson = new JsonBuilder()
-                        .startObject()
-                        .addProperty("name", constName)
-                        .addRawProperty("parameters", "did not work")
-                        .endObject()
-                        .toString();
-                builder.addRawArrayElement(predicateJson);
-            }
         }
 
-        return builder.endArray().toString();
+        json.endArray();
     }
 
-    private static void addTasksToJsonArray(JsonBuilder builder, TaskList taskList, InternalDomain domain) {
+    private static void addTasksToJsonArray(TaskList taskList, InternalDomain domain, JsonWriter json) throws IOException {
         if (taskList == null || taskList == TaskList.empty) return;
 
         TaskAtom taskAtom = taskList.getTask();
         if (taskAtom != null) {
-            builder.addRawArrayElement(taskAtomToJson(taskAtom, domain));
+            taskAtomToJson(taskAtom, domain, json);
         } else if (taskList.subtasks != null) {
             for (TaskList subtask : taskList.subtasks) {
                 if (subtask != null) {
-                    addTasksToJsonArray(builder, subtask, domain);
+                    addTasksToJsonArray(subtask, domain, json);
                 }
             }
         }
     }
 
-    private static String taskAtomToJson(TaskAtom taskAtom, InternalDomain domain) {
-        String taskName = getTaskName(taskAtom, domain);
-        String parameters = getTaskParameters(taskAtom, domain);
-        String taskType = taskAtom.isPrimitive() ? "predicate" : "task";
-
-        return new JsonBuilder()
-                .startObject()
-                .addProperty("name", taskName)
-                .addProperty("type", taskType)
-                .addRawProperty("parameters", parameters)
-                .endObject()
-                .toString();
-    }
-
-    private static String predicateToJson(Predicate predicate, InternalDomain domain) {
-        String predicateName = getPredicateName(predicate, domain);
-        String parameters = getPredicateParameters(predicate, domain);
-
-        return new JsonBuilder()
-                .startObject()
-                .addProperty("name", predicateName)
-                .addRawProperty("parameters", parameters)
-                .addProperty("type", "predicate")
-                .endObject()
-                .toString();
+    /**
+     * Writes the goal task list with its nesting, which the flat "tasks" array
+     * loses, as a "task_list" property: each list is an object with whether it
+     * is ordered and its "tasks", which are tasks or lists themselves.
+     */
+    private static void writeTaskListStructure(TaskList taskList, InternalDomain domain, JsonWriter json) throws IOException {
+        if (taskList == null || taskList == TaskList.empty) {
+            return;
+        }
+        json.name("task_list");
+        taskListToJson(taskList, domain, json);
     }
 
-    private static String predicateToJsonForInit(Predicate predicate, InternalDomain domain) {
-        String predicateName = getPredicateName(predicate, domain);
-        String parameters = getPredicateParametersAsStringArray(predicate, domain);
-
-        return new JsonBuilder()
-                .startObject()
-                .addProperty("predicate", predicateName)
-                .addRawProperty("parameters", parameters)
-                .endObject()
-                .toString();
-    }
+    private static void taskListToJson(TaskList taskList, InternalDomain domain, JsonWriter json) throws IOException {
+        TaskAtom taskAtom = taskList.getTask();
+        if (taskAtom != null) {
+            taskAtomToJson(taskAtom, domain, json);
+            return;
+        }
 
-    private static String getPredicateParametersAsStringArray(Predicate predicate, InternalDomain domain) {
-        try {
-            Term param = predicate.getParam();
-            if (param instanceof TermList) {
-                return termToStringArray(param, domain);
-            } else if (param != null) {
-                JsonBuilder builder = new JsonBuilder().startArray();
-                String paramStr = getConstantNameFromTerm(param, domain);
-                builder.addRawArrayElement("\"" + paramStr + "\"");
-                return builder.endArray().toString();
+        json.beginObject()
+                .property("type", taskList.isOrdered() ? "ordered" : "unordered")
+                .name("tasks")
+                .beginArray();
+        if (taskList.subtasks != null) {
+            for (TaskList subtask : taskList.subtasks) {
+                if (subtask != null) {
+                    taskListToJson(subtask, domain, json);
+                }
             }
-        } catch (Exception e) {
-            // Fall through to default
         }
-        return "[]";
-    }
-
-    private static String termToStringArray(Term term, InternalDomain domain) {
-        if (term == null) return "[]";
-
-        JsonBuilder builder = new JsonBuilder().startArray();
+        json.endArray()
+                .endObject();
+    }
+
+    private static void taskAtomToJson(TaskAtom taskAtom, InternalDomain domain, JsonWriter json) throws IOException {
+        json.beginObject()
+                .property("name", getTaskName(taskAtom, domain))
+                .property("type", taskAtom.isPrimitive() ? "predicate" : "task")
+                .name("parameters");
+        termToParametersArray(taskAtom.getHead() != null ? taskAtom.getHead().getParam() : null, domain, json);
+        if (taskAtom.isImmediate()) {
+            json.property("immediate", "true");
+        }
+        json.endObject();
+    }
+
+    private static void predicateToJson(Predicate predicate, InternalDomain domain, JsonWriter json) throws IOException {
+        json.beginObject()
+                .property("name", getPredicateName(predicate, domain))
+                .name("parameters");
+        termToParametersArray(predicate.getParam(), domain, json);
+        json.property("type", "predicate")
+                .endObject();
+    }
+
+    private static void predicateToJsonForInit(Predicate predicate, InternalDomain domain, JsonWriter json) throws IOException {
+        json.beginObject()
+                .property("predicate", getPredicateName(predicate, domain))
+                .name("parameters");
+        termToStringArray(predicate.getParam(), domain, json);
+        json.endObject();
+    }
+
+    /**
+     * Writes the names of the elements of a list term, and of the term at its
+     * end if it is not <code>NIL</code>, as an array of strings.
+     */
+    private static void termToStringArray(Term term, InternalDomain domain, JsonWriter json) throws IOException {
+        json.beginArray();
+
+        Term rest = term;
+        while (rest instanceof TermList && !((TermList) rest).isEmpty()) {
+            TermList termList = (TermList) rest;
+            Term first = termList.getFirst();
+            if (first != null) {
+                json.value(getConstantNameFromTerm(first, domain));
+            }
+            rest = termList.getRest();
+        }
 
-        if (term instanceof TermList) {
-            TermList termList = (TermList) term;
-            addTermListToStringArray(builder, termList, domain);
-        } else {
-            String termStr = getConstantNameFromTerm(term, domain);
-            builder.addRawArrayElement("\"" + termStr + "\"");
+        if (rest != null && !(rest instanceof TermList) && !isNoConstant(rest)) {
+            json.value(getConstantNameFromTerm(rest, domain));
         }
 
-        return builder.endArray().toString();
+        json.endArray();
     }
 
-    private static void addTermListToStringArray(JsonBuilder builder, TermList termList, InternalDomain domain) {
-        if (termList == null || termList.isEmpty()) return;
+    /**
+     * Writes the elements of a list term, and the term at its end if it is
+     * not <code>NIL</code>, as an array of parameters.
+     */
+    private static void termToParametersArray(Term term, InternalDomain domain, JsonWriter json) throws IOException {
+        json.beginArray();
 
-        Term first = termList.getFirst();
-        if (first != null) {
-            String termStr = getConstantNameFromTerm(first, domain);
-            builder.addRawArrayElement("\"" + termStr + "\"");
-        }
+        if (term instanceof TermList) {
+            Term rest = term;
+            while (rest instanceof TermList && !((TermList) rest).isEmpty()) {
+                TermList termList = (TermList) rest;
+                Term first = termList.getFirst();
+                if (first != null) {
+                    parameterToJson(first, domain, json);
+                }
+                rest = termList.getRest();
+            }
 
-        Term rest = termList.getRest();
-        if (rest instanceof TermList) {
-            addTermListToStringArray(builder, (TermList) rest, domain);
-        } else if (rest != null && !(rest instanceof TermConstant && ((TermConstant) rest).getIndex() == -1)) {
-            String termStr = getConstantNameFromTerm(rest, domain);
-            builder.addRawArrayElement("\"" + termStr + "\"");
+            if (rest != null && !(rest instanceof TermList) && !isNoConstant(rest)) {
+                parameterToJson(rest, domain, json);
+            }
+        } else if (term != null) {
+            parameterToJson(term, domain, json);
         }
+
+        json.endArray();
     }
 
-    private static String parameterToJson(Term parameter, InternalDomain domain) {
-        if (parameter == null) {
-            return new JsonBuilder()
-                    .startObject()
-                    .addProperty("name", "unknown")
-                    .addProperty("type", "unknown")
-                    .endObject()
-                    .toString();
-        }
+    private static boolean isNoConstant(Term term) {
+        return term instanceof TermConstant && ((TermConstant) term).getIndex() == -1;
+    }
+
+    private static void parameterToJson(Term parameter, InternalDomain domain, JsonWriter json) throws IOException {
+        String name;
+        String type;
+
         if (parameter instanceof TermVariable) {
-            TermVariable var = (TermVariable) parameter;
-            return new JsonBuilder()
-                    .startObject()
-                    .addProperty("name", getVariableName(var, domain))
-                    .addProperty("type", "Variable")
-                    .endObject()
-                    .toString();
+            name = getVariableName((TermVariable) parameter, domain);
+            type = "Variable";
         } else if (parameter instanceof TermConstant) {
-            TermConstant constant = (TermConstant) parameter;
-            return new JsonBuilder()
-                    .startObject()
-                    .addProperty("name", getConstantName(constant, domain))
-                    .addProperty("type", "Constant")
-                    .endObject()
-                    .toString();
+            name = getConstantName((TermConstant) parameter, domain);
+            type = "Constant";
         } else {
-            return new JsonBuilder()
-                    .startObject()
-                    .addProperty("name", parameter.toString())
-                    .addProperty("type", "Term")
-                    .endObject()
-                    .toString();
+            name = termToString(parameter, domain);
+            type = "Term";
         }
+
+        json.beginObject()
+                .property("name", name)
+                .property("type", type)
+                .endObject();
     }
 
     private static TaskList getGoalTasksFromProblem(InternalDomain problem) {
@@ -466,132 +474,268 @@ public class JSONParser {
         }
     }
 
-    private static String getTaskParameters(TaskAtom taskAtom, InternalDomain domain) {
-        try {
-            if (taskAtom != null && taskAtom.getHead() != null) {
-                Term param = taskAtom.getHead().getParam();
-                return termToParametersArray(param, domain);
+    private static String getConstantNameFromTerm(Term term, InternalDomain domain) {
+        if (term instanceof TermConstant) {
+            return getConstantName((TermConstant) term, domain);
+        }
+        return termToString(term, domain);
+    }
+
+    /**
+     * Returns the same as <code>toString()</code>, but looks the constant
+     * symbols up in the given domain rather than in the one being planned for,
+     * of which there is none while exporting.
+     */
+    private static String termToString(Term term, InternalDomain domain) {
+        if (term instanceof TermConstant) {
+            return getConstantName((TermConstant) term, domain);
+        }
+        if (!(term instanceof TermList) || term.isNil()) {
+            return term.toString();
+        }
+
+        StringBuilder s = new StringBuilder("(");
+        Term rest = term;
+        while (rest instanceof TermList && !rest.isNil()) {
+            if (rest != term) {
+                s.append(' ');
             }
-        } catch (Exception e) {
-            // Fall through to default
+            s.append(termToString(((TermList) rest).getFirst(), domain));
+            rest = ((TermList) rest).getRest();
         }
-        return "[]";
+        if (!rest.isNil()) {
+            s.append(" . ").append(termToString(rest, domain));
+        }
+        return s.append(')').toString();
+    }
+
+    private static String getDomainName(InternalDomain domain) {
+        return domain.getName() != null ? domain.getName() : "unknown_domain";
     }
 
-    private static String getPredicateParameters(Predicate predicate, InternalDomain domain) {
+    private static String getVariableName(TermVariable variable, InternalDomain domain) {
         try {
-            Term param = predicate.getParam();
-            if (param instanceof TermList) {
-                return termToParametersArray(param, domain);
-            } else if (param != null) {
-                JsonBuilder builder = new JsonBuilder().startArray();
-                String paramStr = getConstantNameFromTerm(param, domain);
-                builder.addRawArrayElement("\"" + paramStr + "\"");
-                return builder.endArray().toString();
+            String name = domain.getVariableName(variable.getIndex());
+            if (name != null && !name.isEmpty()) {
+                if (!name.startsWith("?")) {
+                    name = "?" + name;
+                }
+                return name;
             }
         } catch (Exception e) {
             // Fall through to default
         }
-        return "[]";
+        return "?var" + variable.getIndex();
     }
 
-    private static String getConstantNameFromTerm(Term term, InternalDomain domain) {
-        if (term instanceof TermConstant) {
-            TermConstant constant = (TermConstant) term;
-            try {
-                return domain.getConstants().get(constant.getIndex());
-            } catch (Exception e) {
-                return term.toString();
+    private static String getConstantName(TermConstant constant, InternalDomain domain) {
+        // Nothing written can be taken back, so a constant the domain does not
+        // know must not make the whole array fail.
+        int idx = constant.getIndex();
+        if (domain != null && idx >= 0 && idx < domain.getConstants().size()) {
+            return domain.getConstants().get(idx);
+        }
+        return "const" + idx;
+    }
+
+    /**
+     * Reads the requirements of the first object in a JSON file that has
+     * any, without reading the rest of the file.
+     */
+    private static Collection<String> readRequirements(String filename) throws IOException {
+        Collection<String> requirements = new ArrayList<String>();
+        JsonScanner in = new JsonScanner(new BufferedReader(new FileReader(filename)));
+        try {
+            int c;
+            while ((c = in.next()) != -1) {
+                if (c == '"' && in.readString().equals("requirements") && in.nextNonSpace(null) == ':') {
+                    if (in.nextNonSpace(null) == '[') {
+                        while ((c = in.nextNonSpace(null)) == '"' || c == ',') {
+                            if (c == '"') {
+                                requirements.add(in.readString());
+                            }
+                        }
+                    }
+                    break;
+                }
             }
+        } finally {
+            in.close();
         }
-        return term.toString();
+        return requirements;
     }
 
-    private static String termToParametersArray(Term term, InternalDomain domain) {
-        if (term == null) return "[]";
+    /**
+     * Copies a JSON file to a new one character by character, adding a
+     * property right before the first property with a given name, or at the
+     * end of the outermost object if there is no such property.
+     */
+    private static void mergeIntoJson(String source, String target, String beforeName, Part part) throws IOException {
+        Writer out = new BufferedWriter(new FileWriter(target));
+        JsonScanner in = new JsonScanner(new BufferedReader(new FileReader(source)));
+        try {
+            // The white space copied last, and the depth it was copied at.
+            StringBuilder space = new StringBuilder();
+            boolean inserted = false;
+            boolean hasMembers = false;
+            int depth = 0;
+            int c;
+
+            while ((c = in.next()) != -1) {
+                if (Character.isWhitespace(c)) {
+                    space.append((char) c);
+                    continue;
+                }
+
+                if (c == '}' && depth == 1 && !inserted) {
+                    // The end of the outermost object, and no place was found
+                    // for the property before.
+                    if (hasMembers) {
+                        out.write(",");
+                    }
+                    out.write("\n  ");
+                    part.write(new JsonWriter(out, 1));
+                    out.write("\n}");
+                    inserted = true;
+                    depth--;
+                    space.setLength(0);
+                    continue;
+                }
 
-        JsonBuilder builder = new JsonBuilder().startArray();
+                if (c == '"') {
+                    String value = in.readString();
+                    StringBuilder between = new StringBuilder();
+                    int after = in.nextNonSpace(between);
 
-        if (term instanceof TermList) {
-            TermList termList = (TermList) term;
+                    if (after == ':' && !inserted && value.equals(beforeName)) {
+                        out.write(space.toString());
+                        part.write(new JsonWriter(out, depth));
+                        out.write(",");
+                        inserted = true;
+                    }
 
-            if (!termList.isEmpty()) {
-                Term first = termList.getFirst();
-                if (first != null) {
-                    builder.addRawArrayElement(parameterToJson(first, domain));
+                    out.write(space.toString());
+                    out.write('"');
+                    out.write(in.getRawString());
+                    out.write('"');
+                    out.write(between.toString());
+                    if (after != -1) {
+                        in.pushBack(after);
+                    }
+                    space.setLength(0);
+                    hasMembers |= (depth == 1);
+                    continue;
                 }
 
-                Term rest = termList.getRest();
-                if (rest != null && rest instanceof TermList) {
-                    String restJson = termToParametersArray(rest, domain);
-                    if (!restJson.equals("[]")) {
-                        String innerContent = restJson.substring(1, restJson.length() - 1);
-                        if (!innerContent.trim().isEmpty()) {
-                            String[] elements = innerContent.split(",(?=\\s*\\{)");
-                            for (String element : elements) {
-                                if (!element.trim().isEmpty()) {
-                                    builder.addRawArrayElement(element.trim());
-                                }
-                            }
-                        }
-                    }
-                } else if (rest != null && !(rest instanceof TermConstant && ((TermConstant) rest).getIndex() == -1)) {
-                    builder.addRawArrayElement(parameterToJson(rest, domain));
+                out.write(space.toString());
+                space.setLength(0);
+                out.write(c);
+
+                if (c == '{' || c == '[') {
+                    depth++;
+                } else if (c == '}' || c == ']') {
+                    depth--;
                 }
             }
-        } else {
-            builder.addRawArrayElement(parameterToJson(term, domain));
+            out.write(space.toString());
+        } finally {
+            in.close();
+            out.close();
         }
-
-        return builder.endArray().toString();
     }
 
-    private static String getDomainName(InternalDomain domain) {
-        return domain.getName() != null ? domain.getName() : "unknown_domain";
-    }
+    /**
+     * Reads a JSON file one character at a time, telling strings apart from
+     * the rest.
+     */
+    private static class JsonScanner {
+        private final Reader in;
+        private int pushedBack = -1;
+
+        /** The last string read, exactly as it appears in the file. */
+        private final StringBuilder raw = new StringBuilder();
 
-    private static String readExistingFile(String filename) throws IOException {
-        StringBuilder content = new StringBuilder();
-        BufferedReader reader = new BufferedReader(new FileReader(filename));
-        String line;
-        while ((line = reader.readLine()) != null) {
-            content.append(line).append("\n");
+        JsonScanner(Reader in) {
+            this.in = in;
         }
-        reader.close();
-        return content.toString();
-    }
 
-    private static void writeToFile(String content, String filename) throws IOException {
-        BufferedWriter writer = new BufferedWriter(new FileWriter(filename));
-        writer.write(content);
-        writer.close();
-    }
+        int next() throws IOException {
+            if (pushedBack != -1) {
+                int c = pushedBack;
+                pushedBack = -1;
+                return c;
+            }
+            return in.read();
+        }
 
-    private static String removeClosingBrace(String json) {
-        int lastBrace = json.lastIndexOf('}');
-        return lastBrace > 0 ? json.substring(0, lastBrace) : json;
-    }
+        void pushBack(int c) {
+            pushedBack = c;
+        }
 
-    private static String getVariableName(TermVariable variable, InternalDomain domain) {
-        try {
-            String name = domain.getVariableName(variable.getIndex());
-            if (name != null && !name.isEmpty()) {
-                if (!name.startsWith("?")) {
-                    name = "?" + name;
+        /**
+         * Skips white space, which is kept in the given buffer if there is one.
+         */
+        int nextNonSpace(StringBuilder skipped) throws IOException {
+            int c;
+            while ((c = next()) != -1 && Character.isWhitespace(c)) {
+                if (skipped != null) {
+                    skipped.append((char) c);
                 }
-                return name;
             }
-        } catch (Exception e) {
-            // Fall through to default
+            return c;
         }
-        return "?var" + variable.getIndex();
-    }
 
-    private static String getConstantName(TermConstant constant, InternalDomain domain) {
-        try {
-            return domain.getConstants().get(constant.getIndex());
-        } catch (Exception e) {
-            return constant.toString();
+        /**
+         * Reads the rest of a string whose opening quote has been read.
+         */
+        String readString() throws IOException {
+            StringBuilder s = new StringBuilder();
+            raw.setLength(0);
+            int c;
+            while ((c = next()) != -1 && c != '"') {
+                raw.append((char) c);
+                if (c == '\\') {
+                    c = next();
+                    raw.append((char) c);
+                    switch (c) {
+                        case 'n':
+                            c = '\n';
+                            break;
+                        case 'r':
+                            c = '\r';
+                            break;
+                        case 't':
+                            c = '\t';
+                            break;
+                        case 'b':
+                            c = '\b';
+                            break;
+                        case 'f':
+                            c = '\f';
+                            break;
+                        case 'u':
+                            char[] hex = new char[4];
+                            for (int i = 0; i < 4; i++) {
+                                hex[i] = (char) next();
+                            }
+                            raw.append(hex);
+                            c = Integer.parseInt(new String(hex), 16);
+                            break;
+                        default:
+                            // '"', '\\' and '/' stand for themselves.
+                    }
+                }
+                s.append((char) c);
+            }
+            return s.toString();
+        }
+
+        String getRawString() {
+            return raw.toString();
+        }
+
+        void close() throws IOException {
+            in.close();
         }
     }
 }
@@ -0,0 +1,334 @@
+package JSHOP2;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.LinkedList;
+
+/**
+ * Loads a planning problem from the JSON IR written by JSONParser, i.e., its
+ * initial state and its goal task list, into the run-time objects of a
+ * compiled domain, so that it can be solved without compiling the problem.
+ * The file is read as a stream, and the atoms of the initial state are added
+ * to the state as they are read, so a large "init" array is never held in
+ * memory as a whole.
+ *
+ * The operators and the methods are not read from the IR, which does not
+ * describe them completely: they come from the compiled domain class.
+ */
+public class JsonProblemLoader {
+    private final Domain domain;
+
+    /** Keeps track of the constant symbols, including the ones the domain does not know. */
+    private final ProblemLoader symbols;
+
+    public JsonProblemLoader(Domain domain) {
+        this.domain = domain;
+        this.symbols = new ProblemLoader(domain);
+    }
+
+    /**
+     * Loads the problem in a JSON IR file, which is either the "problem"
+     * property of the outermost object or of an object in it, as in the files
+     * with the domain in them too. The atoms of the initial state are added to
+     * the given state, and the constant symbols seen for the first time are
+     * added to the domain.
+     *
+     * @return the goal task list.
+     */
+    public TaskList load(String fileName, State s) throws IOException {
+        JsonReader in = new JsonReader(new BufferedReader(
+                new InputStreamReader(new FileInputStream(fileName), "UTF-8")));
+        try {
+            TaskList tl = findProblem(in, s, 0);
+            if (tl == null) {
+                throw new IOException(fileName + ": there is no problem in the file");
+            }
+            return tl;
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Looks for the problem in an object, and in the objects in it if it is the
+     * outermost one. The rest of the file is not read once it is found.
+     */
+    private TaskList findProblem(JsonReader in, State s, int depth) throws IOException {
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            TaskList tl = null;
+            if (name.equals("problem")) {
+                tl = readProblem(in, s);
+            } else if (depth == 0 && in.peek() == '{') {
+                tl = findProblem(in, s, depth + 1);
+            } else {
+                in.skipValue();
+            }
+            if (tl != null) {
+                return tl;
+            }
+        }
+        in.endObject();
+        return null;
+    }
+
+    private TaskList readProblem(JsonReader in, State s) throws IOException {
+        TaskList tl = TaskList.empty;
+
+        // The arguments of the atoms, indexed by their heads, so that the atoms
+        // with each head are added to the state all at once.
+        ArrayList<Term>[] params =
+                GenericArrays.newArray(ArrayList.class, domain.constants.length);
+
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            if (name.equals("init")) {
+                in.beginArray();
+                while (in.hasNext()) {
+                    readAtom(in, params);
+                }
+                in.endArray();
+            } else if (name.equals("goal")) {
+                tl = readGoal(in);
+            } else if (name.equals("additional_constants")) {
+                in.beginArray();
+                while (in.hasNext()) {
+                    symbols.constantIndex(in.nextString());
+                }
+                in.endArray();
+            } else {
+                in.skipValue();
+            }
+        }
+        in.endObject();
+
+        for (int i = 0; i < params.length; i++) {
+            if (params[i] != null) {
+                s.addAll(i, params[i]);
+            }
+        }
+        symbols.publishConstants();
+
+        return tl;
+    }
+
+    /**
+     * Reads an atom of the initial state, written either as
+     * <code>{"predicate": ..., "parameters": ["...", ...]}</code> or as
+     * <code>{"name": ..., "parameters": [{"name": ...}, ...]}</code>.
+     */
+    private void readAtom(JsonReader in, ArrayList<Term>[] params) throws IOException {
+        String head = null;
+        Term param = TermList.NIL;
+
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            if (name.equals("predicate") || name.equals("name")) {
+                head = in.nextString();
+            } else if (name.equals("parameters")) {
+                param = readParameters(in);
+            } else {
+                in.skipValue();
+            }
+        }
+        in.endObject();
+
+        if (head == null) {
+            throw in.error("atom without a predicate");
+        }
+
+        // An atom whose head does not appear in the domain description makes
+        // no difference, so it is not added, just like in the code produced
+        // for the problem.
+        int index = symbols.constantIndex(head.toLowerCase());
+        if (index < params.length) {
+            if (params[index] == null) {
+                params[index] = new ArrayList<Term>();
+            }
+            params[index].add(param);
+        }
+    }
+
+    /**
+     * Reads the goal task list from its "task_list" property, or, in files
+     * written before it was added, from the flat "tasks" array as an ordered
+     * list.
+     */
+    private TaskList readGoal(JsonReader in) throws IOException {
+        ArrayList<TaskList> tasks = null;
+        TaskList tl = null;
+
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            if (name.equals("task_list")) {
+                tl = readTaskList(in);
+            } else if (name.equals("tasks")) {
+                tasks = readTasks(in);
+            } else {
+                in.skipValue();
+            }
+        }
+        in.endObject();
+
+        if (tl != null) {
+            return tl;
+        }
+        if (tasks == null || tasks.isEmpty()) {
+            return TaskList.empty;
+        }
+        return toTaskList(tasks, true);
+    }
+
+    private ArrayList<TaskList> readTasks(JsonReader in) throws IOException {
+        ArrayList<TaskList> tasks = new ArrayList<TaskList>();
+        in.beginArray();
+        while (in.hasNext()) {
+            tasks.add(readTaskList(in));
+        }
+        in.endArray();
+        return tasks;
+    }
+
+    private static TaskList toTaskList(ArrayList<TaskList> tasks, boolean ordered) {
+        TaskList tl = new TaskList(tasks.size(), ordered);
+        for (int i = 0; i < tasks.size(); i++) {
+            tl.subtasks[i] = tasks.get(i);
+        }
+        return tl;
+    }
+
+    /**
+     * Reads a task, or a list of tasks, which has "tasks" in it instead of a
+     * name.
+     */
+    private TaskList readTaskList(JsonReader in) throws IOException {
+        String taskName = null;
+        String type = null;
+        Term param = TermList.NIL;
+        boolean immediate = false;
+        ArrayList<TaskList> tasks = null;
+
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            if (name.equals("name")) {
+                taskName = in.nextString().toLowerCase();
+            } else if (name.equals("type")) {
+                type = in.nextString();
+            } else if (name.equals("parameters")) {
+                param = readParameters(in);
+            } else if (name.equals("immediate")) {
+                immediate = Boolean.parseBoolean(in.nextString());
+            } else if (name.equals("tasks")) {
+                tasks = readTasks(in);
+            } else {
+                in.skipValue();
+            }
+        }
+        in.endObject();
+
+        if (tasks != null) {
+            return toTaskList(tasks, !"unordered".equals(type));
+        }
+        if (taskName == null) {
+            throw in.error("task without a name");
+        }
+
+        // Primitive tasks are written with the type "predicate", compound ones
+        // with "task", but the name of a primitive task tells anyway.
+        boolean primitive = taskName.startsWith("!") || "predicate".equals(type);
+        Integer index = symbols.taskIndex(taskName, primitive);
+        if (index == null) {
+            throw in.error("the domain has no " + (primitive ? "primitive" : "compound")
+                    + " task called " + taskName);
+        }
+
+        return new TaskList(new TaskAtom(new Predicate(index, 0, param), immediate, primitive));
+    }
+
+    /**
+     * Reads an array of parameters, each a string, an object with the string
+     * in its "name" property, or an array of parameters for a list.
+     */
+    private Term readParameters(JsonReader in) throws IOException {
+        ArrayList<Term> args = new ArrayList<Term>();
+
+        if (in.peek() != '[') {
+            throw in.error("array of parameters expected");
+        }
+        in.beginArray();
+        while (in.hasNext()) {
+            int c = in.peek();
+            if (c == '[') {
+                args.add(readParameters(in));
+            } else if (c == '{') {
+                args.add(readParameterObject(in));
+            } else {
+                args.add(symbols.parseTerm(in.nextString()));
+            }
+        }
+        in.endArray();
+
+        return args.isEmpty() ? TermList.NIL : new TermList(args.toArray(new Term[0]));
+    }
+
+    private Term readParameterObject(JsonReader in) throws IOException {
+        String text = null;
+        String type = null;
+
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            if (name.equals("name")) {
+                text = in.nextString();
+            } else if (name.equals("type")) {
+                type = in.nextString();
+            } else {
+                in.skipValue();
+            }
+        }
+        in.endObject();
+
+        if (text == null || "Variable".equals(type)) {
+            throw in.error("the problem must be ground, found parameter " + text);
+        }
+        return symbols.parseTerm(text);
+    }
+
+    /**
+     * Solves the problem in a JSON IR file with a compiled domain, and prints
+     * the plans found.
+     *
+     * Usage: java JSHOP2.JsonProblemLoader domain-class ir-file [number-of-plans]
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("usage: java JSHOP2.JsonProblemLoader domain-class ir-file [number-of-plans]");
+            System.exit(1);
+        }
+
+        // The constant symbols the domain uses are created as it needs them,
+        // since how many there are is not known before it is created.
+        Domain d = (Domain) Class.forName(args[0]).getDeclaredConstructor().newInstance();
+        TermConstant.extend(d.constants.length);
+
+        State s = new State(d.constants.length, d.getAxioms(), d.getRigid());
+        JSHOP2.initialize(d, s);
+
+        TaskList tl = new JsonProblemLoader(d).load(args[1], s);
+        int planNo = args.length > 2 ? Integer.parseInt(args[2]) : 1;
+
+        LinkedList<Plan> plans = JSHOP2.findPlans(tl, planNo);
+        System.out.println(plans.size() + " plans");
+        for (Plan p : plans) {
+            System.out.print(p);
+        }
+    }
+}
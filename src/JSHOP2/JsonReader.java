@@ -0,0 +1,202 @@
+package JSHOP2;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Reads a JSON document from a stream one token at a time, so that the whole
+ * document never has to be held in memory. Objects and arrays are entered
+ * and left explicitly, and the values the caller is not interested in are
+ * skipped without being built. Commas are not checked, only skipped.
+ */
+public class JsonReader implements Closeable {
+    private final Reader in;
+
+    private final char[] buffer = new char[8192];
+    private int pos = 0;
+    private int limit = 0;
+
+    /** The number of characters read before the ones in the buffer. */
+    private long offset = 0;
+
+    private final StringBuilder text = new StringBuilder();
+
+    public JsonReader(Reader in) {
+        this.in = in;
+    }
+
+    public void beginObject() throws IOException {
+        expect('{');
+    }
+
+    public void endObject() throws IOException {
+        expect('}');
+    }
+
+    public void beginArray() throws IOException {
+        expect('[');
+    }
+
+    public void endArray() throws IOException {
+        expect(']');
+    }
+
+    /**
+     * Whether there is another property or element in the innermost object or
+     * array.
+     */
+    public boolean hasNext() throws IOException {
+        int c = peek();
+        return c != '}' && c != ']';
+    }
+
+    /**
+     * Returns the first character of the next token without reading it: '{',
+     * '[', '}', ']', '"' or the first character of a number or a literal.
+     */
+    public int peek() throws IOException {
+        while (true) {
+            if (pos == limit && !fill()) {
+                throw error("unexpected end of file");
+            }
+            char c = buffer[pos];
+            if (c == ',' || Character.isWhitespace(c)) {
+                pos++;
+            } else {
+                return c;
+            }
+        }
+    }
+
+    public String nextName() throws IOException {
+        if (peek() != '"') {
+            throw error("property name expected");
+        }
+        String name = nextString();
+        expect(':');
+        return name;
+    }
+
+    /**
+     * Reads a string, or the text of a number or of a literal such as
+     * <code>null</code>.
+     */
+    public String nextString() throws IOException {
+        int c = peek();
+        if (c == '{' || c == '[' || c == '}' || c == ']') {
+            throw error("string expected");
+        }
+
+        text.setLength(0);
+        if (c != '"') {
+            while ((c = read()) != -1 && !isDelimiter(c)) {
+                text.append((char) c);
+            }
+            if (c != -1) {
+                pos--;
+            }
+            return text.toString();
+        }
+
+        pos++;
+        while ((c = read()) != '"') {
+            if (c == -1) {
+                throw error("unterminated string");
+            }
+            if (c == '\\') {
+                c = read();
+                switch (c) {
+                    case 'n':
+                        c = '\n';
+                        break;
+                    case 'r':
+                        c = '\r';
+                        break;
+                    case 't':
+                        c = '\t';
+                        break;
+                    case 'b':
+                        c = '\b';
+                        break;
+                    case 'f':
+                        c = '\f';
+                        break;
+                    case 'u':
+                        char[] hex = new char[4];
+                        for (int i = 0; i < 4; i++) {
+                            hex[i] = (char) read();
+                        }
+                        try {
+                            c = Integer.parseInt(new String(hex), 16);
+                        } catch (NumberFormatException e) {
+                            throw error("bad escape sequence");
+                        }
+                        break;
+                    case -1:
+                        throw error("unterminated string");
+                    default:
+                        // '"', '\\' and '/' stand for themselves.
+                }
+            }
+            text.append((char) c);
+        }
+        return text.toString();
+    }
+
+    /**
+     * Skips the next value, along with everything in it if it is an object or
+     * an array.
+     */
+    public void skipValue() throws IOException {
+        int c = peek();
+        if (c == '{' || c == '[') {
+            pos++;
+            while (hasNext()) {
+                if (c == '{') {
+                    nextName();
+                }
+                skipValue();
+            }
+            expect(c == '{' ? '}' : ']');
+        } else {
+            nextString();
+        }
+    }
+
+    public void close() throws IOException {
+        in.close();
+    }
+
+    /**
+     * Creates the exception thrown when the document is not what was expected.
+     */
+    public IOException error(String message) {
+        return new IOException("JSON, at character " + (offset + pos) + ": " + message);
+    }
+
+    private void expect(char c) throws IOException {
+        if (peek() != c) {
+            throw error("'" + c + "' expected");
+        }
+        pos++;
+    }
+
+    private int read() throws IOException {
+        if (pos == limit && !fill()) {
+            return -1;
+        }
+        return buffer[pos++];
+    }
+
+    private boolean fill() throws IOException {
+        offset += limit;
+        pos = 0;
+        limit = Math.max(in.read(buffer), 0);
+        return limit > 0;
+    }
+
+    private static boolean isDelimiter(int c) {
+        return c == ',' || c == ':' || c == '}' || c == ']' || Character.isWhitespace(c);
+    }
+}
@@ -0,0 +1,189 @@
+package JSHOP2;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes a JSON document to a stream as it is produced, so that the whole
+ * document never has to be held in memory. Objects and arrays are opened and
+ * closed explicitly, and the writer takes care of the commas and of the
+ * indentation.
+ */
+public class JsonWriter implements Closeable, Flushable {
+    private final Writer out;
+
+    /** The number of objects and arrays that are open, i.e., the indentation. */
+    private int depth;
+
+    /** The number of objects and arrays this writer has opened and not closed yet. */
+    private int opened = 0;
+
+    /** Whether nothing has been written yet in the innermost open object or array. */
+    private boolean empty = true;
+
+    /** Whether a property name has been written, and its value is expected next. */
+    private boolean afterName = false;
+
+    /** A line break followed by enough spaces for the deepest indentation so far. */
+    private String newLines = "\n";
+
+    public JsonWriter(Writer out) {
+        this(out, 0);
+    }
+
+    /**
+     * Creates a writer for a part of a document that is written into an
+     * existing one, at the given depth. The first value or property is written
+     * right away, without a comma or a line break before it.
+     */
+    public JsonWriter(Writer out, int depth) {
+        this.out = out;
+        this.depth = depth;
+    }
+
+    public JsonWriter beginObject() throws IOException {
+        return open('{');
+    }
+
+    public JsonWriter endObject() throws IOException {
+        return close('}');
+    }
+
+    public JsonWriter beginArray() throws IOException {
+        return open('[');
+    }
+
+    public JsonWriter endArray() throws IOException {
+        return close(']');
+    }
+
+    public JsonWriter name(String name) throws IOException {
+        beforeValue();
+        writeString(name != null ? name : "");
+        out.write(": ");
+        afterName = true;
+        return this;
+    }
+
+    public JsonWriter value(String value) throws IOException {
+        beforeValue();
+        writeString(value != null ? value : "");
+        return this;
+    }
+
+    public JsonWriter value(int value) throws IOException {
+        beforeValue();
+        out.write(Integer.toString(value));
+        return this;
+    }
+
+    public JsonWriter nullValue() throws IOException {
+        beforeValue();
+        out.write("null");
+        return this;
+    }
+
+    /** Writes a property whose value is a string. */
+    public JsonWriter property(String name, String value) throws IOException {
+        return name(name).value(value);
+    }
+
+    /** Writes a property whose value is an integer. */
+    public JsonWriter property(String name, int value) throws IOException {
+        return name(name).value(value);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    private JsonWriter open(char c) throws IOException {
+        beforeValue();
+        out.write(c);
+        depth++;
+        opened++;
+        empty = true;
+        return this;
+    }
+
+    private JsonWriter close(char c) throws IOException {
+        depth--;
+        opened--;
+        if (!empty) {
+            newLine();
+        }
+        out.write(c);
+        empty = false;
+        return this;
+    }
+
+    private void beforeValue() throws IOException {
+        if (afterName) {
+            afterName = false;
+            return;
+        }
+        if (!empty) {
+            out.write(',');
+        }
+        // Every value in an object or array goes on a line of its own.
+        if (opened > 0) {
+            newLine();
+        }
+        empty = false;
+    }
+
+    private void newLine() throws IOException {
+        // A line break followed by the indentation, built once for each depth.
+        while (newLines.length() < 1 + 2 * depth) {
+            newLines += "  ";
+        }
+        out.write(newLines, 0, 1 + 2 * depth);
+    }
+
+    private void writeString(String value) throws IOException {
+        out.write('"');
+        // The characters that need no escaping are written in runs.
+        int start = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            String escaped;
+            switch (c) {
+                case '\\':
+                    escaped = "\\\\";
+                    break;
+                case '"':
+                    escaped = "\\\"";
+                    break;
+                case '\n':
+                    escaped = "\\n";
+                    break;
+                case '\r':
+                    escaped = "\\r";
+                    break;
+                case '\t':
+                    escaped = "\\t";
+                    break;
+                default:
+                    // Any other control character is not allowed in a JSON
+                    // string as it is.
+                    if (c >= 0x20) {
+                        continue;
+                    }
+                    escaped = String.format("\\u%04x", (int) c);
+            }
+            out.write(value, start, i - start);
+            out.write(escaped);
+            start = i + 1;
+        }
+        out.write(value, start, value.length() - start);
+        out.write('"');
+    }
+}
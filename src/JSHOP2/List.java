@@ -190,23 +190,37 @@ public class List extends CompileTimeObject
    *          list.
   */
   public String toString()
+  {
+    return toString(JSHOP2.getDomain());
+  }
+
+  /** This function is used to print the value of this list, with the constant
+   *  symbols in it mapped back to their names in a given domain.
+   *
+   *  @param domain
+   *          the domain the list belongs to.
+   *  @return
+   *          the printable <code>String</code> that shows the value of this
+   *          list.
+  */
+  public String toString(Domain domain)
   {
     //-- If tail is a list itself,
     if (tail instanceof TermList)
     {
       if (tail.isNil())
         //-- Converting "(a . NIL) to "(a)"
-        return head.toString();
+        return head.toString(domain);
       else
       {
         //-- Converting "(a . (b)) to "(a b)"
-        String s = tail.toString();
+        String s = tail.toString(domain);
 
-        return head.toString() + " " + s.substring(1, s.length() - 1);
+        return head.toString(domain) + " " + s.substring(1, s.length() - 1);
       }
     }
     //-- If tail is not a list,
     else
-      return head.toString() + " . " + tail.toString();
+      return head.toString(domain) + " . " + tail.toString(domain);
   }
 }
@@ -1,5 +1,7 @@
 package JSHOP2;
 
+import java.util.Set;
+
 /** Each logical expression at compile time is represented as a class derived
  *  from this abstract class.
  *
@@ -39,6 +41,42 @@ public abstract class LogicalExpression extends CompileTimeObject
   */
   public abstract String getInitCode();
 
+  /** This function is called for logical expressions the satisfiers of which
+   *  must be found in the order implied by the domain description, i.e., for
+   *  those marked <code>:first</code> or <code>:sort-by</code> and the logical
+   *  expressions nested in them. Classes that extend this class and can
+   *  change that order, or contain logical expressions that can, should
+   *  override this function.
+  */
+  protected void fixOrder()
+  {
+  }
+
+  /** To collect the heads of the logical atoms in this logical expression, so
+   *  that it is known which atoms in the state of the world its satisfiers
+   *  depend on. Classes that extend this class and contain logical atoms, or
+   *  logical expressions that can, should override this function.
+   *
+   *  @param heads
+   *          where to add the heads. -1 is added when the head of some logical
+   *          atom is not known at compile time.
+  */
+  protected void addHeads(Set<Integer> heads)
+  {
+  }
+
+  /** To collect the heads of the logical atoms at least one instance of which
+   *  must be in the state of the world (or be proved by an axiom) for this
+   *  logical expression to be satisfied. Classes that extend this class and
+   *  require such atoms should override this function.
+   *
+   *  @param heads
+   *          where to add the heads.
+  */
+  protected void addRequiredHeads(Set<Integer> heads)
+  {
+  }
+
   /** This function returns the number of variables in this logical expression.
    *
    *  @return
@@ -1,5 +1,7 @@
 package JSHOP2;
 
+import java.util.Set;
+
 /** Each atomic term in a logical expression at compile time is represented as
  *  an instance of this class.
  *
@@ -39,6 +41,21 @@ public class LogicalExpressionAtomic extends LogicalExpression
 	  }
   }
 
+  /** To add the head of this logical atom.
+  */
+  protected void addHeads(Set<Integer> heads)
+  {
+    heads.add(logicalAtom.isVar() ? -1 : logicalAtom.getHead());
+  }
+
+  /** To add the head of this logical atom, unless it is a variable.
+  */
+  protected void addRequiredHeads(Set<Integer> heads)
+  {
+    if (!logicalAtom.isVar())
+      heads.add(logicalAtom.getHead());
+  }
+
   /** To propagate the variable count to the logical atom represented by this
    *  object.
   */
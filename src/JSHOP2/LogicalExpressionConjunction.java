@@ -1,5 +1,6 @@
 package JSHOP2;
 
+import java.util.Set;
 import java.util.Vector;
 
 /** Each conjunction at compile time is represented as an instance of this
@@ -22,6 +23,11 @@ public class LogicalExpressionConjunction extends LogicalExpression
   */
   private LogicalExpression[] le;
 
+  /** Whether or not the satisfiers of this conjunction must be found in the
+   *  order implied by the domain description.
+  */
+  private boolean orderFixed;
+
   public LogicalExpression[] getExpression() {
     return this.le;
   }
@@ -45,9 +51,22 @@ public class LogicalExpressionConjunction extends LogicalExpression
     cnt = getClassCnt();
   }
 
+  /** To make sure the satisfiers of this conjunction, and of the logical
+   *  expressions nested in it, are found in order.
+  */
+  protected void fixOrder()
+  {
+    orderFixed = true;
+
+    for (int i = 0; i < le.length; i++)
+      le[i].fixOrder();
+  }
+
   /** This function produces Java code that implements the classes any object
    *  of which can be used at run time to represent the conjuncts of this
-   *  conjunction, and the conjunction itself.
+   *  conjunction, and the conjunction itself. The class for the conjunction
+   *  itself only sets up the iterators for the conjuncts, the actual work is
+   *  done by <code>PreconditionConjunction</code>.
   */
   public String getInitCode()
   {
@@ -59,148 +78,41 @@ public class LogicalExpressionConjunction extends LogicalExpression
 
     //-- The header of the class for this conjunction at run time. Note the use
     //-- of 'cnt' to make the name of this class unique.
-    s += "class Precondition" + cnt + " extends Precondition" + endl;
+    s += "class Precondition" + cnt + " extends PreconditionConjunction" + endl;
 
-    //-- Defining two arrays for storing the iterators and bindings for each
+    //-- The constructor of the class.
+    s += "{" + endl + "\tpublic Precondition" + cnt + "(Term[] unifier)" + endl;
+    s += "\t{" + endl + "\t\tsuper(new Precondition[] {" + endl;
+
+    //-- For each conjunct, the code that produces the iterator for that
     //-- conjunct.
-    s += "{" + endl + "\tPrecondition[] p;" + endl + "\tTerm[][] b;" + endl;
+    for (int i = 0; i < le.length; i++)
+    {
+      s += "\t\t\t" + le[i].toCode();
+      s += ((i == le.length - 1) ? "" : ",") + endl;
+    }
 
-    //-- The constructor of the class.
-    s += endl+ "\tpublic Precondition" + cnt + "(Term[] unifier)" + endl;
-
-    //-- Allocate the array of iterators.
-    //-- Set to one more than the length, and the first one will be blank
-    //-- Meant to match up with the bindings, where the first binding will
-    //-- be the initial binding.
-    s += "\t{" + endl + "\t\tp = new Precondition[" + (le.length+1) + "];" + endl;
-
-    //-- For each conjunct,
-    for (int i = 1; i <= le.length; i++)
-      //-- Set the corresponding element in the array to the code that produces
-      //-- that conjunct.
-      s += "\t\tp[" + i + "] = " + le[i-1].toCode() + ";" + endl;
-
-    //-- Allocate the array of bindings.
-    //-- Set to one more than the number of conjuncts.  The first position
-    //-- will be the initial binding.
-    s += "\t\tb = new Term[" + (le.length+1) + "][];" + endl;
-    s += "\t\tb[0] = unifier;" + endl;
-    s += "\t\tb[0] = Term.merge( b, 1 );" + endl + endl;
-
-    //-- A conjunction can be potentially satisfied more than once, so the
-    //-- default for the 'isFirstCall' flag is false.
-    s += "\t\tsetFirst(false);" + endl + "\t}" + endl + endl;
-
-    //-- Define the 'bind' function.
-    s += "\tpublic void bind(Term[] binding)" + endl + "\t{" + endl;
-
-    //-- Implement the 'bind' function by:
-    //-- First copy the initial binding into the first spot.
-    s += "\t\tb[0] = binding;" + endl;
-    s += "\t\tb[0] = Term.merge( b, 1 );" + endl;
-    s += "\t\tp[1].bind(binding);" + endl;
-    for (int i = 1; i <= le.length; i++) 
-      //-- Reset bindings
-      s += "\t\tb[" + i + "] = null;" + endl;
-
-    //-- Define the 'nextBindingHelper' function.
-    s += "\t}" + endl + endl + "\tprotected Term[] nextBindingHelper()" + endl;
-    s += "\t{" + endl;
-
-    //-- Implement the 'nextBindingHelper' function.
-    s += getInitCodeNext();
-
-    //-- Define the 'resetHelper' function.
-    s += "\t}" + endl + endl + "\tprotected void resetHelper()" + endl + "\t{";
-    s += endl;
-
-    //-- Implement the 'resetHelper' function.
-    s += getInitCodeReset();
-
-    //-- Close the function definition and the class definition and return the
+    s += "\t\t}, unifier, " + orderFixed + ");" + endl;
+
+    //-- Close the constructor and the class definition and return the
     //-- resulting string.
     return s + "\t}" + endl + "}" + endl + endl;
   }
 
-  /**
-   * This function produces Java code that implements the
-   * <code>nextBindingHelper</code> function for the precondition object that
-   * represents this conjunction at run time.
-   * 
-   * @return the produced code as a <code>String</code>.
-   */
-  private String getInitCodeNext()
+  /** To add the heads of the logical atoms in the conjuncts.
+  */
+  protected void addHeads(Set<Integer> heads)
   {
-    String s = "";
-    int i;
-
-    //-- To be used to add appropriate number of tabs to each line of code.
-    String tabs;
-
-    //-- Start with the outermost conjunct, and try to find a binding for that
-    //-- conjunct. If there is no more binding for that conjunct, try to find
-    //-- the next binding for the next outermost conjunct.
-    for (i = le.length, tabs = "\t\t"; i >= 1; i--, tabs += "\t")
-    {
-      if ( i != le.length )
-        s += tabs + "boolean b" + i + "changed = false;" + endl;
-      s += tabs + "while (b[" + i + "] == null)" + endl + tabs + "{" + endl;
-    }
-
-    //-- Try the outer most conjunct.
-    s += tabs + "b[1] = p[1].nextBinding();" + endl;
-    //-- If there is no more binding for the outermost conjunct, return null.
-    s += tabs + "if (b[1] == null)" + endl + tabs + "\treturn null;" + endl;
-    s += tabs + "b1changed = true;" + endl;
-    
-    //-- Going from third outermost conjunct inward, try to apply newly-found
-    //-- bindings for outermost conjuncts to each inner conjunct after reseting
-    //-- it, and try to find bindings for inner conjuncts.
-    tabs = tabs.substring(0, tabs.length() - 1);
-    for (i = 2; i <= le.length; i++, tabs = tabs.substring(0, tabs.length() - 1))
-    {
-      s += tabs + "}" + endl;
-      s += tabs + "if ( b" + (i-1) + "changed ) {" + endl;
-      s += tabs + "\tp[" + i + "].reset();" + endl;
-      s += tabs + "\tp[" + i + "].bind(Term.merge(b, " + i + "));" + endl;
-      s += tabs + "}" + endl;
-      s += tabs + "b[" + i + "] = p[" + i + "].nextBinding();" + endl;
-      //-- If no binding found, null out the next outermost conjunct so we
-      //-- try another set of bindings.
-      s += tabs + "if (b[" + i + "] == null) b[" + (i-1) + "] = null;" + endl;
-      if ( i != le.length )
-        s += tabs + "b" + i + "changed = true;" + endl;
-      
-    }
-    s += "\t\t}" + endl + endl;
-    //-- Return the result of the merging of the bindings found for each
-    //-- conjunct.
-    s += "\t\tTerm[] retVal = Term.merge(b, " + (le.length + 1) + ");" + endl;
-    s += "\t\tb[" + le.length + "] = null;" + endl;
-    s += "\t\treturn retVal;" + endl;
-    return s;
+    for (int i = 0; i < le.length; i++)
+      le[i].addHeads(heads);
   }
 
-  /** This function produces Java code that implements the
-   *  <code>resetHelper</code> function for the precondtion object that
-   *  represents this conjunction at run time.
-   *
-   *  @return
-   *          the produced code as a <code>String</code>.
+  /** To add the heads of the logical atoms every conjunct requires.
   */
-  private String getInitCodeReset()
+  protected void addRequiredHeads(Set<Integer> heads)
   {
-    String s = "";
-    int i;
-
-    //-- First, reset all the conjuncts.
-    for (i = 1; i <= le.length; i++)
-      s += "\t\tp[" + i + "].reset();" + endl;
-    //-- null out intermediate bindings.
-    for ( i = 1; i <= le.length; i++ )
-      s += "\t\tb[" + i + "] = null;" + endl;
-
-    return s;
+    for (int i = 0; i < le.length; i++)
+      le[i].addRequiredHeads(heads);
   }
 
   /** To propagate the variable count to all the logical expressions the
@@ -1,5 +1,6 @@
 package JSHOP2;
 
+import java.util.Set;
 import java.util.Vector;
 
 /** Each disjunction at compile time is represented as an instance of this
@@ -127,6 +128,22 @@ public class LogicalExpressionDisjunction extends LogicalExpression
            endl;
   }
   
+  /** To make sure the satisfiers of the disjuncts are found in order.
+  */
+  protected void fixOrder()
+  {
+    for (int i = 0; i < le.length; i++)
+      le[i].fixOrder();
+  }
+
+  /** To add the heads of the logical atoms in the disjuncts.
+  */
+  protected void addHeads(Set<Integer> heads)
+  {
+    for (int i = 0; i < le.length; i++)
+      le[i].addHeads(heads);
+  }
+
   /** To propagate the variable count to all the logical expressions the
    *  disjunction of which this object represents.
   */
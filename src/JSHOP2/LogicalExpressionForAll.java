@@ -1,5 +1,7 @@
 package JSHOP2;
 
+import java.util.Set;
+
 /** Each <code>ForAll</code> logical expression at compile time is represented
  *  as an instance of this class.
  *
@@ -49,6 +51,15 @@ public class LogicalExpressionForAll extends LogicalExpression
     return premise.getInitCode() + consequence.getInitCode();
   }
 
+  /** To add the heads of the logical atoms in the premise and the
+   *  consequence.
+  */
+  protected void addHeads(Set<Integer> heads)
+  {
+    premise.addHeads(heads);
+    consequence.addHeads(heads);
+  }
+
   /** To propagate the variable count to the <code>ForAll</code> logical
    *  expression represented by this object.
   */
@@ -1,5 +1,7 @@
 package JSHOP2;
 
+import java.util.Set;
+
 /** Each negative term in a logical expression at compile time is represented
  *  as an instance of this class.
  *
@@ -36,6 +38,13 @@ public class LogicalExpressionNegation extends LogicalExpression
     return le.getInitCode();
   }
 
+  /** To add the heads of the logical atoms in the negated logical expression.
+  */
+  protected void addHeads(Set<Integer> heads)
+  {
+    le.addHeads(heads);
+  }
+
   /** To propagate the variable count to the logical expression the negative of
    *  which this object represents.
   */
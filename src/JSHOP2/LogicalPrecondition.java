@@ -1,5 +1,7 @@
 package JSHOP2;
 
+import java.util.Set;
+
 /** Each logical precondition at compile time is represented as an instance of
  *  this class.
  *
@@ -43,6 +45,11 @@ public class LogicalPrecondition extends CompileTimeObject
     //-- This is not a :sort-by logical precondition, so the function name is
     //-- set null.
     func = null;
+
+    //-- Only the first satisfier is used, so the order in which the satisfiers
+    //-- are found matters.
+    if (first)
+      le.fixOrder();
   }
 
   /** To initialize this logical precondition.
@@ -60,6 +67,9 @@ public class LogicalPrecondition extends CompileTimeObject
 
     //-- A :sort-by logical precondition can not be marked :first.
     first = false;
+
+    //-- Satisfiers that compare equal are kept in the order they are found.
+    le.fixOrder();
   }
 
   /** To check whether or not this logical precondition is marked
@@ -82,6 +92,28 @@ public class LogicalPrecondition extends CompileTimeObject
     return le.getInitCode();
   }
 
+  /** To collect the heads of the logical atoms in this logical precondition.
+   *
+   *  @param heads
+   *          where to add the heads. -1 is added when the head of some logical
+   *          atom is not known at compile time.
+  */
+  public void addHeads(Set<Integer> heads)
+  {
+    le.addHeads(heads);
+  }
+
+  /** To collect the heads of the logical atoms at least one instance of which
+   *  is needed for this logical precondition to be satisfied.
+   *
+   *  @param heads
+   *          where to add the heads.
+  */
+  public void addRequiredHeads(Set<Integer> heads)
+  {
+    le.addRequiredHeads(heads);
+  }
+
   /** This function is used to set the number of variables for this logical
    *  precondition.
    *
@@ -20,6 +20,22 @@ public class MyIterator
   */
   Axiom ax;
 
+  /** When the axioms are tabled, the answers found for the atom being proved,
+   *  as the argument lists of the instances of the heads of the axioms. When
+   *  they are not, or the atom can not be tabled, <code>null</code>.
+  */
+  Vector<Term> answers;
+
+  /** The index of the next answer to be returned, if <code>answers</code> is
+   *  not <code>null</code>.
+  */
+  int answerIdx;
+
+  /** The argument list of the instance of the head of the axiom that unified
+   *  with the atom being proved the last time an axiom was used.
+  */
+  Term answer;
+
   /** When an axiom is being used, this variable holds the binding that unifies
    *  the head of the axiom and the atom being proved.
   */
@@ -0,0 +1,27 @@
+package JSHOP2;
+
+/** This is the interface for code calls that, when called with exactly two
+ *  numerical arguments, can be evaluated directly on the values of those
+ *  arguments. Call terms use it to evaluate such code calls without building
+ *  a list of arguments.
+ *
+ *  @author Okhtay Ilghami
+ *  @author <a href="http://www.cs.umd.edu/~okhtay">http://www.cs.umd.edu/~okhtay</a>
+ *  @version 1.0.3
+*/
+public abstract interface NumericCalculate extends Calculate
+{
+  /** This abstract function implements the code call associated with the class
+   *  implementing this interface, when it has exactly two numerical arguments.
+   *  The result must be the same as that of <code>call(List)</code> on a list
+   *  of the two arguments.
+   *
+   *  @param x
+   *          the value of the first argument.
+   *  @param y
+   *          the value of the second argument.
+   *  @return
+   *          the result of the code call, as a term.
+  */
+  public abstract Term call(double x, double y);
+}
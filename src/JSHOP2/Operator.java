@@ -180,6 +180,42 @@ public abstract class Operator extends DomainElement
     return ((TermNumber)cost.bind(binding)).getNumber();
   }
 
+  /** To get the heads of the atoms this operator can add to the current state
+   *  of the world.
+   *
+   *  @return
+   *          the heads, or <code>null</code> if this operator can add any atom.
+  */
+  public int[] getAddedHeads()
+  {
+    if (addVarIdx != -1)
+      return null;
+
+    Vector<Predicate> atoms = new Vector<Predicate>();
+
+    for (DelAddElement e : add)
+    {
+      //-- Protections do not change the atoms in the state of the world.
+      if (e instanceof DelAddAtomic)
+        atoms.add(((DelAddAtomic)e).getAtom());
+      else if (e instanceof DelAddForAll)
+        for (Predicate p : ((DelAddForAll)e).getAtoms())
+          atoms.add(p);
+    }
+
+    int[] heads = new int[atoms.size()];
+
+    for (int i = 0; i < heads.length; i++)
+    {
+      if (atoms.get(i).isVar())
+        return null;
+
+      heads[i] = atoms.get(i).getHead();
+    }
+
+    return heads;
+  }
+
   /** To set the add list.
    *
    *  @param addIn
@@ -1,174 +1,136 @@
 package JSHOP2;
 
+import java.io.IOException;
+
 /**
  * Converts JSHOP2 parameters to JSON format
  */
 public class ParameterJsonConverter {
 
-    public static String paramToJsonForTasks(Term param, InternalDomain domain) {
+    public static void paramToJsonForTasks(Term param, InternalDomain domain, JsonWriter json) throws IOException {
         if (param == null) {
-            return createUnknownParam();
-        }
-
-        if (param instanceof TermVariable) {
+            writeUnknownParam(json);
+        } else if (param instanceof TermVariable) {
             TermVariable var = (TermVariable) param;
-            return new JsonBuilder()
-                    .startObject()
-                    .addProperty("name", getVariableName(var, domain))
-                    .addProperty("type", "Variable")
-                    .endObject()
-                    .toString();
-        }
-
-        if (param instanceof TermConstant) {
-            return createConstantParamForTasks((TermConstant) param, domain);
-        }
-
-        if (param instanceof TermNumber) {
-            return createNumberParamForTasks((TermNumber) param);
+            json.beginObject()
+                    .property("name", getVariableName(var, domain))
+                    .property("type", "Variable")
+                    .endObject();
+        } else if (param instanceof TermConstant) {
+            writeConstantParamForTasks((TermConstant) param, domain, json);
+        } else if (param instanceof TermNumber) {
+            writeNumberParamForTasks((TermNumber) param, json);
+        } else if (param instanceof TermList) {
+            writeListParamForTasks((TermList) param, domain, json);
+        } else {
+            writeUnknownParam(json);
         }
-
-        if (param instanceof TermList) {
-            return createListParamForTasks((TermList) param, domain);
-        }
-
-        return createUnknownParam();
     }
 
-    public static String paramToJson(Term param, InternalDomain domain) {
+    public static void paramToJson(Term param, InternalDomain domain, JsonWriter json) throws IOException {
         if (param == null) {
-            return createUndefinedParam("unknown");
-        }
-
-        if (param instanceof TermVariable) {
+            writeUndefinedParam("unknown", json);
+        } else if (param instanceof TermVariable) {
             TermVariable var = (TermVariable) param;
-            return createUndefinedParam(getVariableName(var, domain));
+            writeUndefinedParam(getVariableName(var, domain), json);
+        } else if (param instanceof TermConstant) {
+            writeUndefinedParam(getConstantName(((TermConstant) param).getIndex(), domain), json);
+        } else if (param instanceof TermNumber) {
+            writeUndefinedParam(String.valueOf(((TermNumber) param).getNumber()), json);
+        } else if (param instanceof TermList) {
+            writeListParam((TermList) param, domain, json);
+        } else {
+            writeUndefinedParam("unknown", json);
         }
-
-        if (param instanceof TermConstant) {
-            return createUndefinedParam(getConstantName(((TermConstant) param).getIndex(), domain));
-        }
-
-        if (param instanceof TermNumber) {
-            return createUndefinedParam(String.valueOf(((TermNumber) param).getNumber()));
-        }
-
-        if (param instanceof TermList) {
-            return createListParam((TermList) param, domain);
-        }
-
-        return createUndefinedParam("unknown");
     }
 
-    public static String parametersToJsonArrayForTasks(Term param, InternalDomain domain) {
-        JsonBuilder builder = new JsonBuilder();
-        builder.startArray();
+    public static void parametersToJsonArrayForTasks(Term param, InternalDomain domain, JsonWriter json) throws IOException {
+        json.beginArray();
 
         if (param != null && !param.isNil()) {
             if (param instanceof TermList) {
-                addListParametersForTasks(builder, ((TermList) param).getList(), domain);
+                addListParametersForTasks(((TermList) param).getList(), domain, json);
             } else {
-                builder.addRawArrayElement(paramToJsonForTasks(param, domain));
+                paramToJsonForTasks(param, domain, json);
             }
         }
 
-        return builder.endArray().toString();
+        json.endArray();
     }
 
-    public static String parametersToJsonArray(Term param, InternalDomain domain) {
-        JsonBuilder builder = new JsonBuilder();
-        builder.startArray();
+    public static void parametersToJsonArray(Term param, InternalDomain domain, JsonWriter json) throws IOException {
+        json.beginArray();
 
         if (param != null && !param.isNil()) {
             if (param instanceof TermList) {
-                addListParameters(builder, ((TermList) param).getList(), domain);
+                addListParameters(((TermList) param).getList(), domain, json);
             } else {
-                builder.addRawArrayElement(paramToJson(param, domain));
+                paramToJson(param, domain, json);
             }
         }
 
-        return builder.endArray().toString();
+        json.endArray();
     }
 
-    private static void addListParametersForTasks(JsonBuilder builder, List paramList, InternalDomain domain) {
+    private static void addListParametersForTasks(List paramList, InternalDomain domain, JsonWriter json) throws IOException {
         while (paramList != null && paramList.getHead() != null) {
-            builder.addRawArrayElement(paramToJsonForTasks(paramList.getHead(), domain));
+            paramToJsonForTasks(paramList.getHead(), domain, json);
             paramList = (paramList.getTail() instanceof TermList)
                 ? ((TermList) paramList.getTail()).getList()
                 : null;
         }
     }
 
-    private static void addListParameters(JsonBuilder builder, List paramList, InternalDomain domain) {
+    private static void addListParameters(List paramList, InternalDomain domain, JsonWriter json) throws IOException {
         while (paramList != null && paramList.getHead() != null) {
-            builder.addRawArrayElement(paramToJson(paramList.getHead(), domain));
+            paramToJson(paramList.getHead(), domain, json);
             paramList = (paramList.getTail() instanceof TermList)
                 ? ((TermList) paramList.getTail()).getList()
                 : null;
         }
     }
 
-    private static String createConstantParamForTasks(TermConstant constant, InternalDomain domain) {
+    private static void writeConstantParamForTasks(TermConstant constant, InternalDomain domain, JsonWriter json) throws IOException {
         int idx = constant.getIndex();
         String name = getConstantName(idx, domain);
 
-        return new JsonBuilder()
-            .startObject()
-            .addProperty("name", name)
-            .addProperty("type", "Constant")
-            .endObject()
-            .toString();
+        json.beginObject()
+            .property("name", name)
+            .property("type", "Constant")
+            .endObject();
     }
 
-    private static String createNumberParamForTasks(TermNumber number) {
-        return new JsonBuilder()
-            .startObject()
-            .addProperty("name", String.valueOf(number.getNumber()))
-            .addProperty("type", "Number")
-            .endObject()
-            .toString();
+    private static void writeNumberParamForTasks(TermNumber number, JsonWriter json) throws IOException {
+        json.beginObject()
+            .property("name", String.valueOf(number.getNumber()))
+            .property("type", "Number")
+            .endObject();
     }
 
-    private static String createListParamForTasks(TermList list, InternalDomain domain) {
-        JsonBuilder builder = new JsonBuilder().startArray();
-        List l = list.getList();
-
-        while (l != null && l.getHead() != null) {
-            builder.addRawArrayElement(paramToJsonForTasks(l.getHead(), domain));
-            l = (l.getTail() instanceof TermList) ? ((TermList) l.getTail()).getList() : null;
-        }
-
-        return builder.endArray().toString();
+    private static void writeListParamForTasks(TermList list, InternalDomain domain, JsonWriter json) throws IOException {
+        json.beginArray();
+        addListParametersForTasks(list.getList(), domain, json);
+        json.endArray();
     }
 
-    private static String createUndefinedParam(String name) {
-        return new JsonBuilder()
-            .startObject()
-            .addProperty("name", name)
-            .addProperty("type", "undefined")
-            .endObject()
-            .toString();
+    private static void writeUndefinedParam(String name, JsonWriter json) throws IOException {
+        json.beginObject()
+            .property("name", name)
+            .property("type", "undefined")
+            .endObject();
     }
 
-    private static String createListParam(TermList list, InternalDomain domain) {
-        JsonBuilder builder = new JsonBuilder().startArray();
-        List l = list.getList();
-
-        while (l != null && l.getHead() != null) {
-            builder.addRawArrayElement(paramToJson(l.getHead(), domain));
-            l = (l.getTail() instanceof TermList) ? ((TermList) l.getTail()).getList() : null;
-        }
-
-        return builder.endArray().toString();
+    private static void writeListParam(TermList list, InternalDomain domain, JsonWriter json) throws IOException {
+        json.beginArray();
+        addListParameters(list.getList(), domain, json);
+        json.endArray();
     }
 
-    private static String createUnknownParam() {
-        return new JsonBuilder()
-            .startObject()
-            .addProperty("name", "unknown")
-            .addProperty("type", "unknown")
-            .endObject()
-            .toString();
+    private static void writeUnknownParam(JsonWriter json) throws IOException {
+        json.beginObject()
+            .property("name", "unknown")
+            .property("type", "unknown")
+            .endObject();
     }
 
     private static String getConstantName(int idx, InternalDomain domain) {
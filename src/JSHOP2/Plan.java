@@ -2,6 +2,48 @@ package JSHOP2;
 
 import java.util.LinkedList;
 
+/** Each operator instance in a plan is represented as an instance of this
+ *  class. The operator instances form a persistent linked list that goes from
+ *  the end of the plan back to its beginning, so that the plans found while
+ *  looking for all the plans share the operator instances they have in
+ *  common at their beginnings, rather than each having a copy of them.
+ *
+ *  @author Okhtay Ilghami
+ *  @author <a href="http://www.cs.umd.edu/~okhtay">http://www.cs.umd.edu/~okhtay</a>
+ *  @version 1.0.3
+*/
+class PlanNode
+{
+  /** The operator instance.
+  */
+  final Predicate op;
+
+  /** The operator instance right before this one in the plan, or
+   *  <code>null</code> if this is the first one.
+  */
+  final PlanNode previous;
+
+  /** The number of operator instances in the plan up to and including this
+   *  one.
+  */
+  final int size;
+
+  /** To initialize this operator instance.
+   *
+   *  @param opIn
+   *          the operator instance.
+   *  @param previousIn
+   *          the operator instance right before it in the plan, or
+   *          <code>null</code> if it is the first one.
+  */
+  PlanNode(Predicate opIn, PlanNode previousIn)
+  {
+    op = opIn;
+    previous = previousIn;
+    size = (previous == null) ? 1 : previous.size + 1;
+  }
+}
+
 /** This class represent a plan as a <code>LinkedList</code> of ground
  *  instances of operators.
  *
@@ -18,29 +60,49 @@ public class Plan
   */
   final static String endl = System.getProperty("line.separator");
 
-  /** The plan as a <code>LinkedList</code> of ground instances of operators.
+  /** The last operator instance in the plan, or <code>null</code> if the plan
+   *  is empty. Since the operator instances are never changed once they are
+   *  in a plan, cloning a plan does not copy them.
+  */
+  private PlanNode last;
+
+  /** The plan as a <code>LinkedList</code> of ground instances of operators,
+   *  made the first time it is asked for, or <code>null</code> if it has not
+   *  been made yet.
   */
   private LinkedList<Predicate> ops;
 
+  /** The last operator instance in the plan when <code>ops</code> was made.
+  */
+  private PlanNode opsLast;
+
+  /** The choices made by the search to find this plan, the last one first, or
+   *  <code>null</code> if they are not known.
+  */
+  private Decomposition decomposition;
+
   /** To initialize the plan to an empty list.
   */
   public Plan()
   {
-    ops = new LinkedList<Predicate>();
+    last = null;
     cost = 0;
   }
 
   /** This function is used by objects of this class to clone themselves.
    *
-   *  @param opsIn
-   *          the operators in the plan.
+   *  @param lastIn
+   *          the last operator instance in the plan.
    *  @param costIn
    *          the cost of the plan.
+   *  @param decompositionIn
+   *          the choices made to find the plan.
   */
-  private Plan(LinkedList<Predicate> opsIn, double costIn)
+  private Plan(PlanNode lastIn, double costIn, Decomposition decompositionIn)
   {
-    ops = opsIn;
+    last = lastIn;
     cost = costIn;
+    decomposition = decompositionIn;
   }
 
   /** To add an operator instance to the end of the plan.
@@ -54,17 +116,52 @@ public class Plan
   */
   public double addOperator(Operator op, Term[] binding)
   {
-    ops.addLast(op.getHead().applySubstitution(binding));
+    last = new PlanNode(op.getHead().applySubstitution(binding), last);
     cost += op.getCost(binding);
 
     return op.getCost(binding);
   }
 
-  /** To clone an object of this class.
+  /** To clone an object of this class. This takes constant time, since the
+   *  clone shares the operator instances with this plan.
   */
   public Object clone()
   {
-    return new Plan(new LinkedList<Predicate>(ops), cost);
+    return new Plan(last, cost, decomposition);
+  }
+
+  /** To get the choices made by the search to find this plan, which are what
+   *  <code>JSHOP2.replan()</code> follows to repair it.
+   *
+   *  @return
+   *          the last of the choices, or <code>null</code> if they are not
+   *          known, i.e., if this plan was not found by
+   *          <code>JSHOP2.findRepairablePlans()</code> or
+   *          <code>JSHOP2.replan()</code>.
+  */
+  public Decomposition getDecomposition()
+  {
+    return decomposition;
+  }
+
+  /** To set the choices made by the search to find this plan.
+   *
+   *  @param decompositionIn
+   *          the last of the choices.
+  */
+  void setDecomposition(Decomposition decompositionIn)
+  {
+    decomposition = decompositionIn;
+  }
+
+  /** To get the cost of this plan.
+   *
+   *  @return
+   *          the cost of this plan.
+  */
+  public double getCost()
+  {
+    return cost;
   }
 
   /** To get the sequence of operators represented by this object.
@@ -74,9 +171,31 @@ public class Plan
   */
   public LinkedList<Predicate> getOps()
   {
+    //-- Make the list, unless it has already been made since the plan last
+    //-- changed.
+    if (ops == null || opsLast != last)
+    {
+      ops = new LinkedList<Predicate>();
+
+      for (PlanNode n = last; n != null; n = n.previous)
+        ops.addFirst(n.op);
+
+      opsLast = last;
+    }
+
     return ops;
   }
 
+  /** To get the number of operator instances in this plan.
+   *
+   *  @return
+   *          the number of operator instances in this plan.
+  */
+  public int size()
+  {
+    return (last == null) ? 0 : last.size;
+  }
+
   /** To remove the operator instance at the end of the plan.
    *
    *  @param opCost
@@ -84,7 +203,7 @@ public class Plan
   */
   public void removeOperator(double opCost)
   {
-    ops.removeLast();
+    last = last.previous;
     cost -= opCost;
   }
 
@@ -95,17 +214,31 @@ public class Plan
    *          the <code>String</code> representation of this plan.
   */
   public String toString()
+  {
+    return toString(JSHOP2.getDomain());
+  }
+
+  /** This function returns a printable <code>String</code> representation of
+   *  this plan, with the names of the operators and of the constant symbols
+   *  taken from a given domain, so that it can be printed by any thread.
+   *
+   *  @param domain
+   *          the domain this plan was found in.
+   *  @return
+   *          the <code>String</code> representation of this plan.
+  */
+  public String toString(Domain domain)
   {
     //-- The value to be returned.
-    String retVal = "Plan cost: " + cost + endl + endl;
+    StringBuilder retVal = new StringBuilder("Plan cost: " + cost + endl + endl);
 
     //-- Get the names of the operators in this domain.
-    String[] primitiveTasks = JSHOP2.getDomain().getPrimitiveTasks();
+    String[] primitiveTasks = domain.getPrimitiveTasks();
 
     //-- Iterate over the operator instances in the plan and print them.
-    for (Predicate p : ops)
-      retVal += p.toString(primitiveTasks) + endl;
+    for (Predicate p : getOps())
+      retVal.append(p.toString(primitiveTasks, domain)).append(endl);
 
-    return retVal + "--------------------" + endl;
+    return retVal.append("--------------------").append(endl).toString();
   }
 }
@@ -0,0 +1,21 @@
+package JSHOP2;
+
+/** This is the interface for the objects that are told about each plan found
+ *  by an anytime search for a cheapest plan that is cheaper than all the
+ *  plans it found before.
+ *
+ *  @author Okhtay Ilghami
+ *  @author <a href="http://www.cs.umd.edu/~okhtay">http://www.cs.umd.edu/~okhtay</a>
+ *  @version 1.0.3
+*/
+public abstract interface PlanListener
+{
+  /** This abstract function is called by the thread doing the search each
+   *  time a cheaper plan is found. The search waits for it to return, so it
+   *  should return quickly.
+   *
+   *  @param plan
+   *          the plan, which is not changed by the search afterwards.
+  */
+  public abstract void planImproved(Plan plan);
+}
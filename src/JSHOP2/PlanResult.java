@@ -0,0 +1,73 @@
+package JSHOP2;
+
+import java.util.LinkedList;
+
+/** This class represents the result of solving a planning problem with
+ *  <code>JSHOP2.solve()</code>, i.e., the plans found, how long it took to
+ *  find them, and the domain they were found in, which they are printed with.
+ *
+ *  @author Okhtay Ilghami
+ *  @author <a href="http://www.cs.umd.edu/~okhtay">http://www.cs.umd.edu/~okhtay</a>
+ *  @version 1.0.3
+*/
+public class PlanResult
+{
+  /** The domain the plans were found in.
+  */
+  private Domain domain;
+
+  /** The plans found.
+  */
+  private LinkedList<Plan> plans;
+
+  /** The number of milliseconds the search took.
+  */
+  private long time;
+
+  /** To initialize this result.
+   *
+   *  @param domainIn
+   *          the domain the plans were found in.
+   *  @param plansIn
+   *          the plans found.
+   *  @param timeIn
+   *          the number of milliseconds the search took.
+  */
+  public PlanResult(Domain domainIn, LinkedList<Plan> plansIn, long timeIn)
+  {
+    domain = domainIn;
+    plans = plansIn;
+    time = timeIn;
+  }
+
+  /** To get the domain the plans were found in, so that they can be printed
+   *  by any thread with <code>Plan.toString(Domain)</code>.
+   *
+   *  @return
+   *          the domain the plans were found in.
+  */
+  public Domain getDomain()
+  {
+    return domain;
+  }
+
+  /** To get the plans found.
+   *
+   *  @return
+   *          0 or more plans that achieve the task list.
+  */
+  public LinkedList<Plan> getPlans()
+  {
+    return plans;
+  }
+
+  /** To get how long the search took.
+   *
+   *  @return
+   *          the number of milliseconds the search took.
+  */
+  public long getTime()
+  {
+    return time;
+  }
+}
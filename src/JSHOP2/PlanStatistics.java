@@ -0,0 +1,157 @@
+package JSHOP2;
+
+/** This class represents the number of plans found for a planning problem and
+ *  statistics about their costs, gathered when the plans themselves are not
+ *  needed. Statistics gathered by different searches, e.g., searches done in
+ *  parallel over different parts of the problem, can be combined.
+ *
+ *  @author Okhtay Ilghami
+ *  @author <a href="http://www.cs.umd.edu/~okhtay">http://www.cs.umd.edu/~okhtay</a>
+ *  @version 1.0.3
+*/
+public class PlanStatistics
+{
+  /** The number of plans.
+  */
+  private long count;
+
+  /** The cost of the most expensive plan.
+  */
+  private double maxCost;
+
+  /** The cost of the cheapest plan.
+  */
+  private double minCost;
+
+  /** The sum of the costs of the plans.
+  */
+  private double totalCost;
+
+  /** To initialize the statistics to those of no plans.
+  */
+  public PlanStatistics()
+  {
+    count = 0;
+    maxCost = Double.NEGATIVE_INFINITY;
+    minCost = Double.POSITIVE_INFINITY;
+    totalCost = 0;
+  }
+
+  /** To add a plan to the statistics.
+   *
+   *  @param cost
+   *          the cost of the plan.
+  */
+  public synchronized void addPlan(double cost)
+  {
+    count++;
+    totalCost += cost;
+
+    if (cost < minCost)
+      minCost = cost;
+
+    if (cost > maxCost)
+      maxCost = cost;
+  }
+
+  /** To add the statistics gathered by another search to these statistics.
+   *
+   *  @param other
+   *          the statistics gathered by the other search.
+  */
+  public void add(PlanStatistics other)
+  {
+    long otherCount;
+    double otherMax, otherMin, otherTotal;
+
+    //-- Take a consistent copy first, so that the two objects are never
+    //-- locked at the same time.
+    synchronized (other)
+    {
+      otherCount = other.count;
+      otherMax = other.maxCost;
+      otherMin = other.minCost;
+      otherTotal = other.totalCost;
+    }
+
+    synchronized (this)
+    {
+      count += otherCount;
+      totalCost += otherTotal;
+
+      if (otherMin < minCost)
+        minCost = otherMin;
+
+      if (otherMax > maxCost)
+        maxCost = otherMax;
+    }
+  }
+
+  /** To get the number of plans.
+   *
+   *  @return
+   *          the number of plans.
+  */
+  public synchronized long getCount()
+  {
+    return count;
+  }
+
+  /** To get the average cost of the plans.
+   *
+   *  @return
+   *          the average cost of the plans, or <code>NaN</code> if there are
+   *          no plans.
+  */
+  public synchronized double getAverageCost()
+  {
+    return (count == 0) ? Double.NaN : totalCost / count;
+  }
+
+  /** To get the cost of the most expensive plan.
+   *
+   *  @return
+   *          the cost of the most expensive plan, or negative infinity if
+   *          there are no plans.
+  */
+  public synchronized double getMaxCost()
+  {
+    return maxCost;
+  }
+
+  /** To get the cost of the cheapest plan.
+   *
+   *  @return
+   *          the cost of the cheapest plan, or positive infinity if there are
+   *          no plans.
+  */
+  public synchronized double getMinCost()
+  {
+    return minCost;
+  }
+
+  /** To get the sum of the costs of the plans.
+   *
+   *  @return
+   *          the sum of the costs of the plans.
+  */
+  public synchronized double getTotalCost()
+  {
+    return totalCost;
+  }
+
+  /** This function returns a printable <code>String</code> representation of
+   *  these statistics.
+   *
+   *  @return
+   *          the <code>String</code> representation of these statistics.
+  */
+  public synchronized String toString()
+  {
+    if (count == 0)
+      return "0 plans";
+
+    return count + " plans, cost min " + minCost + ", average " +
+           (totalCost / count) + ", max " + maxCost;
+  }
+}
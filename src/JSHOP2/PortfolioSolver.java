@@ -0,0 +1,258 @@
+package JSHOP2;
+
+import java.util.LinkedList;
+import java.util.Random;
+
+/** Each thread a portfolio runs one of its searches in is an instance of this
+ *  class.
+ *
+ *  @author Okhtay Ilghami
+ *  @author <a href="http://www.cs.umd.edu/~okhtay">http://www.cs.umd.edu/~okhtay</a>
+ *  @version 1.0.3
+*/
+class PortfolioThread extends Thread
+{
+  /** The index of the search among the searches of the portfolio.
+  */
+  private int index;
+
+  /** The portfolio that runs the search.
+  */
+  private PortfolioSolver portfolio;
+
+  /** The search.
+  */
+  private JSHOP2 search;
+
+  /** The task list to be achieved, which must not be shared with any other
+   *  search.
+  */
+  private TaskList tl;
+
+  /** To initialize this thread.
+   *
+   *  @param portfolioIn
+   *          the portfolio that runs the search.
+   *  @param indexIn
+   *          the index of the search among the searches of the portfolio.
+   *  @param searchIn
+   *          the search.
+   *  @param tlIn
+   *          the task list to be achieved.
+  */
+  PortfolioThread(PortfolioSolver portfolioIn, int indexIn, JSHOP2 searchIn,
+                  TaskList tlIn)
+  {
+    portfolio = portfolioIn;
+    index = indexIn;
+    search = searchIn;
+    tl = tlIn;
+  }
+
+  /** The function that is called when this thread is invoked.
+  */
+  public void run()
+  {
+    JSHOP2.setInstance(search);
+
+    try
+    {
+      LinkedList<Plan> plans = JSHOP2.findPlans(tl, 1);
+
+      if (!plans.isEmpty())
+        portfolio.offer(plans.getFirst(), index);
+    }
+    finally
+    {
+      JSHOP2.setInstance(null);
+      portfolio.finished();
+    }
+  }
+}
+
+/** This class runs several searches for a plan for the same planning problem
+ *  in parallel, each of which tries the methods and operators that can
+ *  achieve a task, and the tasks that can be achieved next, in a different
+ *  random order. Since a bad choice made early can lead any single search
+ *  into a huge part of the search space that has no plan, trying several
+ *  orders at the same time makes it much less likely that finding a plan
+ *  takes a long time. The first plan found is returned, and the other
+ *  searches are stopped.
+ *
+ *  @author Okhtay Ilghami
+ *  @author <a href="http://www.cs.umd.edu/~okhtay">http://www.cs.umd.edu/~okhtay</a>
+ *  @version 1.0.3
+*/
+public class PortfolioSolver
+{
+  /** The number of searches.
+  */
+  private int instances;
+
+  /** The plan found, or <code>null</code> if none has been found yet.
+  */
+  private Plan plan;
+
+  /** The number of searches that are still running.
+  */
+  private int running;
+
+  /** The seed of the random orders of the searches.
+  */
+  private long seed;
+
+  /** Whether or not a plan has been found. This is read by all the searches
+   *  so that they stop as soon as one of them finds a plan.
+  */
+  private volatile boolean solved;
+
+  /** The index of the search that found the plan, or -1 if none has.
+  */
+  private int winner;
+
+  /** To initialize this portfolio.
+   *
+   *  @param instancesIn
+   *          the number of searches to run in parallel.
+   *  @param seedIn
+   *          the seed of the random orders of the searches. The first search
+   *          always tries the alternatives in the order they are given, so
+   *          that the portfolio never does worse than a single search, and
+   *          the others use this seed plus their index.
+  */
+  public PortfolioSolver(int instancesIn, long seedIn)
+  {
+    instances = instancesIn;
+    seed = seedIn;
+  }
+
+  /** This function finds a plan for a given initial task list using the
+   *  domain and the initial state of the world given to
+   *  <code>JSHOP2.initialize()</code> by the calling thread. Neither the task
+   *  list nor the state of the world is changed, since each search works on
+   *  its own copy of them.
+   *
+   *  @param tasks
+   *          the initial task list to be achieved.
+   *  @return
+   *          the first plan found by any of the searches, or
+   *          <code>null</code> if none of them found a plan.
+   *  @throws InterruptedException
+   *          if the calling thread is interrupted while waiting for the
+   *          searches, in which case they are stopped.
+  */
+  public Plan findPlan(TaskList tasks) throws InterruptedException
+  {
+    Domain domain = JSHOP2.getDomain();
+    State state = JSHOP2.getState();
+
+    //-- The analysis of which methods, operators and axioms can be used
+    //-- changes the domain, so it is done once, before the searches start.
+    JSHOP2.instance().analyze();
+    Relevance relevance = JSHOP2.getRelevance();
+
+    PortfolioThread[] threads = new PortfolioThread[instances];
+
+    synchronized (this)
+    {
+      plan = null;
+      winner = -1;
+      solved = false;
+      running = instances;
+    }
+
+    for (int i = 0; i < instances; i++)
+    {
+      Random random = (i == 0) ? null : new Random(seed + i);
+
+      //-- Binding the ground task list to an empty binding copies it.
+      threads[i] = new PortfolioThread(this, i,
+        new JSHOP2(domain, new State(state), relevance, this, random),
+        tasks.bind(new Term[0]));
+    }
+
+    for (PortfolioThread t : threads)
+      t.start();
+
+    try
+    {
+      synchronized (this)
+      {
+        while (!solved && running > 0)
+          wait();
+      }
+    }
+    finally
+    {
+      //-- Stop the searches that are still running, and wait for them, so
+      //-- that none of them is still using the domain afterwards.
+      solved = true;
+
+      for (PortfolioThread t : threads)
+        t.join();
+    }
+
+    return getPlan();
+  }
+
+  /** To be told that a search has finished.
+  */
+  synchronized void finished()
+  {
+    running--;
+    notifyAll();
+  }
+
+  /** To get the plan found by the last call to <code>findPlan()</code>.
+   *
+   *  @return
+   *          the plan, or <code>null</code> if none was found.
+  */
+  public synchronized Plan getPlan()
+  {
+    return plan;
+  }
+
+  /** To get the index of the search that found the plan in the last call to
+   *  <code>findPlan()</code>. The first search is the one that tries the
+   *  alternatives in the order they are given.
+   *
+   *  @return
+   *          the index, or -1 if no plan was found.
+  */
+  public synchronized int getWinner()
+  {
+    return winner;
+  }
+
+  /** Whether or not one of the searches has found a plan, or the searches are
+   *  asked to stop.
+   *
+   *  @return
+   *          <code>true</code> if the searches should stop,
+   *          <code>false</code> otherwise.
+  */
+  boolean isSolved()
+  {
+    return solved;
+  }
+
+  /** To be given a plan found by one of the searches. Only the first plan
+   *  given is kept.
+   *
+   *  @param planIn
+   *          the plan.
+   *  @param index
+   *          the index of the search that found it.
+  */
+  synchronized void offer(Plan planIn, int index)
+  {
+    if (plan == null)
+    {
+      plan = planIn;
+      winner = index;
+      solved = true;
+      notifyAll();
+    }
+  }
+}
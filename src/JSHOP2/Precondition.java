@@ -1,6 +1,5 @@
 package JSHOP2;
 
-import java.util.Arrays;
 import java.util.Comparator;
 import java.util.Vector;
 
@@ -14,15 +13,23 @@ import java.util.Vector;
 public abstract class Precondition
 {
 
-  /** The array that stores the sorted satisfiers for this logical precondition
-   *  if this is a <code>:sort-by</code> logical precondition.
+  /** The array that stores the satisfiers for this logical precondition if
+   *  this is a <code>:sort-by</code> logical precondition, in the order they
+   *  were found.
   */
   Term[][] bindings;
 
-  /** The index pointing to the next satisfier to be returned in case this is a
-   *  <code>:sort-by</code> logical precondition.
+  /** The satisfiers that have not been returned yet in case this is a
+   *  <code>:sort-by</code> logical precondition, as a binary heap of indices
+   *  into <code>bindings</code>. The satisfiers are sorted only as they are
+   *  asked for, so that when only the first few of them are used, the cost is
+   *  close to linear rather than that of sorting all of them.
+  */
+  int[] heap;
+
+  /** The number of satisfiers in <code>heap</code>.
   */
-  int bindingsIdx;
+  int heapSize;
 
   /** The function to be used to sort the possible bindings if this is a
    *  <code>:sort-by</code> logical precondition.
@@ -65,7 +72,7 @@ public abstract class Precondition
     if (comp != null)
     {
       //-- If this is the first call to this function, calculate all the
-      //-- bindings first, and sort them using the given function.
+      //-- bindings first.
       if (firstCall)
       {
         //-- A vector to store all the possible bindings that satisfy this
@@ -79,25 +86,39 @@ public abstract class Precondition
         while ((b = nextBindingHelper()) != null)
           v.add(b);
 
-        //-- Sort the bindings.
         bindings = new Term[v.size()][];
         bindings = v.toArray(bindings);
-        Arrays.sort(bindings, comp);
 
-        //-- Set the index to zero.
-        bindingsIdx = 0;
-      }
+        //-- Make sure next time this function will remember that it has been
+        //-- called before.
+        firstCall = false;
+
+        //-- If only the first binding is needed, just find the smallest one.
+        if (first)
+          return findMin();
 
-      //-- Make sure next time this function will remember that it has been
-      //-- called before.
-      firstCall = false;
+        //-- Otherwise, arrange the bindings in a heap.
+        heap = new int[bindings.length];
+        heapSize = bindings.length;
+
+        for (int i = 0; i < heapSize; i++)
+          heap[i] = i;
+
+        for (int i = heapSize / 2 - 1; i >= 0; i--)
+          siftDown(i);
+      }
 
       //-- If all the possible bindings have been returned, return null.
-      if (bindingsIdx == bindings.length)
+      if (heapSize == 0)
         return null;
 
-      //-- Return the next binding in the sorted list of satisfiers.
-      return (Term[])bindings[bindingsIdx++];
+      //-- Return the next binding in the sorted order of satisfiers, and
+      //-- restore the heap.
+      Term[] retVal = bindings[heap[0]];
+      heap[0] = heap[--heapSize];
+      siftDown(0);
+
+      return retVal;
     }
 
     //-- Make sure next time this function will remember that it has been
@@ -108,6 +129,74 @@ public abstract class Precondition
     return nextBindingHelper();
   }
 
+  /** Whether or not one satisfier comes before another one in the sorted
+   *  order of satisfiers. Satisfiers that the comparator considers equal are
+   *  kept in the order they were found, just as a stable sort would.
+   *
+   *  @param i
+   *          the index of the first satisfier in <code>bindings</code>.
+   *  @param j
+   *          the index of the second satisfier in <code>bindings</code>.
+   *  @return
+   *          <code>true</code> if the first satisfier comes first,
+   *          <code>false</code> otherwise.
+  */
+  private boolean before(int i, int j)
+  {
+    int c = comp.compare(bindings[i], bindings[j]);
+
+    return (c < 0 || (c == 0 && i < j));
+  }
+
+  /** To find the satisfier that comes first in the sorted order of
+   *  satisfiers, without sorting them.
+   *
+   *  @return
+   *          the satisfier, or <code>null</code> if there are none.
+  */
+  private Term[] findMin()
+  {
+    if (bindings.length == 0)
+      return null;
+
+    int min = 0;
+
+    for (int i = 1; i < bindings.length; i++)
+      if (before(i, min))
+        min = i;
+
+    return bindings[min];
+  }
+
+  /** To move a satisfier down the heap until both its children come after it.
+   *
+   *  @param i
+   *          the position of the satisfier in the heap.
+  */
+  private void siftDown(int i)
+  {
+    while (true)
+    {
+      int smallest = i;
+      int left = 2 * i + 1;
+      int right = left + 1;
+
+      if (left < heapSize && before(heap[left], heap[smallest]))
+        smallest = left;
+
+      if (right < heapSize && before(heap[right], heap[smallest]))
+        smallest = right;
+
+      if (smallest == i)
+        return;
+
+      int temp = heap[i];
+      heap[i] = heap[smallest];
+      heap[smallest] = temp;
+      i = smallest;
+    }
+  }
+
   /** This abstract function is called by the <code>nextBinding</code> function
    *  and does the subclass-specific part of the finding the next binding.
   */
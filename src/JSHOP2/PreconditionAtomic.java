@@ -47,6 +47,17 @@ public class PreconditionAtomic extends Precondition
     boundP = boundP.applySubstitution(binding);
   }
 
+  /** To get the logical atom this iterator is satisfying, before it is bound
+   *  to any binding other than the one given to the constructor.
+   *
+   *  @return
+   *          the logical atom.
+  */
+  Predicate getPredicate()
+  {
+    return p;
+  }
+
   /** To return the next satisfier for this atomic logical expression.
   */
   protected Term[] nextBindingHelper()
@@ -0,0 +1,548 @@
+package JSHOP2;
+
+import java.util.ArrayList;
+import java.util.Vector;
+
+/** Each conjunction at run time is represented by an instance of a class
+ *  derived from this class. The code generated for a conjunction only sets up
+ *  the iterators for its conjuncts, and this class finds the bindings that
+ *  satisfy all of them, trying each conjunct for every binding found for the
+ *  conjuncts before it.
+ *  <p>
+ *  Optionally, consecutive atomic conjuncts can be evaluated in an order
+ *  chosen at run time rather than in the order in which they appear in the
+ *  domain description. Each time such a run of conjuncts is started, the
+ *  conjunct that is expected to have the fewest satisfiers, judging by the
+ *  number of atoms with its head in the current state of the world and the
+ *  number of its arguments that are already bound, is tried first, and so
+ *  on. This does not change the set of bindings that satisfy the conjunction,
+ *  only the order in which they are found. It is never done for conjunctions
+ *  marked <code>:first</code> or <code>:sort-by</code>, or nested in one, and
+ *  conjuncts that contain call terms or can be proved by axioms are always
+ *  left where they are.
+ *  <p>
+ *  When two atomic conjuncts that are tried one after the other both have
+ *  many atoms in the current state of the world, the inner one is evaluated
+ *  as a hash join: instead of trying all its atoms for each binding of the
+ *  outer one, only the atoms that agree with it on the arguments that are
+ *  already bound are tried. These atoms are found in a hash index that
+ *  <code>State</code> builds once and keeps until the atoms change. They are
+ *  tried in the same order as in the state of the world, so the satisfiers
+ *  found are exactly the same.
+ *
+ *  @author Okhtay Ilghami
+ *  @author <a href="http://www.cs.umd.edu/~okhtay">http://www.cs.umd.edu/~okhtay</a>
+ *  @version 1.0.3
+*/
+public class PreconditionConjunction extends Precondition
+{
+  /** Whether or not runs of atomic conjuncts should be reordered at run time.
+   *  This is off by default.
+  */
+  private static boolean reorder = false;
+
+  /** The smallest number of atoms both conjuncts of a join must have for the
+   *  inner one to be evaluated as a hash join.
+  */
+  private static int joinThreshold = 32;
+
+  /** The iterators for the conjuncts, indexed from 1 as they appear in the
+   *  domain description.
+  */
+  private Precondition[] p;
+
+  /** The bindings found for each level of the conjunction. The first element
+   *  is the binding this conjunction was bound to, and element
+   *  <code>i</code> is the binding found for the conjunct tried at level
+   *  <code>i</code>.
+  */
+  private Term[][] b;
+
+  /** Which conjunct is tried at each level, indexed from 1.
+  */
+  private int[] order;
+
+  /** For a level where a run of at least two consecutive atomic conjuncts
+   *  starts, the last level of that run, and 0 for all other levels. This is
+   *  found only when the conjuncts are reordered for the first time.
+  */
+  private int[] runEnd;
+
+  /** For each atomic conjunct in a run, the head of its predicate.
+  */
+  private int[] heads;
+
+  /** For each atomic conjunct in a run, the indices of the variable symbols
+   *  that occur in each of its arguments.
+  */
+  private int[][][] argVars;
+
+  /** Whether or not the order in which the satisfiers of this conjunction are
+   *  found must be kept, i.e., it is marked <code>:first</code> or
+   *  <code>:sort-by</code>, or nested in a logical expression that is.
+  */
+  private boolean orderFixed;
+
+  /** For each level that is evaluated as a hash join, the logical atom tried
+   *  at that level bound to the bindings found for the levels before it, and
+   *  <code>null</code> for all other levels.
+  */
+  private Predicate[] joinP;
+
+  /** For each level that is evaluated as a hash join, the atoms that can
+   *  satisfy the logical atom tried at that level.
+  */
+  private Vector<Term>[] joinAtoms;
+
+  /** For each level that is evaluated as a hash join, the index of the next
+   *  atom to be tried.
+  */
+  private int[] joinIdx;
+
+  /** To initialize this conjunction.
+   *
+   *  @param pIn
+   *          the iterators for the conjuncts, in the order they appear in the
+   *          domain description.
+   *  @param unifier
+   *          the binding to start with.
+   *  @param orderFixedIn
+   *          whether or not the order of the satisfiers of this conjunction
+   *          must be kept.
+  */
+  public PreconditionConjunction(Precondition[] pIn, Term[] unifier,
+                                 boolean orderFixedIn)
+  {
+    int n = pIn.length;
+
+    p = new Precondition[n + 1];
+    order = new int[n + 1];
+
+    for (int i = 1; i <= n; i++)
+    {
+      p[i] = pIn[i - 1];
+      order[i] = i;
+    }
+
+    orderFixed = orderFixedIn;
+
+    joinP = new Predicate[n + 1];
+    joinAtoms = GenericArrays.newArray(Vector.class, n + 1);
+    joinIdx = new int[n + 1];
+
+    b = new Term[n + 1][];
+    b[0] = unifier;
+    b[0] = Term.merge(b, 1);
+
+    //-- A conjunction can be potentially satisfied more than once, so the
+    //-- default for the 'isFirstCall' flag is false.
+    setFirst(false);
+  }
+
+  /** To bind this conjunction to a given binding.
+  */
+  public void bind(Term[] binding)
+  {
+    b[0] = binding;
+    b[0] = Term.merge(b, 1);
+
+    for (int i = 1; i < b.length; i++)
+    {
+      b[i] = null;
+      joinP[i] = null;
+    }
+
+    //-- The binding might change which conjunct is better tried first.
+    reorder(1, b[0]);
+
+    p[order[1]].bind(binding);
+  }
+
+  /** To find the atomic conjuncts whose evaluation can be changed, and the
+   *  runs of consecutive such conjuncts that can be reordered.
+  */
+  private void analyze()
+  {
+    int n = p.length - 1;
+
+    runEnd = new int[n + 1];
+    heads = new int[n + 1];
+    argVars = new int[n + 1][][];
+
+    for (int i = 1; i <= n; i++)
+    {
+      argVars[i] = getArgVars(p[i]);
+
+      if (argVars[i] != null)
+        heads[i] = ((PreconditionAtomic)p[i]).getPredicate().getHead();
+    }
+
+    for (int i = 1; i <= n; i++)
+    {
+      int j = i;
+
+      while (j < n && argVars[i] != null && argVars[j + 1] != null)
+        j++;
+
+      if (j > i)
+        runEnd[i] = j;
+
+      i = j;
+    }
+  }
+
+  /** To find the indices of the variable symbols that occur in each argument
+   *  of an atomic conjunct, so that the conjunct can be reordered.
+   *
+   *  @param pre
+   *          the iterator for the conjunct.
+   *  @return
+   *          the indices, or <code>null</code> if the conjunct is not atomic or
+   *          can not be reordered (e.g., because it contains a call term, the
+   *          value of which depends on the variables bound before it, or
+   *          because it can be proved by axioms).
+  */
+  private static int[][] getArgVars(Precondition pre)
+  {
+    if (!(pre instanceof PreconditionAtomic))
+      return null;
+
+    Predicate pred = ((PreconditionAtomic)pre).getPredicate();
+
+    if (pred.isVar() || !(pred.getParam() instanceof TermList))
+      return null;
+
+    //-- Since the branches of an axiom are tried only if the branches before
+    //-- them have no satisfiers, which predicates an axiom proves can depend
+    //-- on which of its arguments are bound. Therefore, conjuncts that might
+    //-- be proved by axioms are never reordered.
+    if (JSHOP2.getState().hasAxioms(pred.getHead()))
+      return null;
+
+    ArrayList<int[]> args = new ArrayList<int[]>();
+    Term t = pred.getParam();
+
+    while (!t.isNil())
+    {
+      if (!(t instanceof TermList))
+        return null;
+
+      List l = ((TermList)t).getList();
+      ArrayList<Integer> vars = new ArrayList<Integer>();
+
+      if (!getVars(l.getHead(), vars))
+        return null;
+
+      int[] v = new int[vars.size()];
+      for (int i = 0; i < v.length; i++)
+        v[i] = vars.get(i);
+
+      args.add(v);
+      t = l.getTail();
+    }
+
+    return args.toArray(new int[args.size()][]);
+  }
+
+  /** To collect the indices of the variable symbols that occur in a term.
+   *
+   *  @param t
+   *          the term.
+   *  @param vars
+   *          where to add the indices.
+   *  @return
+   *          <code>false</code> if the term contains a call term,
+   *          <code>true</code> otherwise.
+  */
+  private static boolean getVars(Term t, ArrayList<Integer> vars)
+  {
+    if (t instanceof TermVariable)
+      vars.add(((TermVariable)t).getIndex());
+    else if (t instanceof TermCall)
+      return false;
+    else if (t instanceof TermList && !t.isNil())
+    {
+      List l = ((TermList)t).getList();
+      return getVars(l.getHead(), vars) && getVars(l.getTail(), vars);
+    }
+
+    return true;
+  }
+
+  /** To find the next binding that satisfies all the conjuncts.
+  */
+  protected Term[] nextBindingHelper()
+  {
+    int n = p.length - 1;
+    int k = 1;
+
+    //-- Find the first level that needs a new binding: this is the first level
+    //-- right after 'bind' or 'reset', and the innermost one otherwise.
+    while (b[k] != null)
+      k++;
+
+    while (true)
+    {
+      if (joinP[k] != null)
+        b[k] = nextJoinBinding(k);
+      else
+        b[k] = p[order[k]].nextBinding();
+
+      //-- If there is no binding for this level, try the next binding for the
+      //-- level before it.
+      if (b[k] == null)
+      {
+        if (k == 1)
+          return null;
+
+        b[--k] = null;
+      }
+      //-- If all the levels are satisfied, return the merged bindings.
+      else if (k == n)
+      {
+        Term[] retVal = Term.merge(b, n + 1);
+        b[n] = null;
+        return retVal;
+      }
+      //-- Otherwise, start the next level with the bindings found so far.
+      else
+      {
+        Term[] binding = Term.merge(b, ++k);
+
+        reorder(k, binding);
+
+        if (!startJoin(k, binding))
+        {
+          p[order[k]].reset();
+          p[order[k]].bind(binding);
+        }
+      }
+    }
+  }
+
+  /** To start a level as a hash join, if the conjunct tried at that level and
+   *  the one tried right before it are both atomic and have enough atoms in
+   *  the current state of the world, and some of the arguments of the former
+   *  are bound.
+   *
+   *  @param k
+   *          the level.
+   *  @param binding
+   *          the binding the level is started with.
+   *  @return
+   *          <code>true</code> if the level is evaluated as a hash join,
+   *          <code>false</code> otherwise.
+  */
+  private boolean startJoin(int k, Term[] binding)
+  {
+    joinP[k] = null;
+
+    Precondition inner = p[order[k]];
+    Precondition outer = p[order[k - 1]];
+
+    if (!(inner instanceof PreconditionAtomic) ||
+        !(outer instanceof PreconditionAtomic))
+      return false;
+
+    Predicate ip = ((PreconditionAtomic)inner).getPredicate();
+    Predicate op = ((PreconditionAtomic)outer).getPredicate();
+    State s = JSHOP2.getState();
+
+    if (ip.isVar() || op.isVar() || s.size(ip.getHead()) < joinThreshold ||
+        s.size(op.getHead()) < joinThreshold)
+      return false;
+
+    if (runEnd == null)
+      analyze();
+
+    if (argVars[order[k]] == null)
+      return false;
+
+    //-- Find out which arguments are bound.
+    Predicate boundP = ip.applySubstitution(binding);
+    Term[] args = AtomIndex.getArgs(boundP.getParam());
+    int count = 0;
+
+    for (int i = 0; i < args.length; i++)
+      if (args[i].isGround())
+        count++;
+
+    if (count == 0)
+      return false;
+
+    int[] positions = new int[count];
+
+    for (int i = 0, j = 0; i < args.length; i++)
+      if (args[i].isGround())
+        positions[j++] = i;
+
+    joinP[k] = boundP;
+    joinAtoms[k] = s.getIndex(ip.getHead(), positions).get(args);
+    joinIdx[k] = 0;
+
+    return true;
+  }
+
+  /** To find the next binding for a level that is evaluated as a hash join.
+   *
+   *  @param k
+   *          the level.
+   *  @return
+   *          the next binding, or <code>null</code> if there are no more.
+  */
+  private Term[] nextJoinBinding(int k)
+  {
+    Vector<Term> v = joinAtoms[k];
+
+    while (joinIdx[k] < v.size())
+    {
+      Term[] retVal = joinP[k].findUnifier(v.get(joinIdx[k]++));
+
+      if (retVal != null)
+        return retVal;
+    }
+
+    return null;
+  }
+
+  /** To choose the order in which the conjuncts in a run of atomic conjuncts
+   *  are tried, if reordering is on and a run starts at a given level. This is
+   *  done greedily, each time choosing the conjunct that is expected to have
+   *  the fewest satisfiers given the variables bound by the conjuncts chosen
+   *  before it. Ties are broken in favor of the conjunct that comes first in
+   *  the domain description.
+   *
+   *  @param start
+   *          the level that is being started.
+   *  @param binding
+   *          the binding the level is started with.
+  */
+  private void reorder(int start, Term[] binding)
+  {
+    if (!reorder || orderFixed)
+      return;
+
+    if (runEnd == null)
+      analyze();
+
+    int end = runEnd[start];
+
+    if (end == 0)
+      return;
+
+    State s = JSHOP2.getState();
+
+    boolean[] bound = new boolean[binding.length];
+    for (int i = 0; i < binding.length; i++)
+      bound[i] = (binding[i] != null);
+
+    for (int i = start; i <= end; i++)
+      order[i] = i;
+
+    for (int i = start; i <= end; i++)
+    {
+      int best = i;
+      double bestEst = Double.MAX_VALUE;
+
+      for (int j = i; j <= end; j++)
+      {
+        double est = estimate(s, order[j], bound);
+
+        if (est < bestEst)
+        {
+          best = j;
+          bestEst = est;
+        }
+      }
+
+      //-- Move the chosen conjunct to this level, keeping the others in their
+      //-- original relative order.
+      int chosen = order[best];
+      for (int j = best; j > i; j--)
+        order[j] = order[j - 1];
+      order[i] = chosen;
+
+      for (int[] arg : argVars[chosen])
+        for (int v : arg)
+          bound[v] = true;
+    }
+  }
+
+  /** To estimate the number of satisfiers of an atomic conjunct, assuming
+   *  that each argument that is already bound cuts the number of matching
+   *  atoms by a factor of four.
+   *
+   *  @param s
+   *          the current state of the world.
+   *  @param c
+   *          which conjunct.
+   *  @param bound
+   *          which variables are already bound.
+   *  @return
+   *          the estimated number of satisfiers.
+  */
+  private double estimate(State s, int c, boolean[] bound)
+  {
+    int free = 0;
+    int boundArgs = 0;
+
+    for (int[] arg : argVars[c])
+    {
+      boolean isBound = true;
+
+      for (int v : arg)
+        isBound &= bound[v];
+
+      if (isBound)
+        boundArgs++;
+      else
+        free++;
+    }
+
+    //-- A conjunct with all its arguments bound is a test, which has at most
+    //-- one satisfier.
+    if (free == 0)
+      return Math.min(s.size(heads[c]), 1);
+
+    return s.size(heads[c]) / Math.pow(4, boundArgs);
+  }
+
+  /** To reset this conjunction.
+  */
+  protected void resetHelper()
+  {
+    for (int i = 1; i < p.length; i++)
+    {
+      p[i].reset();
+      b[i] = null;
+      joinP[i] = null;
+    }
+
+    reorder(1, b[0]);
+  }
+
+  /** To set whether or not runs of atomic conjuncts should be reordered at run
+   *  time.
+   *
+   *  @param reorderIn
+   *          <code>true</code> to reorder them, <code>false</code> to always
+   *          try the conjuncts in the order they appear in the domain
+   *          description.
+  */
+  public static void setReorder(boolean reorderIn)
+  {
+    reorder = reorderIn;
+  }
+
+  /** To set the smallest number of atoms both conjuncts of a join must have
+   *  for the inner one to be evaluated as a hash join.
+   *
+   *  @param joinThresholdIn
+   *          the number of atoms, <code>Integer.MAX_VALUE</code> to never use
+   *          hash joins.
+  */
+  public static void setJoinThreshold(int joinThresholdIn)
+  {
+    joinThreshold = joinThresholdIn;
+  }
+}
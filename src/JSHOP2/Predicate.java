@@ -251,27 +251,27 @@ public class Predicate extends CompileTimeObject
    *          the <code>String</code> representation of this predicate.
   */
   public String toString()
+  {
+    return toString(JSHOP2.getDomain());
+  }
+
+  /** This function returns a printable <code>String</code> representation of
+   *  this predicate as a logical atom, with the constant symbols mapped back
+   *  to their names in a given domain, so that it can be printed by any
+   *  thread, whichever domain it belongs to.
+   *
+   *  @param domain
+   *          the domain this predicate belongs to.
+   *  @return
+   *          the <code>String</code> representation of this predicate.
+  */
+  public String toString(Domain domain)
   {
     //-- If this predicate is a variable symbol, just print it as a variable.
     if (isVar())
       return "VAR" + varIdx;
 
-    //-- Find out what the String representation of the head of this predicate
-    //-- is.
-    String s = "(" + JSHOP2.getDomain().getConstant(head);
-
-    //-- If the argument list is a list term (which it should be usually):
-    if (param instanceof TermList)
-      if (param.isNil())
-        //-- Converting (a . NIL) to (a).
-        return  s + ")";
-      else
-        //-- Converting (a . (b)) to (a b).
-        return s + " " + ((TermList)param).getList() + ")";
-    //-- If the argument list is not a list term (which should not happen
-    //-- usually, but there is no reason to assume that it will not happen.
-    else
-      return s + "." + param + ")";
+    return toString(domain.getConstant(head), domain);
   }
 
   /** This function returns a printable <code>String</code> representation of
@@ -285,13 +285,38 @@ public class Predicate extends CompileTimeObject
    *          the <code>String</code> representation of this predicate.
   */
   public String toString(String[] constants)
+  {
+    return toString(constants, JSHOP2.getDomain());
+  }
+
+  /** This function returns a printable <code>String</code> representation of
+   *  this predicate. This function is used to print predicates other than
+   *  logical atoms (such as task atoms) that belong to a given domain.
+   *
+   *  @param constants
+   *          what <code>String</code> should each constant symbol be mapped
+   *          to.
+   *  @param domain
+   *          the domain this predicate belongs to, in which the constant
+   *          symbols in its arguments are looked up.
+   *  @return
+   *          the <code>String</code> representation of this predicate.
+  */
+  public String toString(String[] constants, Domain domain)
   {
     //-- If this predicate is a variable symbol, just print it as a variable.
     if (isVar())
       return "VAR" + varIdx;
 
-    //-- First, make up the head of the predicate.
-    String s = "(" + constants[head];
+    return toString(constants[head], domain);
+  }
+
+  /** To make up the printable <code>String</code> representation of this
+   *  predicate, given that of its head.
+  */
+  private String toString(String headName, Domain domain)
+  {
+    String s = "(" + headName;
 
     //-- If the argument list is a list term (which it should be usually):
     if (param instanceof TermList)
@@ -299,12 +324,15 @@ public class Predicate extends CompileTimeObject
         //-- Converting (a . NIL) to (a).
         return  s + ")";
       else
+      {
         //-- Converting (a . (b)) to (a b).
-        return s + " " + ((TermList)param).getList() + ")";
+        String l = param.toString(domain);
+        return s + " " + l.substring(1, l.length() - 1) + ")";
+      }
     else
     //-- If the argument list is not a list term (which should not happen
     //-- usually, but there is no reason to assume that it will not happen.
-      return s + "." + param + ")";
+      return s + "." + param.toString(domain) + ")";
   }
 
   /**
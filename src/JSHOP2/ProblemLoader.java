@@ -0,0 +1,748 @@
+package JSHOP2;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Vector;
+
+/** This class loads the initial states of the world of the planning problems
+ *  in a problem file directly into a <code>State</code> at run time. Unlike
+ *  the general parser, it only understands the initial states, which are
+ *  lists of ground atoms, so it reads them from a memory-mapped file with a
+ *  small hand-written tokenizer and creates the run-time atoms right away,
+ *  rather than building compile-time objects and producing Java code for
+ *  each atom. This makes it possible to solve problems with millions of
+ *  atoms in their initial states.
+ *
+ *  @author Okhtay Ilghami
+ *  @author <a href="http://www.cs.umd.edu/~okhtay">http://www.cs.umd.edu/~okhtay</a>
+ *  @version 1.0.3
+*/
+public class ProblemLoader
+{
+  /** The domain the problems are defined in.
+  */
+  private Domain domain;
+
+  /** The index of each constant symbol known so far, i.e., those in the
+   *  domain description, those in the problem description that were seen at
+   *  compile time, and those seen by this loader.
+  */
+  private HashMap<String, Integer> indices;
+
+  /** The index of each compound task in the domain description, or
+   *  <code>null</code> if the task names have not been needed yet.
+  */
+  private HashMap<String, Integer> compoundTasks;
+
+  /** The index of each primitive task in the domain description, or
+   *  <code>null</code> if the task names have not been needed yet.
+  */
+  private HashMap<String, Integer> primitiveTasks;
+
+  /** The contents of the file being read.
+  */
+  private ByteBuffer in;
+
+  /** The decoder for the symbols in the file being read, which rejects byte
+   *  sequences that are not valid UTF-8.
+  */
+  private final CharsetDecoder utf8 = Charset.forName("UTF-8").newDecoder();
+
+  /** The constant symbols that do not appear in the domain description, in
+   *  the order of their indices.
+  */
+  private Vector<String> problemConstants;
+
+  /** To initialize this loader.
+   *
+   *  @param domainIn
+   *          the domain the problems are defined in, with the constant
+   *          symbols of the problem description that were seen at compile
+   *          time already given to it.
+  */
+  public ProblemLoader(Domain domainIn)
+  {
+    domain = domainIn;
+    indices = new HashMap<String, Integer>();
+    problemConstants = new Vector<String>();
+
+    for (int i = 0; i < domain.constants.length; i++)
+      indices.put(domain.constants[i], i);
+
+    if (domain.problemConstants != null)
+      for (String c : domain.problemConstants)
+        addConstant(c);
+  }
+
+  /** To add a constant symbol that does not appear in the domain description.
+   *
+   *  @param name
+   *          the constant symbol.
+   *  @return
+   *          the index of the constant symbol.
+  */
+  private int addConstant(String name)
+  {
+    Integer index = indices.get(name);
+
+    if (index != null)
+      return index;
+
+    int retVal = domain.constants.length + problemConstants.size();
+    indices.put(name, retVal);
+    problemConstants.add(name);
+
+    return retVal;
+  }
+
+  /** To load the initial state of the world of one of the planning problems
+   *  in a problem file. The constant symbols seen for the first time are
+   *  added to the domain and to the constant symbols known at run time.
+   *
+   *  @param fileName
+   *          the name of the problem file.
+   *  @param which
+   *          the index of the planning problem in the file, starting at 0.
+   *  @param s
+   *          the state of the world the atoms are added to.
+   *  @return
+   *          the number of atoms read.
+   *  @throws IOException
+   *          if the file can not be read, or the initial state is not a list
+   *          of ground atoms.
+  */
+  public int load(String fileName, int which, State s) throws IOException
+  {
+    FileInputStream file = new FileInputStream(new File(fileName));
+
+    try
+    {
+      FileChannel channel = file.getChannel();
+      in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+      int[] bounds = findStates(in);
+
+      if (2 * which >= bounds.length)
+        throw error("there is no problem #" + which);
+
+      in.position(bounds[2 * which]);
+
+      return readState(s);
+    }
+    finally
+    {
+      in = null;
+      file.close();
+    }
+  }
+
+  /** To load one of the planning problems in a problem file, i.e., its
+   *  initial state of the world and its task list, so that it can be solved
+   *  without compiling the problem file. The constant symbols seen for the
+   *  first time are added to the domain and to the constant symbols known at
+   *  run time.
+   *
+   *  @param fileName
+   *          the name of the problem file.
+   *  @param which
+   *          the index of the planning problem in the file, starting at 0.
+   *  @param s
+   *          the state of the world the atoms are added to.
+   *  @return
+   *          the task list of the planning problem.
+   *  @throws IOException
+   *          if the file can not be read, the initial state is not a list of
+   *          ground atoms, or the task list is not a ground task list whose
+   *          tasks are all in the domain description.
+  */
+  public TaskList loadProblem(String fileName, int which, State s)
+    throws IOException
+  {
+    FileInputStream file = new FileInputStream(new File(fileName));
+
+    try
+    {
+      FileChannel channel = file.getChannel();
+      in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+      int[] bounds = findStates(in);
+
+      if (2 * which >= bounds.length)
+        throw error("there is no problem #" + which);
+
+      in.position(bounds[2 * which]);
+      readState(s);
+
+      in.position(bounds[2 * which + 1]);
+      TaskList retVal = readTaskList();
+
+      publishConstants();
+
+      return retVal;
+    }
+    finally
+    {
+      in = null;
+      file.close();
+    }
+  }
+
+  /** To count the planning problems in a problem file.
+   *
+   *  @param fileName
+   *          the name of the problem file.
+   *  @return
+   *          the number of planning problems in the file.
+   *  @throws IOException
+   *          if the file can not be read, or is not a problem description.
+  */
+  public static int countProblems(String fileName) throws IOException
+  {
+    FileInputStream file = new FileInputStream(new File(fileName));
+
+    try
+    {
+      FileChannel channel = file.getChannel();
+
+      return findStates(channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                                    channel.size())).length / 2;
+    }
+    finally
+    {
+      file.close();
+    }
+  }
+
+  /** To find where the initial states of the world of the planning problems
+   *  in a problem file start and end.
+   *
+   *  @param buf
+   *          the contents of the problem file.
+   *  @return
+   *          for each problem, the position of the first and right after the
+   *          last character of its initial state.
+   *  @throws IOException
+   *          if the file is not a problem description.
+  */
+  static int[] findStates(ByteBuffer buf) throws IOException
+  {
+    ProblemLoader scanner = new ProblemLoader();
+    scanner.in = buf;
+    buf.position(0);
+
+    scanner.expect('(');
+
+    if (!"defproblem".equals(scanner.readSymbol()))
+      throw scanner.error("defproblem expected");
+
+    //-- The names of the problem and the domain.
+    scanner.readSymbol();
+    scanner.readSymbol();
+
+    ArrayList<Integer> bounds = new ArrayList<Integer>();
+
+    while (scanner.peek() != ')')
+    {
+      //-- The initial state of the world.
+      bounds.add(scanner.in.position());
+      scanner.skip();
+      bounds.add(scanner.in.position());
+
+      //-- The task list.
+      scanner.skip();
+    }
+
+    int[] retVal = new int[bounds.size()];
+
+    for (int i = 0; i < retVal.length; i++)
+      retVal[i] = bounds.get(i);
+
+    return retVal;
+  }
+
+  /** To initialize a loader that only scans the file.
+  */
+  private ProblemLoader()
+  {
+  }
+
+  /** To read an initial state of the world, and add its atoms to a state of
+   *  the world.
+  */
+  private int readState(State s) throws IOException
+  {
+    int count = 0;
+
+    //-- The arguments of the atoms, indexed by their heads, so that the atoms
+    //-- with each head are added to the state all at once.
+    ArrayList<Term>[] params =
+      GenericArrays.newArray(ArrayList.class, domain.constants.length);
+
+    if (peek() != '(')
+    {
+      if (!"nil".equals(readSymbol()))
+        throw error("initial state expected");
+
+      return 0;
+    }
+
+    expect('(');
+
+    while (peek() != ')')
+    {
+      expect('(');
+      int head = constantIndex(readSymbol());
+
+      ArrayList<Term> args = new ArrayList<Term>();
+
+      while (peek() != ')')
+        args.add(readTerm());
+
+      expect(')');
+
+      //-- An atom whose head does not appear in the domain description makes
+      //-- no difference, so it is not added, just like in the code produced
+      //-- for the problem.
+      if (head < domain.constants.length)
+      {
+        if (params[head] == null)
+          params[head] = new ArrayList<Term>();
+
+        params[head].add(args.isEmpty() ? TermList.NIL :
+                         new TermList(args.toArray(new Term[0])));
+      }
+
+      count++;
+    }
+
+    expect(')');
+
+    for (int i = 0; i < params.length; i++)
+      if (params[i] != null)
+        s.addAll(i, params[i]);
+
+    publishConstants();
+
+    return count;
+  }
+
+  /** To make the constant symbols seen for the first time known to the
+   *  domain and at run time.
+  */
+  void publishConstants()
+  {
+    String[] names = problemConstants.toArray(new String[0]);
+    TermConstant.extend(domain.constants.length + names.length);
+    domain.setProblemConstants(names);
+  }
+
+  /** To read a ground term written the way it is in a problem file, e.g., a
+   *  parameter of an atom that was exported to JSON.
+   *
+   *  @param text
+   *          the term as a string.
+   *  @return
+   *          the term.
+   *  @throws IOException
+   *          if the string is not a ground term.
+  */
+  Term parseTerm(String text) throws IOException
+  {
+    ByteBuffer saved = in;
+    in = ByteBuffer.wrap(text.getBytes("UTF-8"));
+
+    try
+    {
+      Term t = readTerm();
+
+      while (in.hasRemaining())
+        if (!Character.isWhitespace(in.get()))
+          throw error("end of term expected");
+
+      return t;
+    }
+    catch (IOException e)
+    {
+      throw new IOException("Term \"" + text + "\": " + e.getMessage());
+    }
+    finally
+    {
+      in = saved;
+    }
+  }
+
+  /** To read a list of ground atoms written the way an initial state of the
+   *  world is in a problem file, e.g., the atoms deleted from or added to the
+   *  state of the world that are given to <code>JSHOP2.replan()</code>. The
+   *  constant symbols seen for the first time are added to the domain and to
+   *  the constant symbols known at run time.
+   *
+   *  @param text
+   *          the atoms as a string, e.g., <code>((at truck1 loc2))</code>.
+   *  @return
+   *          the atoms.
+   *  @throws IOException
+   *          if the string is not a list of ground atoms.
+  */
+  public Vector<Predicate> parseAtoms(String text) throws IOException
+  {
+    ByteBuffer saved = in;
+    in = ByteBuffer.wrap(text.getBytes("UTF-8"));
+
+    try
+    {
+      Vector<Predicate> retVal = new Vector<Predicate>();
+
+      expect('(');
+
+      while (peek() != ')')
+      {
+        expect('(');
+        int head = constantIndex(readSymbol());
+
+        ArrayList<Term> args = new ArrayList<Term>();
+
+        while (peek() != ')')
+          args.add(readTerm());
+
+        expect(')');
+
+        retVal.add(new Predicate(head, 0, args.isEmpty() ? TermList.NIL :
+                                 new TermList(args.toArray(new Term[0]))));
+      }
+
+      expect(')');
+
+      publishConstants();
+
+      return retVal;
+    }
+    catch (IOException e)
+    {
+      throw new IOException("Atoms \"" + text + "\": " + e.getMessage());
+    }
+    finally
+    {
+      in = saved;
+    }
+  }
+
+  /** To read a task list, whose tasks are either task atoms or task lists
+   *  themselves.
+  */
+  private TaskList readTaskList() throws IOException
+  {
+    if (peek() != '(')
+    {
+      if (!"nil".equals(readSymbol()))
+        throw error("task list expected");
+
+      return TaskList.empty;
+    }
+
+    expect('(');
+
+    boolean ordered = true;
+
+    if (peek() != '(' && peek() != ')')
+    {
+      if (!":unordered".equals(readSymbol()))
+        throw error("task expected");
+
+      ordered = false;
+    }
+
+    Vector<TaskList> subtasks = new Vector<TaskList>();
+
+    while (peek() != ')')
+    {
+      //-- A child that starts with another list, with nothing or with the
+      //-- keyword ':unordered' is a task list, otherwise it is a task atom.
+      int pos = in.position();
+      expect('(');
+
+      boolean isList = (peek() == '(' || peek() == ')');
+
+      if (!isList)
+        isList = readSymbol().equals(":unordered");
+
+      in.position(pos);
+
+      if (isList)
+        subtasks.add(readTaskList());
+      else
+        subtasks.add(new TaskList(readTaskAtom()));
+    }
+
+    expect(')');
+
+    return TaskList.createTaskList(subtasks, ordered);
+  }
+
+  /** To read a ground task atom.
+  */
+  private TaskAtom readTaskAtom() throws IOException
+  {
+    expect('(');
+
+    String name = readSymbol();
+    boolean immediate = name.equals(":immediate");
+
+    if (immediate)
+      name = readSymbol();
+
+    boolean primitive = name.startsWith("!");
+    Integer index = taskIndex(name, primitive);
+
+    if (index == null)
+      throw error("the domain has no " + (primitive ? "primitive" : "compound")
+                  + " task called " + name);
+
+    ArrayList<Term> args = new ArrayList<Term>();
+
+    while (peek() != ')')
+      args.add(readTerm());
+
+    expect(')');
+
+    Term param = args.isEmpty() ? TermList.NIL :
+                 new TermList(args.toArray(new Term[0]));
+
+    return new TaskAtom(new Predicate(index, 0, param), immediate, primitive);
+  }
+
+  /** To get the index of a task in the domain description.
+   *
+   *  @param name
+   *          the name of the task, in lower case.
+   *  @param primitive
+   *          whether the task is primitive or compound.
+   *  @return
+   *          the index of the task, or <code>null</code> if the domain has no
+   *          such task.
+  */
+  Integer taskIndex(String name, boolean primitive)
+  {
+    if (compoundTasks == null)
+    {
+      compoundTasks = new HashMap<String, Integer>();
+      primitiveTasks = new HashMap<String, Integer>();
+
+      for (int i = 0; i < domain.compoundTasks.length; i++)
+        compoundTasks.put(domain.compoundTasks[i], i);
+
+      for (int i = 0; i < domain.primitiveTasks.length; i++)
+        primitiveTasks.put(domain.primitiveTasks[i], i);
+    }
+
+    return primitive ? primitiveTasks.get(name) : compoundTasks.get(name);
+  }
+
+  /** To read a ground term.
+  */
+  private Term readTerm() throws IOException
+  {
+    int c = peek();
+
+    if (c != '(')
+    {
+      String symbol = readSymbol();
+
+      if (symbol.equals("nil"))
+        return TermList.NIL;
+
+      c = symbol.charAt(0);
+
+      if ((c >= '0' && c <= '9') || c == '-' || c == '+')
+        try
+        {
+          return TermNumber.valueOf(Double.parseDouble(symbol));
+        }
+        catch (NumberFormatException e)
+        {
+          throw error("number expected, found " + symbol);
+        }
+
+      if (c == '?')
+        throw error("the atoms in the initial state of the world must be "
+                    + "ground, variable found: " + symbol);
+
+      return TermConstant.getConstant(constantIndex(symbol));
+    }
+
+    expect('(');
+
+    ArrayList<Term> elems = new ArrayList<Term>();
+    Term tail = TermList.NIL;
+
+    while (peek() != ')')
+    {
+      if (peek() == '.' && isDelimiter(in.position() + 1))
+      {
+        in.get();
+        tail = readTerm();
+        break;
+      }
+
+      if (elems.isEmpty() && peek() != '(')
+      {
+        int pos = in.position();
+        String symbol = readSymbol();
+        in.position(pos);
+
+        if (symbol.equals("call"))
+          throw error("the atoms in the initial state of the world must be "
+                      + "ground, call term found");
+      }
+
+      elems.add(readTerm());
+    }
+
+    expect(')');
+
+    if (tail == TermList.NIL)
+      return elems.isEmpty() ? TermList.NIL :
+             new TermList(elems.toArray(new Term[0]));
+
+    //-- A list that does not end with NIL is built from its end.
+    for (int i = elems.size() - 1; i >= 0; i--)
+      tail = new TermList(elems.get(i), tail);
+
+    return tail;
+  }
+
+  /** To get the index of a constant symbol, making sure it exists at run
+   *  time.
+  */
+  int constantIndex(String name)
+  {
+    int retVal = addConstant(name);
+
+    TermConstant.extend(retVal + 1);
+
+    return retVal;
+  }
+
+  /** To skip whitespace and comments, and return the next character without
+   *  reading it.
+  */
+  private int peek() throws IOException
+  {
+    while (in.hasRemaining())
+    {
+      int c = in.get(in.position());
+
+      if (c == ';')
+        while (in.hasRemaining() && in.get() != '\n')
+          ;
+      else if (c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\f')
+        in.get();
+      else
+        return c;
+    }
+
+    throw error("unexpected end of file");
+  }
+
+  /** To read a given character, after skipping whitespace and comments.
+  */
+  private void expect(char c) throws IOException
+  {
+    if (peek() != c)
+      throw error("'" + c + "' expected");
+
+    in.get();
+  }
+
+  /** Whether or not the character at a given position ends a symbol.
+  */
+  private boolean isDelimiter(int pos)
+  {
+    if (pos >= in.limit())
+      return true;
+
+    int c = in.get(pos);
+
+    return c == '(' || c == ')' || c == ';' || c == ' ' || c == '\t' ||
+           c == '\n' || c == '\r' || c == '\f';
+  }
+
+  /** To read a symbol, i.e., a constant symbol, a keyword or a number, in
+   *  lower case.
+  */
+  private String readSymbol() throws IOException
+  {
+    int c = peek();
+
+    if (c == '(' || c == ')')
+      throw error("symbol expected");
+
+    int start = in.position();
+    int end = start;
+
+    while (!isDelimiter(end))
+      end++;
+
+    ByteBuffer bytes = in.duplicate();
+    bytes.limit(end);
+    bytes.position(start);
+
+    char[] chars;
+
+    //-- The problem file is in UTF-8, just like the text given to this class
+    //-- directly, so the bytes of a symbol are decoded as such, rather than
+    //-- one character per byte.
+    try
+    {
+      CharBuffer decoded = utf8.decode(bytes);
+      chars = new char[decoded.remaining()];
+      decoded.get(chars);
+    }
+    catch (CharacterCodingException e)
+    {
+      throw error("invalid UTF-8 in symbol");
+    }
+
+    for (int i = 0; i < chars.length; i++)
+      chars[i] = Character.toLowerCase(chars[i]);
+
+    in.position(end);
+
+    return new String(chars);
+  }
+
+  /** To skip a symbol or a whole list.
+  */
+  private void skip() throws IOException
+  {
+    if (peek() != '(')
+    {
+      readSymbol();
+      return;
+    }
+
+    in.get();
+
+    while (peek() != ')')
+      skip();
+
+    in.get();
+  }
+
+  /** To create the exception thrown when the file can not be read.
+  */
+  private IOException error(String message)
+  {
+    return new IOException("Problem file, at character " +
+                           (in == null ? 0 : in.position()) + ": " + message);
+  }
+}
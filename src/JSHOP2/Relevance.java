@@ -0,0 +1,322 @@
+package JSHOP2;
+
+import java.util.Arrays;
+import java.util.Vector;
+
+/** This class represents the result of finding out, once the initial state of
+ *  the world of a planning problem is known, which atoms can ever be in the
+ *  state of the world while that problem is being solved, and therefore which
+ *  methods, operators and axioms, and which branches of them, can ever be
+ *  used. The delete lists of the operators are ignored while doing so, so
+ *  nothing that could be used is ever dropped.
+ *
+ *  @author Okhtay Ilghami
+ *  @author <a href="http://www.cs.umd.edu/~okhtay">http://www.cs.umd.edu/~okhtay</a>
+ *  @version 1.0.3
+*/
+public class Relevance
+{
+  /** Whether or not the methods, operators and axioms that can not be used
+   *  should be dropped before each problem is solved. This is on by default.
+  */
+  private static boolean pruning = true;
+
+  /** Whether or not the result of the analysis should be printed before each
+   *  problem is solved. This is off by default.
+  */
+  private static boolean report = false;
+
+  /** The domain the analysis is done for.
+  */
+  private Domain domain;
+
+  /** For each head, whether or not atoms with that head can ever be in the
+   *  state of the world or be proved by an axiom.
+  */
+  private boolean[] possible;
+
+  /** For each head, whether or not atoms with that head are required by some
+   *  branch of some method, operator or axiom, used to report the result of
+   *  the analysis.
+  */
+  private boolean[] required;
+
+  /** A description of each method, operator, axiom or branch dropped so far,
+   *  used to report the result of the analysis.
+  */
+  private Vector<String> dropped;
+
+  /** To find out which atoms can ever hold in a problem.
+   *
+   *  @param domainIn
+   *          the domain, with none of its methods, operators or axioms
+   *          dropped.
+   *  @param s
+   *          the initial state of the world of the problem.
+  */
+  public Relevance(Domain domainIn, State s)
+  {
+    domain = domainIn;
+    dropped = new Vector<String>();
+    possible = new boolean[domain.constants.length];
+    required = new boolean[possible.length];
+
+    //-- First, the atoms in the initial state of the world.
+    for (int i = 0; i < possible.length; i++)
+      possible[i] = s.size(i) != 0;
+
+    boolean changed = true;
+
+    //-- Then, the atoms that can be proved by an axiom or added by an operator
+    //-- some branch of which can be satisfied, till nothing changes.
+    while (changed)
+    {
+      changed = false;
+
+      for (Axiom[] as : domain.axioms)
+        for (Axiom a : as)
+        {
+          int head = a.getHead().getHead();
+
+          for (int i = 0; i < a.getBranchSize() && !possible[head]; i++)
+            if (canSatisfy(a, i))
+            {
+              possible[head] = true;
+              changed = true;
+            }
+        }
+
+      for (Operator[] os : domain.ops)
+        for (Operator o : os)
+        {
+          if (!canSatisfy(o, 0))
+            continue;
+
+          int[] heads = o.getAddedHeads();
+
+          //-- If the operator can add any atom, any atom can hold.
+          if (heads == null)
+          {
+            Arrays.fill(possible, true);
+            return;
+          }
+
+          for (int head : heads)
+            if (!possible[head])
+            {
+              possible[head] = true;
+              changed = true;
+            }
+        }
+    }
+  }
+
+  /** Whether or not a given branch of a domain element can possibly be
+   *  satisfied, i.e., whether or not all the atoms it requires can hold.
+   *
+   *  @param e
+   *          the domain element.
+   *  @param which
+   *          the branch.
+   *  @return
+   *          <code>true</code> if the branch can possibly be satisfied,
+   *          <code>false</code> otherwise.
+  */
+  private boolean canSatisfy(DomainElement e, int which)
+  {
+    int[] heads = e.getRequirements(which);
+
+    if (heads != null)
+      for (int head : heads)
+        if (head >= possible.length || !possible[head])
+          return false;
+
+    return true;
+  }
+
+  /** To mark the branches of some domain elements that can never be
+   *  satisfied, and drop the elements none of whose branches can.
+   *
+   *  @param elements
+   *          the domain elements, all with the same head.
+   *  @param kind
+   *          the kind of the domain elements, used to report what was
+   *          dropped.
+   *  @param names
+   *          the names of the heads of the domain elements.
+   *  @return
+   *          the domain elements that were not dropped, in the same order.
+  */
+  <T extends DomainElement> T[] prune(T[] elements, String kind,
+                                      String[] names)
+  {
+    int count = 0;
+    boolean[] keep = new boolean[elements.length];
+
+    for (int i = 0; i < elements.length; i++)
+    {
+      T e = elements[i];
+      String name = kind + " " + names[e.getHead().getHead()] +
+                    (elements.length == 1 ? "" : " #" + (i + 1));
+
+      int branches;
+      if (e instanceof Method)
+        branches = ((Method)e).getSubs().length;
+      else if (e instanceof Axiom)
+        branches = ((Axiom)e).getBranchSize();
+      else
+        branches = 1;
+
+      boolean[] relevant = new boolean[branches];
+      boolean all = true;
+      Vector<String> labels = new Vector<String>();
+
+      for (int j = 0; j < branches; j++)
+      {
+        int[] heads = e.getRequirements(j);
+        if (heads != null)
+          for (int head : heads)
+            if (head < required.length)
+              required[head] = true;
+
+        relevant[j] = canSatisfy(e, j);
+
+        if (relevant[j])
+          keep[i] = true;
+        else
+        {
+          all = false;
+
+          if (e instanceof Method)
+            labels.add(((Method)e).getLabel(j));
+          else if (e instanceof Axiom)
+            labels.add(((Axiom)e).getLabel(j));
+        }
+      }
+
+      e.setRelevant(all ? null : relevant);
+
+      if (!keep[i])
+        dropped.add(name);
+      else
+      {
+        count++;
+
+        for (String label : labels)
+          dropped.add(name + ", branch " + label);
+      }
+    }
+
+    if (count == elements.length)
+      return elements;
+
+    T[] retVal = Arrays.copyOf(elements, count);
+
+    for (int i = 0, j = 0; i < elements.length; i++)
+      if (keep[i])
+        retVal[j++] = elements[i];
+
+    return retVal;
+  }
+
+  /** Whether or not atoms with a given head can ever hold in the problem.
+   *
+   *  @param head
+   *          the head.
+   *  @return
+   *          <code>true</code> if such atoms can hold, <code>false</code>
+   *          otherwise.
+  */
+  public boolean isPossible(int head)
+  {
+    return head < possible.length && possible[head];
+  }
+
+  /** To get a description of each method, operator, axiom or branch that was
+   *  dropped.
+   *
+   *  @return
+   *          the descriptions.
+  */
+  public Vector<String> getDropped()
+  {
+    return dropped;
+  }
+
+  /** Whether or not the methods, operators and axioms that can not be used
+   *  should be dropped before each problem is solved.
+   *
+   *  @return
+   *          <code>true</code> if they should be dropped, <code>false</code>
+   *          otherwise.
+  */
+  public static boolean isPruning()
+  {
+    return pruning;
+  }
+
+  /** To set whether or not the methods, operators and axioms that can not be
+   *  used should be dropped before each problem is solved.
+   *
+   *  @param pruningIn
+   *          <code>true</code> to drop them, <code>false</code> otherwise.
+  */
+  public static void setPruning(boolean pruningIn)
+  {
+    pruning = pruningIn;
+  }
+
+  /** Whether or not the result of the analysis should be printed before each
+   *  problem is solved.
+   *
+   *  @return
+   *          <code>true</code> if it should be printed, <code>false</code>
+   *          otherwise.
+  */
+  public static boolean isReport()
+  {
+    return report;
+  }
+
+  /** To set whether or not the result of the analysis should be printed
+   *  before each problem is solved.
+   *
+   *  @param reportIn
+   *          <code>true</code> to print it, <code>false</code> otherwise.
+  */
+  public static void setReport(boolean reportIn)
+  {
+    report = reportIn;
+  }
+
+  /** This function returns a printable description of the result of the
+   *  analysis: the atoms that can never hold, and what was dropped.
+  */
+  public String toString()
+  {
+    StringBuilder s = new StringBuilder("Atoms that can never hold: ");
+    int length = s.length();
+
+    for (int i = 0; i < possible.length; i++)
+      if (required[i] && !possible[i])
+      {
+        if (s.length() != length)
+          s.append(", ");
+
+        s.append(domain.getConstant(i));
+      }
+
+    if (s.length() == length)
+      s.append("none");
+
+    s.append(InternalDomain.endl);
+
+    if (dropped.isEmpty())
+      s.append("Nothing dropped" + InternalDomain.endl);
+
+    for (String d : dropped)
+      s.append("Dropped " + d + InternalDomain.endl);
+
+    return s.toString();
+  }
+}
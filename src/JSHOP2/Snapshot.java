@@ -0,0 +1,495 @@
+package JSHOP2;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Vector;
+
+/** This class writes a planning problem, i.e., the constant symbols of the
+ *  problem description, the initial state of the world and the task list, to
+ *  a compact binary file, and reads it back. Reading a snapshot involves no
+ *  parsing: the file is memory-mapped, and every distinct term is created
+ *  only once, no matter how many atoms share it, so that restarting a planner
+ *  on a problem with millions of atoms takes much less time than loading the
+ *  problem file again. The terms are still objects once they are read, since
+ *  that is what the state of the world is made of.
+ *  <p>
+ *  Snapshots are written by the <code>main()</code> function of this class,
+ *  and <code>BatchSolver</code> solves them just like problem files.
+ *  <p>
+ *  The methods, operators and axioms of the domain are compiled into Java
+ *  classes, so they are not written to the snapshot. Instead, the snapshot
+ *  keeps the symbol tables of the domain it was made with, and can only be
+ *  read back with the same domain.
+ *  <p>
+ *  The file starts with a magic number and a version number, followed by the
+ *  symbol tables of the domain (the constant symbols, the primitive tasks and
+ *  the compound tasks), the constant symbols of the problem description, a
+ *  table of all the terms used, the atoms in the state of the world as
+ *  indices into that table grouped by their heads, and finally the task list.
+ *  All the numbers are written in big-endian order.
+ *
+ *  @author Okhtay Ilghami
+ *  @author <a href="http://www.cs.umd.edu/~okhtay">http://www.cs.umd.edu/~okhtay</a>
+ *  @version 1.0.3
+*/
+public class Snapshot
+{
+  /** The magic number every snapshot starts with, "JSH2" in ASCII.
+  */
+  public static final int MAGIC = 0x4A534832;
+
+  /** The version of the format of the snapshots written by this class.
+  */
+  public static final int VERSION = 1;
+
+  //-- The tags of the entries in the table of terms.
+  private static final byte NIL = 0;
+  private static final byte CONSTANT = 1;
+  private static final byte NUMBER = 2;
+  private static final byte ARRAY = 3;
+  private static final byte CONS = 4;
+
+  //-- The kinds of task lists.
+  private static final byte EMPTY_TASKS = 0;
+  private static final byte ATOMIC_TASKS = 1;
+  private static final byte TASKS = 2;
+
+  /** The index of each term written to the table of terms so far.
+  */
+  private HashMap<Term, Integer> ids;
+
+  /** The table of terms being written.
+  */
+  private DataOutputStream pool;
+
+  /** The table of terms being read.
+  */
+  private Term[] terms;
+
+  /** The contents of the file being read.
+  */
+  private ByteBuffer in;
+
+  /** This class is used through its static functions only.
+  */
+  private Snapshot()
+  {
+  }
+
+  /** To write a planning problem to a snapshot.
+   *
+   *  @param fileName
+   *          the name of the file to be written.
+   *  @param d
+   *          the domain the problem is defined in.
+   *  @param s
+   *          the initial state of the world.
+   *  @param tl
+   *          the task list to be achieved, which must be ground.
+   *  @throws IOException
+   *          if the file can not be written.
+  */
+  public static void save(String fileName, Domain d, State s, TaskList tl)
+    throws IOException
+  {
+    Snapshot w = new Snapshot();
+    w.ids = new HashMap<Term, Integer>();
+
+    ByteArrayOutputStream poolBytes = new ByteArrayOutputStream();
+    w.pool = new DataOutputStream(poolBytes);
+
+    //-- The atoms and the task list are written to memory first, since the
+    //-- table of terms they refer to must come before them in the file.
+    ByteArrayOutputStream bodyBytes = new ByteArrayOutputStream();
+    DataOutputStream body = new DataOutputStream(bodyBytes);
+
+    int heads = 0;
+
+    for (int i = 0; i < d.constants.length; i++)
+      if (s.size(i) != 0)
+        heads++;
+
+    body.writeInt(heads);
+
+    for (int i = 0; i < d.constants.length; i++)
+    {
+      Vector<Term> atoms = s.iterator(i).vec;
+
+      if (atoms.isEmpty())
+        continue;
+
+      body.writeInt(i);
+      body.writeInt(atoms.size());
+
+      for (Term t : atoms)
+        body.writeInt(w.writeTerm(t));
+    }
+
+    w.writeTaskList(tl, body);
+
+    DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+      new FileOutputStream(fileName)));
+
+    try
+    {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+
+      writeSymbols(d.constants, out);
+      writeSymbols(d.primitiveTasks, out);
+      writeSymbols(d.compoundTasks, out);
+      writeSymbols((d.problemConstants == null) ? new String[0] :
+                   d.problemConstants, out);
+
+      out.writeInt(w.ids.size());
+      poolBytes.writeTo(out);
+      bodyBytes.writeTo(out);
+    }
+    finally
+    {
+      out.close();
+    }
+  }
+
+  /** To read a planning problem from a snapshot. The atoms are added to the
+   *  given state of the world, and the constant symbols of the problem
+   *  description are given to the domain and made known at run time.
+   *
+   *  @param fileName
+   *          the name of the file to be read.
+   *  @param d
+   *          the domain the problem is defined in, which must be the one the
+   *          snapshot was made with.
+   *  @param s
+   *          the state of the world the atoms are added to, e.g., a new one
+   *          of size <code>d.getConstantNo()</code>.
+   *  @return
+   *          the task list to be achieved.
+   *  @throws IOException
+   *          if the file can not be read, is not a snapshot, or was made with
+   *          a different domain.
+  */
+  public static TaskList load(String fileName, Domain d, State s)
+    throws IOException
+  {
+    FileInputStream file = new FileInputStream(new File(fileName));
+
+    try
+    {
+      FileChannel channel = file.getChannel();
+
+      Snapshot r = new Snapshot();
+      r.in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+      return r.read(d, s);
+    }
+    catch (RuntimeException e)
+    {
+      //-- A truncated or otherwise damaged file.
+      throw new IOException("Snapshot " + fileName + " is damaged: " + e, e);
+    }
+    finally
+    {
+      file.close();
+    }
+  }
+
+  /** Whether or not a file is a snapshot, i.e., starts with the magic
+   *  number.
+   *
+   *  @param fileName
+   *          the name of the file.
+   *  @return
+   *          <code>true</code> if the file is a snapshot, <code>false</code>
+   *          otherwise.
+   *  @throws IOException
+   *          if the file can not be read.
+  */
+  public static boolean isSnapshot(String fileName) throws IOException
+  {
+    DataInputStream file = new DataInputStream(new FileInputStream(fileName));
+
+    try
+    {
+      return file.available() >= 4 && file.readInt() == MAGIC;
+    }
+    finally
+    {
+      file.close();
+    }
+  }
+
+  /** To read the whole snapshot.
+  */
+  private TaskList read(Domain d, State s) throws IOException
+  {
+    if (in.getInt() != MAGIC)
+      throw new IOException("Not a snapshot");
+
+    int version = in.getInt();
+
+    if (version != VERSION)
+      throw new IOException("Snapshot version " + version + " is not supported");
+
+    if (!Arrays.equals(readSymbols(), d.constants) ||
+        !Arrays.equals(readSymbols(), d.primitiveTasks) ||
+        !Arrays.equals(readSymbols(), d.compoundTasks))
+      throw new IOException("Snapshot was made with a different domain");
+
+    //-- The constant symbols of the problem description must be known before
+    //-- the terms that refer to them are created.
+    String[] problemConstants = readSymbols();
+    TermConstant.extend(d.constants.length + problemConstants.length);
+    d.setProblemConstants(problemConstants);
+
+    terms = new Term[in.getInt()];
+
+    //-- The terms are interned as they are read, so that adding the atoms to
+    //-- the state of the world does not copy them again.
+    for (int i = 0; i < terms.length; i++)
+      terms[i] = Term.intern(readTerm());
+
+    int heads = in.getInt();
+
+    for (int i = 0; i < heads; i++)
+    {
+      int head = in.getInt();
+      Term[] atoms = new Term[in.getInt()];
+
+      for (int j = 0; j < atoms.length; j++)
+        atoms[j] = terms[in.getInt()];
+
+      s.addAll(head, Arrays.asList(atoms));
+    }
+
+    return readTaskList();
+  }
+
+  /** To write a table of symbols.
+  */
+  private static void writeSymbols(String[] symbols, DataOutputStream out)
+    throws IOException
+  {
+    out.writeInt(symbols.length);
+
+    for (String symbol : symbols)
+    {
+      byte[] bytes = symbol.getBytes("UTF-8");
+      out.writeInt(bytes.length);
+      out.write(bytes);
+    }
+  }
+
+  /** To read a table of symbols.
+  */
+  private String[] readSymbols() throws IOException
+  {
+    String[] retVal = new String[in.getInt()];
+
+    for (int i = 0; i < retVal.length; i++)
+    {
+      byte[] bytes = new byte[in.getInt()];
+      in.get(bytes);
+      retVal[i] = new String(bytes, "UTF-8");
+    }
+
+    return retVal;
+  }
+
+  /** To add a ground term, and the terms it is made of, to the table of
+   *  terms, unless it is already there.
+   *
+   *  @return
+   *          the index of the term in the table.
+  */
+  private int writeTerm(Term t) throws IOException
+  {
+    Integer id = ids.get(t);
+
+    if (id != null)
+      return id;
+
+    //-- The terms a term is made of are written before it, so that they can
+    //-- be referred to when it is read.
+    if (t instanceof TermConstant)
+    {
+      pool.writeByte(CONSTANT);
+      pool.writeInt(((TermConstant)t).getIndex());
+    }
+    else if (t instanceof TermNumber)
+    {
+      pool.writeByte(NUMBER);
+      pool.writeDouble(((TermNumber)t).getNumber());
+    }
+    else if (t instanceof TermList && ((TermList)t).isNil())
+      pool.writeByte(NIL);
+    else if (t instanceof TermList && ((TermList)t).getElements() != null)
+    {
+      Term[] elems = ((TermList)t).getElements();
+      int[] elemIds = new int[elems.length];
+
+      for (int i = 0; i < elems.length; i++)
+        elemIds[i] = writeTerm(elems[i]);
+
+      pool.writeByte(ARRAY);
+      pool.writeInt(elems.length);
+
+      for (int elemId : elemIds)
+        pool.writeInt(elemId);
+    }
+    else if (t instanceof TermList)
+    {
+      List l = ((TermList)t).getList();
+      int headId = writeTerm(l.getHead());
+      int tailId = writeTerm(l.getTail());
+
+      pool.writeByte(CONS);
+      pool.writeInt(headId);
+      pool.writeInt(tailId);
+    }
+    else
+      throw new IllegalArgumentException("Only ground terms can be written " +
+                                         "to a snapshot: " + t);
+
+    id = ids.size();
+    ids.put(t, id);
+
+    return id;
+  }
+
+  /** To read an entry of the table of terms.
+  */
+  private Term readTerm() throws IOException
+  {
+    byte tag = in.get();
+
+    switch (tag)
+    {
+      case NIL:
+        return TermList.NIL;
+      case CONSTANT:
+        return TermConstant.getConstant(in.getInt());
+      case NUMBER:
+        return TermNumber.valueOf(in.getDouble());
+      case ARRAY:
+        Term[] elems = new Term[in.getInt()];
+
+        for (int i = 0; i < elems.length; i++)
+          elems[i] = terms[in.getInt()];
+
+        return new TermList(elems);
+      case CONS:
+        Term head = terms[in.getInt()];
+        return new TermList(head, terms[in.getInt()]);
+      default:
+        throw new IOException("Unknown term tag " + tag + " in snapshot");
+    }
+  }
+
+  /** To write a task list.
+  */
+  private void writeTaskList(TaskList tl, DataOutputStream out)
+    throws IOException
+  {
+    TaskList[] subtasks = tl.getSubtasks();
+
+    if (subtasks == null)
+    {
+      TaskAtom task = tl.getTask();
+
+      out.writeByte(ATOMIC_TASKS);
+      out.writeInt(task.getHead().getHead());
+      out.writeInt(writeTerm(task.getHead().getParam()));
+      out.writeBoolean(task.isImmediate());
+      out.writeBoolean(task.isPrimitive());
+    }
+    else if (subtasks.length == 0)
+      out.writeByte(EMPTY_TASKS);
+    else
+    {
+      out.writeByte(TASKS);
+      out.writeBoolean(tl.isOrdered());
+      out.writeInt(subtasks.length);
+
+      for (TaskList sub : subtasks)
+        writeTaskList(sub, out);
+    }
+  }
+
+  /** To read a task list.
+  */
+  private TaskList readTaskList() throws IOException
+  {
+    byte kind = in.get();
+
+    switch (kind)
+    {
+      case EMPTY_TASKS:
+        return TaskList.empty;
+      case ATOMIC_TASKS:
+        Predicate head = new Predicate(in.getInt(), 0, terms[in.getInt()]);
+        boolean immediate = (in.get() != 0);
+        return new TaskList(new TaskAtom(head, immediate, in.get() != 0));
+      case TASKS:
+        boolean ordered = (in.get() != 0);
+        TaskList retVal = new TaskList(in.getInt(), ordered);
+
+        for (int i = 0; i < retVal.subtasks.length; i++)
+          retVal.subtasks[i] = readTaskList();
+
+        return retVal;
+      default:
+        throw new IOException("Unknown task list kind " + kind +
+                              " in snapshot");
+    }
+  }
+
+  /** The main function that is called to write snapshots. The domain is
+   *  compiled, and each planning problem in the problem files is loaded and
+   *  written to a snapshot of its own, whose name is that of the problem file
+   *  followed by <code>.snap</code>, or by the index of the problem and
+   *  <code>.snap</code> if the file has more than one problem.
+   *
+   *  @param args
+   *          the domain file, then the problem files.
+  */
+  public static void main(String[] args) throws Exception
+  {
+    if (args.length < 2)
+    {
+      System.err.println("usage: java JSHOP2.Snapshot domain problems...");
+      System.exit(1);
+    }
+
+    Class<? extends Domain> domainClass = BatchSolver.compileDomain(args[0]);
+
+    for (int i = 1; i < args.length; i++)
+    {
+      int n = ProblemLoader.countProblems(args[i]);
+
+      for (int which = 0; which < n; which++)
+      {
+        //-- Each problem is loaded into a domain object of its own, since the
+        //-- constant symbols of the problem description are added to it.
+        Domain d = domainClass.getDeclaredConstructor().newInstance();
+        State s = new State(d.getConstantNo(), d.getAxioms(), d.getRigid());
+        TaskList tl = new ProblemLoader(d).loadProblem(args[i], which, s);
+
+        String fileName = args[i] + ((n == 1) ? "" : "-" + which) + ".snap";
+        save(fileName, d, s, tl);
+
+        System.out.println(fileName);
+      }
+    }
+  }
+}
@@ -1,5 +1,9 @@
 package JSHOP2;
 
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Vector;
 import java.util.ArrayList;
@@ -30,6 +34,55 @@ public class State
   */
   private Vector<NumberedPredicate>[] protections;
 
+  /** The number of times the atoms with each head have changed, used to tell
+   *  whether or not an index built over those atoms is still valid.
+  */
+  private int[] versions;
+
+  /** The hash indexes over the atoms with each head that have been asked for,
+   *  built on demand by <code>getIndex</code>.
+  */
+  private Vector<AtomIndex>[] indexes;
+
+  /** Whether or not the answers found by axioms should be tabled. This is off
+   *  by default.
+  */
+  private static boolean tabling = false;
+
+  /** The answers found by axioms, keyed on the call patterns of the atoms they
+   *  were found for.
+  */
+  private HashMap<java.util.List<Object>, TabledAnswers> tables;
+
+  /** The call patterns for which answers are being found right now, used to
+   *  avoid tabling recursive calls to axioms with the same pattern.
+  */
+  private HashSet<java.util.List<Object>> inProgress;
+
+  /** For each head, the heads of all the atoms the axioms with that head
+   *  depend on, directly or through other axioms. It is computed on demand,
+   *  and is an empty array for heads whose axioms can not be tabled.
+  */
+  private int[][] dependencies;
+
+  /** For each head whose atoms are rigid (i.e., no operator can delete or add
+   *  them), the set of those atoms, used to check whether or not a ground
+   *  atom is in the state of the world without looking at all of them. It is
+   *  <code>null</code> for the other heads.
+  */
+  private HashSet<Term>[] rigidAtoms;
+
+  /** For each head whose atoms are rigid, the <code>String</code>s that
+   *  represent those atoms, kept so that they do not have to be produced
+   *  again every time the state of the world is asked for.
+  */
+  private ArrayList<String>[] rendered;
+
+  /** The version of the atoms with each head the <code>String</code>s in
+   *  <code>rendered</code> were produced from.
+  */
+  private int[] renderedVersions;
+
   /** To initialize the state of the world.
    *
    *  @param size
@@ -41,20 +94,117 @@ public class State
    *          axiom can prove and second by the axioms themselves.
   */
   public State(int size, Axiom[][] axiomsIn)
+  {
+    this(size, axiomsIn, null);
+  }
+
+  /** To initialize the state of the world, given which atoms are rigid.
+   *
+   *  @param size
+   *          the number of possible heads of predicates (i.e., the number of
+   *          constant symbols that can come first in a predicate).
+   *  @param axiomsIn
+   *          the axioms in the domain description as a two-dimensional array.
+   *          The array is indexed first by the head of the predicates each
+   *          axiom can prove and second by the axioms themselves.
+   *  @param rigidIn
+   *          whether or not the atoms with each head are rigid, that is, no
+   *          operator can delete or add them, or <code>null</code> if no atom
+   *          is known to be rigid.
+  */
+  public State(int size, Axiom[][] axiomsIn, boolean[] rigidIn)
   {
     //-- Initialize the arrays that represent the atoms and protections in the
     //-- current state of the world.
-    atoms = new Vector[size];
+    atoms = GenericArrays.newArray(Vector.class, size);
+
+    protections = GenericArrays.newArray(Vector.class, size);
 
-    protections = new Vector[size];
+    versions = new int[size];
+
+    indexes = GenericArrays.newArray(Vector.class, size);
 
     for (int i = 0; i < size; i++)
     {
       atoms[i] = new Vector<Term>();
       protections[i] = new Vector<NumberedPredicate>();
+      indexes[i] = new Vector<AtomIndex>();
     }
 
     axioms = axiomsIn;
+
+    tables = new HashMap<java.util.List<Object>, TabledAnswers>();
+
+    inProgress = new HashSet<java.util.List<Object>>();
+
+    dependencies = new int[size][];
+
+    rigidAtoms = GenericArrays.newArray(HashSet.class, size);
+
+    rendered = GenericArrays.newArray(ArrayList.class, size);
+
+    renderedVersions = new int[size];
+
+    if (rigidIn != null)
+      for (int i = 0; i < size && i < rigidIn.length; i++)
+        if (rigidIn[i])
+        {
+          rigidAtoms[i] = new HashSet<Term>();
+          renderedVersions[i] = -1;
+        }
+  }
+
+  /** To initialize the state of the world as a copy of another one, so that
+   *  the two can be changed independently, e.g., by searches that run at the
+   *  same time. The atoms themselves are shared, since they never change.
+   *
+   *  @param other
+   *          the state of the world to be copied.
+  */
+  public State(State other)
+  {
+    int size = other.atoms.length;
+
+    atoms = GenericArrays.newArray(Vector.class, size);
+
+    protections = GenericArrays.newArray(Vector.class, size);
+
+    versions = other.versions.clone();
+
+    indexes = GenericArrays.newArray(Vector.class, size);
+
+    for (int i = 0; i < size; i++)
+    {
+      atoms[i] = new Vector<Term>(other.atoms[i]);
+      protections[i] = new Vector<NumberedPredicate>();
+      indexes[i] = new Vector<AtomIndex>();
+
+      //-- The protection counters change, so they are not shared.
+      for (NumberedPredicate np : other.protections[i])
+        protections[i].add(new NumberedPredicate(
+          new Predicate(np.getHead(), 0, np.getParam()), np.getNumber()));
+    }
+
+    axioms = other.axioms;
+
+    tables = new HashMap<java.util.List<Object>, TabledAnswers>();
+
+    inProgress = new HashSet<java.util.List<Object>>();
+
+    dependencies = new int[size][];
+
+    rigidAtoms = GenericArrays.newArray(HashSet.class, size);
+
+    rendered = GenericArrays.newArray(ArrayList.class, size);
+
+    renderedVersions = new int[size];
+
+    for (int i = 0; i < size; i++)
+      if (other.rigidAtoms[i] != null)
+      {
+        rigidAtoms[i] = new HashSet<Term>(other.rigidAtoms[i]);
+        renderedVersions[i] = -1;
+      }
   }
 
   /** To add a predicate to the current state of the world.
@@ -68,21 +218,71 @@ public class State
   */
   public boolean add(Predicate p)
   {
-        //-- Find the right Vector to add this predicate to.
-    
+    //-- Atoms are kept in the state as shared copies, so that comparing two
+    //-- of them is a matter of comparing references.
+    Term param = Term.intern(p.getParam());
+
     //-- First look for the predicate in the Vector. If it is already there,
-    //-- do nothing and return false.
-    for (Term t : atoms[p.getHead()]) {
-      if (p.equals(t))
+    //-- do nothing and return false. For rigid atoms, look in the set instead.
+    if (rigidAtoms[p.getHead()] != null)
+    {
+      if (!rigidAtoms[p.getHead()].add(param))
         return false;
     }
+    else
+      for (Term t : atoms[p.getHead()]) {
+        if (param.equals(t))
+          return false;
+      }
 
     //-- Add the predicate and return true.
-    atoms[p.getHead()].add(p.getParam());
+    atoms[p.getHead()].add(param);
+    versions[p.getHead()]++;
 
     return true;
   }
 
+  /** To add many atoms with the same head to the current state of the world
+   *  at once, e.g., when a large initial state is loaded. Unlike
+   *  <code>add()</code>, which looks for each atom among the ones already
+   *  there, this takes time linear in the number of atoms.
+   *
+   *  @param head
+   *          the head of the atoms.
+   *  @param params
+   *          the arguments of the atoms, in order.
+   *  @return
+   *          the number of atoms that were added (i.e., that were not already
+   *          in the current state of the world).
+  */
+  public int addAll(int head, Collection<Term> params)
+  {
+    //-- For rigid atoms the set is kept anyway, for the others a temporary
+    //-- one is built to find the atoms that are already there.
+    HashSet<Term> seen = rigidAtoms[head];
+
+    if (seen == null)
+      seen = new HashSet<Term>(atoms[head]);
+
+    int count = 0;
+
+    for (Term t : params)
+    {
+      Term param = Term.intern(t);
+
+      if (seen.add(param))
+      {
+        atoms[head].add(param);
+        count++;
+      }
+    }
+
+    if (count != 0)
+      versions[head]++;
+
+    return count;
+  }
+
   /** To protect a given predicate in the current state of the world.
    *
    *  @param p
@@ -117,7 +317,17 @@ public class State
     {
       atoms[i].clear();
       protections[i].clear();
+
+      if (rigidAtoms[i] != null)
+        rigidAtoms[i].clear();
+
+      //-- The axioms that can be used may differ from one problem to another.
+      dependencies[i] = null;
+
+      versions[i]++;
     }
+
+    tables.clear();
   }
 
   /** To delete a predicate from the current state of the world.
@@ -135,6 +345,14 @@ public class State
   {
     Term t;
 
+    //-- Use the shared copy of the atom, so that it can be compared to the
+    //-- atoms in the state by reference.
+    Term param = Term.intern(p.getParam());
+
+    //-- Rigid atoms that are not in the set need not be looked for.
+    if (rigidAtoms[p.getHead()] != null && !rigidAtoms[p.getHead()].remove(param))
+      return -1;
+
     //-- Find the right Vector to delete this predicate from.
     Vector<Term> vec = atoms[p.getHead()];
 
@@ -143,9 +361,10 @@ public class State
     {
       t = (Term)vec.get(i);
 
-      if (p.equals(t))
+      if (param.equals(t))
       {
         vec.remove(i);
+        versions[p.getHead()]++;
         return i;
       }
     }
@@ -212,6 +431,72 @@ public class State
     return false;
   }
 
+  /** To get the number of atoms with a given head in the current state of the
+   *  world.
+   *
+   *  @param head
+   *          the index of the constant symbol that is the head of the atoms.
+   *  @return
+   *          the number of such atoms.
+  */
+  public int size(int head)
+  {
+    return atoms[head].size();
+  }
+
+  /** Whether or not there are axioms that can prove predicates with a given
+   *  head.
+   *
+   *  @param head
+   *          the index of the constant symbol that is the head of the
+   *          predicates.
+   *  @return
+   *          <code>true</code> if there are such axioms, <code>false</code>
+   *          otherwise.
+  */
+  public boolean hasAxioms(int head)
+  {
+    return axioms[head].length != 0;
+  }
+
+  /** To get a hash index over the atoms with a given head in the current
+   *  state of the world, keyed on the values of the arguments at given
+   *  positions. The index is built the first time it is asked for, and
+   *  rebuilt only after the atoms with that head have changed.
+   *
+   *  @param head
+   *          the index of the constant symbol that is the head of the atoms.
+   *  @param positions
+   *          the positions of the arguments the index is keyed on, in
+   *          increasing order.
+   *  @return
+   *          the index.
+  */
+  public AtomIndex getIndex(int head, int[] positions)
+  {
+    Vector<AtomIndex> v = indexes[head];
+
+    for (int i = 0; i < v.size(); i++)
+    {
+      AtomIndex index = v.get(i);
+
+      if (Arrays.equals(index.getPositions(), positions))
+      {
+        if (index.getVersion() == versions[head])
+          return index;
+
+        //-- The index is out of date, so build it again.
+        index = new AtomIndex(atoms[head], positions, versions[head]);
+        v.set(i, index);
+        return index;
+      }
+    }
+
+    AtomIndex index = new AtomIndex(atoms[head], positions, versions[head]);
+    v.add(index);
+    return index;
+  }
+
   /** To initialize and return the appropriate iterator when looking
    *  for ways to satisfy a given predicate.
    *
@@ -242,8 +527,6 @@ public class State
   */
   public Term[] nextBinding(Predicate p, MyIterator me)
   {
-    Term[] nextB;
-
     Term[] retVal;
 
     Term t;
@@ -252,6 +535,22 @@ public class State
     //-- we have not started looking into the axioms),
     if (me.whichAxiom == -1)
     {
+      //-- A ground atom with a rigid head can be looked up in the set of such
+      //-- atoms, rather than compared to all of them. Since there are no
+      //-- duplicate atoms, it can be satisfied by at most one of them.
+      if (me.index == 0 && rigidAtoms[p.getHead()] != null && p.isGround())
+      {
+        me.index = me.vec.size();
+
+        if (rigidAtoms[p.getHead()].contains(p.getParam()))
+        {
+          retVal = p.findUnifier(p.getParam());
+
+          if (retVal != null)
+            return retVal;
+        }
+      }
+
       //-- Iterate over the appropriate Vector to find atoms that can satisfy
       //-- the given predicate.
       while (me.index < me.vec.size())
@@ -268,8 +567,208 @@ public class State
       //-- We have already looked at all the atoms that could possibly satisfy
       //-- the predicate. From now on, we will look at the axioms only.
       me.whichAxiom = 0;
+
+      //-- If the axioms are tabled, find all their answers at once, or use
+      //-- the ones found before.
+      if (tabling)
+        me.answers = getAnswers(p);
     }
 
+    //-- Return the tabled answers one by one.
+    if (me.answers != null)
+    {
+      while (me.answerIdx < me.answers.size())
+      {
+        retVal = p.findUnifier(me.answers.get(me.answerIdx++));
+
+        if (retVal != null)
+          return retVal;
+      }
+
+      return null;
+    }
+
+    return nextAxiomBinding(p, me);
+  }
+
+  /** To find all the answers the axioms give for a given predicate, or get
+   *  them from the table if they have already been found for a predicate with
+   *  the same call pattern, and none of the atoms the axioms depend on has
+   *  changed since.
+   *
+   *  @param p
+   *          the predicate to be satisfied.
+   *  @return
+   *          the answers, or <code>null</code> if the predicate can not be
+   *          tabled, in which case the axioms should be used directly.
+  */
+  private Vector<Term> getAnswers(Predicate p)
+  {
+    int[] deps = getDependencies(p.getHead());
+
+    if (deps.length == 0)
+      return null;
+
+    java.util.List<Object> key = getCallPattern(p);
+
+    //-- A recursive call with a pattern whose answers are being found right
+    //-- now can not be answered from the table.
+    if (key == null || inProgress.contains(key))
+      return null;
+
+    long stamp = 0;
+    for (int h : deps)
+      stamp += versions[h];
+
+    TabledAnswers ta = tables.get(key);
+
+    if (ta != null && ta.getStamp() == stamp)
+      return ta.getAnswers();
+
+    //-- Find all the answers.
+    Vector<Term> answers = new Vector<Term>();
+    MyIterator me = new MyIterator(atoms[p.getHead()]);
+    me.whichAxiom = 0;
+
+    inProgress.add(key);
+
+    while (nextAxiomBinding(p, me) != null)
+      answers.add(me.answer);
+
+    inProgress.remove(key);
+
+    tables.put(key, new TabledAnswers(answers, stamp));
+
+    return answers;
+  }
+
+  /** To get the call pattern of a given predicate, i.e., its head and its
+   *  arguments, with its variable symbols numbered in the order they first
+   *  occur, so that predicates that differ only in the names of their
+   *  variables have the same call pattern.
+   *
+   *  @param p
+   *          the predicate.
+   *  @return
+   *          the call pattern, or <code>null</code> if some argument is
+   *          neither ground nor a variable symbol.
+  */
+  private static java.util.List<Object> getCallPattern(Predicate p)
+  {
+    Term[] args = AtomIndex.getArgs(p.getParam());
+
+    if (args == null)
+      return null;
+
+    Object[] key = new Object[args.length + 1];
+    int[] seen = new int[args.length];
+    int vars = 0;
+
+    key[0] = p.getHead();
+
+    for (int i = 0; i < args.length; i++)
+    {
+      if (args[i] instanceof TermVariable)
+      {
+        int idx = ((TermVariable)args[i]).getIndex();
+        int j = 0;
+
+        while (j < vars && seen[j] != idx)
+          j++;
+
+        if (j == vars)
+          seen[vars++] = idx;
+
+        key[i + 1] = j;
+      }
+      else if (args[i].isGround() && !(args[i] instanceof TermCall))
+        key[i + 1] = args[i];
+      else
+        return null;
+    }
+
+    return Arrays.asList(key);
+  }
+
+  /** To get the heads of all the atoms the axioms with a given head depend on,
+   *  directly or through other axioms.
+   *
+   *  @param head
+   *          the head.
+   *  @return
+   *          the heads, or an empty array if some of the axioms involved do
+   *          not know which atoms they depend on, or there are no axioms with
+   *          the given head.
+  */
+  private int[] getDependencies(int head)
+  {
+    if (dependencies[head] != null)
+      return dependencies[head];
+
+    boolean[] visited = new boolean[atoms.length];
+    Vector<Integer> queue = new Vector<Integer>();
+    boolean known = (axioms[head].length != 0);
+
+    queue.add(head);
+
+    //-- Follow the axioms from the given head to the heads of the atoms in
+    //-- their branches.
+    for (int i = 0; i < queue.size() && known; i++)
+    {
+      for (Axiom ax : axioms[queue.get(i)])
+      {
+        int[] d = ax.getDependencies();
+
+        if (d == null)
+        {
+          known = false;
+          break;
+        }
+
+        for (int h : d)
+          if (!visited[h])
+          {
+            visited[h] = true;
+            queue.add(h);
+          }
+      }
+    }
+
+    int count = 0;
+    for (int i = 0; i < visited.length; i++)
+      if (visited[i])
+        count++;
+
+    int[] retVal = new int[known ? count : 0];
+
+    for (int i = 0, j = 0; known && i < visited.length; i++)
+      if (visited[i])
+        retVal[j++] = i;
+
+    dependencies[head] = retVal;
+
+    return retVal;
+  }
+
+  /** This function returns the bindings that can satisfy a given predicate
+   *  using the axioms one-by-one.
+   *
+   *  @param p
+   *          the predicate to be satisfied.
+   *  @param me
+   *          the iterator that keeps track of where we are with the axioms.
+   *          When a binding is returned, the argument list of the instance of
+   *          the head of the axiom that was used is stored in it.
+   *  @return
+   *          the next binding as an array of terms indexed by the indeices of
+   *          the variable symbols in the given predicate.
+  */
+  private Term[] nextAxiomBinding(Predicate p, MyIterator me)
+  {
+    Term[] nextB;
+
+    Term[] retVal;
+
     while (true)
     {
       //-- If we need to look at a new axiom,
@@ -302,6 +801,11 @@ public class State
       //-- Iterate on all the branches of this axiom.
       for (; me.index < me.ax.getBranchSize(); me.index++)
       {
+        //-- A branch that can never be satisfied in this problem need not be
+        //-- tried.
+        if (me.pre == null && !me.ax.isRelevant(me.index))
+          continue;
+
         //-- If this is the first time this branch is considered, get the
         //-- iterator for the precondition of this branch.
         if (me.pre == null)
@@ -323,6 +827,8 @@ public class State
           //-- If there is such unifier, return it.
           if (retVal != null)
           {
+            me.answer = groundAxiomHead.getParam();
+
             //-- The further branches of this axiom must NOT be considered even
             //-- if this branch fails because there has been at least one
             //-- satisfier for this branch of the axiom. Set this variable to
@@ -352,6 +858,22 @@ public class State
     }
   }
 
+  /** To set whether or not the answers found by axioms should be tabled.
+   *  When they are, all the answers the axioms give for an atom are found the
+   *  first time that atom is proved, and are reused every time an atom with
+   *  the same call pattern is proved as long as none of the atoms the axioms
+   *  depend on has changed. This does not change the answers or their order,
+   *  but it is not suitable for axioms with infinitely many answers.
+   *
+   *  @param tablingIn
+   *          <code>true</code> to table the answers, <code>false</code>
+   *          otherwise.
+  */
+  public static void setTabling(boolean tablingIn)
+  {
+    tabling = tablingIn;
+  }
+
   /** This function is used to print the current state of the world.
   */
   public void print()
@@ -381,6 +903,24 @@ public class State
     ArrayList<String> retval = new ArrayList<String>();
     for (int i = 0; i < atoms.length; i++) 
     {
+      //-- Rigid atoms do not change during planning, so the strings that
+      //-- represent them are produced only once.
+      if (rigidAtoms[i] != null)
+      {
+        if (renderedVersions[i] != versions[i])
+        {
+          rendered[i] = new ArrayList<String>();
+
+          for (Term t : atoms[i])
+            rendered[i].add((new Predicate(i, 0, t)).toString());
+
+          renderedVersions[i] = versions[i];
+        }
+
+        retval.addAll(rendered[i]);
+        continue;
+      }
+
       for (Term t : atoms[i]) 
       {
         retval.add((new Predicate(i, 0, t)).toString());
@@ -420,7 +960,12 @@ public class State
     for (int i = delAdd[0].size() - 1; i >= 0; i--)
     {
       np = (NumberedPredicate)delAdd[0].get(i);
-      atoms[np.getHead()].add(np.getNumber(), np.getParam());
+      atoms[np.getHead()].add(np.getNumber(), Term.intern(np.getParam()));
+
+      if (rigidAtoms[np.getHead()] != null)
+        rigidAtoms[np.getHead()].add(Term.intern(np.getParam()));
+
+      versions[np.getHead()]++;
     }
 
     //-- Deleting the added protections.
@@ -7,7 +7,7 @@ package JSHOP2;
  *  @author <a href="http://www.cs.umd.edu/~okhtay">http://www.cs.umd.edu/~okhtay</a>
  *  @version 1.0.3
 */
-class Div implements Calculate
+class Div implements NumericCalculate
 {
   /** This function executes the code call and returns the result by dividing
    *  the first argument by the second one, the result of that division by the
@@ -24,7 +24,15 @@ class Div implements Calculate
       l = l.getRest();
     }
 
-    return new TermNumber(res);
+    return TermNumber.valueOf(res);
+  }
+
+  /** This function executes the code call on two numerical arguments and
+   *  returns the first argument divided by the second one.
+  */
+  public Term call(double x, double y)
+  {
+    return TermNumber.valueOf(x / y);
   }
 }
 
@@ -35,7 +43,7 @@ class Div implements Calculate
  *  @author <a href="http://www.cs.umd.edu/~okhtay">http://www.cs.umd.edu/~okhtay</a>
  *  @version 1.0.3
 */
-class Equal implements Calculate
+class Equal implements NumericCalculate
 {
   /** This function executes the code call and returns <code>NIL</code> if not
    *  all of its (possibly several) arguments are equal, and something other
@@ -58,7 +66,14 @@ class Equal implements Calculate
       t1 = t2;
     }
 
-    return new TermNumber(1.0);
+    return TermNumber.TRUE;
+  }
+
+  /** This function executes the code call on two numerical arguments.
+  */
+  public Term call(double x, double y)
+  {
+    return (x == y) ? TermNumber.TRUE : TermList.NIL;
   }
 }
 
@@ -69,7 +84,7 @@ class Equal implements Calculate
  *  @author <a href="http://www.cs.umd.edu/~okhtay">http://www.cs.umd.edu/~okhtay</a>
  *  @version 1.0.3
 */
-class Less implements Calculate
+class Less implements NumericCalculate
 {
   /** This function executes the code call and returns something other than
    *  <code>NIL</code> if and only if each argument in its argument list is
@@ -92,7 +107,14 @@ class Less implements Calculate
       t1 = t2;
     }
 
-    return new TermNumber(1.0);
+    return TermNumber.TRUE;
+  }
+
+  /** This function executes the code call on two numerical arguments.
+  */
+  public Term call(double x, double y)
+  {
+    return (x < y) ? TermNumber.TRUE : TermList.NIL;
   }
 }
 
@@ -103,7 +125,7 @@ class Less implements Calculate
  *  @author <a href="http://www.cs.umd.edu/~okhtay">http://www.cs.umd.edu/~okhtay</a>
  *  @version 1.0.3
 */
-class LessEq implements Calculate
+class LessEq implements NumericCalculate
 {
   /** This function executes the code call and returns something other than
    *  <code>NIL</code> if and only if each argument in its argument list is
@@ -126,7 +148,14 @@ class LessEq implements Calculate
       t1 = t2;
     }
 
-    return new TermNumber(1.0);
+    return TermNumber.TRUE;
+  }
+
+  /** This function executes the code call on two numerical arguments.
+  */
+  public Term call(double x, double y)
+  {
+    return (x <= y) ? TermNumber.TRUE : TermList.NIL;
   }
 }
 
@@ -151,7 +180,7 @@ class Member implements Calculate
     while (l != null)
     {
       if (t.equals(l.getHead()))
-        return new TermNumber(1.0);
+        return TermNumber.TRUE;
 
       l = l.getRest();
     }
@@ -167,7 +196,7 @@ class Member implements Calculate
  *  @author <a href="http://www.cs.umd.edu/~okhtay">http://www.cs.umd.edu/~okhtay</a>
  *  @version 1.0.3
 */
-class Minus implements Calculate
+class Minus implements NumericCalculate
 {
   /** This function executes the code call and returns the result by
    *  subtracting the second argument from the first one, the third argument
@@ -184,7 +213,15 @@ class Minus implements Calculate
       l = l.getRest();
     }
 
-    return new TermNumber(res);
+    return TermNumber.valueOf(res);
+  }
+
+  /** This function executes the code call on two numerical arguments and
+   *  returns the first argument minus the second one.
+  */
+  public Term call(double x, double y)
+  {
+    return TermNumber.valueOf(x - y);
   }
 }
 
@@ -195,7 +232,7 @@ class Minus implements Calculate
  *  @author <a href="http://www.cs.umd.edu/~okhtay">http://www.cs.umd.edu/~okhtay</a>
  *  @version 1.0.3
 */
-class More implements Calculate
+class More implements NumericCalculate
 {
   /** This function executes the code call and returns something other than
    *  <code>NIL</code> if and only if each argument in its argument list is
@@ -218,7 +255,14 @@ class More implements Calculate
       t1 = t2;
     }
 
-    return new TermNumber(1.0);
+    return TermNumber.TRUE;
+  }
+
+  /** This function executes the code call on two numerical arguments.
+  */
+  public Term call(double x, double y)
+  {
+    return (x > y) ? TermNumber.TRUE : TermList.NIL;
   }
 }
 
@@ -229,7 +273,7 @@ class More implements Calculate
  *  @author <a href="http://www.cs.umd.edu/~okhtay">http://www.cs.umd.edu/~okhtay</a>
  *  @version 1.0.3
 */
-class MoreEq implements Calculate
+class MoreEq implements NumericCalculate
 {
   /** This function executes the code call and returns something other than
    *  <code>NIL</code> if and only if each argument in its argument list is
@@ -252,7 +296,14 @@ class MoreEq implements Calculate
       t1 = t2;
     }
 
-    return new TermNumber(1.0);
+    return TermNumber.TRUE;
+  }
+
+  /** This function executes the code call on two numerical arguments.
+  */
+  public Term call(double x, double y)
+  {
+    return (x >= y) ? TermNumber.TRUE : TermList.NIL;
   }
 }
 
@@ -263,7 +314,7 @@ class MoreEq implements Calculate
  *  @author <a href="http://www.cs.umd.edu/~okhtay">http://www.cs.umd.edu/~okhtay</a>
  *  @version 1.0.3
 */
-class Mult implements Calculate
+class Mult implements NumericCalculate
 {
   /** This function executes the code call and returns the product of all its
    *  arguments.
@@ -278,7 +329,15 @@ class Mult implements Calculate
       l = l.getRest();
     }
 
-    return new TermNumber(res);
+    return TermNumber.valueOf(res);
+  }
+
+  /** This function executes the code call on two numerical arguments and
+   *  returns the product of the two arguments.
+  */
+  public Term call(double x, double y)
+  {
+    return TermNumber.valueOf(x * y);
   }
 }
 
@@ -289,7 +348,7 @@ class Mult implements Calculate
  *  @author <a href="http://www.cs.umd.edu/~okhtay">http://www.cs.umd.edu/~okhtay</a>
  *  @version 1.0.3
 */
-class NotEq implements Calculate
+class NotEq implements NumericCalculate
 {
   /** This function executes the code call and returns something other than
    *  <code>NIL</code> if and only if each argument in its argument list is
@@ -312,7 +371,14 @@ class NotEq implements Calculate
       t1 = t2;
     }
 
-    return new TermNumber(1.0);
+    return TermNumber.TRUE;
+  }
+
+  /** This function executes the code call on two numerical arguments.
+  */
+  public Term call(double x, double y)
+  {
+    return (x != y) ? TermNumber.TRUE : TermList.NIL;
   }
 }
 
@@ -323,7 +389,7 @@ class NotEq implements Calculate
  *  @author <a href="http://www.cs.umd.edu/~okhtay">http://www.cs.umd.edu/~okhtay</a>
  *  @version 1.0.3
 */
-class Plus implements Calculate
+class Plus implements NumericCalculate
 {
   /** This function executes the code call and returns the sum of all its
    *  arguments.
@@ -338,7 +404,15 @@ class Plus implements Calculate
       l = l.getRest();
     }
 
-    return new TermNumber(sum);
+    return TermNumber.valueOf(sum);
+  }
+
+  /** This function executes the code call on two numerical arguments and
+   *  returns the sum of the two arguments.
+  */
+  public Term call(double x, double y)
+  {
+    return TermNumber.valueOf(x + y);
   }
 }
 
@@ -349,7 +423,7 @@ class Plus implements Calculate
  *  @author <a href="http://www.cs.umd.edu/~okhtay">http://www.cs.umd.edu/~okhtay</a>
  *  @version 1.0.3
 */
-class Power implements Calculate
+class Power implements NumericCalculate
 {
   /** This function executes the code call and returns the result by raising
    *  the first argument to the power of the second one, the result of that to
@@ -366,7 +440,15 @@ class Power implements Calculate
       l = l.getRest();
     }
 
-    return new TermNumber(res);
+    return TermNumber.valueOf(res);
+  }
+
+  /** This function executes the code call on two numerical arguments and
+   *  returns the first argument raised to the power of the second one.
+  */
+  public Term call(double x, double y)
+  {
+    return TermNumber.valueOf(Math.pow(x, y));
   }
 }
 
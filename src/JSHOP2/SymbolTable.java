@@ -0,0 +1,179 @@
+package JSHOP2;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+/** This class represents a table of symbols, e.g., the names of the constant
+ *  symbols, compound tasks, primitive tasks or variables seen at compile time,
+ *  each of which is assigned the index it was added at. Besides the names, in
+ *  order, it keeps a hash table from each name to its index, so that looking
+ *  up a name takes constant rather than linear time.
+ *  <p>
+ *  Names can only be added to the end of a table, or all removed at once, so
+ *  the two are always in step. Code that needs the names as a list is given a
+ *  view of them that cannot be changed.
+ *
+ *  @author Okhtay Ilghami
+ *  @author <a href="http://www.cs.umd.edu/~okhtay">http://www.cs.umd.edu/~okhtay</a>
+ *  @version 1.0.3
+*/
+public class SymbolTable implements Serializable
+{
+  private static final long serialVersionUID = 2L;
+
+  /** The names in the table, in the order they were added.
+  */
+  private final ArrayList<String> names;
+
+  /** The index of the first occurrence of each name in the table. It is not
+   *  serialized, but built again from the names when the table is read.
+  */
+  private transient HashMap<String, Integer> indices;
+
+  /** A view of the names in the table that cannot be changed.
+  */
+  private transient List<String> view;
+
+  /** To initialize this table as an empty one.
+  */
+  public SymbolTable()
+  {
+    names = new ArrayList<String>();
+    indices = new HashMap<String, Integer>();
+    view = Collections.unmodifiableList(names);
+  }
+
+  /** To initialize this table with some names, in order.
+   *
+   *  @param namesIn
+   *          the names.
+  */
+  public SymbolTable(Collection<String> namesIn)
+  {
+    this();
+    addAll(namesIn);
+  }
+
+  /** To add a name to the end of this table, even if it is already in it.
+   *
+   *  @param name
+   *          the name.
+  */
+  public synchronized void add(String name)
+  {
+    if (!indices.containsKey(name))
+      indices.put(name, names.size());
+
+    names.add(name);
+  }
+
+  /** To add some names to the end of this table, in order.
+   *
+   *  @param namesIn
+   *          the names.
+  */
+  public synchronized void addAll(Collection<String> namesIn)
+  {
+    for (String name : namesIn)
+      add(name);
+  }
+
+  /** To add a name to this table if it is not already in it.
+   *
+   *  @param name
+   *          the name.
+   *  @return
+   *          the index of the name in the table.
+  */
+  public synchronized int intern(String name)
+  {
+    Integer index = indices.get(name);
+
+    if (index != null)
+      return index;
+
+    add(name);
+    return names.size() - 1;
+  }
+
+  /** Whether or not a name is in this table.
+  */
+  public synchronized boolean contains(String name)
+  {
+    return indices.containsKey(name);
+  }
+
+  /** To get the index of the first occurrence of a name in this table.
+   *
+   *  @param name
+   *          the name.
+   *  @return
+   *          the index of the name, or -1 if it is not in the table.
+  */
+  public synchronized int indexOf(String name)
+  {
+    Integer index = indices.get(name);
+
+    return (index == null) ? -1 : index;
+  }
+
+  /** To get the name at a given index in this table.
+  */
+  public synchronized String get(int index)
+  {
+    return names.get(index);
+  }
+
+  /** To get the number of names in this table.
+  */
+  public synchronized int size()
+  {
+    return names.size();
+  }
+
+  /** Whether or not this table is empty.
+  */
+  public synchronized boolean isEmpty()
+  {
+    return names.isEmpty();
+  }
+
+  /** To empty this table.
+  */
+  public synchronized void clear()
+  {
+    names.clear();
+    indices.clear();
+  }
+
+  /** To get the names in this table as a list. The list cannot be changed,
+   *  but it reflects any name added to the table later.
+   *
+   *  @return
+   *          the names, in order.
+  */
+  public List<String> asList()
+  {
+    return view;
+  }
+
+  /** To read this table from a stream, and build the hash table from each
+   *  name to its index, which is not written to it.
+  */
+  private void readObject(ObjectInputStream in)
+    throws IOException, ClassNotFoundException
+  {
+    in.defaultReadObject();
+    indices = new HashMap<String, Integer>();
+    view = Collections.unmodifiableList(names);
+
+    for (int i = names.size() - 1; i >= 0; i--)
+      indices.put(names.get(i), i);
+  }
+}
@@ -0,0 +1,60 @@
+package JSHOP2;
+
+import java.util.Vector;
+
+/** This class represents the answers found for a call to the axioms with some
+ *  head, when the axioms are tabled. The answers are the instances of the
+ *  heads of the axioms that unified with the call, in the order they were
+ *  found. They are only valid as long as the atoms the axioms depend on do
+ *  not change.
+ *
+ *  @author Okhtay Ilghami
+ *  @author <a href="http://www.cs.umd.edu/~okhtay">http://www.cs.umd.edu/~okhtay</a>
+ *  @version 1.0.3
+*/
+public class TabledAnswers
+{
+  /** The answers, as the argument lists of the instances of the heads of the
+   *  axioms.
+  */
+  private Vector<Term> answers;
+
+  /** The sum of the versions of the atoms the axioms depend on, at the time
+   *  the answers were found.
+  */
+  private long stamp;
+
+  /** To initialize an object of this class.
+   *
+   *  @param answersIn
+   *          the answers.
+   *  @param stampIn
+   *          the sum of the versions of the atoms the axioms depend on.
+  */
+  public TabledAnswers(Vector<Term> answersIn, long stampIn)
+  {
+    answers = answersIn;
+    stamp = stampIn;
+  }
+
+  /** To get the answers.
+   *
+   *  @return
+   *          the answers, in the order they were found.
+  */
+  public Vector<Term> getAnswers()
+  {
+    return answers;
+  }
+
+  /** To get the sum of the versions of the atoms the axioms depend on, at the
+   *  time the answers were found.
+   *
+   *  @return
+   *          the sum.
+  */
+  public long getStamp()
+  {
+    return stamp;
+  }
+}
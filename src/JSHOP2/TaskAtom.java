@@ -104,12 +104,26 @@ public class TaskAtom extends CompileTimeObject
    *          task atom.
   */
   public String toString()
+  {
+    return toString(JSHOP2.getDomain());
+  }
+
+  /** This function is used to produce a printable <code>String</code> showing
+   *  the value of this task atom, with the names taken from a given domain.
+   *
+   *  @param domain
+   *          the domain this task atom belongs to.
+   *  @return
+   *          the printable <code>String</code> that shows the value of this
+   *          task atom.
+  */
+  public String toString(Domain domain)
   {
     String s;
     if (primitive)
-      s = head.toString(JSHOP2.getDomain().primitiveTasks);
+      s = head.toString(domain.primitiveTasks, domain);
     else
-      s = head.toString(JSHOP2.getDomain().compoundTasks);
+      s = head.toString(domain.compoundTasks, domain);
 
     if (immediate)
       return "(:immediate " + s.substring(1);
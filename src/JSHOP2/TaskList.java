@@ -1,5 +1,6 @@
 package JSHOP2;
 
+import java.io.IOException;
 import java.util.LinkedList;
 import java.util.Vector;
 import java.util.ArrayList;
@@ -34,6 +35,26 @@ public class TaskList extends CompileTimeObject
   */
   private TaskAtom task;
 
+  /** The task list this task list is a subtask of, once the options to
+   *  achieve next have been looked for in it, <code>null</code> otherwise.
+  */
+  private TaskList parent;
+
+  /** The index of this task list among the subtasks of <code>parent</code>.
+  */
+  private int index;
+
+  /** In case this task list is non-atomic, the number of its subtasks that
+   *  have not been achieved yet, or -1 if they have not been counted yet.
+  */
+  private int remaining = -1;
+
+  /** In case this task list is non-atomic and its subtasks have been counted,
+   *  the index of the first subtask that has not been achieved yet, or the
+   *  number of subtasks if they all have.
+  */
+  private int first;
+
   /** To initialize this task list as an empty one (i.e., an ordered non-atomic
    *  task list of length 0). Note that this is a private function in order to
    *  minimize its use. In case an empty task list is needed,
@@ -142,22 +163,37 @@ public class TaskList extends CompileTimeObject
   */
   public LinkedList<TaskList> getFirst()
   {
-    //-- Make an empty list.
-    LinkedList<TaskList> retVal = new LinkedList<TaskList>();
+    Vector<TaskList> res = new Vector<TaskList>();
 
-    //-- Call the helper function.
-    getFirstHelper(retVal);
+    getFirst(res);
 
-    //-- Return the result.
-    return retVal;
+    return new LinkedList<TaskList>(res);
+  }
+
+  /** To add the task atoms we have the option to achieve right now to the end
+   *  of a given <code>Vector</code>. Unlike the function above, this does
+   *  not allocate a new list every time it is called, and does not look at
+   *  the subtasks that have already been achieved, so the cost of finding the
+   *  options does not grow with the size of the task network.
+   *
+   *  @param res
+   *          the <code>Vector</code> to which the task atoms are added. What
+   *          was already in it is left untouched.
+  */
+  public void getFirst(Vector<TaskList> res)
+  {
+    getFirstHelper(res, res.size());
   }
 
-  /** The helper function to calculate a <code>LinkedList</code> of the task
-   *  atoms we have the option to achieve right now.
+  /** The helper function to calculate the task atoms we have the option to
+   *  achieve right now.
    *
    *  @param res
-   *          this <code>LinkedList</code> stores the task atoms we have
+   *          this <code>Vector</code> stores the task atoms we have
    *          incrementally calculated so far.
+   *  @param mark
+   *          the size of <code>res</code> before the first task atom was
+   *          added to it.
    *  @return
    *          <code>true</code> if there can be no more task atoms we have the
    *          option to achieve next because we have encountered an immediate
@@ -165,17 +201,17 @@ public class TaskList extends CompileTimeObject
    *          sign for this function to stop calling itself recursively for
    *          more options in case an immediate task atom has been encountered.
   */
-  private boolean getFirstHelper(LinkedList<TaskList> res)
+  private boolean getFirstHelper(Vector<TaskList> res, int mark)
   {
     //-- If this is an atomic task:
     if (subtasks == null)
     {
       //-- If this is an immediate task atom, it has to be decomposed next.
-      //-- Therefore, just empty the list, add this task atom to it, and return
-      //-- true.
+      //-- Therefore, forget the task atoms found so far, add this task atom,
+      //-- and return true.
       if (task.isImmediate())
       {
-        res.clear();
+        res.setSize(mark);
         res.add(this);
         return true;
       }
@@ -188,39 +224,110 @@ public class TaskList extends CompileTimeObject
       //-- atoms.
       return false;
     }
-    //-- If this is a non-atomic but ordered task list:
-    else if (ordered)
+
+    //-- There are no options in a task list that has been achieved.
+    if (isAchieved())
+      return false;
+
+    //-- If this is a non-atomic but ordered task list, the options are those
+    //-- of the first subtask that has not been achieved yet.
+    if (ordered)
+      return subtasks[first].getFirstHelper(res, mark);
+
+    //-- If this is a non-atomic unordered task list, for each task in the
+    //-- task list that has not been achieved yet, call the function
+    //-- recursively.
+    for (int i = 0; i < subtasks.length; i++)
+      if (!subtasks[i].isAchieved() && subtasks[i].getFirstHelper(res, mark))
+        //-- If an immediate task atom was found, just return true
+        return true;
+
+    return false;
+  }
+
+  /** Whether or not this task list has been achieved, i.e., is equivalent to
+   *  an empty task list. This is the same as <code>isEmpty</code>, except
+   *  that it takes constant time once the subtasks of this task list have
+   *  been counted, which is done the first time this function is called.
+   *  From then on, the subtasks must only be changed by <code>replace</code>
+   *  and <code>undo</code>.
+   *
+   *  @return
+   *          <code>true</code> if this task list has been achieved,
+   *          <code>false</code> otherwise.
+  */
+  private boolean isAchieved()
+  {
+    //-- Atomic task lists can not be empty.
+    if (subtasks == null)
+      return false;
+
+    if (remaining == -1)
+      count();
+
+    return remaining == 0;
+  }
+
+  /** To count the subtasks of this task list that have not been achieved,
+   *  find the first one of them, and let each subtask know where it is in
+   *  this task list.
+  */
+  private void count()
+  {
+    remaining = 0;
+    first = subtasks.length;
+
+    for (int i = subtasks.length - 1; i >= 0; i--)
     {
-      //-- Just store the length of the list to check later if it has
-      //-- changed.
-      int listSize = res.size();
+      TaskList t = subtasks[i];
 
-      //-- For each task in the task list, Call the function recursively.
-      for (int i = 0; i < subtasks.length; i++)
+      //-- The empty task list is shared, and never changes anyway.
+      if (t != empty)
       {
-        if (subtasks[i].getFirstHelper(res))
-          //-- If an immediate task atom was found, just return true.
-          return true;
-        else if (res.size() != listSize)
-          //-- Otherwise, if the list has changed (since this is an ordered
-          //-- task, it can change the list only once, therefore there is no
-          //-- need to look any further in this task list), just return false.
-          return false;
+        t.parent = this;
+        t.index = i;
       }
 
-      return false;
+      if (!t.isAchieved())
+      {
+        remaining++;
+        first = i;
+      }
+    }
+  }
+
+  /** This function is called when one of the subtasks of this task list has
+   *  been achieved, or is not achieved anymore because of a backtrack.
+   *
+   *  @param i
+   *          the index of the subtask.
+   *  @param achieved
+   *          whether or not the subtask is achieved now.
+  */
+  private void subtaskChanged(int i, boolean achieved)
+  {
+    boolean wasAchieved = (remaining == 0);
+
+    if (achieved)
+    {
+      remaining--;
+
+      //-- Move past the subtasks that have been achieved.
+      while (first < subtasks.length && subtasks[first].isAchieved())
+        first++;
     }
-    //-- If this is a non-atomic unordered task list:
     else
     {
-      //-- For each task in the task list, Call the function recursively.
-      for (int i = 0; i < subtasks.length; i++)
-        if (subtasks[i].getFirstHelper(res))
-          //-- If an immediate task atom was found, just return true
-          return true;
+      remaining++;
 
-      return false;
+      if (i < first)
+        first = i;
     }
+
+    //-- If this task list has been achieved, or is not achieved anymore, let
+    //-- the task list it is a subtask of know.
+    if (parent != null && wasAchieved != (remaining == 0))
+      parent.subtaskChanged(index, !wasAchieved);
   }
 
   /** This function produces Java code used to create this task list either
@@ -233,28 +340,59 @@ public class TaskList extends CompileTimeObject
    *          the Java code as a <code>String</code>.
   */
   public String getInitCode(String what)
+  {
+    StringBuilder s = new StringBuilder();
+
+    try
+    {
+      getInitCode(what, s);
+    }
+    catch (IOException e)
+    {
+      //-- Appending to a StringBuilder never fails.
+      throw new RuntimeException(e);
+    }
+
+    return s.toString();
+  }
+
+  /** This function writes the Java code to create this task list to a given
+   *  destination, so that the time it takes grows linearly with the size of
+   *  the task list.
+   *
+   *  @param what
+   *          the <code>String</code> name of the task list created by this
+   *          piece of code.
+   *  @param s
+   *          where the code is to be written.
+   *  @throws IOException
+  */
+  public void getInitCode(String what, Appendable s) throws IOException
   {
     //-- Empty task list.
     if (isEmpty())
-      return "\t\t" + what + " = TaskList.empty;" + endl;
+    {
+      s.append("\t\t" + what + " = TaskList.empty;" + endl);
+      return;
+    }
 
     //-- Atomic task list.
     if (subtasks == null)
-      return "\t\t" + what + " = new TaskList(" + task.toCode() + ");" + endl;
+    {
+      s.append("\t\t" + what + " = new TaskList(" + task.toCode() + ");" + endl);
+      return;
+    }
 
     //-- Non-atomic task list.
-    String s;
-
-    s = "\t\t" + what + " = new TaskList(" + subtasks.length + ", " + ordered
-        + ");" + endl;
+    s.append("\t\t" + what + " = new TaskList(" + subtasks.length + ", " +
+             ordered + ");" + endl);
 
     //-- Recursively create subtasks.
     for (int i = 0; i < subtasks.length; i++)
-      s += subtasks[i].getInitCode(what + ".subtasks[" + i + "]");
-
-    return s;
+      subtasks[i].getInitCode(what + ".subtasks[" + i + "]", s);
   }
 
+
   /** To return the task atom associated with this task list.
    *
    *  @return
@@ -305,6 +443,11 @@ public class TaskList extends CompileTimeObject
   public void replace(TaskList tasksIn)
   {
     subtasks = tasksIn.subtasks;
+    remaining = -1;
+
+    //-- If the decomposition is empty, the task atom is achieved.
+    if (parent != null && isAchieved())
+      parent.subtaskChanged(index, true);
   }
 
   /** This function sets the number of variables for this task list. This
@@ -377,8 +520,15 @@ public class TaskList extends CompileTimeObject
   */
   public void undo()
   {
+    boolean wasAchieved = isAchieved();
+
     //-- Get rid of the subtasks which are the result of the decomposition.
     subtasks = null;
+    remaining = -1;
+
+    //-- The task atom is not achieved anymore.
+    if (parent != null && wasAchieved)
+      parent.subtaskChanged(index, false);
   }
 
   /**
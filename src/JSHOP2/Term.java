@@ -29,6 +29,46 @@ public abstract class Term extends CompileTimeObject
   */
   public abstract boolean equals(Term t);
 
+  /** Whether or not another object is a term equivalent to this term. This
+   *  function, together with <code>hashCode()</code>, lets ground terms be
+   *  used as keys in hash-based collections, such as the table of interned
+   *  terms.
+   *
+   *  @param o
+   *          the object being compared to this term.
+   *  @return
+   *          <code>true</code> if the object is an equivalent term,
+   *          <code>false</code> otherwise.
+  */
+  public boolean equals(Object o)
+  {
+    return (o instanceof Term) && equals((Term)o);
+  }
+
+  /** To get the unique shared copy of a ground term, so that equivalent
+   *  ground terms built in different places are represented by the same
+   *  object and can be compared by reference. Terms that are not ground, and
+   *  terms that can not be shared, are returned as they are.
+   *
+   *  @param t
+   *          the term to be interned.
+   *  @return
+   *          the shared copy of the term.
+  */
+  public static Term intern(Term t)
+  {
+    if (t instanceof TermList)
+      return TermList.intern((TermList)t);
+
+    if (t instanceof TermConstant)
+      return TermConstant.getConstant(((TermConstant)t).getIndex());
+
+    if (t instanceof TermNumber)
+      return TermNumber.intern((TermNumber)t);
+
+    return t;
+  }
+
   /** To find a unifier that binds this term to another given term.
    *
    *  @param t
@@ -123,11 +163,28 @@ public abstract class Term extends CompileTimeObject
   }
 
   /** This function is used to produce a printable <code>String</code> showing
-   *  the value of this term.
+   *  the value of this term, with the constant symbols in it mapped back to
+   *  their names in the domain of the search used by the calling thread.
+   *
+   *  @return
+   *          the printable <code>String</code> that shows the value of this
+   *          term.
+  */
+  public String toString()
+  {
+    return toString(JSHOP2.getDomain());
+  }
+
+  /** This function is used to produce a printable <code>String</code> showing
+   *  the value of this term, with the constant symbols in it mapped back to
+   *  their names in a given domain, so that a term can be printed by any
+   *  thread, whichever domain it belongs to.
    *
+   *  @param domain
+   *          the domain the term belongs to.
    *  @return
    *          the printable <code>String</code> that shows the value of this
    *          term.
   */
-  public abstract String toString();
+  public abstract String toString(Domain domain);
 }
@@ -24,6 +24,13 @@ public class TermCall extends Term
   */
   private String func;
 
+  /** In case the argument list has exactly two elements and the code call
+   *  can be evaluated directly on numbers, these are those two arguments, so
+   *  that binding this call term does not need to build a new argument list.
+   *  Otherwise, they are <code>null</code>.
+  */
+  private Term arg1, arg2;
+
   /** To initialize this call term. This constructor is used at compile time.
    *
    *  @param argsIn
@@ -51,12 +58,33 @@ public class TermCall extends Term
     args = argsIn;
     calculate = calculateIn;
     func = funcIn;
+
+    //-- Check if the argument list is of the form (x y).
+    if (calculate instanceof NumericCalculate && args != null &&
+        args.getTail() instanceof TermList && !args.getTail().isNil() &&
+        args.getRest().getTail().isNil())
+    {
+      arg1 = args.getHead();
+      arg2 = args.getRest().getHead();
+    }
   }
 
   /** To apply a given binding to the list of arguments of the function call.
   */
   public Term bind(Term[] binding)
   {
+    //-- If the code call has two arguments that are bound to numbers, it can
+    //-- be evaluated directly on their values.
+    if (arg1 != null)
+    {
+      Term t1 = arg1.bind(binding);
+      Term t2 = arg2.bind(binding);
+
+      if (t1 instanceof TermNumber && t2 instanceof TermNumber)
+        return ((NumericCalculate)calculate).call(
+                 ((TermNumber)t1).getNumber(), ((TermNumber)t2).getNumber());
+    }
+
     List boundArgs = args.bindList(binding);
 
     //-- As soon as all the variables are bound, replace the call term with
@@ -102,8 +130,8 @@ public class TermCall extends Term
 
   /** This function is used to print this call term.
   */
-  public String toString()
+  public String toString(Domain domain)
   {
-    return "(CALL " + func + " " + args.toString() + ")";
+    return "(CALL " + func + " " + args.toString(domain) + ")";
   }
 }
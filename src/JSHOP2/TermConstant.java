@@ -12,9 +12,12 @@ public class TermConstant extends Term
   /** To represent the constant symbols that we already know exist, so that
    *  there will be no duplicate copies of those symbols. In other words, all
    *  constant symbols that represent the same thing in different places point
-   *  to the corresponding element in this array at run time.
+   *  to the corresponding element in this array at run time. The array is
+   *  replaced, never changed, when more constant symbols are needed, so that
+   *  the threads that solve problems in parallel, in the same domain or in
+   *  different ones, can read it without locking.
   */
-  private static TermConstant[] constants;
+  private static volatile TermConstant[] constants = new TermConstant[0];
 
   /** Constant symbols are mapped to integers at compile time, and these
    *  integers are used thereafter to represent the constant symbols.
@@ -43,6 +46,10 @@ public class TermConstant extends Term
   */
   public boolean equals(Term t)
   {
+    //-- Constant symbols are shared, so this is the common case.
+    if (t == this)
+      return true;
+
     //-- 't' is not a constant symbol.
     if (!(t instanceof TermConstant))
       return false;
@@ -60,7 +67,9 @@ public class TermConstant extends Term
     return ((t instanceof TermVariable) || equals(t));
   }
 
-  /** To return the correponding existing constant symbol.
+  /** To return the correponding existing constant symbol. If there are not
+   *  that many constant symbols yet, e.g., because a domain is created before
+   *  the number of constant symbols in the problem is known, there will be.
    *
    *  @param index
    *          the index of the constant symbol to be returned.
@@ -69,7 +78,15 @@ public class TermConstant extends Term
   */
   public static TermConstant getConstant(int index)
   {
-    return constants[index];
+    TermConstant[] c = constants;
+
+    if (index >= c.length)
+    {
+      extend(index + 1);
+      c = constants;
+    }
+
+    return c[index];
   }
 
   /** To get the index for this constant symbol.
@@ -86,16 +103,51 @@ public class TermConstant extends Term
    *  that there will be no duplicate copies of those symbols. In other words,
    *  all constant symbols that represent the same thing in different places
    *  point to the corresponding element in this array at run time.
+   *  <p>
+   *  A constant symbol is nothing but its index, and its name is looked up in
+   *  the domain it is printed with, so the array is shared by all the domains
+   *  loaded at the same time, however many constant symbols each of them has.
+   *  Therefore, it only grows, and the constant symbols already there are
+   *  kept, since the searches going on in other domains may be using them.
    *
    *  @param size
    *          the number of existing constant symbols.
   */
   public static void initialize(int size)
   {
-    constants = new TermConstant[size];
+    extend(size);
+  }
+
+  /** To make sure that there are at least a given number of constant symbols
+   *  at run time, keeping the ones that already exist. This is used when the
+   *  initial state of the world is loaded at run time, and has constant
+   *  symbols that were not seen at compile time.
+   *
+   *  @param size
+   *          the number of constant symbols needed.
+  */
+  public static synchronized void extend(int size)
+  {
+    TermConstant[] old = constants;
 
-    for (int i = 0; i < size; i++)
-      constants[i] = new TermConstant(i);
+    if (old.length >= size)
+      return;
+
+    TermConstant[] c = new TermConstant[Math.max(size, 2 * old.length)];
+
+    System.arraycopy(old, 0, c, 0, old.length);
+
+    for (int i = old.length; i < c.length; i++)
+      c[i] = new TermConstant(i);
+
+    constants = c;
+  }
+
+  /** The hash code of a constant symbol is the integer associated with it.
+  */
+  public int hashCode()
+  {
+    return index;
   }
 
   /** This function always returns <code>true</code> because a constant symbol
@@ -117,8 +169,8 @@ public class TermConstant extends Term
   /** Constant symbols are mapped at compile time to integers, this function,
    *  for printing purposes, maps them back to the strings they were before.
   */
-  public String toString()
+  public String toString(Domain domain)
   {
-    return JSHOP2.getDomain().getConstant(index);
+    return domain.getConstant(index);
   }
 }
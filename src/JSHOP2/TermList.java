@@ -1,5 +1,11 @@
 package JSHOP2;
 
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.WeakHashMap;
+
 /** Each list both at compile time and at run time, is an instance of this
  *  class.
  *
@@ -9,13 +15,45 @@ package JSHOP2;
 */
 public class TermList extends Term
 {
-  /** The list this term is representing.
+  /** The list this term is representing. For a list term created from an
+   *  array of elements, this is built lazily the first time it is asked for.
   */
   private List list;
 
+  /** The elements of this list term stored in a flat array, or
+   *  <code>null</code> if this list term is represented only as a list of
+   *  <code>CONS</code> cells. This representation is used for the argument
+   *  lists of logical atoms at run time, so that comparing, unifying and
+   *  binding them does not need to chase (and allocate) one cell per
+   *  element.
+  */
+  private Term[] elems;
+
+  /** The hash code of this list term, or 0 if it has not been computed yet.
+  */
+  private int hash;
+
+  /** Whether or not this list term is ground: 0 if it has not been checked
+   *  yet, 1 if it is ground and -1 if it is not.
+  */
+  private byte ground;
+
+  /** Whether or not this list term is the shared copy returned by
+   *  <code>intern()</code>. Two different interned list terms can never be
+   *  equal.
+  */
+  private boolean interned;
+
+  /** The shared copies of ground list terms, used by <code>intern()</code>.
+   *  The table holds its entries weakly, so atoms that are no longer used
+   *  anywhere can be garbage collected.
+  */
+  private static final Map<TermList, WeakReference<TermList>> internTable =
+    new WeakHashMap<TermList, WeakReference<TermList>>();
+
   /** The <code>NIL</code> term.
   */
-  public static TermList NIL = new TermList(null);
+  public static TermList NIL = new TermList((List)null);
 
   /** To initialize this list term.
    *
@@ -39,10 +77,47 @@ public class TermList extends Term
     list = new List(headIn, tailIn);
   }
 
+  /** To initialize this list term from a flat array of elements. The array
+   *  is not copied, so it must not be changed after it is passed to this
+   *  constructor.
+   *
+   *  @param elemsIn
+   *          the elements of the list this term represents, in order.
+  */
+  public TermList(Term[] elemsIn)
+  {
+    if (elemsIn.length != 0)
+      elems = elemsIn;
+  }
+
   /** To apply a given binding to the list this term represents.
   */
   public Term bind(Term[] binding)
   {
+    if (elems != null)
+    {
+      Term[] newElems = null;
+
+      //-- Bind the elements one by one, copying the array only when one of
+      //-- them actually changes.
+      for (int i = 0; i < elems.length; i++)
+      {
+        Term t = elems[i].bind(binding);
+
+        if (t != elems[i] && newElems == null)
+          newElems = elems.clone();
+
+        if (newElems != null)
+          newElems[i] = t;
+      }
+
+      //-- Nothing was bound, so this list term can be shared.
+      if (newElems == null)
+        return this;
+
+      return new TermList(newElems);
+    }
+
     if (list != null)
       return new TermList(list.bindList(binding));
     else
@@ -54,6 +129,7 @@ public class TermList extends Term
    * @return the first element of the list, or null if the list is NIL
    */
   public Term getFirst() {
+    if (elems != null) return elems[0];
     if (list == null) return null;
     return list.getHead();
   }
@@ -63,6 +139,7 @@ public class TermList extends Term
    * @return the rest of the list, or null if the list is NIL
    */
   public Term getRest() {
+    if (elems != null) return getList().getTail();
     if (list == null) return null;
     return list.getTail();
   }
@@ -72,7 +149,16 @@ public class TermList extends Term
    * @return true if the list is NIL, false otherwise
    */
   public boolean isEmpty() {
-    return list == null;
+    return list == null && elems == null;
+  }
+
+  /** Whether or not this list term represents <code>NIL</code>. Overridden so
+   *  that array-based list terms are not converted to <code>CONS</code> cells
+   *  only to be checked.
+  */
+  public boolean isNil()
+  {
+    return list == null && elems == null;
   }
 
   /** Whether or not another term is equivalent to this list term.
@@ -83,16 +169,41 @@ public class TermList extends Term
     if (!(t instanceof TermList))
       return false;
 
+    TermList tl = (TermList)t;
+
+    //-- The same object, or two interned (i.e., shared) list terms which are
+    //-- equal only if they are the same object.
+    if (this == tl || (interned && tl.interned))
+      return (this == tl);
+
+    //-- If the hash codes of both terms are known and differ, they can not be
+    //-- equal.
+    if (hash != 0 && tl.hash != 0 && hash != tl.hash)
+      return false;
+
+    //-- Both terms are represented as arrays, compare them element by element.
+    if (elems != null && tl.elems != null)
+    {
+      if (elems.length != tl.elems.length)
+        return false;
+
+      for (int i = 0; i < elems.length; i++)
+        if (!elems[i].equals(tl.elems[i]))
+          return false;
+
+      return true;
+    }
+
     //-- Both terms are representing NIL, so they are equal.
-    if (list == null && ((TermList)t).list == null)
+    if (isNil() && tl.isNil())
       return true;
 
     //-- Only one of the terms represents NIL, so they are not equal.
-    if (list == null || ((TermList)t).list == null)
+    if (isNil() || tl.isNil())
       return false;
 
     //-- Compare the lists.
-    return (list.equals(((TermList)t).list));
+    return (getList().equals(tl.getList()));
   }
 
   /** Find a unifier between this list and another given term.
@@ -107,13 +218,28 @@ public class TermList extends Term
     if (!(t instanceof TermList))
       return false;
 
+    TermList tl = (TermList)t;
+
     //-- If this list represents NIL, the only way to unify 't' with it would
     //-- be for 't' to represent NIL too.
-    if (list == null)
-      return (((TermList)t).list == null);
+    if (isNil())
+      return tl.isNil();
+
+    //-- Both terms are represented as arrays, unify them element by element.
+    if (elems != null && tl.elems != null)
+    {
+      if (elems.length != tl.elems.length)
+        return false;
+
+      for (int i = 0; i < elems.length; i++)
+        if (!elems[i].findUnifier(tl.elems[i], binding))
+          return false;
+
+      return true;
+    }
 
     //-- Unify the lists.
-    return list.findUnifierList(((TermList)t).list, binding);
+    return getList().findUnifierList(tl.getList(), binding);
   }
 
   /** To get the list this term represents.
@@ -123,23 +249,209 @@ public class TermList extends Term
   */
   public List getList()
   {
+    //-- Build the CONS cells for an array-based list term the first time they
+    //-- are needed.
+    if (list == null && elems != null)
+    {
+      List l = null;
+
+      for (int i = elems.length - 1; i >= 0; i--)
+        l = new List(elems[i], (l == null) ? NIL : new TermList(l));
+
+      list = l;
+    }
+
     return list;
   }
 
+  /** To get the elements of this list term as a flat array, if it is
+   *  represented as one.
+   *
+   *  @return
+   *          the elements of this list term, or <code>null</code> if this
+   *          list term is represented only as <code>CONS</code> cells. The
+   *          returned array must not be changed.
+  */
+  public Term[] getElements()
+  {
+    return elems;
+  }
+
   /** Whether or not there are any variables in the list this term represents.
   */
   public boolean isGround()
   {
-    return (list == null || list.isGroundList());
+    //-- List terms never change, so the answer is computed only once.
+    if (ground == 0)
+    {
+      boolean g = true;
+
+      if (elems != null)
+      {
+        for (int i = 0; i < elems.length && g; i++)
+          g = elems[i].isGround();
+      }
+      else
+        g = (list == null || list.isGroundList());
+
+      ground = (byte)(g ? 1 : -1);
+    }
+
+    return (ground == 1);
+  }
+
+  /** The hash code of this list term, computed from its elements and cached.
+   *  List terms that are equal have the same hash code no matter whether
+   *  they are represented as arrays or as <code>CONS</code> cells.
+  */
+  public int hashCode()
+  {
+    if (hash == 0)
+    {
+      int h = 1;
+      Term t = this;
+
+      //-- Walk along the list, whatever its representation.
+      while (t instanceof TermList && !t.isNil())
+      {
+        TermList tl = (TermList)t;
+
+        if (tl.elems != null)
+        {
+          for (int i = 0; i < tl.elems.length; i++)
+            h = 31 * h + tl.elems[i].hashCode();
+
+          t = NIL;
+        }
+        else
+        {
+          h = 31 * h + tl.list.getHead().hashCode();
+          t = tl.list.getTail();
+        }
+      }
+
+      //-- The tail of a dotted list.
+      if (!t.isNil())
+        h = 17 * h + t.hashCode();
+
+      hash = (h == 0) ? 1 : h;
+    }
+
+    return hash;
+  }
+
+  /** To get the shared copy of a ground list term. The shared copy is
+   *  represented as an array whenever possible, and its elements are shared
+   *  copies themselves, so that logical atoms that are built in different
+   *  places can be compared by reference. List terms that are not ground are
+   *  returned as they are.
+   *
+   *  @param t
+   *          the list term to be interned.
+   *  @return
+   *          the shared copy of the list term.
+  */
+  public static TermList intern(TermList t)
+  {
+    if (t.interned || t.isNil() || !t.isGround())
+      return t;
+
+    synchronized (internTable)
+    {
+      WeakReference<TermList> ref = internTable.get(t);
+      TermList retVal = (ref == null) ? null : ref.get();
+
+      if (retVal != null)
+        return retVal;
+    }
+
+    //-- Find the elements of the list term.
+    Term[] e = t.elems;
+
+    if (e == null)
+    {
+      ArrayList<Term> l = new ArrayList<Term>();
+      Term rest = t;
+
+      while (rest instanceof TermList && !rest.isNil())
+      {
+        List cons = ((TermList)rest).getList();
+        l.add(cons.getHead());
+        rest = cons.getTail();
+      }
+
+      //-- Dotted lists are not converted to arrays.
+      if (rest.isNil())
+        e = l.toArray(new Term[l.size()]);
+    }
+
+    //-- Build the shared copy out of the shared copies of the elements.
+    TermList retVal = t;
+
+    if (e != null)
+    {
+      Term[] newElems = null;
+
+      //-- A list term whose elements are all shared copies already is used
+      //-- as it is, rather than copied.
+      for (int i = 0; i < e.length; i++)
+      {
+        Term elem = Term.intern(e[i]);
+
+        if (elem != e[i] && newElems == null)
+          newElems = Arrays.copyOf(e, e.length);
+
+        if (newElems != null)
+          newElems[i] = elem;
+      }
+
+      if (newElems != null)
+        retVal = new TermList(newElems);
+      else if (e != t.elems)
+        retVal = new TermList(e);
+    }
+
+    retVal.hashCode();
+    retVal.ground = 1;
+
+    synchronized (internTable)
+    {
+      //-- Another thread might have interned the same list term meanwhile.
+      WeakReference<TermList> ref = internTable.get(retVal);
+      TermList other = (ref == null) ? null : ref.get();
+
+      if (other != null)
+        return other;
+
+      retVal.interned = true;
+      internTable.put(retVal, new WeakReference<TermList>(retVal));
+    }
+
+    return retVal;
   }
 
   /** This function produces Java code to create this list term.
   */
   public String toCode()
   {
-    if (list == null)
+    if (isNil())
       return "TermList.NIL";
 
+    //-- A proper list (i.e., one that ends with NIL) is created as a flat
+    //-- array of its elements.
+    StringBuilder s = new StringBuilder();
+    Term t = this;
+
+    while (t instanceof TermList && !t.isNil())
+    {
+      List l = ((TermList)t).getList();
+      s.append(s.length() == 0 ? "" : ", ").append(l.getHead().toCode());
+      t = l.getTail();
+    }
+
+    if (t.isNil())
+      return "new TermList(new Term[] {" + s + "})";
+
     return "new TermList(" + list.getHead().toCode() + ", " +
            list.getTail().toCode() + ")";
   }
@@ -153,17 +465,42 @@ public class TermList extends Term
   */
   public Predicate toPredicate(int varCount)
   {
+    if (elems != null)
+    {
+      Term param = NIL;
+
+      if (elems.length > 1)
+        param = new TermList(Arrays.copyOfRange(elems, 1, elems.length));
+
+      return new Predicate(((TermConstant)elems[0]).getIndex(), varCount,
+                           param);
+    }
+
     return new Predicate(((TermConstant)list.getHead()).getIndex(), varCount,
                          list.getTail());
   }
 
   /** This function is used to print this list term.
   */
-  public String toString()
+  public String toString(Domain domain)
   {
-    if (list == null)
+    if (isNil())
       return "NIL";
 
-    return "(" + list.toString() + ")";
+    if (elems != null)
+    {
+      StringBuilder s = new StringBuilder("(");
+
+      for (int i = 0; i < elems.length; i++)
+      {
+        if (i != 0)
+          s.append(' ');
+        s.append(elems[i].toString(domain));
+      }
+
+      return s.append(')').toString();
+    }
+
+    return "(" + list.toString(domain) + ")";
   }
 }
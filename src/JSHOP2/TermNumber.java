@@ -1,5 +1,9 @@
 package JSHOP2;
 
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+
 /** Each numerical term both at compile time and at run time, is an instance
  *  of this class.
  *
@@ -13,6 +17,38 @@ public class TermNumber extends Term
   */
   private double number;
 
+  /** The shared copies of numerical terms, used by <code>intern()</code>. The
+   *  table holds its entries weakly, so numbers that are no longer used
+   *  anywhere can be garbage collected.
+  */
+  private static final Map<TermNumber, WeakReference<TermNumber>> interned =
+    new WeakHashMap<TermNumber, WeakReference<TermNumber>>();
+
+  /** The smallest integer value for which a shared numerical term is kept by
+   *  <code>valueOf()</code>.
+  */
+  private static final int CACHE_LOW = -128;
+
+  /** The largest integer value for which a shared numerical term is kept by
+   *  <code>valueOf()</code>.
+  */
+  private static final int CACHE_HIGH = 1024;
+
+  /** The shared numerical terms for small integer values.
+  */
+  private static final TermNumber[] cache =
+    new TermNumber[CACHE_HIGH - CACHE_LOW + 1];
+
+  static
+  {
+    for (int i = 0; i < cache.length; i++)
+      cache[i] = new TermNumber(i + CACHE_LOW);
+  }
+
+  /** The numerical term that code calls return to represent <b>true</b>.
+  */
+  public static final TermNumber TRUE = valueOf(1.0);
+
   /** To initialize this numerical term.
    *
    *  @param numberIn
@@ -23,6 +59,26 @@ public class TermNumber extends Term
     number = numberIn;
   }
 
+  /** To get a numerical term with a given value. Small integer values are
+   *  mapped to shared terms, so that arithmetic on counters and the like does
+   *  not allocate new terms.
+   *
+   *  @param numberIn
+   *          the value of the numerical term.
+   *  @return
+   *          a numerical term with the given value.
+  */
+  public static TermNumber valueOf(double numberIn)
+  {
+    //-- -0.0 is excluded, so that it is still printed as it was computed.
+    if (numberIn >= CACHE_LOW && numberIn <= CACHE_HIGH &&
+        numberIn == (int)numberIn &&
+        (numberIn != 0.0 || 1 / numberIn > 0))
+      return cache[(int)numberIn - CACHE_LOW];
+
+    return new TermNumber(numberIn);
+  }
+
   /** Since this term is a numerical term, binding will not change it,
    *  therefore, simply this numerical term itself is returned.
   */
@@ -35,6 +91,9 @@ public class TermNumber extends Term
   */
   public boolean equals(Term t)
   {
+    if (t == this)
+      return true;
+
     //-- 't' is not a numerical term.
     if (!(t instanceof TermNumber))
       return false;
@@ -62,6 +121,35 @@ public class TermNumber extends Term
     return number;
   }
 
+  /** The hash code of a numerical term depends only on its value.
+  */
+  public int hashCode()
+  {
+    //-- 0.0 and -0.0 are equal, so they must have the same hash code.
+    return (number == 0.0) ? 0 : Double.hashCode(number);
+  }
+
+  /** To get the shared copy of a numerical term with a given value.
+   *
+   *  @param t
+   *          the numerical term.
+   *  @return
+   *          the shared numerical term with the same value as <code>t</code>.
+  */
+  public static synchronized TermNumber intern(TermNumber t)
+  {
+    WeakReference<TermNumber> ref = interned.get(t);
+    TermNumber retVal = (ref == null) ? null : ref.get();
+
+    if (retVal == null)
+    {
+      interned.put(t, new WeakReference<TermNumber>(t));
+      retVal = t;
+    }
+
+    return retVal;
+  }
+
   /** This function always returns <code>true</code> because a numerical term
    *  is always ground by definition.
   */
@@ -74,7 +162,7 @@ public class TermNumber extends Term
   */
   public String toCode()
   {
-    return "new TermNumber(" + number + ")";
+    return "TermNumber.valueOf(" + number + ")";
   }
 
   /** This function returns the <code>String</code> representation of the value
@@ -84,4 +172,12 @@ public class TermNumber extends Term
   {
     return String.valueOf(number);
   }
+
+  /** This function returns the <code>String</code> representation of the value
+   *  of this numerical term, which does not depend on the domain.
+  */
+  public String toString(Domain domain)
+  {
+    return toString();
+  }
 }
@@ -18,9 +18,11 @@ public class TermVariable extends Term
    *  description, so that there will be no duplicate copies of those symbols.
    *  In other words, all variable symbols that represent the same thing in
    *  different places point to the corresponding element in this array at run
-   *  time.
+   *  time. The array is shared by all the domains loaded at the same time, and
+   *  it is replaced, never changed, when a domain needs more variable symbols,
+   *  so that it can be read without locking.
   */
-  private static TermVariable[] variables;
+  private static volatile TermVariable[] variables = new TermVariable[0];
 
   /** To initialize this variable symbol.
    *
@@ -54,6 +56,13 @@ public class TermVariable extends Term
     return false;
   }
 
+  /** The hash code of a variable symbol is the integer associated with it.
+  */
+  public int hashCode()
+  {
+    return index;
+  }
+
   /** Find a unifier between this variable symbol and another given term.
   */
   public boolean findUnifier(Term t, Term[] binding)
@@ -93,7 +102,15 @@ public class TermVariable extends Term
   */
   public static TermVariable getVariable(int index)
   {
-    return variables[index];
+    TermVariable[] v = variables;
+
+    if (index >= v.length)
+    {
+      initialize(index + 1);
+      v = variables;
+    }
+
+    return v[index];
   }
 
   /** To initialize an array of variable symbols that we know occur in the
@@ -101,16 +118,29 @@ public class TermVariable extends Term
    *  symbols. In other words, all variable symbols that represent the same
    *  thing in different places point to the corresponding element in this
    *  array at run time.
+   *  <p>
+   *  A variable symbol is nothing but its index, so the array only grows, and
+   *  the variable symbols already there are kept for the domains that were
+   *  loaded before, which may have more variable symbols than this one.
    *
    *  @param size
    *          the number of existing variable symbols.
   */
-  public static void initialize(int size)
+  public static synchronized void initialize(int size)
   {
-    variables = new TermVariable[size];
+    TermVariable[] old = variables;
 
-    for (int i = 0; i < size; i++)
-      variables[i] = new TermVariable(i);
+    if (old.length >= size)
+      return;
+
+    TermVariable[] v = new TermVariable[size];
+
+    System.arraycopy(old, 0, v, 0, old.length);
+
+    for (int i = old.length; i < size; i++)
+      v[i] = new TermVariable(i);
+
+    variables = v;
   }
 
   /** This function always returns <code>false</code> because a variable symbol
@@ -135,4 +165,12 @@ public class TermVariable extends Term
   {
     return "VAR" + index;
   }
+
+  /** This function is used to print this variable symbol, which does not
+   *  depend on the domain.
+  */
+  public String toString(Domain domain)
+  {
+    return toString();
+  }
 }